@@ -9,9 +9,17 @@ import org.junit.Test;
 import java.sql.SQLException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.TableColumnKey;
+import mil.nga.geopackage.extension.nga.index.FeatureTableIndex;
+import mil.nga.geopackage.extension.rtree.RTreeIndexTableDao;
 import mil.nga.geopackage.features.columns.GeometryColumns;
+import mil.nga.geopackage.features.index.FeatureIndexManager;
+import mil.nga.geopackage.features.index.FeatureIndexType;
+import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureTableMetadata;
@@ -19,13 +27,14 @@ import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
 import mil.nga.proj.ProjectionConstants;
 import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryEnvelope;
 import mil.nga.sf.LineString;
 import mil.nga.sf.Point;
 import mil.nga.sf.Polygon;
 
 /**
- * For testing performance of feature inserts through duration logging and
- * profiling
+ * For testing performance of feature inserts and index queries through
+ * duration logging and profiling
  *
  * @author osbornb
  */
@@ -56,6 +65,28 @@ public class GeoPackagePerformance extends BaseTestCase {
         testPerformance(10000, 1000, 1000);
     }
 
+    /**
+     * Test performance of compiled statement batch inserts against per row
+     * inserts, both committed in transaction chunks
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testPerformanceBatch() throws SQLException {
+        testPerformanceBatch(10000, 1000);
+    }
+
+    /**
+     * Test performance of join based spatial and attribute index queries
+     * against the id IN subquery form
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testPerformanceJoinQueries() throws SQLException {
+        testPerformanceJoinQueries(10000, 1000, 20);
+    }
+
     /**
      * Test performance
      *
@@ -186,6 +217,256 @@ public class GeoPackagePerformance extends BaseTestCase {
         TestCase.assertEquals(createCount, finalCount);
     }
 
+    /**
+     * Test performance of batch inserts against per row inserts
+     *
+     * @param createCount rows to create
+     * @param commitChunk commit chunk for transactions
+     * @throws SQLException upon error
+     */
+    private void testPerformanceBatch(final int createCount, final int commitChunk) throws SQLException {
+
+        final String batchTableName = TABLE_NAME + "_batch";
+
+        GeoPackageManager manager = GeoPackageFactory.getManager(activity);
+
+        manager.delete(GEOPACKAGE_NAME);
+
+        Log.i(LOG_NAME, "GeoPackage: " + GEOPACKAGE_NAME);
+        Log.i(LOG_NAME, "Features: " + createCount);
+        Log.i(LOG_NAME, "Commit Chunk: " + commitChunk);
+
+        manager.create(GEOPACKAGE_NAME);
+
+        GeoPackage geoPackage = manager.open(GEOPACKAGE_NAME);
+
+        Geometry geometry = createGeometry();
+
+        SpatialReferenceSystem srs = geoPackage.getSpatialReferenceSystemDao()
+                .getOrCreateCode(ProjectionConstants.AUTHORITY_EPSG,
+                        ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+
+        GeoPackageGeometryData geometryData = GeoPackageGeometryData
+                .create(srs.getSrsId(), geometry);
+
+        // Per row inserts
+        FeatureDao dao = createPerformanceTable(geoPackage, TABLE_NAME, geometry, srs);
+
+        Instant startTime = Instant.now();
+
+        dao.beginTransaction();
+        try {
+            for (int count = 1; count <= createCount; count++) {
+                FeatureRow newRow = dao.newRow();
+                newRow.setGeometry(geometryData);
+                dao.insert(newRow);
+                if (count % commitChunk == 0) {
+                    dao.commit();
+                }
+            }
+            dao.endTransaction();
+        } catch (Exception e) {
+            dao.failTransaction();
+            throw e;
+        }
+
+        Duration rowDuration = Duration.between(startTime, Instant.now());
+        Log.i(LOG_NAME, "Row Insert Time: " + rowDuration.toString().substring(2));
+        Log.i(LOG_NAME, "Row Insert Average: "
+                + (rowDuration.toMillis() / (float) createCount) + " ms");
+
+        // Batch inserts
+        FeatureDao batchDao = createPerformanceTable(geoPackage, batchTableName, geometry, srs);
+
+        List<FeatureRow> rows = new ArrayList<>(createCount);
+        for (int count = 1; count <= createCount; count++) {
+            FeatureRow newRow = batchDao.newRow();
+            newRow.setGeometry(geometryData);
+            rows.add(newRow);
+        }
+
+        startTime = Instant.now();
+
+        int inserted = batchDao.insertBatch(rows, commitChunk);
+
+        Duration batchDuration = Duration.between(startTime, Instant.now());
+        Log.i(LOG_NAME, "Batch Insert Time: " + batchDuration.toString().substring(2));
+        Log.i(LOG_NAME, "Batch Insert Average: "
+                + (batchDuration.toMillis() / (float) createCount) + " ms");
+
+        TestCase.assertEquals(createCount, inserted);
+        for (FeatureRow row : rows) {
+            TestCase.assertTrue(row.getId() > 0);
+        }
+
+        geoPackage.close();
+
+        geoPackage = manager.open(GEOPACKAGE_NAME);
+        TestCase.assertEquals(createCount, geoPackage.getFeatureDao(TABLE_NAME).count());
+        TestCase.assertEquals(createCount, geoPackage.getFeatureDao(batchTableName).count());
+        geoPackage.close();
+    }
+
+    /**
+     * Test performance of join based index queries against the id IN subquery
+     * form, for the GeoPackage and RTree indexes
+     *
+     * @param createCount rows to create
+     * @param commitChunk commit chunk for transactions
+     * @param queryCount  envelope queries per query form
+     * @throws SQLException upon error
+     */
+    private void testPerformanceJoinQueries(final int createCount, final int commitChunk,
+                                            final int queryCount) throws SQLException {
+
+        final String joinTableName = TABLE_NAME + "_join";
+
+        GeoPackageManager manager = GeoPackageFactory.getManager(activity);
+
+        manager.delete(GEOPACKAGE_NAME);
+
+        Log.i(LOG_NAME, "GeoPackage: " + GEOPACKAGE_NAME);
+        Log.i(LOG_NAME, "Features: " + createCount);
+        Log.i(LOG_NAME, "Queries: " + queryCount);
+
+        manager.create(GEOPACKAGE_NAME);
+
+        GeoPackage geoPackage = manager.open(GEOPACKAGE_NAME);
+
+        SpatialReferenceSystem srs = geoPackage.getSpatialReferenceSystemDao()
+                .getOrCreateCode(ProjectionConstants.AUTHORITY_EPSG,
+                        ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+
+        FeatureDao dao = createPerformanceTable(geoPackage, joinTableName,
+                new Point(0, 0), srs);
+
+        // Points spread over a grid of the world
+        int columns = (int) Math.ceil(Math.sqrt(createCount));
+        List<FeatureRow> rows = new ArrayList<>(createCount);
+        for (int count = 0; count < createCount; count++) {
+            FeatureRow newRow = dao.newRow();
+            newRow.setGeometry(GeoPackageGeometryData.create(srs.getSrsId(),
+                    new Point(-180.0 + 360.0 * (count % columns) / columns,
+                            -90.0 + 180.0 * (count / columns) / columns)));
+            rows.add(newRow);
+        }
+        TestCase.assertEquals(createCount, dao.insertBatch(rows, commitChunk));
+
+        FeatureIndexManager indexManager = new FeatureIndexManager(activity,
+                geoPackage, dao);
+        try {
+
+            indexManager.index(FeatureIndexType.GEOPACKAGE);
+            indexManager.index(FeatureIndexType.RTREE);
+            FeatureTableIndex featureTableIndex = indexManager.getFeatureTableIndex();
+            RTreeIndexTableDao rTreeIndexTableDao = indexManager.getRTreeIndexTableDao();
+
+            String[] columnNames = dao.getColumnNames();
+            String pk = CoreSQLUtils.quoteWrap(dao.getPkColumnName());
+            String where = pk + " % 2 = 0";
+
+            Duration subqueryDuration = Duration.ZERO;
+            Duration joinDuration = Duration.ZERO;
+            Duration rTreeSubqueryDuration = Duration.ZERO;
+            Duration rTreeJoinDuration = Duration.ZERO;
+
+            for (int query = 0; query < queryCount; query++) {
+
+                double minX = -180.0 + 300.0 * query / queryCount;
+                double minY = -90.0 + 150.0 * query / queryCount;
+                GeometryEnvelope envelope = new GeometryEnvelope(minX, minY,
+                        minX + 60.0, minY + 30.0);
+
+                Instant startTime = Instant.now();
+                int subqueryCount = readRows(featureTableIndex.queryFeatures(
+                        false, columnNames, envelope, where, null));
+                subqueryDuration = subqueryDuration.plus(
+                        Duration.between(startTime, Instant.now()));
+
+                startTime = Instant.now();
+                int joinCount = readRows(featureTableIndex.queryFeaturesJoin(
+                        false, columnNames, envelope, where, null));
+                joinDuration = joinDuration.plus(
+                        Duration.between(startTime, Instant.now()));
+
+                TestCase.assertEquals(subqueryCount, joinCount);
+
+                startTime = Instant.now();
+                int rTreeSubqueryCount = readRows(rTreeIndexTableDao.queryFeatures(
+                        false, columnNames, envelope, where, null));
+                rTreeSubqueryDuration = rTreeSubqueryDuration.plus(
+                        Duration.between(startTime, Instant.now()));
+
+                startTime = Instant.now();
+                int rTreeJoinCount = readRows(rTreeIndexTableDao.queryFeaturesJoin(
+                        false, columnNames, envelope, where, null));
+                rTreeJoinDuration = rTreeJoinDuration.plus(
+                        Duration.between(startTime, Instant.now()));
+
+                TestCase.assertEquals(subqueryCount, rTreeSubqueryCount);
+                TestCase.assertEquals(rTreeSubqueryCount, rTreeJoinCount);
+            }
+
+            Log.i(LOG_NAME, "GeoPackage Subquery Average: "
+                    + (subqueryDuration.toMillis() / (float) queryCount) + " ms");
+            Log.i(LOG_NAME, "GeoPackage Join Average: "
+                    + (joinDuration.toMillis() / (float) queryCount) + " ms");
+            Log.i(LOG_NAME, "RTree Subquery Average: "
+                    + (rTreeSubqueryDuration.toMillis() / (float) queryCount) + " ms");
+            Log.i(LOG_NAME, "RTree Join Average: "
+                    + (rTreeJoinDuration.toMillis() / (float) queryCount) + " ms");
+
+        } finally {
+            indexManager.close();
+            geoPackage.close();
+        }
+    }
+
+    /**
+     * Read the rows of the feature cursor, closing the cursor
+     *
+     * @param cursor feature cursor
+     * @return row count
+     */
+    private static int readRows(FeatureCursor cursor) {
+        int count = 0;
+        try {
+            while (cursor.moveToNext()) {
+                cursor.getRow();
+                count++;
+            }
+        } finally {
+            cursor.close();
+        }
+        return count;
+    }
+
+    /**
+     * Create a performance feature table
+     *
+     * @param geoPackage GeoPackage
+     * @param tableName  table name
+     * @param geometry   geometry
+     * @param srs        spatial reference system
+     * @return feature dao
+     */
+    private static FeatureDao createPerformanceTable(GeoPackage geoPackage,
+                                                     String tableName, Geometry geometry,
+                                                     SpatialReferenceSystem srs) {
+
+        GeometryColumns geometryColumns = new GeometryColumns();
+        geometryColumns.setId(new TableColumnKey(tableName, COLUMN_NAME));
+        geometryColumns.setGeometryType(geometry.getGeometryType());
+        geometryColumns.setZ((byte) 0);
+        geometryColumns.setM((byte) 0);
+        geometryColumns.setSrs(srs);
+
+        geoPackage.createFeatureTable(FeatureTableMetadata.create(
+                geometryColumns, new BoundingBox(geometry)));
+
+        return geoPackage.getFeatureDao(geometryColumns);
+    }
+
     private static Geometry createGeometry() {
 
         Polygon polygon = new Polygon();
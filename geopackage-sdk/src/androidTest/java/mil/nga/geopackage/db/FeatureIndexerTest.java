@@ -1,19 +1,28 @@
 package mil.nga.geopackage.db;
 
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 
 import junit.framework.TestCase;
 
 import org.junit.Test;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import mil.nga.geopackage.db.metadata.GeoPackageMetadata;
 import mil.nga.geopackage.db.metadata.GeoPackageMetadataDb;
 import mil.nga.geopackage.db.metadata.GeometryMetadata;
 import mil.nga.geopackage.db.metadata.GeometryMetadataDataSource;
 import mil.nga.geopackage.db.metadata.TableMetadata;
 import mil.nga.geopackage.db.metadata.TableMetadataDataSource;
+import mil.nga.geopackage.extension.nga.index.FeatureTableIndex;
+import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.CreateGeoPackageTestCase;
@@ -61,6 +70,409 @@ public class FeatureIndexerTest extends CreateGeoPackageTestCase {
         testIndexer(true);
     }
 
+    /**
+     * Test indexer paging by primary key
+     *
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testIndexerKeysetPagination() throws SQLException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        int initialFeatures = FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        FeatureIndexer indexer = new FeatureIndexer(activity, featureDao);
+        try {
+
+            // Offset paginated index
+            indexer.setChunkLimit(3);
+            int offsetCount = indexer.index(true);
+            assertEquals(initialFeatures, offsetCount);
+            assertEquals(initialFeatures, indexer.count());
+
+            // Keyset paginated index
+            indexer.setKeysetPagination(true);
+            assertTrue(indexer.isKeysetPagination());
+            int keysetCount = indexer.index(true);
+            assertEquals(offsetCount, keysetCount);
+            assertEquals(initialFeatures, indexer.count());
+            assertTrue(indexer.isIndexed());
+            assertTrue(indexer.getIndexRate() >= 0);
+
+            // Chunk limit dividing the feature count evenly
+            indexer.setChunkLimit(initialFeatures);
+            assertEquals(initialFeatures, indexer.index(true));
+            assertEquals(initialFeatures, indexer.count());
+
+        } finally {
+            indexer.close();
+        }
+    }
+
+    /**
+     * Test keyset paginated indexing skips a feature with a corrupt geometry
+     * and continues indexing the following chunks
+     *
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testIndexerCorruptGeometry() throws SQLException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        int initialFeatures = FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        List<Long> ids = featureIds(featureDao);
+        assertEquals(initialFeatures, ids.size());
+        corruptGeometry(featureDao, ids.get(ids.size() / 2));
+
+        FeatureIndexer indexer = new FeatureIndexer(activity, featureDao);
+        try {
+            indexer.setChunkLimit(3);
+            indexer.setKeysetPagination(true);
+            assertTrue(initialFeatures > 3 * 2);
+            assertEquals(initialFeatures - 1, indexer.index(true));
+            assertEquals(initialFeatures - 1, indexer.count());
+            assertTrue(indexer.isIndexed());
+        } finally {
+            indexer.close();
+        }
+    }
+
+    /**
+     * Test delta indexing of a feature table index skips an inserted feature
+     * with a corrupt geometry and continues indexing the following chunks
+     *
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testTableIndexDeltaCorruptGeometry() throws SQLException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        int initialFeatures = FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        FeatureTableIndex tableIndex = new FeatureTableIndex(geoPackage, featureDao);
+        try {
+            assertEquals(initialFeatures, tableIndex.index(true));
+
+            int inserted = 10;
+            List<Long> insertedIds = new ArrayList<>();
+            for (int i = 0; i < inserted; i++) {
+                insertedIds.add(FeatureTileUtils.insertPoint(featureDao, i, i));
+            }
+            corruptGeometry(featureDao, insertedIds.get(inserted / 2));
+
+            tableIndex.setChunkLimit(3);
+            assertEquals(inserted - 1, tableIndex.indexDelta(null));
+            assertEquals(initialFeatures + inserted - 1, tableIndex.count());
+        } finally {
+            tableIndex.close();
+        }
+    }
+
+    /**
+     * Test geometry metadata envelope queries through the RTree, including
+     * after deleting metadata and vacuuming the metadata database
+     *
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testIndexerRTree() throws SQLException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        int initialFeatures = FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        FeatureIndexer indexer = new FeatureIndexer(activity, featureDao);
+        try {
+            assertEquals(initialFeatures, indexer.index(true));
+        } finally {
+            indexer.close();
+        }
+
+        String tableName = featureDao.getTableName();
+
+        GeometryEnvelope envelope = new GeometryEnvelope();
+        envelope.setMinX(10.0);
+        envelope.setMaxX(100.0);
+        envelope.setMinY(0.0);
+        envelope.setMaxY(50.0);
+
+        GeoPackageMetadataDb db = new GeoPackageMetadataDb(activity);
+        db.open();
+        try {
+            GeometryMetadataDataSource ds = new GeometryMetadataDataSource(db);
+            assertTrue(ds.hasRTree());
+
+            Set<Long> expected = filterIds(ds, tableName, envelope);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, queryIds(ds, tableName, envelope));
+            assertEquals(expected.size(), ds.count(geoPackage.getName(), tableName, envelope));
+
+            // Queries and counts are driven by an RTree search
+            long geoPackageId = ds.getGeoPackageId(geoPackage.getName());
+            String[] args = ds.querySQLArgs(envelope, geoPackageId, tableName);
+            assertRTreePlan(db, ds.querySQL(false, GeometryMetadata.COLUMNS,
+                    envelope, null, null), args);
+            assertRTreePlan(db, ds.countSQL(envelope), args);
+
+            // Delete every other geometry metadata and vacuum
+            List<Long> ids = new ArrayList<>();
+            Cursor cursor = ds.queryIds(geoPackage.getName(), tableName);
+            try {
+                while (cursor.moveToNext()) {
+                    ids.add(cursor.getLong(0));
+                }
+            } finally {
+                cursor.close();
+            }
+            assertEquals(initialFeatures, ids.size());
+            for (int i = 0; i < ids.size(); i += 2) {
+                assertTrue(ds.delete(geoPackage.getName(), tableName, ids.get(i)));
+            }
+            db.getWritableDatabase().execSQL("VACUUM");
+
+            expected = filterIds(ds, tableName, envelope);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, queryIds(ds, tableName, envelope));
+            assertEquals(expected.size(), ds.count(geoPackage.getName(), tableName, envelope));
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * Test upgrading a version 1 metadata database, keying the existing
+     * geometry metadata by an explicit id and building the RTree
+     */
+    @Test
+    public void testMetadataUpgrade() {
+
+        SQLiteDatabase sqliteDb = SQLiteDatabase.create(null);
+        try {
+
+            // Version 1 schema, geometry metadata keyed by a composite primary key
+            sqliteDb.execSQL(GeoPackageMetadata.CREATE_SQL);
+            sqliteDb.execSQL(TableMetadata.CREATE_SQL);
+            sqliteDb.execSQL("CREATE TABLE geom_metadata("
+                    + "geopackage_id INTEGER NOT NULL, "
+                    + "table_name TEXT NOT NULL, "
+                    + "geom_id INTEGER NOT NULL, "
+                    + "min_x DOUBLE NOT NULL, "
+                    + "max_x DOUBLE NOT NULL, "
+                    + "min_y DOUBLE NOT NULL, "
+                    + "max_y DOUBLE NOT NULL, "
+                    + "min_z DOUBLE, "
+                    + "max_z DOUBLE, "
+                    + "min_m DOUBLE, "
+                    + "max_m DOUBLE, "
+                    + "CONSTRAINT pk_geom_metadata PRIMARY KEY (geopackage_id, table_name, geom_id), "
+                    + "CONSTRAINT fk_gm_tm_gp FOREIGN KEY (geopackage_id) REFERENCES table_metadata(geopackage_id), "
+                    + "CONSTRAINT fk_gm_tm FOREIGN KEY (table_name) REFERENCES table_metadata(table_name));");
+
+            int features = 20;
+            for (int i = 1; i <= features; i++) {
+                sqliteDb.execSQL("INSERT INTO geom_metadata (geopackage_id, table_name, geom_id, min_x, max_x, min_y, max_y) VALUES (1, 'features', ?, ?, ?, ?, ?)",
+                        new Object[]{i * 10, i, i + 0.5, -i, -i + 0.5});
+            }
+
+            new GeoPackageMetadataDb(activity).onUpgrade(sqliteDb, 1,
+                    GeoPackageMetadataDb.DATABASE_VERSION);
+
+            assertEquals(features, count(sqliteDb, "SELECT COUNT(*) FROM "
+                    + GeometryMetadata.TABLE_NAME + " WHERE "
+                    + GeometryMetadata.COLUMN_METADATA_ID + " IS NOT NULL"));
+            assertEquals(features, count(sqliteDb, "SELECT COUNT(DISTINCT "
+                    + GeometryMetadata.COLUMN_METADATA_ID + ") FROM "
+                    + GeometryMetadata.TABLE_NAME));
+            assertEquals(1, count(sqliteDb,
+                    "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = '"
+                            + GeometryMetadata.RTREE_TABLE_NAME + "'"));
+            assertEquals(features, count(sqliteDb, "SELECT COUNT(*) FROM "
+                    + GeometryMetadata.RTREE_TABLE_NAME));
+
+            // RTree candidates match the geometry metadata bounds
+            String rtreeQuery = "SELECT " + GeometryMetadata.COLUMN_ID + " FROM "
+                    + GeometryMetadata.TABLE_NAME + " WHERE "
+                    + GeometryMetadata.COLUMN_METADATA_ID + " IN (SELECT "
+                    + GeometryMetadata.COLUMN_RTREE_ID + " FROM "
+                    + GeometryMetadata.RTREE_TABLE_NAME
+                    + " WHERE minx <= 5.75 AND maxx >= 5.25 AND miny <= -4.75 AND maxy >= -5.25)";
+            Cursor cursor = sqliteDb.rawQuery(rtreeQuery, null);
+            try {
+                assertTrue(cursor.moveToNext());
+                assertEquals(50, cursor.getLong(0));
+                assertFalse(cursor.moveToNext());
+            } finally {
+                cursor.close();
+            }
+
+            // Unique geometry metadata is still enforced
+            boolean duplicate = true;
+            try {
+                sqliteDb.execSQL("INSERT INTO geom_metadata (geopackage_id, table_name, geom_id, min_x, max_x, min_y, max_y) VALUES (1, 'features', 10, 0, 0, 0, 0)");
+            } catch (android.database.SQLException e) {
+                duplicate = false;
+            }
+            assertFalse(duplicate);
+
+            // Triggers maintain the RTree after the upgrade
+            sqliteDb.execSQL("DELETE FROM " + GeometryMetadata.TABLE_NAME
+                    + " WHERE " + GeometryMetadata.COLUMN_ID + " = 50");
+            assertEquals(features - 1, count(sqliteDb, "SELECT COUNT(*) FROM "
+                    + GeometryMetadata.RTREE_TABLE_NAME));
+            cursor = sqliteDb.rawQuery(rtreeQuery, null);
+            try {
+                assertFalse(cursor.moveToNext());
+            } finally {
+                cursor.close();
+            }
+
+        } finally {
+            sqliteDb.close();
+        }
+    }
+
+    /**
+     * Assert the query plan searches the RTree virtual table first and looks
+     * up the geometry metadata by its integer primary key
+     *
+     * @param db   metadata database
+     * @param sql  query SQL
+     * @param args query arguments
+     */
+    private static void assertRTreePlan(GeoPackageMetadataDb db, String sql,
+                                        String[] args) {
+        List<String> details = new ArrayList<>();
+        Cursor cursor = db.getReadableDatabase().rawQuery(
+                "EXPLAIN QUERY PLAN " + sql, args);
+        try {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailIndex));
+            }
+        } finally {
+            cursor.close();
+        }
+        assertTrue(details.toString(), details.size() >= 2);
+        assertTrue(details.toString(), details.get(0).contains(
+                GeometryMetadata.RTREE_TABLE_NAME)
+                && details.get(0).contains("VIRTUAL TABLE"));
+        boolean primaryKey = false;
+        for (String detail : details) {
+            assertFalse(details.toString(), detail.contains("autoindex"));
+            if (detail.contains(GeometryMetadata.TABLE_NAME + " ")
+                    && detail.contains("INTEGER PRIMARY KEY")) {
+                primaryKey = true;
+            }
+        }
+        assertTrue(details.toString(), primaryKey);
+    }
+
+    /**
+     * Query the feature ids in id order
+     *
+     * @param featureDao feature DAO
+     * @return feature ids
+     */
+    private static List<Long> featureIds(FeatureDao featureDao) {
+        List<Long> ids = new ArrayList<>();
+        FeatureCursor cursor = featureDao.queryForAll();
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getId());
+            }
+        } finally {
+            cursor.close();
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Overwrite the geometry of a feature with bytes that are not a
+     * GeoPackage geometry
+     *
+     * @param featureDao feature DAO
+     * @param id         feature id
+     */
+    private void corruptGeometry(FeatureDao featureDao, long id) {
+        geoPackage.execSQL("UPDATE "
+                + CoreSQLUtils.quoteWrap(featureDao.getTableName()) + " SET "
+                + CoreSQLUtils.quoteWrap(featureDao.getGeometryColumnName())
+                + " = X'0102030405060708' WHERE "
+                + CoreSQLUtils.quoteWrap(featureDao.getPkColumnName()) + " = " + id);
+    }
+
+    /**
+     * Query the geometry metadata ids within the envelope
+     *
+     * @param ds        geometry metadata data source
+     * @param tableName table name
+     * @param envelope  envelope
+     * @return geometry ids
+     */
+    private Set<Long> queryIds(GeometryMetadataDataSource ds, String tableName,
+                               GeometryEnvelope envelope) {
+        Set<Long> ids = new HashSet<>();
+        Cursor cursor = ds.query(geoPackage.getName(), tableName, envelope);
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(GeometryMetadataDataSource.createGeometryMetadata(cursor).getId());
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    /**
+     * Filter all geometry metadata to the ids overlapping the envelope
+     *
+     * @param ds        geometry metadata data source
+     * @param tableName table name
+     * @param envelope  envelope
+     * @return geometry ids
+     */
+    private Set<Long> filterIds(GeometryMetadataDataSource ds, String tableName,
+                                GeometryEnvelope envelope) {
+        Set<Long> ids = new HashSet<>();
+        Cursor cursor = ds.query(geoPackage.getName(), tableName);
+        try {
+            while (cursor.moveToNext()) {
+                GeometryMetadata metadata = GeometryMetadataDataSource.createGeometryMetadata(cursor);
+                if (metadata.getMinX() <= envelope.getMaxX()
+                        && metadata.getMaxX() >= envelope.getMinX()
+                        && metadata.getMinY() <= envelope.getMaxY()
+                        && metadata.getMaxY() >= envelope.getMinY()) {
+                    ids.add(metadata.getId());
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    /**
+     * Query a single count result
+     *
+     * @param db  database
+     * @param sql count query
+     * @return count
+     */
+    private static int count(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        try {
+            assertTrue(cursor.moveToNext());
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
     /**
      * Test indexer
      *
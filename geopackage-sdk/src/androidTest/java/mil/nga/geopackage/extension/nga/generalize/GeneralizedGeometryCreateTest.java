@@ -0,0 +1,49 @@
+package mil.nga.geopackage.extension.nga.generalize;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+import mil.nga.geopackage.CreateGeoPackageTestCase;
+
+/**
+ * Test Generalized Geometry Extension from a created database
+ *
+ * @author osbornb
+ */
+public class GeneralizedGeometryCreateTest extends CreateGeoPackageTestCase {
+
+    /**
+     * Constructor
+     */
+    public GeneralizedGeometryCreateTest() {
+
+    }
+
+    /**
+     * Test Douglas-Peucker generalized geometries
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testDouglasPeucker() throws SQLException {
+
+        GeneralizedGeometryUtils.testGeneralizedGeometries(geoPackage,
+                GeneralizationAlgorithm.DOUGLAS_PEUCKER);
+
+    }
+
+    /**
+     * Test Visvalingam generalized geometries
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testVisvalingam() throws SQLException {
+
+        GeneralizedGeometryUtils.testGeneralizedGeometries(geoPackage,
+                GeneralizationAlgorithm.VISVALINGAM);
+
+    }
+
+}
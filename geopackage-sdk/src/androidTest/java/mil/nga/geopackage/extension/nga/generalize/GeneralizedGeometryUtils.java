@@ -0,0 +1,135 @@
+package mil.nga.geopackage.extension.nga.generalize;
+
+import junit.framework.TestCase;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.proj.ProjectionConstants;
+import mil.nga.proj.ProjectionFactory;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.LineString;
+import mil.nga.sf.Point;
+import mil.nga.sf.proj.GeometryTransform;
+
+/**
+ * Generalized Geometry Extension Utility test methods
+ *
+ * @author osbornb
+ */
+public class GeneralizedGeometryUtils {
+
+    /**
+     * Number of points in the generalized test line string
+     */
+    private static final int LINE_POINTS = 1000;
+
+    /**
+     * Test generalized geometries
+     *
+     * @param geoPackage GeoPackage
+     * @param algorithm  generalization algorithm
+     * @throws SQLException upon error
+     */
+    public static void testGeneralizedGeometries(GeoPackage geoPackage,
+                                                 GeneralizationAlgorithm algorithm) throws SQLException {
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        TestCase.assertFalse(featureTables.isEmpty());
+        String featureTable = featureTables.get(0);
+
+        FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+        // Insert a dense, nearly straight line string
+        FeatureRow row = featureDao.newRow();
+        row.setGeometry(GeoPackageGeometryData.create(featureDao.getSrsId(),
+                createLineString(featureDao)));
+        long id = featureDao.insert(row);
+        List<Long> ids = Collections.singletonList(id);
+
+        GeneralizedGeometryExtension extension = new GeneralizedGeometryExtension(
+                geoPackage);
+        TestCase.assertFalse(extension.has(featureTable));
+        TestCase.assertNull(featureDao.getGeneralizedGeometries());
+        extension.setAlgorithm(algorithm);
+        extension.setParallelism(2);
+        extension.setChunkLimit(10);
+
+        int count = extension.generalize(featureDao);
+        TestCase.assertTrue(count > 0);
+        TestCase.assertTrue(extension.has(featureTable));
+        TestCase.assertNotNull(featureDao.getGeneralizedGeometries());
+        TestCase.assertNotNull(geoPackage.getFeatureDao(featureTable)
+                .getGeneralizedGeometries());
+
+        // Coarse zooms have fewer points than more detailed zooms
+        Map<Long, GeoPackageGeometryData> coarse = extension.query(featureDao,
+                0, ids);
+        TestCase.assertTrue(coarse.containsKey(id));
+        int coarseCount = pointCount(coarse.get(id).getGeometry());
+        TestCase.assertTrue(coarseCount >= 2);
+        TestCase.assertTrue(coarseCount < LINE_POINTS);
+        Map<Long, GeoPackageGeometryData> detailed = extension.query(
+                featureDao, extension.getMaxZoom(), ids);
+        if (detailed.containsKey(id)) {
+            TestCase.assertTrue(coarseCount <= pointCount(detailed.get(id)
+                    .getGeometry()));
+        }
+        TestCase.assertTrue(extension.query(featureDao,
+                extension.getMaxZoom() + 1, ids).isEmpty());
+
+        // Feature DAO updates remove the stale generalized geometries
+        row = featureDao.queryForIdRow(id);
+        row.setGeometry(GeoPackageGeometryData.create(featureDao.getSrsId(),
+                createLineString(featureDao)));
+        TestCase.assertEquals(1, featureDao.update(row));
+        TestCase.assertTrue(extension.query(featureDao, 0, ids).isEmpty());
+
+        // Feature DAO deletes remove the generalized geometries
+        TestCase.assertTrue(extension.generalize(featureDao) > 0);
+        TestCase.assertFalse(extension.query(featureDao, 0, ids).isEmpty());
+        TestCase.assertEquals(1, featureDao.deleteById(id));
+        TestCase.assertTrue(extension.query(featureDao, 0, ids).isEmpty());
+
+        extension.delete(featureDao);
+        TestCase.assertFalse(extension.has(featureTable));
+        TestCase.assertNull(featureDao.getGeneralizedGeometries());
+    }
+
+    /**
+     * Create a dense line string with small offsets in the feature projection
+     *
+     * @param featureDao feature DAO
+     * @return line string
+     */
+    private static LineString createLineString(FeatureDao featureDao) {
+        LineString lineString = new LineString();
+        for (int i = 0; i < LINE_POINTS; i++) {
+            double longitude = -10.0 + 20.0 * i / (LINE_POINTS - 1);
+            double latitude = (i % 2 == 0 ? 1 : -1) * .00001;
+            lineString.addPoint(new Point(longitude, latitude));
+        }
+        GeometryTransform transform = GeometryTransform.create(
+                ProjectionFactory.getProjection(
+                        ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM),
+                featureDao.getProjection());
+        return (LineString) transform.transform(lineString);
+    }
+
+    /**
+     * Get the number of points in the line string geometry
+     *
+     * @param geometry line string geometry
+     * @return point count
+     */
+    private static int pointCount(Geometry geometry) {
+        return ((LineString) geometry).numPoints();
+    }
+
+}
@@ -63,6 +63,8 @@ public class FeatureStylesUtils {
             TestCase.assertFalse(geoPackage.isTable(IconTable.TABLE_NAME));
             TestCase.assertFalse(geoPackage.isTable(ContentsId.TABLE_NAME));
 
+            Map<String, FeatureStyleResolver> resolvers = new HashMap<>();
+
             for (String tableName : featureTables) {
 
                 TestCase.assertFalse(featureStyleExtension.has(tableName));
@@ -382,6 +384,13 @@ public class FeatureStylesUtils {
                     TestCase.assertTrue(allIcons.containsKey(iconId));
                 }
 
+                FeatureStyleResolver resolver = featureTableStyles
+                        .getFeatureStyleResolver();
+                TestCase.assertSame(resolver,
+                        featureTableStyles.getFeatureStyleResolver());
+                resolver.prefetch(featureResultsStyles.keySet());
+                resolvers.put(tableName, resolver);
+
                 featureCursor = featureDao.queryForAll();
                 while (featureCursor.moveToNext()) {
 
@@ -418,6 +427,18 @@ public class FeatureStylesUtils {
                     TestCase.assertEquals(hasFeatureRowIcons || !hasFeatureRowStyles,
                             featureStyle.useIcon());
 
+                    FeatureStyle resolvedFeatureStyle = resolver.getFeatureStyle(
+                            featureRowId, featureRow.getGeometryType());
+                    TestCase.assertNotNull(resolvedFeatureStyle);
+                    TestCase.assertEquals(featureStyle.getStyle().getId(),
+                            resolvedFeatureStyle.getStyle().getId());
+                    TestCase.assertEquals(featureStyle.getIcon().getId(),
+                            resolvedFeatureStyle.getIcon().getId());
+                    TestCase.assertEquals(hasFeatureRowStyles,
+                            resolver.getStyles(featureRowId) != null);
+                    TestCase.assertEquals(hasFeatureRowIcons,
+                            resolver.getIcons(featureRowId) != null);
+
                     validateRowStyles(featureTableStyles, featureRow,
                             tableStyleDefault, geometryTypeTableStyles,
                             featureResultsStyles);
@@ -460,6 +481,10 @@ public class FeatureStylesUtils {
                             .getStyles(featureRow));
                     TestCase.assertNull(featureStyleExtension
                             .getIcons(featureRow));
+                    TestCase.assertNull(resolvers.get(tableName)
+                            .getStyles(featureRow.getId()));
+                    TestCase.assertNull(resolvers.get(tableName)
+                            .getIcons(featureRow.getId()));
 
                 }
                 featureCursor.close();
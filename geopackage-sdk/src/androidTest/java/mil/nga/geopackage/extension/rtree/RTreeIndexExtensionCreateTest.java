@@ -45,6 +45,18 @@ public class RTreeIndexExtensionCreateTest extends CreateGeoPackageTestCase {
 
     }
 
+    /**
+     * Test RTree index maintenance by feature DAO writes
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testRTreeMaintenance() throws SQLException {
+
+        RTreeIndexExtensionUtils.testRTreeMaintenance(geoPackage);
+
+    }
+
     @Override
     public boolean allowEmptyFeatures() {
         return false;
@@ -45,4 +45,16 @@ public class RTreeIndexExtensionExternalTest extends ExternalGeoPackageTestCase
 
     }
 
+    /**
+     * Test RTree index maintenance by feature DAO writes
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testRTreeMaintenance() throws SQLException {
+
+        RTreeIndexExtensionUtils.testRTreeMaintenance(geoPackage);
+
+    }
+
 }
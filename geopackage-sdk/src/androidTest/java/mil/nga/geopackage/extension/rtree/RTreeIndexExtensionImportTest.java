@@ -45,4 +45,16 @@ public class RTreeIndexExtensionImportTest extends ImportGeoPackageTestCase {
 
     }
 
+    /**
+     * Test RTree index maintenance by feature DAO writes
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testRTreeMaintenance() throws SQLException {
+
+        RTreeIndexExtensionUtils.testRTreeMaintenance(geoPackage);
+
+    }
+
 }
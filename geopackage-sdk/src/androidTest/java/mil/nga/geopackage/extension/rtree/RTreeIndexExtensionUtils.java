@@ -8,15 +8,18 @@ import java.util.List;
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.extension.Extensions;
+import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureTable;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.user.custom.UserCustomCursor;
 import mil.nga.proj.Projection;
 import mil.nga.proj.ProjectionConstants;
 import mil.nga.proj.ProjectionFactory;
 import mil.nga.proj.ProjectionTransform;
 import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.Point;
 
 /**
  * RTree Extension Utility test methods
@@ -36,6 +39,8 @@ public class RTreeIndexExtensionUtils {
 
         RTreeIndexExtension extension = new RTreeIndexExtension(geoPackage,
                 geodesic);
+        // Load created indexes across multiple chunk transactions
+        extension.setChunkLimit(7);
 
         List<String> featureTables = geoPackage.getFeatureTables();
         for (String featureTable : featureTables) {
@@ -44,12 +49,9 @@ public class RTreeIndexExtensionUtils {
             FeatureTable table = featureDao.getTable();
 
             if (!extension.has(table)) {
-                // TODO RTree write functionality currently not supported in Android
-                if(true) {
-                    continue;
-                }
                 Extensions createdExtension = extension.create(table);
                 TestCase.assertNotNull(createdExtension);
+                TestCase.assertTrue(extension.has(table));
             }
 
             RTreeIndexTableDao tableDao = extension.getTableDao(featureDao);
@@ -155,4 +157,189 @@ public class RTreeIndexExtensionUtils {
 
     }
 
+    /**
+     * Test RTree index maintenance by feature DAO writes
+     *
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testRTreeMaintenance(GeoPackage geoPackage)
+            throws SQLException {
+
+        RTreeIndexExtension extension = new RTreeIndexExtension(geoPackage);
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        for (String featureTable : featureTables) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+            FeatureTable table = featureDao.getTable();
+            if (!extension.has(table)) {
+                extension.create(featureDao);
+            }
+            RTreeIndexMaintainer maintainer = featureDao.getRTreeIndex();
+            TestCase.assertNotNull(maintainer);
+            TestCase.assertTrue(featureDao.getDatabaseConnection().isUseBindings());
+
+            RTreeIndexTableDao tableDao = extension.getTableDao(featureDao);
+            int indexCount = tableDao.count();
+
+            FeatureRow featureRow = null;
+            FeatureCursor cursor = featureDao.queryForAll();
+            while (featureRow == null && cursor.moveToNext()) {
+                FeatureRow row = cursor.getRow();
+                if (row.getGeometryEnvelope() != null) {
+                    featureRow = row;
+                }
+            }
+            cursor.close();
+            if (featureRow == null) {
+                continue;
+            }
+            GeometryEnvelope envelope = featureRow.getGeometryEnvelope();
+
+            // Insert
+            FeatureRow insertRow = featureRow.copy();
+            insertRow.resetId();
+            long id = featureDao.insert(insertRow);
+            RTreeIndexTableRow indexRow = queryIndexRow(tableDao, id);
+            TestCase.assertNotNull(indexRow);
+            TestCase.assertTrue(envelope.getMinX() >= indexRow.getMinX());
+            TestCase.assertTrue(envelope.getMaxX() <= indexRow.getMaxX());
+            TestCase.assertEquals(indexCount + 1, tableDao.count());
+
+            // Update to a point
+            double x = envelope.getMidX();
+            double y = envelope.getMidY();
+            insertRow.setGeometry(GeoPackageGeometryData.create(
+                    featureDao.getSrsId(), new Point(x, y)));
+            TestCase.assertEquals(1, featureDao.update(insertRow));
+            indexRow = queryIndexRow(tableDao, id);
+            TestCase.assertNotNull(indexRow);
+            TestCase.assertEquals(x, indexRow.getMinX(), .0000001);
+            TestCase.assertEquals(x, indexRow.getMaxX(), .0000001);
+
+            // Update to a null geometry
+            insertRow.setGeometry(null);
+            TestCase.assertEquals(1, featureDao.update(insertRow));
+            TestCase.assertNull(queryIndexRow(tableDao, id));
+
+            // Delete
+            insertRow.setGeometry(featureRow.getGeometry());
+            TestCase.assertEquals(1, featureDao.update(insertRow));
+            TestCase.assertNotNull(queryIndexRow(tableDao, id));
+            TestCase.assertEquals(1, featureDao.deleteById(id));
+            TestCase.assertNull(queryIndexRow(tableDao, id));
+            TestCase.assertEquals(indexCount, tableDao.count());
+
+            // Deferred batch transaction
+            long[] ids = new long[3];
+            featureDao.beginRTreeIndexBatch();
+            for (int i = 0; i < ids.length; i++) {
+                FeatureRow batchRow = featureRow.copy();
+                batchRow.resetId();
+                ids[i] = featureDao.insert(batchRow);
+            }
+            TestCase.assertTrue(featureDao.inTransaction());
+            TestCase.assertEquals(ids.length, maintainer.getPending());
+            TestCase.assertNull(queryIndexRow(tableDao, ids[0]));
+            TestCase.assertEquals(ids.length, featureDao.endRTreeIndexBatch());
+            TestCase.assertFalse(featureDao.inTransaction());
+            TestCase.assertEquals(0, maintainer.getPending());
+            for (long batchId : ids) {
+                TestCase.assertNotNull(queryIndexRow(tableDao, batchId));
+            }
+
+            // Rolled back batch transaction
+            featureDao.beginRTreeIndexBatch();
+            FeatureRow rollbackRow = featureRow.copy();
+            rollbackRow.resetId();
+            long rollbackId = featureDao.insert(rollbackRow);
+            TestCase.assertEquals(1, maintainer.getPending());
+            TestCase.assertEquals(0, featureDao.endRTreeIndexBatch(false));
+            TestCase.assertEquals(0, maintainer.getPending());
+            TestCase.assertNull(featureDao.queryForIdRow(rollbackId));
+            TestCase.assertNull(queryIndexRow(tableDao, rollbackId));
+
+            // Index changes are written within the feature transaction
+            featureDao.beginTransaction();
+            rollbackRow = featureRow.copy();
+            rollbackRow.resetId();
+            rollbackId = featureDao.insert(rollbackRow);
+            TestCase.assertNotNull(queryIndexRow(tableDao, rollbackId));
+            TestCase.assertEquals(0, maintainer.getPending());
+            featureDao.endTransaction(false);
+            TestCase.assertNull(featureDao.queryForIdRow(rollbackId));
+            TestCase.assertNull(queryIndexRow(tableDao, rollbackId));
+
+            featureDao.beginTransaction();
+            FeatureRow commitRow = featureRow.copy();
+            commitRow.resetId();
+            long commitId = featureDao.insert(commitRow);
+            featureDao.endTransaction(true);
+            TestCase.assertNotNull(queryIndexRow(tableDao, commitId));
+            TestCase.assertEquals(1, featureDao.deleteById(commitId));
+            TestCase.assertNull(queryIndexRow(tableDao, commitId));
+            TestCase.assertEquals(indexCount + ids.length, tableDao.count());
+
+            // Delete by where clause
+            StringBuilder where = new StringBuilder();
+            where.append(featureDao.getPkColumnName()).append(" IN (");
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) {
+                    where.append(", ");
+                }
+                where.append(ids[i]);
+            }
+            where.append(")");
+            TestCase.assertEquals(ids.length,
+                    featureDao.delete(where.toString(), null));
+            for (long batchId : ids) {
+                TestCase.assertNull(queryIndexRow(tableDao, batchId));
+            }
+            TestCase.assertEquals(indexCount, tableDao.count());
+
+            // Deleting the index detaches the maintainers
+            FeatureDao otherDao = geoPackage.getFeatureDao(featureTable);
+            TestCase.assertNotNull(otherDao.getRTreeIndex());
+            extension.delete(featureDao);
+            TestCase.assertNull(featureDao.getRTreeIndex());
+            FeatureRow detachedRow = featureRow.copy();
+            detachedRow.resetId();
+            long detachedId = otherDao.insert(detachedRow);
+            TestCase.assertNotNull(featureDao.queryForIdRow(detachedId));
+            TestCase.assertNull(otherDao.getRTreeIndex());
+            TestCase.assertEquals(1, featureDao.deleteById(detachedId));
+
+            // Recreating the index attaches a maintainer
+            extension.create(featureDao);
+            TestCase.assertNotNull(featureDao.getRTreeIndex());
+            TestCase.assertEquals(indexCount, extension.getTableDao(featureDao)
+                    .count());
+        }
+
+    }
+
+    /**
+     * Query for the RTree index row of the feature
+     *
+     * @param tableDao RTree index table DAO
+     * @param id       feature id
+     * @return RTree index row or null
+     */
+    private static RTreeIndexTableRow queryIndexRow(RTreeIndexTableDao tableDao,
+                                                    long id) {
+        RTreeIndexTableRow row = null;
+        UserCustomCursor cursor = tableDao.query(false, tableDao.getColumnNames(),
+                RTreeIndexExtension.COLUMN_ID + " = ?",
+                new String[]{String.valueOf(id)});
+        try {
+            if (cursor.moveToNext()) {
+                row = tableDao.getRow(cursor);
+            }
+        } finally {
+            cursor.close();
+        }
+        return row;
+    }
+
 }
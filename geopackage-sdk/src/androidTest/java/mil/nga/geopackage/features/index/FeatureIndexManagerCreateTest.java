@@ -61,6 +61,30 @@ public class FeatureIndexManagerCreateTest extends CreateGeoPackageTestCase {
 
     }
 
+    /**
+     * Test indexing a geometry too large to read directly from the cursor
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testLargeGeometryIndex() throws SQLException {
+
+        FeatureIndexManagerUtils.testLargeGeometryIndex(activity, geoPackage);
+
+    }
+
+    /**
+     * Test index types and query forms
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testIndexTypesAndQueries() throws SQLException {
+
+        FeatureIndexManagerUtils.testIndexTypesAndQueries(activity, geoPackage);
+
+    }
+
     /**
      * Test large index
      *
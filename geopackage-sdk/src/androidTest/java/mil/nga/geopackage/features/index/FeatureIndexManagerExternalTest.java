@@ -56,6 +56,18 @@ public class FeatureIndexManagerExternalTest extends ExternalGeoPackageTestCase
 
     }
 
+    /**
+     * Test index types and query forms
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testIndexTypesAndQueries() throws SQLException {
+
+        FeatureIndexManagerUtils.testIndexTypesAndQueries(activity, geoPackage);
+
+    }
+
     /**
      * Test large index
      *
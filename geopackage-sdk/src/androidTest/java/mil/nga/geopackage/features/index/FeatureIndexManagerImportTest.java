@@ -56,6 +56,18 @@ public class FeatureIndexManagerImportTest extends ImportGeoPackageTestCase {
 
     }
 
+    /**
+     * Test index types and query forms
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testIndexTypesAndQueries() throws SQLException {
+
+        FeatureIndexManagerUtils.testIndexTypesAndQueries(activity, geoPackage);
+
+    }
+
     /**
      * Test large index
      *
@@ -4,28 +4,39 @@ import android.app.Activity;
 
 import junit.framework.TestCase;
 
+import java.io.File;
 import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.GeoPackageTestUtils;
 import mil.nga.geopackage.TestUtils;
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.GeoPackageDataType;
 import mil.nga.geopackage.db.TableColumnKey;
+import mil.nga.geopackage.extension.nga.index.FeatureTableIndex;
+import mil.nga.geopackage.extension.rtree.RTreeIndexTableDao;
 import mil.nga.geopackage.features.columns.GeometryColumns;
 import mil.nga.geopackage.features.user.FeatureColumn;
 import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureIdList;
 import mil.nga.geopackage.features.user.FeaturePaginatedCursor;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureTable;
 import mil.nga.geopackage.features.user.FeatureTableMetadata;
+import mil.nga.geopackage.features.user.ManualFeatureQuery;
+import mil.nga.geopackage.features.user.ManualFeatureQueryResults;
+import mil.nga.geopackage.features.user.ManualFeatureQueryStreamingResults;
 import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.io.TestGeoPackageProgress;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
@@ -33,9 +44,12 @@ import mil.nga.proj.Projection;
 import mil.nga.proj.ProjectionConstants;
 import mil.nga.proj.ProjectionFactory;
 import mil.nga.proj.ProjectionTransform;
+import mil.nga.sf.Geometry;
 import mil.nga.sf.GeometryEnvelope;
 import mil.nga.sf.GeometryType;
+import mil.nga.sf.LineString;
 import mil.nga.sf.Point;
+import mil.nga.sf.Polygon;
 import mil.nga.sf.proj.GeometryTransform;
 
 /**
@@ -1668,6 +1682,1389 @@ public class FeatureIndexManagerUtils {
         }
     }
 
+    /**
+     * Test the feature index manager index types and query forms: delta,
+     * parallel, and memory indexes, query planning, batched and streaming
+     * results, parallel manual queries, nearest neighbor searches, exact
+     * spatial predicates, and join queries
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testIndexTypesAndQueries(Activity activity,
+                                                GeoPackage geoPackage) throws SQLException {
+        testDeltaIndex(activity, geoPackage);
+        testParallelIndex(activity, geoPackage);
+        testMemoryIndex(activity, geoPackage);
+        testQueryPlanning(activity, geoPackage);
+        testBatchedResults(activity, geoPackage);
+        testStreamingResults(activity, geoPackage);
+        testParallelManualQuery(activity, geoPackage);
+        testNearest(activity, geoPackage);
+        testSpatialPredicates(activity, geoPackage);
+        testJoinQueries(activity, geoPackage);
+    }
+
+    /**
+     * Test delta index
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    private static void testDeltaIndex(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        String featureTable = "delta_index";
+
+        SpatialReferenceSystem srs = geoPackage.getSpatialReferenceSystemDao()
+                .getOrCreateCode(ProjectionConstants.AUTHORITY_EPSG,
+                        ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+
+        GeometryColumns geometryColumns = new GeometryColumns();
+        geometryColumns.setId(new TableColumnKey(featureTable, "geom"));
+        geometryColumns.setGeometryType(GeometryType.POINT);
+        geometryColumns.setZ((byte) 0);
+        geometryColumns.setM((byte) 0);
+        geometryColumns.setSrs(srs);
+
+        BoundingBox boundingBox = new BoundingBox(-180, -90, 180, 90);
+
+        List<FeatureColumn> additionalColumns = GeoPackageTestUtils
+                .getFeatureColumns();
+        geoPackage.createFeatureTable(FeatureTableMetadata.create(geometryColumns,
+                additionalColumns, boundingBox));
+
+        FeatureDao featureDao = geoPackage.getFeatureDao(geometryColumns);
+        TestUtils.addRowsToFeatureTable(geoPackage, geometryColumns,
+                featureDao.getTable(), 50, false, false, false);
+
+        testDeltaIndex(activity, geoPackage, featureDao, FeatureIndexType.GEOPACKAGE);
+        testDeltaIndex(activity, geoPackage, featureDao, FeatureIndexType.METADATA);
+    }
+
+    private static void testDeltaIndex(Activity activity, GeoPackage geoPackage,
+                                       FeatureDao featureDao, FeatureIndexType type) {
+
+        FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                geoPackage, featureDao);
+        featureIndexManager.setContinueOnError(false);
+        featureIndexManager.setIndexLocation(type);
+        featureIndexManager.deleteIndex(type);
+
+        featureIndexManager.startJournal();
+        FeatureIndexJournal journal = featureIndexManager.getJournal();
+        TestCase.assertTrue(journal.isStarted());
+        TestCase.assertFalse(journal.isCovered(type));
+        TestCase.assertEquals(0, journal.count(type));
+
+        // Delta index without an existing index fully indexes the table
+        TestCase.assertFalse(featureIndexManager.isIndexed(type));
+        TestCase.assertEquals(featureDao.count(), featureIndexManager.indexDelta());
+        TestCase.assertEquals(featureDao.count(), featureIndexManager.count());
+        TestCase.assertTrue(journal.isCovered(type));
+
+        List<Long> ids = new ArrayList<>();
+        FeatureCursor cursor = featureDao.query();
+        while (cursor.moveToNext()) {
+            ids.add(cursor.getId());
+        }
+        cursor.close();
+
+        // Update, delete, and insert features
+        FeatureRow updateRow = featureDao.queryForIdRow(ids.get(0));
+        GeometryEnvelope previousEnvelope = updateRow.getGeometryEnvelope();
+        updateRow.setGeometry(GeoPackageGeometryData.create(
+                featureDao.getGeometryColumns().getSrsId(), new Point(-179.5, -89.5)));
+        TestCase.assertEquals(1, featureDao.update(updateRow));
+        TestCase.assertEquals(1, featureDao.deleteById(ids.get(1)));
+        FeatureRow copyRow = featureDao.queryForIdRow(ids.get(2));
+        FeatureRow insertRow = featureDao.newRow();
+        for (FeatureColumn column : featureDao.getTable().getColumns()) {
+            if (!column.isPrimaryKey()) {
+                insertRow.setValue(column.getName(), copyRow.getValue(column.getName()));
+            }
+        }
+        insertRow.setGeometry(GeoPackageGeometryData.create(
+                featureDao.getGeometryColumns().getSrsId(), new Point(179.5, 89.5)));
+        long insertId = featureDao.insert(insertRow);
+
+        TestCase.assertEquals(3, journal.count(type));
+
+        // Delta index the changes
+        TestCase.assertEquals(2, featureIndexManager.indexDelta());
+        TestCase.assertEquals(0, journal.count(type));
+        TestCase.assertEquals(featureDao.count(), featureIndexManager.count());
+
+        FeatureIndexResults results = featureIndexManager.query(
+                new BoundingBox(-180, -90, -179, -89));
+        List<Long> resultIds = new ArrayList<>();
+        for (long id : results.ids()) {
+            resultIds.add(id);
+        }
+        results.close();
+        TestCase.assertTrue(resultIds.contains(ids.get(0)));
+
+        results = featureIndexManager.query(new BoundingBox(179, 89, 180, 90));
+        resultIds.clear();
+        for (long id : results.ids()) {
+            resultIds.add(id);
+        }
+        results.close();
+        TestCase.assertTrue(resultIds.contains(insertId));
+
+        // The updated feature is no longer indexed at its previous location
+        if (previousEnvelope != null
+                && (previousEnvelope.getMinX() > -179.5
+                || previousEnvelope.getMinY() > -89.5)) {
+            results = featureIndexManager.query(previousEnvelope);
+            resultIds.clear();
+            for (long id : results.ids()) {
+                resultIds.add(id);
+            }
+            results.close();
+            TestCase.assertFalse(resultIds.contains(ids.get(0)));
+        }
+
+        // Each feature is indexed once and the deleted feature is removed
+        results = featureIndexManager.query(new BoundingBox(-180, -90, 180, 90));
+        resultIds.clear();
+        for (long id : results.ids()) {
+            resultIds.add(id);
+        }
+        results.close();
+        TestCase.assertEquals(featureDao.count(), resultIds.size());
+        TestCase.assertEquals(resultIds.size(), new HashSet<>(resultIds).size());
+        TestCase.assertFalse(resultIds.contains(ids.get(1)));
+        TestCase.assertTrue(resultIds.contains(ids.get(0)));
+        TestCase.assertTrue(resultIds.contains(insertId));
+
+        // Delta index without changes
+        TestCase.assertEquals(0, featureIndexManager.indexDelta());
+
+        // The journal persists for other feature index managers and DAOs
+        FeatureIndexManager sessionIndexManager = new FeatureIndexManager(
+                activity, geoPackage, featureDao.getTableName());
+        FeatureIndexJournal sessionJournal = sessionIndexManager.getJournal();
+        TestCase.assertTrue(sessionJournal.isStarted());
+        TestCase.assertTrue(sessionJournal.isCovered(type));
+        TestCase.assertEquals(1, sessionIndexManager.getFeatureDao()
+                .deleteById(insertId));
+        TestCase.assertEquals(1, journal.count(type));
+        sessionIndexManager.close();
+        TestCase.assertEquals(0, featureIndexManager.indexDelta());
+        TestCase.assertEquals(featureDao.count(), featureIndexManager.count());
+
+        // Changes made while not journaling are fully re-indexed
+        featureIndexManager.stopJournal();
+        TestCase.assertFalse(journal.isStarted());
+        TestCase.assertFalse(journal.isCovered(type));
+        updateRow = featureDao.queryForIdRow(ids.get(3));
+        updateRow.setGeometry(GeoPackageGeometryData.create(
+                featureDao.getGeometryColumns().getSrsId(), new Point(179.5, -89.5)));
+        TestCase.assertEquals(1, featureDao.update(updateRow));
+        featureIndexManager.startJournal();
+        TestCase.assertEquals(0, journal.count(type));
+        TestCase.assertEquals(featureDao.count(), featureIndexManager.indexDelta());
+        TestCase.assertTrue(journal.isCovered(type));
+        results = featureIndexManager.query(new BoundingBox(179, -90, 180, -89));
+        resultIds.clear();
+        for (long id : results.ids()) {
+            resultIds.add(id);
+        }
+        results.close();
+        TestCase.assertTrue(resultIds.contains(ids.get(3)));
+
+        featureIndexManager.stopJournal();
+        TestCase.assertFalse(journal.isStarted());
+
+        featureIndexManager.deleteIndex(type);
+        featureIndexManager.close();
+    }
+
+    /**
+     * Test indexing and querying a geometry too large to be read directly
+     * from the cursor, read as a null blob and chunk read by the row
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testLargeGeometryIndex(Activity activity,
+                                              GeoPackage geoPackage) throws SQLException {
+
+        String featureTable = "large_geometry";
+
+        SpatialReferenceSystem srs = geoPackage.getSpatialReferenceSystemDao()
+                .getOrCreateCode(ProjectionConstants.AUTHORITY_EPSG,
+                        ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+
+        GeometryColumns geometryColumns = new GeometryColumns();
+        geometryColumns.setId(new TableColumnKey(featureTable, "geom"));
+        geometryColumns.setGeometryType(GeometryType.LINESTRING);
+        geometryColumns.setZ((byte) 0);
+        geometryColumns.setM((byte) 0);
+        geometryColumns.setSrs(srs);
+
+        BoundingBox boundingBox = new BoundingBox(-180, -90, 180, 90);
+
+        geoPackage.createFeatureTable(FeatureTableMetadata.create(geometryColumns,
+                boundingBox));
+
+        FeatureDao featureDao = geoPackage.getFeatureDao(geometryColumns);
+
+        List<Long> smallIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            LineString line = new LineString();
+            line.addPoint(new Point(-170 + i, -80 + i));
+            line.addPoint(new Point(-169 + i, -79 + i));
+            FeatureRow row = featureDao.newRow();
+            row.setGeometry(GeoPackageGeometryData.create(srs.getSrsId(), line));
+            smallIds.add(featureDao.insert(row));
+        }
+
+        // Line geometry bytes exceeding the cursor window size
+        LineString largeLine = new LineString();
+        int points = 300000;
+        for (int i = 0; i < points; i++) {
+            largeLine.addPoint(new Point(10.0 + 10.0 * i / points,
+                    10.0 + 10.0 * (i % 2)));
+        }
+        FeatureRow largeRow = featureDao.newRow();
+        largeRow.setGeometry(GeoPackageGeometryData.create(srs.getSrsId(),
+                largeLine));
+        long largeId = featureDao.insert(largeRow);
+
+        BoundingBox largeBoundingBox = new BoundingBox(9, 9, 21, 21);
+        BoundingBox smallBoundingBox = new BoundingBox(-171, -81, -166, -76);
+
+        for (FeatureIndexType type : new FeatureIndexType[]{
+                FeatureIndexType.GEOPACKAGE, FeatureIndexType.METADATA}) {
+            for (int parallelism : new int[]{1, 3}) {
+                testLargeGeometryIndex(activity, geoPackage, featureDao, type,
+                        parallelism, smallIds, largeId, smallBoundingBox,
+                        largeBoundingBox);
+            }
+        }
+
+        ManualFeatureQuery manualFeatureQuery = new ManualFeatureQuery(
+                featureDao);
+        List<Long> ids = manualFeatureQuery.query(
+                largeBoundingBox.buildEnvelope()).getFeatureIds();
+        TestCase.assertEquals(1, ids.size());
+        TestCase.assertEquals(largeId, ids.get(0).longValue());
+        TestCase.assertEquals(smallIds, manualFeatureQuery.query(
+                smallBoundingBox.buildEnvelope()).getFeatureIds());
+    }
+
+    /**
+     * Test indexing and querying a geometry too large to be read directly
+     * from the cursor
+     *
+     * @param activity         activity
+     * @param geoPackage       GeoPackage
+     * @param featureDao       feature DAO
+     * @param type             feature index type
+     * @param parallelism      index parallelism
+     * @param smallIds         small geometry feature ids
+     * @param largeId          large geometry feature id
+     * @param smallBoundingBox small geometries bounding box
+     * @param largeBoundingBox large geometry bounding box
+     */
+    private static void testLargeGeometryIndex(Activity activity,
+                                               GeoPackage geoPackage, FeatureDao featureDao,
+                                               FeatureIndexType type, int parallelism, List<Long> smallIds,
+                                               long largeId, BoundingBox smallBoundingBox,
+                                               BoundingBox largeBoundingBox) {
+
+        FeatureIndexManager featureIndexManager = new FeatureIndexManager(
+                activity, geoPackage, featureDao);
+        featureIndexManager.setContinueOnError(false);
+        featureIndexManager.setIndexLocation(type);
+        featureIndexManager.setIndexLocationOrder(type);
+        featureIndexManager.setParallelism(parallelism);
+
+        TestCase.assertEquals(smallIds.size() + 1,
+                featureIndexManager.index(true));
+
+        List<Long> ids = new ArrayList<>();
+        FeatureIndexResults results = featureIndexManager.query(
+                largeBoundingBox);
+        for (long id : results.ids()) {
+            ids.add(id);
+        }
+        results.close();
+        TestCase.assertEquals(1, ids.size());
+        TestCase.assertEquals(largeId, ids.get(0).longValue());
+
+        ids.clear();
+        results = featureIndexManager.query(smallBoundingBox);
+        for (long id : results.ids()) {
+            ids.add(id);
+        }
+        results.close();
+        TestCase.assertEquals(smallIds, ids);
+
+        // Refined spatial predicate query of the large geometry
+        LineString ring = new LineString();
+        ring.addPoint(new Point(largeBoundingBox.getMinLongitude(),
+                largeBoundingBox.getMinLatitude()));
+        ring.addPoint(new Point(largeBoundingBox.getMaxLongitude(),
+                largeBoundingBox.getMinLatitude()));
+        ring.addPoint(new Point(largeBoundingBox.getMaxLongitude(),
+                largeBoundingBox.getMaxLatitude()));
+        ring.addPoint(new Point(largeBoundingBox.getMinLongitude(),
+                largeBoundingBox.getMaxLatitude()));
+        ring.addPoint(new Point(largeBoundingBox.getMinLongitude(),
+                largeBoundingBox.getMinLatitude()));
+        Polygon polygon = new Polygon();
+        polygon.addRing(ring);
+        ids.clear();
+        results = featureIndexManager.query(polygon,
+                SpatialPredicate.WITHIN);
+        for (long id : results.ids()) {
+            ids.add(id);
+        }
+        results.close();
+        TestCase.assertEquals(1, ids.size());
+        TestCase.assertEquals(largeId, ids.get(0).longValue());
+
+        featureIndexManager.deleteIndex(type);
+        featureIndexManager.close();
+    }
+
+    /**
+     * Test parallel decoding index against the serial index
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    private static void testParallelIndex(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+        testParallelIndex(activity, geoPackage, FeatureIndexType.GEOPACKAGE);
+        testParallelIndex(activity, geoPackage, FeatureIndexType.METADATA);
+    }
+
+    private static void testParallelIndex(Activity activity, GeoPackage geoPackage,
+                                          FeatureIndexType type) {
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        for (String featureTable : featureTables) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureIndexManager.setContinueOnError(false);
+            featureIndexManager.setIndexLocation(type);
+
+            // Serial index
+            TestCase.assertEquals(1, featureIndexManager.getParallelism());
+            int serialCount = featureIndexManager.index(true);
+            TestCase.assertEquals(serialCount, featureIndexManager.count());
+            BoundingBox serialBoundingBox = featureIndexManager.getBoundingBox();
+
+            // Parallel index with small chunks spanning multiple batches
+            featureIndexManager.setParallelism(3);
+            TestCase.assertEquals(3, featureIndexManager.getParallelism());
+            featureIndexManager.getFeatureTableIndex().setChunkLimit(7);
+            featureIndexManager.getFeatureIndexer().setChunkLimit(7);
+            TestGeoPackageProgress progress = new TestGeoPackageProgress();
+            featureIndexManager.setProgress(progress);
+            int parallelCount = featureIndexManager.index(true);
+            TestCase.assertEquals(serialCount, parallelCount);
+            TestCase.assertEquals(featureDao.count(), progress.getProgress());
+            TestCase.assertEquals(serialCount, featureIndexManager.count());
+            if (serialBoundingBox != null) {
+                TestCase.assertEquals(serialBoundingBox,
+                        featureIndexManager.getBoundingBox());
+            }
+
+            // Canceled parallel index writes no batches
+            progress = new TestGeoPackageProgress();
+            progress.cancel();
+            featureIndexManager.setProgress(progress);
+            TestCase.assertEquals(0, featureIndexManager.index(true));
+            TestCase.assertEquals(0, progress.getProgress());
+
+            featureIndexManager.setProgress(null);
+            featureIndexManager.deleteIndex(type);
+            featureIndexManager.close();
+        }
+
+    }
+
+    /**
+     * Test the memory index saved to and loaded from a file
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    private static void testMemoryIndex(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        for (String featureTable : featureTables) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+            int geometryFeatureCount = featureDao.count(
+                    featureDao.getGeometryColumnName() + " IS NOT NULL");
+
+            File file = new File(activity.getCacheDir(),
+                    featureTable + ".gpkgmidx");
+            file.delete();
+
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+
+            // The memory index is queried after the existing index types
+            List<FeatureIndexType> defaultOrder = new ArrayList<>(
+                    featureIndexManager.getIndexLocationQueryOrder());
+            TestCase.assertEquals(FeatureIndexType.RTREE, defaultOrder.get(0));
+            TestCase.assertEquals(FeatureIndexType.MEMORY,
+                    defaultOrder.get(defaultOrder.size() - 1));
+
+            featureIndexManager.setContinueOnError(false);
+            featureIndexManager.setIndexLocation(FeatureIndexType.MEMORY);
+            featureIndexManager.setIndexLocationOrder(FeatureIndexType.MEMORY);
+            featureIndexManager.setMemoryIndexFile(file);
+            TestCase.assertFalse(featureIndexManager.isIndexed());
+
+            int indexCount = featureIndexManager.index();
+            TestCase.assertEquals(geometryFeatureCount, indexCount);
+            TestCase.assertTrue(featureIndexManager.isIndexed());
+            TestCase.assertTrue(file.exists());
+            TestCase.assertEquals(geometryFeatureCount, featureIndexManager.count());
+            BoundingBox boundingBox = featureIndexManager.getBoundingBox();
+
+            List<Long> ids = new ArrayList<>();
+            if (boundingBox != null) {
+                FeatureIndexResults results = featureIndexManager.query(boundingBox);
+                for (long id : results.ids()) {
+                    if (!ids.isEmpty()) {
+                        TestCase.assertTrue(id > ids.get(ids.size() - 1));
+                    }
+                    ids.add(id);
+                }
+                results.close();
+                TestCase.assertEquals(geometryFeatureCount, ids.size());
+
+                results = featureIndexManager.queryForChunk(boundingBox, 3, 1);
+                TestCase.assertEquals(Math.max(0, Math.min(3, ids.size() - 1)),
+                        results.count());
+                int index = 1;
+                for (long id : results.ids()) {
+                    TestCase.assertEquals(ids.get(index++).longValue(), id);
+                }
+                results.close();
+            }
+            featureIndexManager.close();
+
+            // Memory map the saved index in a new manager
+            featureIndexManager = new FeatureIndexManager(activity, geoPackage,
+                    featureDao);
+            featureIndexManager.setContinueOnError(false);
+            featureIndexManager.setIndexLocation(FeatureIndexType.MEMORY);
+            featureIndexManager.setIndexLocationOrder(FeatureIndexType.MEMORY);
+            featureIndexManager.setMemoryIndexFile(file);
+            TestCase.assertTrue(featureIndexManager.isIndexed());
+            TestCase.assertEquals(0, featureIndexManager.index());
+            TestCase.assertEquals(geometryFeatureCount, featureIndexManager.count());
+            TestCase.assertEquals(boundingBox, featureIndexManager.getBoundingBox());
+            if (boundingBox != null) {
+                FeatureIndexResults results = featureIndexManager.query(boundingBox);
+                List<Long> loadedIds = new ArrayList<>();
+                for (long id : results.ids()) {
+                    loadedIds.add(id);
+                }
+                results.close();
+                TestCase.assertEquals(ids, loadedIds);
+            }
+
+            // Saved index for a different geodesic setting is not loaded
+            FeatureIndexManager geodesicIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao, true);
+            geodesicIndexManager.setMemoryIndexFile(file);
+            TestCase.assertFalse(geodesicIndexManager.isIndexed(FeatureIndexType.MEMORY));
+            geodesicIndexManager.close();
+
+            if (!ids.isEmpty()) {
+
+                // Feature DAO writes clear the index and the saved index,
+                // including writes through copies of the DAO
+                FeatureRow row = featureDao.queryForIdRow(ids.get(0));
+                TestCase.assertEquals(1, featureDao.copy().update(row));
+                TestCase.assertFalse(featureIndexManager.isIndexed());
+                TestCase.assertFalse(file.exists());
+                TestCase.assertEquals(geometryFeatureCount,
+                        featureIndexManager.index());
+                TestCase.assertTrue(file.exists());
+                featureIndexManager.close();
+
+                // Saved indexes are not loaded after the GeoPackage changed
+                row = featureDao.queryForIdRow(ids.get(0));
+                TestCase.assertEquals(1, featureDao.update(row));
+                featureIndexManager = new FeatureIndexManager(activity,
+                        geoPackage, featureDao);
+                featureIndexManager.setContinueOnError(false);
+                featureIndexManager.setIndexLocation(FeatureIndexType.MEMORY);
+                featureIndexManager.setIndexLocationOrder(FeatureIndexType.MEMORY);
+                featureIndexManager.setMemoryIndexFile(file);
+                TestCase.assertFalse(featureIndexManager.isIndexed());
+                TestCase.assertEquals(geometryFeatureCount,
+                        featureIndexManager.index());
+            }
+
+            TestCase.assertTrue(featureIndexManager.deleteIndex(FeatureIndexType.MEMORY));
+            TestCase.assertFalse(featureIndexManager.isIndexed());
+            TestCase.assertFalse(file.exists());
+            featureIndexManager.close();
+        }
+
+    }
+
+    /**
+     * Test cost based index selection
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    private static void testQueryPlanning(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        for (String featureTable : featureTables) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+            BoundingBox extent = featureDao.getBoundingBox();
+            if (extent == null) {
+                continue;
+            }
+
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureIndexManager.setContinueOnError(false);
+            featureIndexManager.setIndexLocation(FeatureIndexType.GEOPACKAGE);
+            featureIndexManager.setIndexLocationOrder(FeatureIndexType.GEOPACKAGE);
+            featureIndexManager.index();
+            TestCase.assertTrue(featureIndexManager.isIndexed());
+            TestCase.assertFalse(featureIndexManager.isQueryPlanning());
+
+            GeometryEnvelope fullEnvelope = extent.buildEnvelope();
+            GeometryEnvelope outsideEnvelope = new GeometryEnvelope(
+                    extent.getMaxLongitude() + 1, extent.getMaxLatitude() + 1,
+                    extent.getMaxLongitude() + 2, extent.getMaxLatitude() + 2);
+
+            long fullCount = featureIndexManager.count(fullEnvelope);
+            long outsideCount = featureIndexManager.count(outsideEnvelope);
+            FeatureIndexResults results = featureIndexManager.query(fullEnvelope);
+            long fullQueryCount = results.count();
+            results.close();
+
+            // Full extent queries scan when an index only adds overhead
+            FeatureIndexPlan plan = featureIndexManager.explain(fullEnvelope);
+            TestCase.assertNotNull(plan.toString());
+            TestCase.assertTrue(plan.hasCosts());
+            TestCase.assertTrue(plan.getRowCount() >= featureDao.count());
+            TestCase.assertEquals(featureDao.count() > 0,
+                    plan.getRowCount() > 0);
+            TestCase.assertEquals(1.0, plan.getSelectivity(), .0000001);
+            TestCase.assertNotNull(plan.getCost(FeatureIndexType.GEOPACKAGE));
+            TestCase.assertNotNull(plan.getCost(FeatureIndexType.NONE));
+            if (plan.getRowCount() > 0) {
+                TestCase.assertTrue(plan.isManual());
+                TestCase.assertTrue(plan.getTypes().isEmpty());
+            }
+
+            // Envelopes outside the extent use the index on larger tables
+            plan = featureIndexManager.explain(outsideEnvelope);
+            TestCase.assertEquals(0.0, plan.getSelectivity(), .0000001);
+            TestCase.assertEquals(0, plan.getEstimatedRows());
+            if (plan.getRowCount() > 100) {
+                TestCase.assertEquals(FeatureIndexType.GEOPACKAGE, plan.getType());
+                TestCase.assertEquals(FeatureIndexType.GEOPACKAGE,
+                        plan.getTypes().get(0));
+            }
+
+            // Planned queries return the same results
+            featureIndexManager.setQueryPlanning(true);
+            TestCase.assertEquals(fullCount, featureIndexManager.count(fullEnvelope));
+            TestCase.assertEquals(outsideCount,
+                    featureIndexManager.count(outsideEnvelope));
+            results = featureIndexManager.query(fullEnvelope);
+            TestCase.assertEquals(fullQueryCount, results.count());
+            results.close();
+            FeatureIndexPlanner planner = featureIndexManager.getPlanner();
+            if (featureDao.count() > 0) {
+                TestCase.assertTrue(planner.getLatency(FeatureIndexType.NONE) != null
+                        || planner.getLatency(FeatureIndexType.GEOPACKAGE) != null);
+                TestCase.assertTrue(planner.getLatency(FeatureIndexType.NONE, false) != null
+                        || planner.getLatency(FeatureIndexType.GEOPACKAGE, false) != null);
+            }
+
+            // Planned index chunk queries keep the feature results type
+            boolean chunkManual = featureIndexManager.explain(outsideEnvelope)
+                    .isManual();
+            results = featureIndexManager.queryForChunk(outsideEnvelope, 1);
+            if (!chunkManual) {
+                TestCase.assertTrue(results instanceof FeatureIndexFeatureResults);
+            }
+            results.close();
+
+            // Statistics are collected again once cleared
+            planner.clearLatencies();
+            TestCase.assertNull(planner.getLatency(FeatureIndexType.NONE, false));
+            TestCase.assertNull(planner.getLatency(FeatureIndexType.GEOPACKAGE, false));
+            planner.clearStatistics();
+            TestCase.assertEquals(plan.getRowCount(), planner.getRowCount());
+            TestCase.assertNotNull(planner.getExtent());
+
+            featureIndexManager.deleteAllIndexes();
+            featureIndexManager.close();
+        }
+
+    }
+
+    /**
+     * Test batched feature row reads of index results
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    private static void testBatchedResults(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        for (String featureTable : featureTables) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+            // Ids in descending order with a missing id
+            List<Long> ids = new ArrayList<>();
+            FeatureCursor cursor = featureDao.queryForAll();
+            while (cursor.moveToNext()) {
+                ids.add(0, cursor.getId());
+            }
+            cursor.close();
+            long missingId = ids.isEmpty() ? 1 : ids.get(0) + 1;
+            ids.add(ids.size() / 2, missingId);
+
+            ManualFeatureQueryResults results = new ManualFeatureQueryResults(
+                    featureDao, ids);
+            results.setBatchSize(3);
+            int index = 0;
+            for (FeatureRow row : results) {
+                long id = ids.get(index++);
+                if (id == missingId) {
+                    TestCase.assertNull(row);
+                } else {
+                    TestCase.assertNotNull(row);
+                    TestCase.assertEquals(id, row.getId());
+                    FeatureRow idRow = featureDao.queryForIdRow(id);
+                    TestCase.assertEquals(idRow.getGeometry() != null,
+                            row.getGeometry() != null);
+                }
+            }
+            TestCase.assertEquals(ids.size(), index);
+            results.close();
+
+            // Columns without the id column
+            String[] columns = new String[]{featureDao.getGeometryColumnName()};
+            results = new ManualFeatureQueryResults(featureDao, columns, ids);
+            results.setBatchSize(2);
+            index = 0;
+            for (FeatureRow row : results) {
+                long id = ids.get(index++);
+                if (id != missingId) {
+                    TestCase.assertEquals(id, row.getId());
+                }
+            }
+            TestCase.assertEquals(ids.size(), index);
+            results.close();
+        }
+
+    }
+
+    /**
+     * Test streaming and materialized manual query results
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    private static void testStreamingResults(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        for (String featureTable : featureTables) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+            ManualFeatureQuery manualFeatureQuery = new ManualFeatureQuery(
+                    featureDao);
+            manualFeatureQuery.setChunkLimit(3);
+
+            BoundingBox boundingBox = manualFeatureQuery.getBoundingBox();
+            if (boundingBox == null) {
+                continue;
+            }
+            GeometryEnvelope envelope = boundingBox.buildEnvelope();
+            GeometryEnvelope halfEnvelope = new GeometryEnvelope(
+                    envelope.getMinX(), envelope.getMinY(),
+                    envelope.getMinX() + (envelope.getMaxX() - envelope.getMinX()) / 2.0,
+                    envelope.getMaxY());
+
+            for (GeometryEnvelope queryEnvelope : new GeometryEnvelope[]{
+                    envelope, halfEnvelope}) {
+
+                ManualFeatureQueryResults results = manualFeatureQuery
+                        .query(queryEnvelope);
+                TestCase.assertTrue(results.getFeatureIds() instanceof FeatureIdList);
+                List<Long> ids = results.getFeatureIds();
+                TestCase.assertEquals(ids.size(), results.count());
+                TestCase.assertEquals(ids.size(),
+                        manualFeatureQuery.count(queryEnvelope));
+                for (int i = 1; i < ids.size(); i++) {
+                    TestCase.assertTrue(ids.get(i - 1) < ids.get(i));
+                }
+
+                ManualFeatureQueryStreamingResults streamingResults = manualFeatureQuery
+                        .queryStreaming(queryEnvelope);
+                streamingResults.setBatchSize(2);
+                TestCase.assertEquals(ids.size(), streamingResults.count());
+                TestCase.assertEquals(ids, streamingResults.getFeatureIds());
+
+                // Each iteration scans again
+                for (int pass = 0; pass < 2; pass++) {
+                    int index = 0;
+                    for (long id : streamingResults.ids()) {
+                        TestCase.assertEquals(ids.get(index++).longValue(), id);
+                    }
+                    TestCase.assertEquals(ids.size(), index);
+                }
+
+                int index = 0;
+                for (FeatureRow row : streamingResults) {
+                    TestCase.assertNotNull(row);
+                    TestCase.assertEquals(ids.get(index++).longValue(),
+                            row.getId());
+                }
+                TestCase.assertEquals(ids.size(), index);
+                streamingResults.close();
+
+                // Chunks stop at the limit
+                int limit = 2;
+                for (int offset = 0; offset <= ids.size(); offset += limit) {
+                    ManualFeatureQueryResults chunk = manualFeatureQuery
+                            .queryForChunk(false, featureDao.getColumnNames(),
+                                    queryEnvelope, null, null, null, limit,
+                                    offset);
+                    List<Long> expected = ids.subList(offset,
+                            Math.min(ids.size(), offset + limit));
+                    TestCase.assertEquals(expected, chunk.getFeatureIds());
+                }
+            }
+
+            // Feature index manager manual query fallback
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(
+                    activity, geoPackage, featureDao);
+            try {
+                FeatureIndexResults results = featureIndexManager.query(envelope);
+                if (!featureIndexManager.isIndexed()) {
+                    TestCase.assertTrue(results instanceof ManualFeatureQueryStreamingResults);
+                }
+                TestCase.assertEquals(manualFeatureQuery.count(envelope),
+                        results.count());
+                results.close();
+            } finally {
+                featureIndexManager.close();
+            }
+        }
+
+        FeatureIdList featureIds = new FeatureIdList(1);
+        for (long id = 0; id < 100; id++) {
+            featureIds.addId(id * 2);
+        }
+        TestCase.assertEquals(100, featureIds.size());
+        TestCase.assertEquals(198, featureIds.getId(99));
+        TestCase.assertEquals(Long.valueOf(20), featureIds.get(10));
+        TestCase.assertEquals(100, featureIds.toIdArray().length);
+
+    }
+
+    /**
+     * Test parallel partitioned manual queries
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    private static void testParallelManualQuery(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        for (String featureTable : featureTables) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+            ManualFeatureQuery manualFeatureQuery = new ManualFeatureQuery(
+                    featureDao);
+            manualFeatureQuery.setChunkLimit(2);
+
+            BoundingBox boundingBox = manualFeatureQuery.getBoundingBox();
+            if (boundingBox == null) {
+                continue;
+            }
+            GeometryEnvelope envelope = boundingBox.buildEnvelope();
+            GeometryEnvelope halfEnvelope = new GeometryEnvelope(
+                    envelope.getMinX(), envelope.getMinY(),
+                    envelope.getMaxX(),
+                    envelope.getMinY() + (envelope.getMaxY() - envelope.getMinY()) / 2.0);
+
+            for (GeometryEnvelope queryEnvelope : new GeometryEnvelope[]{
+                    envelope, halfEnvelope}) {
+
+                manualFeatureQuery.setParallelism(1);
+                List<Long> serialIds = manualFeatureQuery.query(queryEnvelope)
+                        .getFeatureIds();
+                long serialCount = manualFeatureQuery.count(queryEnvelope);
+                TestCase.assertEquals(serialIds.size(), serialCount);
+
+                for (int parallelism : new int[]{2, 3, 8}) {
+                    manualFeatureQuery.setParallelism(parallelism);
+                    TestCase.assertEquals(parallelism,
+                            manualFeatureQuery.getParallelism());
+                    List<Long> ids = manualFeatureQuery.query(queryEnvelope)
+                            .getFeatureIds();
+                    TestCase.assertEquals(serialIds, ids);
+                    TestCase.assertEquals(serialCount,
+                            manualFeatureQuery.count(queryEnvelope));
+                }
+            }
+
+            // Progress of the scanned rows
+            TestGeoPackageProgress progress = new TestGeoPackageProgress();
+            manualFeatureQuery.setProgress(progress);
+            manualFeatureQuery.setParallelism(4);
+            manualFeatureQuery.query(envelope);
+            TestCase.assertEquals(featureDao.count(), progress.getProgress());
+
+            // Canceled scans stop early
+            progress = new TestGeoPackageProgress();
+            progress.cancel();
+            manualFeatureQuery.setProgress(progress);
+            TestCase.assertEquals(0,
+                    manualFeatureQuery.query(envelope).count());
+            TestCase.assertEquals(0, manualFeatureQuery.count(envelope));
+            manualFeatureQuery.setProgress(null);
+        }
+
+    }
+
+    /**
+     * Test k nearest neighbor searches
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    private static void testNearest(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        for (String featureTable : featureTables) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureIndexManager.setContinueOnError(false);
+            featureIndexManager.setIndexLocation(FeatureIndexType.GEOPACKAGE);
+            featureIndexManager.setIndexLocationOrder(FeatureIndexType.GEOPACKAGE);
+            featureIndexManager.deleteAllIndexes();
+            TestCase.assertFalse(featureIndexManager.isIndexed());
+
+            BoundingBox boundingBox = new ManualFeatureQuery(featureDao)
+                    .getBoundingBox();
+            if (boundingBox == null) {
+                featureIndexManager.close();
+                continue;
+            }
+            Point point = new Point(
+                    (boundingBox.getMinLongitude() + boundingBox.getMaxLongitude()) / 2.0,
+                    boundingBox.getMinLatitude()
+                            + (boundingBox.getMaxLatitude() - boundingBox.getMinLatitude()) / 3.0);
+
+            TestCase.assertTrue(featureIndexManager.nearest(point, 0).isEmpty());
+
+            // Table scan of all features when not indexed
+            int total = featureDao.count();
+            List<NearestFeature> all = featureIndexManager.nearest(point, total);
+            TestCase.assertFalse(all.isEmpty());
+            TestCase.assertTrue(all.size() <= total);
+            for (int i = 1; i < all.size(); i++) {
+                TestCase.assertTrue(all.get(i - 1).getDistance() <= all.get(i)
+                        .getDistance());
+            }
+            for (NearestFeature nearest : all) {
+                TestCase.assertTrue(nearest.getDistance() >= 0);
+                TestCase.assertNotNull(nearest.getRow().getGeometry());
+                TestCase.assertEquals(featureDao.getColumnNames().length,
+                        nearest.getRow().columnCount());
+            }
+
+            int[] ks = new int[]{1, 3, 10, total + 1};
+
+            // Expanding envelope queries
+            featureIndexManager.index();
+            TestCase.assertTrue(featureIndexManager.isIndexed());
+            for (int k : ks) {
+                validateNearest(all, featureIndexManager.nearest(point, k), k);
+            }
+
+            // Best first memory index search
+            featureIndexManager.setIndexLocation(FeatureIndexType.MEMORY);
+            featureIndexManager.setIndexLocationOrder(FeatureIndexType.MEMORY);
+            featureIndexManager.index();
+            TestCase.assertTrue(featureIndexManager.isIndexed(FeatureIndexType.MEMORY));
+            for (int k : ks) {
+                validateNearest(all, featureIndexManager.nearest(point, k), k);
+            }
+
+            // Point in another projection
+            Projection wgs84 = ProjectionFactory.getProjection(
+                    ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+            Point wgs84Point = GeometryTransform.create(
+                    featureDao.getProjection(), wgs84).transform(point);
+            List<NearestFeature> projected = featureIndexManager.nearest(
+                    wgs84Point, 3, wgs84);
+            TestCase.assertEquals(Math.min(3, all.size()), projected.size());
+            for (int i = 0; i < projected.size(); i++) {
+                TestCase.assertEquals(all.get(i).getDistance(),
+                        projected.get(i).getDistance(),
+                        Math.max(1.0e-6, all.get(i).getDistance() * 1.0e-6));
+            }
+
+            featureIndexManager.deleteAllIndexes();
+            featureIndexManager.close();
+        }
+
+    }
+
+    /**
+     * Validate nearest features are the closest of all features
+     *
+     * @param all     all features ordered by distance
+     * @param nearest nearest features
+     * @param k       number of nearest features
+     */
+    private static void validateNearest(List<NearestFeature> all,
+                                        List<NearestFeature> nearest, int k) {
+        TestCase.assertEquals(Math.min(k, all.size()), nearest.size());
+        for (int i = 0; i < nearest.size(); i++) {
+            TestCase.assertEquals(all.get(i).getDistance(),
+                    nearest.get(i).getDistance(), 0.0);
+            TestCase.assertEquals(all.get(i).getId(), nearest.get(i).getId());
+        }
+    }
+
+    /**
+     * Test exact spatial predicate queries
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    private static void testSpatialPredicates(Activity activity,
+                                              GeoPackage geoPackage) throws SQLException {
+
+        // Prepared polygon with a hole
+        Polygon square = new Polygon();
+        square.addRing(ring(0, 0, 10, 10));
+        square.addRing(ring(4, 4, 6, 6));
+        PreparedGeometry prepared = new PreparedGeometry(square);
+        TestCase.assertTrue(prepared.covers(2, 2));
+        TestCase.assertTrue(prepared.covers(0, 5));
+        TestCase.assertTrue(prepared.covers(4, 5));
+        TestCase.assertFalse(prepared.covers(5, 5));
+        TestCase.assertFalse(prepared.covers(11, 5));
+        TestCase.assertTrue(prepared.test(SpatialPredicate.WITHIN,
+                new Point(1, 1)));
+        TestCase.assertFalse(prepared.test(SpatialPredicate.WITHIN,
+                new Point(5, 5)));
+        LineString crossing = new LineString();
+        crossing.addPoint(new Point(-5, 2));
+        crossing.addPoint(new Point(5, 2));
+        TestCase.assertTrue(prepared.test(SpatialPredicate.INTERSECTS, crossing));
+        TestCase.assertFalse(prepared.test(SpatialPredicate.WITHIN, crossing));
+        LineString overHole = new LineString();
+        overHole.addPoint(new Point(3, 5));
+        overHole.addPoint(new Point(7, 5));
+        TestCase.assertTrue(prepared.test(SpatialPredicate.INTERSECTS, overHole));
+        TestCase.assertFalse(prepared.test(SpatialPredicate.WITHIN, overHole));
+        Polygon inner = new Polygon();
+        inner.addRing(ring(1, 1, 3, 3));
+        TestCase.assertTrue(prepared.test(SpatialPredicate.WITHIN, inner));
+        TestCase.assertFalse(prepared.test(SpatialPredicate.CONTAINS, inner));
+        Polygon outer = new Polygon();
+        outer.addRing(ring(-1, -1, 11, 11));
+        TestCase.assertTrue(prepared.test(SpatialPredicate.CONTAINS, outer));
+        TestCase.assertTrue(prepared.test(SpatialPredicate.INTERSECTS, outer));
+        Polygon hole = new Polygon();
+        hole.addRing(ring(4.5, 4.5, 5.5, 5.5));
+        TestCase.assertFalse(prepared.test(SpatialPredicate.INTERSECTS, hole));
+        TestCase.assertFalse(new PreparedGeometry(new Point(5, 5)).test(
+                SpatialPredicate.CONTAINS, square));
+        TestCase.assertTrue(new PreparedGeometry(new Point(2, 2)).test(
+                SpatialPredicate.CONTAINS, square));
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        for (String featureTable : featureTables) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+            BoundingBox boundingBox = new ManualFeatureQuery(featureDao)
+                    .getBoundingBox();
+            if (boundingBox == null) {
+                continue;
+            }
+
+            // Query polygon over the middle of the features
+            double width = boundingBox.getMaxLongitude()
+                    - boundingBox.getMinLongitude();
+            double height = boundingBox.getMaxLatitude()
+                    - boundingBox.getMinLatitude();
+            Polygon polygon = new Polygon();
+            polygon.addRing(ring(boundingBox.getMinLongitude() + width / 4,
+                    boundingBox.getMinLatitude() + height / 4,
+                    boundingBox.getMaxLongitude() - width / 4,
+                    boundingBox.getMaxLatitude() - height / 4));
+            PreparedGeometry preparedPolygon = new PreparedGeometry(polygon);
+            GeometryEnvelope envelope = preparedPolygon.getEnvelope();
+
+            // Expected results from a table scan
+            Map<SpatialPredicate, Set<Long>> expected = new HashMap<>();
+            for (SpatialPredicate predicate : SpatialPredicate.values()) {
+                expected.put(predicate, new HashSet<Long>());
+            }
+            FeatureCursor cursor = featureDao.query(
+                    featureDao.getIdAndGeometryColumnNames());
+            try {
+                while (cursor.moveToNext()) {
+                    FeatureRow row = cursor.getRow();
+                    GeoPackageGeometryData geometryData = row.getGeometry();
+                    if (geometryData == null
+                            || geometryData.getGeometry() == null) {
+                        continue;
+                    }
+                    Geometry geometry = geometryData.getGeometry();
+                    GeometryEnvelope geometryEnvelope = geometryData
+                            .getOrBuildEnvelope();
+                    for (SpatialPredicate predicate : SpatialPredicate.values()) {
+                        if (preparedPolygon.test(predicate, geometry)) {
+                            expected.get(predicate).add(row.getId());
+                        }
+                    }
+                    if (geometryEnvelope.getMinX() > envelope.getMinX()
+                            && geometryEnvelope.getMinY() > envelope.getMinY()
+                            && geometryEnvelope.getMaxX() < envelope.getMaxX()
+                            && geometryEnvelope.getMaxY() < envelope.getMaxY()) {
+                        TestCase.assertTrue(expected.get(
+                                SpatialPredicate.WITHIN).contains(row.getId()));
+                    }
+                    if (!envelope.intersects(geometryEnvelope, true)) {
+                        TestCase.assertFalse(expected.get(
+                                SpatialPredicate.INTERSECTS).contains(row.getId()));
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            TestCase.assertTrue(expected.get(SpatialPredicate.INTERSECTS)
+                    .containsAll(expected.get(SpatialPredicate.WITHIN)));
+            TestCase.assertTrue(expected.get(SpatialPredicate.INTERSECTS)
+                    .containsAll(expected.get(SpatialPredicate.CONTAINS)));
+
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureIndexManager.setContinueOnError(false);
+
+            // Manual query, GeoPackage index, and memory index candidates,
+            // refined serially and in parallel
+            featureIndexManager.setIndexLocation(FeatureIndexType.GEOPACKAGE);
+            featureIndexManager.setIndexLocationOrder(FeatureIndexType.GEOPACKAGE);
+            featureIndexManager.deleteAllIndexes();
+            validateSpatialPredicates(featureIndexManager, polygon, expected);
+            featureIndexManager.index();
+            TestCase.assertTrue(featureIndexManager.isIndexed());
+            validateSpatialPredicates(featureIndexManager, polygon, expected);
+            featureIndexManager.setIndexLocation(FeatureIndexType.MEMORY);
+            featureIndexManager.setIndexLocationOrder(FeatureIndexType.MEMORY);
+            featureIndexManager.index();
+            TestCase.assertTrue(featureIndexManager.isIndexed(FeatureIndexType.MEMORY));
+            validateSpatialPredicates(featureIndexManager, polygon, expected);
+
+            // Query geometry in another projection
+            Projection wgs84 = ProjectionFactory.getProjection(
+                    ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+            Point wgs84Point = GeometryTransform.create(
+                    featureDao.getProjection(), wgs84).transform(
+                    new Point(envelope.getMidX(), envelope.getMidY()));
+            FeatureIndexResults projected = featureIndexManager.query(
+                    wgs84Point, SpatialPredicate.INTERSECTS, wgs84);
+            try {
+                for (FeatureRow row : projected) {
+                    TestCase.assertNotNull(row);
+                    TestCase.assertNotNull(row.getGeometry());
+                }
+            } finally {
+                projected.close();
+            }
+
+            featureIndexManager.deleteAllIndexes();
+            featureIndexManager.close();
+        }
+
+    }
+
+    /**
+     * Validate spatial predicate queries serially and in parallel against
+     * the expected feature ids
+     *
+     * @param featureIndexManager feature index manager
+     * @param geometry            query geometry
+     * @param expected            expected feature ids by predicate
+     */
+    private static void validateSpatialPredicates(
+            FeatureIndexManager featureIndexManager, Geometry geometry,
+            Map<SpatialPredicate, Set<Long>> expected) {
+        int parallelism = featureIndexManager.getParallelism();
+        for (int threads : new int[]{1, 3}) {
+            featureIndexManager.setParallelism(threads);
+            for (SpatialPredicate predicate : SpatialPredicate.values()) {
+                Set<Long> ids = new HashSet<>();
+                FeatureIndexResults results = featureIndexManager.query(
+                        geometry, predicate);
+                try {
+                    for (FeatureRow row : results) {
+                        TestCase.assertNotNull(row);
+                        TestCase.assertTrue(ids.add(row.getId()));
+                    }
+                } finally {
+                    results.close();
+                }
+                TestCase.assertEquals(expected.get(predicate), ids);
+                TestCase.assertEquals(ids.size(),
+                        featureIndexManager.count(geometry, predicate));
+            }
+        }
+        featureIndexManager.setParallelism(parallelism);
+    }
+
+    /**
+     * Create a rectangular polygon ring
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param maxX max x
+     * @param maxY max y
+     * @return ring
+     */
+    private static LineString ring(double minX, double minY, double maxX,
+                                   double maxY) {
+        LineString ring = new LineString();
+        ring.addPoint(new Point(minX, minY));
+        ring.addPoint(new Point(maxX, minY));
+        ring.addPoint(new Point(maxX, maxY));
+        ring.addPoint(new Point(minX, maxY));
+        ring.addPoint(new Point(minX, minY));
+        return ring;
+    }
+
+    /**
+     * Test join based spatial and attribute queries against the id IN
+     * subquery form
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    private static void testJoinQueries(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+        for (String featureTable : geoPackage.getFeatureTables()) {
+            testJoinQueries(activity, geoPackage, featureTable);
+        }
+    }
+
+    /**
+     * Test join based spatial and attribute queries against the id IN
+     * subquery form
+     *
+     * @param activity     activity
+     * @param geoPackage   GeoPackage
+     * @param featureTable feature table
+     * @throws SQLException upon error
+     */
+    private static void testJoinQueries(Activity activity, GeoPackage geoPackage,
+                                        String featureTable) throws SQLException {
+
+        FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+        BoundingBox boundingBox = new ManualFeatureQuery(featureDao)
+                .getBoundingBox();
+        if (boundingBox == null) {
+            return;
+        }
+        List<FeatureIndexTestEnvelope> envelopes = createEnvelopes(
+                boundingBox.buildEnvelope());
+
+        String[] columns = featureDao.getColumnNames();
+        String pk = CoreSQLUtils.quoteWrap(featureDao.getPkColumnName());
+        String where = pk + " % 2 = 0 AND " + pk + " >= ?";
+        String[] whereArgs = new String[]{"1"};
+
+        FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                geoPackage, featureDao);
+        featureIndexManager.setContinueOnError(false);
+        try {
+
+            featureIndexManager.setIndexLocation(FeatureIndexType.GEOPACKAGE);
+            featureIndexManager.setIndexLocationOrder(FeatureIndexType.GEOPACKAGE);
+            featureIndexManager.deleteIndex(FeatureIndexType.GEOPACKAGE);
+            featureIndexManager.index();
+            TestCase.assertTrue(featureIndexManager.isIndexed(FeatureIndexType.GEOPACKAGE));
+
+            FeatureTableIndex featureTableIndex = featureIndexManager
+                    .getFeatureTableIndex();
+            RTreeIndexTableDao rTreeIndexTableDao = null;
+            if (featureIndexManager.isIndexed(FeatureIndexType.RTREE)) {
+                rTreeIndexTableDao = featureIndexManager.getRTreeIndexTableDao();
+            }
+
+            for (FeatureIndexTestEnvelope testEnvelope : envelopes) {
+
+                GeometryEnvelope envelope = testEnvelope.envelope;
+
+                // GeoPackage index
+                List<Long> expected = cursorIds(featureTableIndex.queryFeatures(
+                        false, columns, envelope, where, whereArgs));
+                List<Long> join = cursorIds(featureTableIndex.queryFeaturesJoin(
+                        false, columns, envelope, where, whereArgs));
+                validateJoinIds(expected, join);
+                TestCase.assertEquals(expected.size(), featureTableIndex
+                        .countFeaturesJoin(false, null, envelope, where, whereArgs));
+                TestCase.assertEquals(featureTableIndex.countFeatures(false,
+                        featureDao.getPkColumnName(), envelope, where, whereArgs),
+                        featureTableIndex
+                        .countFeaturesJoin(false, featureDao.getPkColumnName(),
+                                envelope, where, whereArgs));
+                validateJoinChunks(expected, cursorIds(featureTableIndex
+                                .queryFeaturesJoinForChunk(false, columns, envelope,
+                                        where, whereArgs, pk + " DESC", 3)),
+                        cursorIds(featureTableIndex.queryFeaturesJoinForChunk(false,
+                                columns, envelope, where, whereArgs, pk, 2, 1)));
+
+                // Join queries through the manager
+                featureIndexManager.setJoinQueries(true);
+                Set<Long> managerIds = new HashSet<>();
+                FeatureIndexResults results = featureIndexManager.query(columns,
+                        envelope, where, whereArgs);
+                try {
+                    for (FeatureRow row : results) {
+                        managerIds.add(row.getId());
+                    }
+                } finally {
+                    results.close();
+                }
+                TestCase.assertEquals(new HashSet<>(expected), managerIds);
+                TestCase.assertEquals(expected.size(), featureIndexManager.count(
+                        envelope, where, whereArgs));
+                featureIndexManager.setJoinQueries(false);
+
+                // RTree index
+                if (rTreeIndexTableDao != null) {
+                    List<Long> rTreeExpected = cursorIds(rTreeIndexTableDao
+                            .queryFeatures(false, columns, envelope, where,
+                                    whereArgs));
+                    List<Long> rTreeJoin = cursorIds(rTreeIndexTableDao
+                            .queryFeaturesJoin(false, columns, envelope, where,
+                                    whereArgs));
+                    validateJoinIds(rTreeExpected, rTreeJoin);
+                    TestCase.assertEquals(rTreeExpected.size(), rTreeIndexTableDao
+                            .countFeaturesJoin(false, null, envelope, where,
+                                    whereArgs));
+                    validateJoinChunks(rTreeExpected, cursorIds(rTreeIndexTableDao
+                                    .queryFeaturesJoinForChunk(false, columns,
+                                            envelope.getMinX(), envelope.getMinY(),
+                                            envelope.getMaxX(), envelope.getMaxY(),
+                                            where, whereArgs, pk + " DESC", 3)),
+                            cursorIds(rTreeIndexTableDao.queryFeaturesJoinForChunk(
+                                    false, columns, envelope.getMinX(),
+                                    envelope.getMinY(), envelope.getMaxX(),
+                                    envelope.getMaxY(), where, whereArgs, pk, 2, 1)));
+                }
+            }
+
+            featureIndexManager.deleteIndex(FeatureIndexType.GEOPACKAGE);
+
+        } finally {
+            featureIndexManager.close();
+        }
+    }
+
+    /**
+     * Read the feature ids of the cursor in order, closing the cursor
+     *
+     * @param cursor feature cursor
+     * @return feature ids
+     */
+    private static List<Long> cursorIds(FeatureCursor cursor) {
+        List<Long> ids = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getRow().getId());
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    /**
+     * Validate the join query ids match the subquery ids
+     *
+     * @param expected subquery ids
+     * @param join     join query ids
+     */
+    private static void validateJoinIds(List<Long> expected, List<Long> join) {
+        TestCase.assertEquals(expected.size(), join.size());
+        TestCase.assertEquals(new HashSet<>(expected), new HashSet<>(join));
+        for (long id : join) {
+            TestCase.assertEquals(0, id % 2);
+        }
+    }
+
+    /**
+     * Validate the ordered and limited join query chunks
+     *
+     * @param expected   subquery ids
+     * @param descending first 3 ids in descending order
+     * @param offset     2 ids in ascending order at offset 1
+     */
+    private static void validateJoinChunks(List<Long> expected,
+                                           List<Long> descending, List<Long> offset) {
+        List<Long> sorted = new ArrayList<>(expected);
+        Collections.sort(sorted);
+        List<Long> reversed = new ArrayList<>(sorted);
+        Collections.reverse(reversed);
+        TestCase.assertEquals(reversed.subList(0, Math.min(3, reversed.size())),
+                descending);
+        TestCase.assertEquals(sorted.subList(Math.min(1, sorted.size()),
+                Math.min(3, sorted.size())), offset);
+    }
+
     /**
      * Test large index
      *
@@ -1786,6 +3183,8 @@ public class FeatureIndexManagerUtils {
                 envelopes, .0000000001, compareProjectionCounts, .001, verbose);
         testTimedIndex(activity, geoPackage, FeatureIndexType.RTREE, featureDao,
                 envelopes, .0000000001, .0001, compareProjectionCounts, .001, verbose);
+        testTimedIndex(activity, geoPackage, FeatureIndexType.MEMORY, featureDao,
+                envelopes, .0000000001, compareProjectionCounts, .001, verbose);
         testTimedIndex(activity, geoPackage, FeatureIndexType.NONE, featureDao,
                 envelopes, .0000000001, compareProjectionCounts, .001, verbose);
     }
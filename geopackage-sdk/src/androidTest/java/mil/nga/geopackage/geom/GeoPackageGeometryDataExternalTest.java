@@ -34,6 +34,19 @@ public class GeoPackageGeometryDataExternalTest extends ExternalGeoPackageTestCa
 
     }
 
+    /**
+     * Test reading geometry envelopes without decoding
+     *
+     * @throws SQLException upon error
+     * @throws IOException  upon error
+     */
+    @Test
+    public void testEnvelopeReader() throws SQLException, IOException {
+
+        GeoPackageGeometryDataUtils.testEnvelopeReader(geoPackage);
+
+    }
+
     /**
      * Test geometry projection transform
      *
@@ -150,6 +150,103 @@ public class GeoPackageGeometryDataUtils {
 
     }
 
+    /**
+     * Test reading geometry envelopes without decoding the geometries
+     *
+     * @param geoPackage
+     * @throws SQLException
+     * @throws IOException
+     */
+    public static void testEnvelopeReader(GeoPackage geoPackage)
+            throws SQLException, IOException {
+
+        GeometryEnvelopeReader reader = new GeometryEnvelopeReader();
+
+        GeometryColumnsDao geometryColumnsDao = geoPackage
+                .getGeometryColumnsDao();
+
+        if (geometryColumnsDao.isTableExists()) {
+            List<GeometryColumns> results = geometryColumnsDao.queryForAll();
+
+            for (GeometryColumns geometryColumns : results) {
+
+                FeatureDao dao = geoPackage.getFeatureDao(geometryColumns);
+                TestCase.assertNotNull(dao);
+
+                FeatureCursor cursor = dao.queryForAll();
+
+                while (cursor.moveToNext()) {
+
+                    GeoPackageGeometryData geometryData = cursor.getGeometry();
+
+                    if (cursor.isDirectRead()) {
+                        boolean read = cursor.readGeometryEnvelope(reader);
+                        TestCase.assertEquals(geometryData != null
+                                && geometryData.getOrBuildEnvelope() != null, read);
+                    }
+
+                    if (geometryData != null && !geometryData.isExtended()) {
+
+                        GeometryEnvelope envelope = geometryData
+                                .getOrBuildEnvelope();
+
+                        // Read from the original bytes
+                        compareEnvelope(envelope, reader,
+                                geometryData.getBytes());
+
+                        // Read from the WKB without a header envelope
+                        geometryData.setEnvelope(null);
+                        compareEnvelope(envelope, reader,
+                                geometryData.toBytes());
+
+                        // Read with the opposite byte order
+                        geometryData.setByteOrder(geometryData
+                                .getByteOrder() == ByteOrder.BIG_ENDIAN ? ByteOrder.LITTLE_ENDIAN
+                                : ByteOrder.BIG_ENDIAN);
+                        compareEnvelope(envelope, reader,
+                                geometryData.toBytes());
+
+                        // Read with a header envelope
+                        geometryData.setEnvelope(envelope);
+                        compareEnvelope(envelope, reader,
+                                geometryData.toBytes());
+                    }
+
+                }
+                cursor.close();
+            }
+        }
+
+    }
+
+    /**
+     * Compare the expected envelope with the envelope read from the bytes
+     *
+     * @param expected expected envelope
+     * @param reader   envelope reader
+     * @param bytes    geometry data bytes
+     */
+    private static void compareEnvelope(GeometryEnvelope expected,
+                                        GeometryEnvelopeReader reader, byte[] bytes) {
+        boolean read = reader.read(bytes);
+        TestCase.assertEquals(expected != null, read);
+        TestCase.assertEquals(read, reader.isFound());
+        if (read) {
+            TestCase.assertEquals(expected.getMinX(), reader.getMinX(), 0.0);
+            TestCase.assertEquals(expected.getMaxX(), reader.getMaxX(), 0.0);
+            TestCase.assertEquals(expected.getMinY(), reader.getMinY(), 0.0);
+            TestCase.assertEquals(expected.getMaxY(), reader.getMaxY(), 0.0);
+            if (expected.hasZ() && reader.hasZ()) {
+                TestCase.assertEquals(expected.getMinZ(), reader.getMinZ(), 0.0);
+                TestCase.assertEquals(expected.getMaxZ(), reader.getMaxZ(), 0.0);
+            }
+            if (expected.hasM() && reader.hasM()) {
+                TestCase.assertEquals(expected.getMinM(), reader.getMinM(), 0.0);
+                TestCase.assertEquals(expected.getMaxM(), reader.getMaxM(), 0.0);
+            }
+        }
+    }
+
     /**
      * Test transforming geometries between projections
      *
@@ -0,0 +1,219 @@
+package mil.nga.geopackage.tiles.features;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import mil.nga.geopackage.CreateGeoPackageTestCase;
+import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageFactory;
+import mil.nga.geopackage.GeoPackageManager;
+import mil.nga.geopackage.features.index.FeatureIndexManager;
+import mil.nga.geopackage.features.index.FeatureIndexType;
+import mil.nga.geopackage.features.user.FeatureDao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test GeoPackage Feature Tile Cache
+ *
+ * @author osbornb
+ */
+public class FeatureTileCacheTest extends CreateGeoPackageTestCase {
+
+    /**
+     * Constructor
+     */
+    public FeatureTileCacheTest() {
+
+    }
+
+    /**
+     * Test the memory tile cache
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testMemoryCache() throws IOException, SQLException {
+        testTileCache(false);
+    }
+
+    /**
+     * Test the memory and disk tile cache
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testDiskCache() throws IOException, SQLException {
+        testTileCache(true);
+    }
+
+    /**
+     * Test the tile cache
+     *
+     * @param disk true to cache on disk
+     * @throws java.io.IOException   upon error
+     * @throws java.sql.SQLException upon error
+     */
+    public void testTileCache(boolean disk) throws IOException, SQLException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        int num = FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        File directory = null;
+        if (disk) {
+            directory = new File(activity.getCacheDir(), "feature_tile_cache_test");
+        }
+
+        FeatureTiles featureTiles = FeatureTileUtils.createFeatureTiles(
+                activity, geoPackage, featureDao, false, false);
+        FeatureTileCache tileCache = new FeatureTileCache(featureDao,
+                FeatureTileCache.DEFAULT_MAX_MEMORY_BYTES, directory,
+                FeatureTileCache.DEFAULT_MAX_DISK_BYTES);
+        try {
+
+            FeatureIndexManager indexManager = new FeatureIndexManager(
+                    activity, geoPackage, featureDao);
+            featureTiles.setIndexManager(indexManager);
+            indexManager.setIndexLocation(FeatureIndexType.GEOPACKAGE);
+            assertEquals(num, indexManager.index());
+
+            tileCache.clear();
+            featureTiles.setTileCache(tileCache);
+
+            byte[] drawn = featureTiles.drawTileBytes(0, 0, 0);
+            assertNotNull(drawn);
+            assertTrue(tileCache.getMemoryBytes() >= drawn.length);
+            if (disk) {
+                assertEquals(drawn.length, tileCache.getDiskBytes());
+            }
+
+            byte[] cached = featureTiles.drawTileBytes(0, 0, 0);
+            assertTrue(Arrays.equals(drawn, cached));
+
+            // Feature writes invalidate intersecting tiles
+            long invalidations = tileCache.getInvalidations();
+            FeatureTileUtils.insertPoint(featureDao, 0, 0);
+            assertTrue(tileCache.getInvalidations() > invalidations);
+            assertEquals(0, tileCache.getMemoryBytes());
+            if (disk) {
+                assertEquals(0, tileCache.getDiskBytes());
+            }
+
+            byte[] redrawn = featureTiles.drawTileBytes(0, 0, 0);
+            assertNotNull(redrawn);
+
+            if (disk) {
+
+                // A new cache reads the disk cached tile
+                FeatureTileCache diskCache = new FeatureTileCache(featureDao,
+                        FeatureTileCache.DEFAULT_MAX_MEMORY_BYTES, directory,
+                        FeatureTileCache.DEFAULT_MAX_DISK_BYTES);
+                try {
+                    assertEquals(redrawn.length, diskCache.getDiskBytes());
+                    byte[] diskTile = diskCache.get(featureTiles, 0, 0, 0);
+                    assertTrue(Arrays.equals(redrawn, diskTile));
+                } finally {
+                    diskCache.close();
+                }
+
+                // A reopened cache reuses the disk cache of an unchanged
+                // GeoPackage
+                tileCache.close();
+                tileCache = new FeatureTileCache(featureDao,
+                        FeatureTileCache.DEFAULT_MAX_MEMORY_BYTES, directory,
+                        FeatureTileCache.DEFAULT_MAX_DISK_BYTES);
+                featureTiles.setTileCache(tileCache);
+                assertEquals(redrawn.length, tileCache.getDiskBytes());
+
+                // Writes while no cache is open clear the disk cache
+                tileCache.close();
+                long closedInvalidations = tileCache.getInvalidations();
+                FeatureTileUtils.insertPoint(featureDao, 0, 0);
+                assertEquals(closedInvalidations, tileCache.getInvalidations());
+                tileCache = new FeatureTileCache(featureDao,
+                        FeatureTileCache.DEFAULT_MAX_MEMORY_BYTES, directory,
+                        FeatureTileCache.DEFAULT_MAX_DISK_BYTES);
+                featureTiles.setTileCache(tileCache);
+                assertEquals(0, tileCache.getDiskBytes());
+                assertNull(tileCache.get(featureTiles, 0, 0, 0));
+            }
+
+            // Invalidations clear the metatile feature rows
+            featureTiles.setMetatileSize(2);
+            byte[] metatileDrawn = featureTiles.drawTileBytes(0, 0, 1);
+            assertNotNull(metatileDrawn);
+            FeatureTileUtils.insertPoint(featureDao, -45, 60);
+            byte[] metatileRedrawn = featureTiles.drawTileBytes(0, 0, 1);
+            assertNotNull(metatileRedrawn);
+            assertFalse(Arrays.equals(metatileDrawn, metatileRedrawn));
+
+            tileCache.clear();
+            assertEquals(0, tileCache.getMemoryBytes());
+            assertEquals(0, tileCache.getDiskBytes());
+
+        } finally {
+            tileCache.close();
+            featureTiles.close();
+        }
+
+    }
+
+    /**
+     * Test that feature writes do not invalidate the tile cache of a same
+     * named feature table in another GeoPackage
+     *
+     * @throws java.io.IOException   upon error
+     * @throws java.sql.SQLException upon error
+     */
+    @Test
+    public void testSeparateGeoPackages() throws IOException, SQLException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+        FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        String otherName = "feature_tile_cache_other";
+        GeoPackageManager manager = GeoPackageFactory.getManager(activity);
+        manager.delete(otherName);
+        assertTrue(manager.create(otherName));
+        GeoPackage otherGeoPackage = manager.open(otherName);
+        try {
+
+            FeatureDao otherDao = FeatureTileUtils
+                    .createFeatureDao(otherGeoPackage);
+            FeatureTileUtils.insertFeatures(otherGeoPackage, otherDao);
+            assertEquals(featureDao.getTableName(), otherDao.getTableName());
+
+            FeatureTileCache tileCache = new FeatureTileCache(featureDao,
+                    FeatureTileCache.DEFAULT_MAX_MEMORY_BYTES);
+            FeatureTileCache otherCache = new FeatureTileCache(otherDao,
+                    FeatureTileCache.DEFAULT_MAX_MEMORY_BYTES);
+            try {
+                long invalidations = tileCache.getInvalidations();
+                long otherInvalidations = otherCache.getInvalidations();
+                FeatureTileUtils.insertPoint(featureDao.copy(), 0, 0);
+                assertTrue(tileCache.getInvalidations() > invalidations);
+                assertEquals(otherInvalidations, otherCache.getInvalidations());
+            } finally {
+                tileCache.close();
+                otherCache.close();
+            }
+
+        } finally {
+            otherGeoPackage.close();
+            manager.delete(otherName);
+        }
+
+    }
+
+}
@@ -141,6 +141,66 @@ public class FeatureTileGeneratorTest extends CreateGeoPackageTestCase {
         testTileGenerator(true, true, true, true);
     }
 
+    /**
+     * Test tile generator
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testTileGeneratorWithIndexAndMetatiles()
+            throws IOException, SQLException {
+        testTileGenerator(true, false, false, false, 2);
+    }
+
+    /**
+     * Test tile generator
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testTileGeneratorWithIndexAndMaxFeaturesAndMetatiles()
+            throws IOException, SQLException {
+        testTileGenerator(true, false, true, false, 3);
+    }
+
+    /**
+     * Test tile generator
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testTileGeneratorWithParallelism()
+            throws IOException, SQLException {
+        testTileGenerator(false, false, false, false, 1, 3);
+    }
+
+    /**
+     * Test tile generator
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testTileGeneratorWithIndexAndMaxFeaturesAndParallelism()
+            throws IOException, SQLException {
+        testTileGenerator(true, false, true, false, 1, 4);
+    }
+
+    /**
+     * Test tile generator
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testTileGeneratorWithIndexAndMetatilesAndParallelism()
+            throws IOException, SQLException {
+        testTileGenerator(true, true, false, false, 2, 3);
+    }
+
     /**
      * Test tile generator
      *
@@ -154,6 +214,45 @@ public class FeatureTileGeneratorTest extends CreateGeoPackageTestCase {
     public void testTileGenerator(boolean index, boolean useIcon,
                                   boolean maxFeatures, boolean geodesic)
                                   throws IOException, SQLException {
+        testTileGenerator(index, useIcon, maxFeatures, geodesic, 1);
+    }
+
+    /**
+     * Test tile generator
+     *
+     * @param index index features
+     * @param useIcon true to use an icon instead of the default point
+     * @param maxFeatures set max features
+     * @param geodesic draw geometries using geodesic lines
+     * @param metatileSize metatile size
+     * @throws java.io.IOException upon error
+     * @throws java.sql.SQLException upon error
+     * @since 6.7.5
+     */
+    public void testTileGenerator(boolean index, boolean useIcon,
+                                  boolean maxFeatures, boolean geodesic,
+                                  int metatileSize)
+                                  throws IOException, SQLException {
+        testTileGenerator(index, useIcon, maxFeatures, geodesic, metatileSize, 1);
+    }
+
+    /**
+     * Test tile generator
+     *
+     * @param index index features
+     * @param useIcon true to use an icon instead of the default point
+     * @param maxFeatures set max features
+     * @param geodesic draw geometries using geodesic lines
+     * @param metatileSize metatile size
+     * @param parallelism tile creation threads
+     * @throws java.io.IOException upon error
+     * @throws java.sql.SQLException upon error
+     * @since 6.7.5
+     */
+    public void testTileGenerator(boolean index, boolean useIcon,
+                                  boolean maxFeatures, boolean geodesic,
+                                  int metatileSize, int parallelism)
+                                  throws IOException, SQLException {
 
         int minZoom = 0;
         int maxZoom = 4;
@@ -184,11 +283,14 @@ public class FeatureTileGeneratorTest extends CreateGeoPackageTestCase {
                 featureTiles.setMaxFeaturesTileDraw(numberFeaturesTile);
             }
 
+            featureTiles.setMetatileSize(metatileSize);
+
             TileGenerator tileGenerator = new FeatureTileGenerator(activity, geoPackage,
                     "gen_feature_tiles", featureTiles, minZoom, maxZoom,
                     ProjectionFactory
                             .getProjection(ProjectionConstants.EPSG_WEB_MERCATOR));
             tileGenerator.setXYZTiles(false);
+            tileGenerator.setParallelism(parallelism);
 
             int tiles = tileGenerator.generateTiles();
 
@@ -1,10 +1,17 @@
 package mil.nga.geopackage.tiles.features;
 
 import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
 
 import org.junit.Test;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import mil.nga.geopackage.BoundingBox;
 
 import mil.nga.geopackage.db.FeatureIndexer;
 import mil.nga.geopackage.features.index.FeatureIndexManager;
@@ -12,8 +19,17 @@ import mil.nga.geopackage.features.index.FeatureIndexType;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.CreateGeoPackageTestCase;
 import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
+import mil.nga.proj.Projection;
+import mil.nga.proj.ProjectionConstants;
+import mil.nga.proj.ProjectionFactory;
+import mil.nga.sf.Point;
+import mil.nga.sf.proj.GeometryTransform;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -70,6 +86,296 @@ public class FeatureTilesTest extends CreateGeoPackageTestCase {
         testFeatureTiles(true, true);
     }
 
+    /**
+     * Test feature tiles drawn from metatiles
+     *
+     * @throws java.sql.SQLException upon error
+     */
+    @Test
+    public void testFeatureTilesWithMetatiles() throws SQLException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        int num = FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        FeatureTiles featureTiles = FeatureTileUtils
+                .createFeatureTiles(activity, geoPackage, featureDao, false, false);
+
+        try {
+
+            FeatureIndexManager indexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureTiles.setIndexManager(indexManager);
+
+            indexManager.setIndexLocation(FeatureIndexType.GEOPACKAGE);
+            int indexed = indexManager.index();
+            assertEquals(num, indexed);
+
+            for (int zoom = 0; zoom <= 3; zoom++) {
+
+                int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+                for (int x = 0; x < tilesPerSide; x++) {
+                    for (int y = 0; y < tilesPerSide; y++) {
+
+                        featureTiles.setMetatileSize(1);
+                        Bitmap bitmap = featureTiles.drawTile(x, y, zoom);
+
+                        for (int metatileSize : new int[]{2, 3}) {
+                            featureTiles.setMetatileSize(metatileSize);
+                            Bitmap metatileBitmap = featureTiles.drawTile(x, y, zoom);
+                            if (bitmap == null) {
+                                assertNull(metatileBitmap);
+                            } else {
+                                assertNotNull(metatileBitmap);
+                                assertEquals(bitmap.getWidth(),
+                                        metatileBitmap.getWidth());
+                                assertEquals(bitmap.getHeight(),
+                                        metatileBitmap.getHeight());
+                                metatileBitmap.recycle();
+                            }
+                        }
+
+                        if (bitmap != null) {
+                            bitmap.recycle();
+                        }
+                    }
+                }
+            }
+
+            // Blocks exceeding the max features are drawn from tile queries
+            featureTiles.setMetatileSize(2);
+            featureTiles.setMetatileMaxFeatures(0);
+            createTiles(featureTiles, 0, 2);
+
+        } finally {
+            featureTiles.close();
+        }
+    }
+
+    /**
+     * Test feature tiles drawn with and without geometry clipping
+     *
+     * @throws java.sql.SQLException upon error
+     */
+    @Test
+    public void testFeatureTilesWithClipping() throws SQLException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        int num = FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        FeatureTiles featureTiles = FeatureTileUtils
+                .createFeatureTiles(activity, geoPackage, featureDao, false, false);
+
+        try {
+
+            FeatureIndexManager indexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureTiles.setIndexManager(indexManager);
+
+            indexManager.setIndexLocation(FeatureIndexType.GEOPACKAGE);
+            int indexed = indexManager.index();
+            assertEquals(num, indexed);
+
+            assertTrue(featureTiles.isClipGeometries());
+
+            for (int zoom = 0; zoom <= 4; zoom++) {
+
+                int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+                for (int x = 0; x < tilesPerSide; x++) {
+                    for (int y = 0; y < tilesPerSide; y++) {
+
+                        featureTiles.setClipGeometries(false);
+                        Bitmap bitmap = featureTiles.drawTile(x, y, zoom);
+
+                        featureTiles.setClipGeometries(true);
+                        Bitmap clippedBitmap = featureTiles.drawTile(x, y, zoom);
+
+                        if (bitmap == null) {
+                            assertNull(clippedBitmap);
+                        } else {
+                            assertNotNull(clippedBitmap);
+                            assertEquals(bitmap.getWidth(),
+                                    clippedBitmap.getWidth());
+                            assertEquals(bitmap.getHeight(),
+                                    clippedBitmap.getHeight());
+                            clippedBitmap.recycle();
+                            bitmap.recycle();
+                        }
+                    }
+                }
+            }
+
+        } finally {
+            featureTiles.close();
+        }
+
+        GeometryClipper clipper = new GeometryClipper(
+                new BoundingBox(0, 0, 10, 10), 0);
+
+        // Line leaving and entering the clip bounds is split into parts
+        List<List<Point>> parts = clipper.clipLine(points(-5, 2, 5, 2, 5, 15,
+                8, 15, 8, 5, 15, 5));
+        assertEquals(2, parts.size());
+        assertPoints(parts.get(0), 0, 2, 5, 2, 5, 10);
+        assertPoints(parts.get(1), 8, 10, 8, 5, 10, 5);
+
+        // Line outside the clip bounds
+        assertTrue(clipper.clipLine(points(-5, -5, 15, -5)).isEmpty());
+
+        // Points within the clip bounds are unchanged
+        List<Point> inside = points(1, 1, 9, 1, 9, 9, 1, 9);
+        assertSame(inside, clipper.clipLine(inside).get(0));
+        assertSame(inside, clipper.clipRing(inside));
+
+        // Ring containing the clip bounds is clipped to the bounds
+        List<Point> ring = clipper.clipRing(points(-5, -5, 15, -5, 15, 15,
+                -5, 15));
+        assertEquals(4, ring.size());
+        for (Point point : ring) {
+            assertTrue(point.getX() == 0 || point.getX() == 10);
+            assertTrue(point.getY() == 0 || point.getY() == 10);
+        }
+
+        // Ring crossing a side keeps the inside vertices
+        assertPoints(clipper.clipRing(points(5, 5, 15, 5, 15, 8, 5, 8)), 5,
+                5, 10, 5, 10, 8, 5, 8);
+
+        // Ring outside the clip bounds
+        assertTrue(clipper.clipRing(points(20, 20, 30, 20, 30, 30)).isEmpty());
+    }
+
+    /**
+     * Test the tile path builder pixels against projected tile pixels
+     */
+    @Test
+    public void testTilePathBuilderPixels() {
+
+        int tileWidth = 256;
+        int tileHeight = 256;
+
+        for (long code : new long[]{ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM,
+                ProjectionConstants.EPSG_WEB_MERCATOR}) {
+
+            Projection projection = ProjectionFactory.getProjection(code);
+            GeometryTransform transform = GeometryTransform.create(projection,
+                    ProjectionConstants.EPSG_WEB_MERCATOR);
+
+            for (int zoom = 0; zoom <= 8; zoom += 4) {
+
+                int tile = TileBoundingBoxUtils.tilesPerSide(zoom) / 2;
+                BoundingBox boundingBox = TileBoundingBoxUtils
+                        .getWebMercatorBoundingBox(tile, tile, zoom);
+                TilePathBuilder pathBuilder = new TilePathBuilder(projection,
+                        transform, boundingBox, tileWidth, tileHeight, 0, false);
+
+                BoundingBox projectedBoundingBox = boundingBox.transform(
+                        transform.getInverseTransformation());
+                for (int i = 0; i <= 4; i++) {
+                    double x = projectedBoundingBox.getMinLongitude()
+                            + (projectedBoundingBox.getMaxLongitude()
+                            - projectedBoundingBox.getMinLongitude()) * i / 4.0;
+                    double y = projectedBoundingBox.getMinLatitude()
+                            + (projectedBoundingBox.getMaxLatitude()
+                            - projectedBoundingBox.getMinLatitude()) * i / 4.0;
+                    Point point = new Point(x, y);
+                    Point webMercatorPoint = transform.transform(point);
+
+                    float[] pixel = pathBuilder.getPixel(point);
+                    assertEquals(TileBoundingBoxUtils.getXPixel(tileWidth,
+                            boundingBox, webMercatorPoint.getX()), pixel[0], 0.01);
+                    assertEquals(TileBoundingBoxUtils.getYPixel(tileHeight,
+                            boundingBox, webMercatorPoint.getY()), pixel[1], 0.01);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test the feature tile canvas pooled layer bitmaps and drawn bounds
+     */
+    @Test
+    public void testFeatureTileCanvas() {
+
+        int tileWidth = 256;
+        int tileHeight = 256;
+
+        FeatureTileBitmapPool pool = new FeatureTileBitmapPool(tileWidth,
+                tileHeight, 2);
+        try {
+
+            // Bounds outside the tile are not drawn
+            FeatureTileCanvas canvas = new FeatureTileCanvas(tileWidth,
+                    tileHeight, pool, false);
+            canvas.getLineCanvas();
+            canvas.addLineBounds(new RectF(-20, -20, -10, -10));
+            assertFalse(canvas.isDirty());
+            canvas.recycle();
+            assertEquals(1, pool.size());
+
+            // Layer bitmaps are acquired from and released to the pool
+            canvas = new FeatureTileCanvas(tileWidth, tileHeight, pool, false);
+            Bitmap polygonBitmap = canvas.getPolygonBitmap();
+            assertEquals(0, pool.size());
+            canvas.getPolygonCanvas().drawColor(Color.RED);
+            canvas.addPolygonBounds(new RectF(0, 0, tileWidth, tileHeight));
+            canvas.getPointCanvas().drawCircle(10, 10, 5, new Paint());
+            canvas.addPointBounds(new RectF(4, 4, 16, 16));
+            assertTrue(canvas.isDirty());
+            Bitmap bitmap = canvas.createBitmap();
+            assertSame(polygonBitmap, bitmap);
+            assertEquals(1, pool.size());
+
+            pool.release(bitmap);
+            assertEquals(2, pool.size());
+            Bitmap acquired = pool.acquire();
+            assertSame(bitmap, acquired);
+            assertEquals(Color.TRANSPARENT, acquired.getPixel(128, 128));
+            pool.release(acquired);
+
+            // Single canvas layers share one bitmap
+            canvas = new FeatureTileCanvas(tileWidth, tileHeight, pool, true);
+            assertTrue(canvas.isSingleCanvas());
+            assertSame(canvas.getPolygonBitmap(), canvas.getIconBitmap());
+            canvas.addIconBounds(new RectF(100, 100, 110, 110));
+            assertTrue(canvas.isDirty());
+            canvas.recycle();
+            assertFalse(canvas.isDirty());
+
+        } finally {
+            pool.clear();
+        }
+        assertEquals(0, pool.size());
+    }
+
+    /**
+     * Create points from x and y coordinate pairs
+     *
+     * @param coordinates x and y coordinates
+     * @return points
+     */
+    private static List<Point> points(double... coordinates) {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            points.add(new Point(coordinates[i], coordinates[i + 1]));
+        }
+        return points;
+    }
+
+    /**
+     * Assert the points match the x and y coordinate pairs
+     *
+     * @param points      points
+     * @param coordinates x and y coordinates
+     */
+    private static void assertPoints(List<Point> points, double... coordinates) {
+        assertEquals(coordinates.length / 2, points.size());
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(coordinates[i * 2], points.get(i).getX(), 0.0000001);
+            assertEquals(coordinates[i * 2 + 1], points.get(i).getY(), 0.0000001);
+        }
+    }
+
     /**
      * Test feature tiles
      *
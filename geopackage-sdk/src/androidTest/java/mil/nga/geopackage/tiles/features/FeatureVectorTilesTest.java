@@ -0,0 +1,214 @@
+package mil.nga.geopackage.tiles.features;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import mil.nga.geopackage.CreateGeoPackageTestCase;
+import mil.nga.geopackage.features.index.FeatureIndexManager;
+import mil.nga.geopackage.features.index.FeatureIndexType;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
+import mil.nga.geopackage.tiles.TileGenerator;
+import mil.nga.geopackage.tiles.TileGrid;
+import mil.nga.geopackage.tiles.matrix.TileMatrix;
+import mil.nga.geopackage.tiles.user.TileDao;
+import mil.nga.geopackage.tiles.user.TileRow;
+import mil.nga.proj.ProjectionConstants;
+import mil.nga.proj.ProjectionFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test GeoPackage Feature Vector Tiles
+ *
+ * @author osbornb
+ */
+public class FeatureVectorTilesTest extends CreateGeoPackageTestCase {
+
+    /**
+     * Constructor
+     */
+    public FeatureVectorTilesTest() {
+
+    }
+
+    /**
+     * Test vector tile generator
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testVectorTileGenerator() throws IOException, SQLException {
+        testVectorTileGenerator(1);
+    }
+
+    /**
+     * Test vector tile generator
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testVectorTileGeneratorWithParallelism()
+            throws IOException, SQLException {
+        testVectorTileGenerator(3);
+    }
+
+    /**
+     * Test vector tile generator
+     *
+     * @param parallelism tile creation threads
+     * @throws java.io.IOException   upon error
+     * @throws java.sql.SQLException upon error
+     */
+    public void testVectorTileGenerator(int parallelism)
+            throws IOException, SQLException {
+
+        int minZoom = 0;
+        int maxZoom = 4;
+        String tableName = "gen_vector_tiles";
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        int num = FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        FeatureTiles featureTiles = FeatureTileUtils.createFeatureTiles(
+                activity, geoPackage, featureDao, false, false);
+        try {
+
+            FeatureIndexManager indexManager = new FeatureIndexManager(
+                    activity, geoPackage, featureDao);
+            featureTiles.setIndexManager(indexManager);
+            indexManager.setIndexLocation(FeatureIndexType.GEOPACKAGE);
+            int indexed = indexManager.index();
+            assertEquals(num, indexed);
+
+            FeatureVectorTiles vectorTiles = new FeatureVectorTiles(
+                    featureTiles);
+            assertEquals(featureDao.getTableName(), vectorTiles.getLayerName());
+
+            TileGenerator tileGenerator = new FeatureVectorTileGenerator(
+                    activity, geoPackage, tableName, vectorTiles, minZoom,
+                    maxZoom, ProjectionFactory.getProjection(
+                    ProjectionConstants.EPSG_WEB_MERCATOR));
+            tileGenerator.setXYZTiles(false);
+            tileGenerator.setParallelism(parallelism);
+
+            int tiles = tileGenerator.generateTiles();
+
+            int expectedTiles = 0;
+            for (int z = minZoom; z <= maxZoom; z++) {
+
+                TileGrid tileGrid = TileBoundingBoxUtils.getTileGrid(
+                        tileGenerator.getBoundingBox(z), z);
+
+                for (long x = tileGrid.getMinX(); x <= tileGrid.getMaxX(); x++) {
+                    for (long y = tileGrid.getMinY(); y <= tileGrid.getMaxY(); y++) {
+                        byte[] tile = vectorTiles.createTile((int) x, (int) y,
+                                z);
+                        if (tile != null) {
+                            validateTile(tile, vectorTiles);
+                            expectedTiles++;
+                        }
+                    }
+                }
+            }
+
+            assertEquals(expectedTiles, tiles);
+            assertTrue(tiles > 0);
+
+            TileDao tileDao = geoPackage.getTileDao(tableName);
+            for (TileMatrix tileMatrix : tileDao.getTileMatrices()) {
+                assertEquals(vectorTiles.getExtent(), tileMatrix.getTileWidth());
+                assertEquals(vectorTiles.getExtent(),
+                        tileMatrix.getTileHeight());
+            }
+            TileRow tileRow = tileDao.queryForTile(0, 0, 0);
+            assertNotNull(tileRow);
+            validateTile(tileRow.getTileData(), vectorTiles);
+
+        } finally {
+            featureTiles.close();
+        }
+    }
+
+    /**
+     * Validate the tile is a single vector tile layer with the layer version,
+     * name, and extent
+     *
+     * @param tile        tile bytes
+     * @param vectorTiles feature vector tiles
+     */
+    private static void validateTile(byte[] tile,
+                                     FeatureVectorTiles vectorTiles) {
+
+        int[] offset = new int[]{0};
+
+        // Tile layers field
+        assertEquals((3 << 3) | 2, readVarint(tile, offset));
+        long layerLength = readVarint(tile, offset);
+        assertEquals(tile.length, offset[0] + layerLength);
+
+        boolean version = false;
+        boolean name = false;
+        boolean extent = false;
+        int features = 0;
+        while (offset[0] < tile.length) {
+            long tag = readVarint(tile, offset);
+            int field = (int) (tag >>> 3);
+            int wireType = (int) (tag & 0x7);
+            if (wireType == 0) {
+                long value = readVarint(tile, offset);
+                if (field == 15) {
+                    assertEquals(2, value);
+                    version = true;
+                } else if (field == 5) {
+                    assertEquals(vectorTiles.getExtent(), value);
+                    extent = true;
+                }
+            } else {
+                assertEquals(2, wireType);
+                int length = (int) readVarint(tile, offset);
+                if (field == 1) {
+                    assertEquals(vectorTiles.getLayerName(),
+                            new String(tile, offset[0], length));
+                    name = true;
+                } else if (field == 2) {
+                    features++;
+                }
+                offset[0] += length;
+            }
+        }
+
+        assertEquals(tile.length, offset[0]);
+        assertTrue(version);
+        assertTrue(name);
+        assertTrue(extent);
+        assertTrue(features > 0);
+    }
+
+    /**
+     * Read an unsigned varint
+     *
+     * @param bytes  bytes
+     * @param offset read offset, advanced past the varint
+     * @return value
+     */
+    private static long readVarint(byte[] bytes, int[] offset) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[offset[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+}
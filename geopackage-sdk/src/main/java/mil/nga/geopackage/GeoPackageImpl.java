@@ -17,6 +17,7 @@ import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.GeoPackageConnection;
 import mil.nga.geopackage.db.GeoPackageCursorFactory;
 import mil.nga.geopackage.db.GeoPackageCursorWrapper;
+import mil.nga.geopackage.extension.nga.generalize.GeneralizedGeometryExtension;
 import mil.nga.geopackage.extension.rtree.RTreeIndexExtension;
 import mil.nga.geopackage.features.columns.GeometryColumns;
 import mil.nga.geopackage.features.columns.GeometryColumnsDao;
@@ -148,9 +149,21 @@ public class GeoPackageImpl extends GeoPackageCoreImpl implements GeoPackage {
 
         // If the GeoPackage is writable and the feature table has a RTree Index
         // extension, drop the RTree triggers.  User defined functions are currently not supported.
+        // Feature writes through the dao maintain the RTree index in place of the triggers.
         if (writable) {
             RTreeIndexExtension rtree = new RTreeIndexExtension(this);
-            rtree.dropTriggers(featureTable);
+            if (!rtree.isGeometryFunctionsSupported()) {
+                rtree.dropTriggers(featureTable);
+                if (rtree.has(featureTable.getTableName(),
+                        featureTable.getGeometryColumnName())) {
+                    dao.setRTreeIndex(rtree.getMaintainer(dao));
+                }
+            }
+            // Feature writes through the dao remove stale generalized geometries
+            GeneralizedGeometryExtension generalized = new GeneralizedGeometryExtension(this);
+            if (generalized.has(featureTable.getTableName())) {
+                dao.setGeneralizedGeometries(generalized.getMaintainer(dao));
+            }
         }
 
         return dao;
@@ -2,9 +2,13 @@ package mil.nga.geopackage.db;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.os.SystemClock;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 import mil.nga.geopackage.BoundingBox;
@@ -16,11 +20,14 @@ import mil.nga.geopackage.db.metadata.GeometryMetadataDataSource;
 import mil.nga.geopackage.db.metadata.TableMetadata;
 import mil.nga.geopackage.db.metadata.TableMetadataDataSource;
 import mil.nga.geopackage.features.index.FeatureIndexMetadataResults;
+import mil.nga.geopackage.features.index.FeatureIndexPipeline;
 import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureRowSync;
 import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.geom.GeometryEnvelopeReader;
+import mil.nga.geopackage.io.GeoPackageIndexProgress;
 import mil.nga.geopackage.io.GeoPackageProgress;
 import mil.nga.proj.Projection;
 import mil.nga.proj.ProjectionTransform;
@@ -67,6 +74,23 @@ public class FeatureIndexer {
      */
     protected int chunkLimit = 1000;
 
+    /**
+     * Keyset pagination flag, when true table indexing pages by primary key
+     * and commits each chunk in a single metadata transaction
+     */
+    private boolean keysetPagination = false;
+
+    /**
+     * Rows per second of the most recent keyset paginated table index
+     */
+    private double indexRate = 0;
+
+    /**
+     * Number of geometry decoding threads used when indexing the table, values
+     * greater than 1 index through a {@link FeatureIndexPipeline}
+     */
+    private int parallelism = 1;
+
     /**
      * Constructor
      *
@@ -103,6 +127,16 @@ public class FeatureIndexer {
         return featureDao.getPkColumnName();
     }
 
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     * @since 6.7.5
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
     /**
      * Close the database connection in the feature indexer
      *
@@ -141,6 +175,63 @@ public class FeatureIndexer {
         this.chunkLimit = chunkLimit;
     }
 
+    /**
+     * Is keyset pagination enabled for table indexing
+     *
+     * @return true if paging by primary key
+     * @since 6.7.5
+     */
+    public boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    /**
+     * Set the keyset pagination flag. When enabled, table indexing pages
+     * through the features by primary key
+     * ({@code WHERE id > lastId ORDER BY id LIMIT chunkLimit}) instead of by
+     * offset, and commits each chunk in a single metadata transaction.
+     *
+     * @param keysetPagination true to page by primary key
+     * @since 6.7.5
+     */
+    public void setKeysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+    }
+
+    /**
+     * Get the rows per second of the most recent keyset paginated table index
+     *
+     * @return rows per second
+     * @since 6.7.5
+     */
+    public double getIndexRate() {
+        return indexRate;
+    }
+
+    /**
+     * Get the number of geometry decoding threads used when indexing the table
+     *
+     * @return parallelism
+     * @since 6.7.5
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set the number of geometry decoding threads used when indexing the
+     * table. When greater than 1, features are read by primary key on the
+     * calling thread, geometry envelopes are decoded by a bounded worker pool,
+     * and index rows are written in batch transactions by a single writer
+     * thread.
+     *
+     * @param parallelism number of decoding threads, 1 to index serially
+     * @since 6.7.5
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
     /**
      * Geometries indexed using geodesic lines
      *
@@ -219,20 +310,32 @@ public class FeatureIndexer {
         // Delete existing index rows
         geometryMetadataDataSource.delete(featureDao.getDatabase(), featureDao.getTableName());
 
-        long offset = 0;
-        int chunkCount = 0;
+        if (parallelism > 1) {
 
-        // Index all features
-        while (chunkCount >= 0) {
+            count = indexTableParallel(metadata.getGeoPackageId());
 
-            FeatureCursor cursor = featureDao.queryForChunk(chunkLimit, offset);
-            chunkCount = indexRows(metadata.getGeoPackageId(), cursor);
+        } else if (keysetPagination) {
 
-            if (chunkCount > 0) {
-                count += chunkCount;
+            count = indexTableByKey(metadata.getGeoPackageId(), null);
+
+        } else {
+
+            long offset = 0;
+            int chunkCount = 0;
+
+            // Index all features
+            while (chunkCount >= 0) {
+
+                FeatureCursor cursor = featureDao.queryForChunk(chunkLimit, offset);
+                chunkCount = indexRows(metadata.getGeoPackageId(), cursor);
+
+                if (chunkCount > 0) {
+                    count += chunkCount;
+                }
+
+                offset += chunkLimit;
             }
 
-            offset += chunkLimit;
         }
 
         // Update the last indexed time
@@ -243,6 +346,227 @@ public class FeatureIndexer {
         return count;
     }
 
+    /**
+     * Incrementally index the feature table. Features inserted after the
+     * highest previously indexed id are indexed, and the provided changed
+     * feature ids (inserted, updated, or deleted since the last index) are
+     * removed from the index and re-indexed when they still exist. Performs a
+     * full index when the table has not been indexed.
+     *
+     * @param changedIds changed feature ids since the last index
+     * @return count of indexed features
+     * @since 6.7.5
+     */
+    public int indexDelta(Collection<Long> changedIds) {
+
+        if (getLastIndexed() == null) {
+            return index(true);
+        }
+
+        TableMetadataDataSource tableDs = new TableMetadataDataSource(db);
+        TableMetadata metadata = tableDs.get(featureDao.getDatabase(), featureDao.getTableName());
+        long geoPackageId = metadata.getGeoPackageId();
+
+        // Index the features inserted beyond the high-water mark
+        Long maxId = geometryMetadataDataSource.maxId(geoPackageId, featureDao.getTableName());
+        int count = indexTableByKey(geoPackageId, maxId);
+
+        // Re-index the changed features
+        if (changedIds != null && !changedIds.isEmpty()) {
+            boolean successful = false;
+            db.beginTransaction();
+            try {
+                for (long id : changedIds) {
+                    if (progress != null && !progress.isActive()) {
+                        break;
+                    }
+                    if (maxId == null || id > maxId) {
+                        // Indexed as an inserted feature
+                        continue;
+                    }
+                    geometryMetadataDataSource.delete(geoPackageId, featureDao.getTableName(), id);
+                    FeatureRow row = featureDao.queryForIdRow(id);
+                    if (row != null && index(geoPackageId, row, false)) {
+                        count++;
+                    }
+                    if (progress != null) {
+                        progress.addProgress(1);
+                    }
+                }
+                successful = true;
+            } finally {
+                db.endTransaction(successful);
+            }
+        }
+
+        // Update the last indexed time
+        if (progress == null || progress.isActive()) {
+            updateLastIndexed(db, geoPackageId);
+        }
+
+        return count;
+    }
+
+    /**
+     * Index the feature table through a pipeline of a single cursor reader,
+     * parallel geometry envelope decoding, and a single metadata writer
+     *
+     * @param geoPackageId GeoPackage id
+     * @return count
+     */
+    private int indexTableParallel(final long geoPackageId) {
+
+        int count = 0;
+
+        String idColumn = CoreSQLUtils.quoteWrap(getPkColumnName());
+        String[] columns = featureDao.getIdAndGeometryColumnNames();
+        String where = idColumn + " > ?";
+
+        final String tableName = featureDao.getTableName();
+
+        FeatureIndexPipeline pipeline = new FeatureIndexPipeline(parallelism, progress);
+        pipeline.start(new FeatureIndexPipeline.Writer() {
+            @Override
+            public int write(FeatureIndexPipeline.Batch batch) {
+                List<GeometryMetadata> metadata = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    GeometryEnvelope envelope = batch.getEnvelope(i);
+                    if (envelope != null) {
+                        metadata.add(geometryMetadataDataSource.populate(
+                                geoPackageId, tableName, batch.getId(i), envelope));
+                    }
+                }
+                return geometryMetadataDataSource.createBatch(metadata);
+            }
+        });
+
+        try {
+
+            boolean more = true;
+            while (more && (progress == null || progress.isActive())) {
+
+                Long lastId = pipeline.getLastId();
+                FeatureCursor cursor;
+                if (lastId == null) {
+                    cursor = featureDao.queryForChunk(columns, idColumn, chunkLimit);
+                } else {
+                    cursor = featureDao.queryForChunk(columns, where,
+                            new String[]{String.valueOf(lastId)}, idColumn, chunkLimit);
+                }
+
+                int chunkRows = pipeline.read(cursor);
+                more = chunkRows >= chunkLimit;
+            }
+
+            count = pipeline.finish();
+
+        } finally {
+            pipeline.close();
+        }
+
+        return count;
+    }
+
+    /**
+     * Index the feature table by paging on the primary key, committing each
+     * chunk in a single metadata transaction
+     *
+     * @param geoPackageId GeoPackage id
+     * @param startId      exclusive starting id, null to index all features
+     * @return count
+     */
+    private int indexTableByKey(long geoPackageId, Long startId) {
+
+        int count = 0;
+        int rows = 0;
+
+        String idColumn = CoreSQLUtils.quoteWrap(getPkColumnName());
+        String[] columns = featureDao.getIdAndGeometryColumnNames();
+        String where = idColumn + " > ?";
+
+        long startTime = SystemClock.elapsedRealtime();
+        indexRate = 0;
+
+        GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+
+        Long lastId = startId;
+        boolean more = true;
+
+        while (more && (progress == null || progress.isActive())) {
+
+            FeatureCursor cursor;
+            if (lastId == null) {
+                cursor = featureDao.queryForChunk(columns, idColumn, chunkLimit);
+            } else {
+                cursor = featureDao.queryForChunk(columns, where,
+                        new String[]{String.valueOf(lastId)}, idColumn, chunkLimit);
+            }
+
+            int chunkRows = 0;
+            boolean successful = false;
+            db.beginTransaction();
+            try {
+                while ((progress == null || progress.isActive())
+                        && cursor.moveToNext()) {
+
+                    long id;
+                    FeatureRow row = null;
+                    if (cursor.isDirectRead()) {
+                        id = cursor.getId();
+                    } else {
+                        row = cursor.getRow();
+                        if (!row.isValid()) {
+                            continue;
+                        }
+                        id = row.getId();
+                    }
+
+                    // Page past the row before indexing so a row failing to
+                    // index is skipped without ending the paging
+                    chunkRows++;
+                    if (lastId == null || id > lastId) {
+                        lastId = id;
+                    }
+
+                    try {
+                        boolean indexed;
+                        if (row == null) {
+                            indexed = index(geoPackageId, id, cursor, envelopeReader);
+                        } else {
+                            indexed = index(geoPackageId, row, false);
+                        }
+                        if (indexed) {
+                            count++;
+                        }
+                    } catch (Exception e) {
+                        Log.e(FeatureIndexer.class.getSimpleName(), "Failed to index feature. Table: "
+                                + featureDao.getTableName() + ", Id: " + id, e);
+                    }
+                    if (progress != null) {
+                        progress.addProgress(1);
+                    }
+                }
+                successful = true;
+            } finally {
+                cursor.close();
+                db.endTransaction(successful);
+            }
+
+            rows += chunkRows;
+            more = chunkRows >= chunkLimit;
+
+            long elapsed = SystemClock.elapsedRealtime() - startTime;
+            if (elapsed > 0) {
+                indexRate = rows * 1000.0 / elapsed;
+            }
+            if (progress instanceof GeoPackageIndexProgress) {
+                ((GeoPackageIndexProgress) progress).setIndexRate(rows, indexRate);
+            }
+        }
+
+        return count;
+    }
+
     /**
      * Index the feature rows in the cursor
      *
@@ -254,6 +578,8 @@ public class FeatureIndexer {
 
         int count = -1;
 
+        GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+
         try {
             while ((progress == null || progress.isActive())
                     && cursor.moveToNext()) {
@@ -261,9 +587,16 @@ public class FeatureIndexer {
                     count++;
                 }
                 try {
-                    FeatureRow row = cursor.getRow();
-                    if (row.isValid()) {
-                        boolean indexed = index(geoPackageId, row, false);
+                    boolean valid = true;
+                    boolean indexed;
+                    if (cursor.isDirectRead()) {
+                        indexed = index(geoPackageId, cursor.getId(), cursor, envelopeReader);
+                    } else {
+                        FeatureRow row = cursor.getRow();
+                        valid = row.isValid();
+                        indexed = valid && index(geoPackageId, row, false);
+                    }
+                    if (valid) {
                         if (indexed) {
                             count++;
                         }
@@ -324,6 +657,30 @@ public class FeatureIndexer {
         return indexed;
     }
 
+    /**
+     * Index the current cursor feature row, reading the geometry envelope
+     * from the geometry header or WKB bytes without decoding the geometry
+     *
+     * @param geoPackageId   GeoPackage id
+     * @param id             feature id
+     * @param cursor         feature cursor positioned on a directly readable row
+     * @param envelopeReader geometry envelope reader
+     * @return true if indexed
+     */
+    private boolean index(long geoPackageId, long id, FeatureCursor cursor,
+                          GeometryEnvelopeReader envelopeReader) {
+
+        boolean indexed = false;
+
+        if (cursor.readGeometryEnvelope(envelopeReader)) {
+            GeometryMetadata metadata = geometryMetadataDataSource.populate(geoPackageId, featureDao.getTableName(), id, envelopeReader);
+            geometryMetadataDataSource.create(metadata);
+            indexed = true;
+        }
+
+        return indexed;
+    }
+
     /**
      * Update the least indexed time
      *
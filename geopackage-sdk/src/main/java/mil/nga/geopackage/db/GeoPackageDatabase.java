@@ -404,4 +404,12 @@ public class GeoPackageDatabase implements GeoPackageSQLiteDatabase {
         return getActive().insert(table, nullColumnHack, values);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackageSQLiteStatement compileStatement(String sql) throws SQLException {
+        return getActive().compileStatement(sql);
+    }
+
 }
@@ -217,4 +217,14 @@ public interface GeoPackageSQLiteDatabase {
      */
     public long insert(String table, String nullColumnHack, ContentValues values);
 
+    /**
+     * Compile a SQL statement for repeated execution with bound arguments
+     *
+     * @param sql sql statement
+     * @return compiled statement, closed by the caller
+     * @see SQLiteDatabase#compileStatement(String)
+     * @since 6.7.5
+     */
+    public GeoPackageSQLiteStatement compileStatement(String sql) throws SQLException;
+
 }
@@ -0,0 +1,89 @@
+package mil.nga.geopackage.db;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * GeoPackage compiled SQLite statement interface, reused across executions
+ * by binding new argument values
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public interface GeoPackageSQLiteStatement {
+
+    /**
+     * Bind a null value
+     *
+     * @param index 1 based bind index
+     * @see SQLiteStatement#bindNull(int)
+     */
+    public void bindNull(int index);
+
+    /**
+     * Bind a long value
+     *
+     * @param index 1 based bind index
+     * @param value value
+     * @see SQLiteStatement#bindLong(int, long)
+     */
+    public void bindLong(int index, long value);
+
+    /**
+     * Bind a double value
+     *
+     * @param index 1 based bind index
+     * @param value value
+     * @see SQLiteStatement#bindDouble(int, double)
+     */
+    public void bindDouble(int index, double value);
+
+    /**
+     * Bind a string value
+     *
+     * @param index 1 based bind index
+     * @param value value
+     * @see SQLiteStatement#bindString(int, String)
+     */
+    public void bindString(int index, String value);
+
+    /**
+     * Bind a blob value
+     *
+     * @param index 1 based bind index
+     * @param value value
+     * @see SQLiteStatement#bindBlob(int, byte[])
+     */
+    public void bindBlob(int index, byte[] value);
+
+    /**
+     * Clear all bound values
+     *
+     * @see SQLiteStatement#clearBindings()
+     */
+    public void clearBindings();
+
+    /**
+     * Execute the insert statement
+     *
+     * @return row id of the inserted row
+     * @see SQLiteStatement#executeInsert()
+     */
+    public long executeInsert() throws SQLException;
+
+    /**
+     * Execute the update or delete statement
+     *
+     * @return number of changed rows
+     * @see SQLiteStatement#executeUpdateDelete()
+     */
+    public int executeUpdateDelete() throws SQLException;
+
+    /**
+     * Close the statement
+     *
+     * @see SQLiteStatement#close()
+     */
+    public void close();
+
+}
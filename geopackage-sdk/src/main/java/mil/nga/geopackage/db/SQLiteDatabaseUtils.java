@@ -4,8 +4,10 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteDatabase.CursorFactory;
 import android.util.Log;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 
 import mil.nga.geopackage.GeoPackageConstants;
 import mil.nga.geopackage.GeoPackageException;
@@ -19,6 +21,11 @@ import mil.nga.sf.util.ByteReader;
  */
 public class SQLiteDatabaseUtils {
 
+    /**
+     * SQLite database header file change counter offset
+     */
+    private static final int FILE_CHANGE_COUNTER_OFFSET = 24;
+
     /**
      * Attempt to open a writable database, logging any errors
      *
@@ -225,4 +232,42 @@ public class SQLiteDatabaseUtils {
         }
     }
 
+    /**
+     * Get the database file state, changed by committed writes: the database
+     * file modified time, length, and header file change counter, and the
+     * write ahead log modified time and length
+     *
+     * @param databaseFile database file
+     * @return state, or null if the database is not a readable file
+     * @since 6.7.5
+     */
+    public static String getFileState(File databaseFile) {
+        String state = null;
+        if (databaseFile.isFile()) {
+            StringBuilder builder = new StringBuilder();
+            builder.append(databaseFile.lastModified()).append(",")
+                    .append(databaseFile.length());
+            try {
+                RandomAccessFile file = new RandomAccessFile(databaseFile, "r");
+                try {
+                    file.seek(FILE_CHANGE_COUNTER_OFFSET);
+                    builder.append(",").append(file.readInt());
+                } finally {
+                    file.close();
+                }
+                File wal = new File(databaseFile.getPath() + "-wal");
+                if (wal.exists()) {
+                    builder.append(",").append(wal.lastModified()).append(",")
+                            .append(wal.length());
+                }
+                state = builder.toString();
+            } catch (IOException e) {
+                Log.w(SQLiteDatabaseUtils.class.getSimpleName(),
+                        "Failed to read database file state: " + databaseFile,
+                        e);
+            }
+        }
+        return state;
+    }
+
 }
@@ -1,8 +1,10 @@
 package mil.nga.geopackage.db.metadata;
 
 import android.content.Context;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
 
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.db.GeoPackageDatabase;
@@ -22,7 +24,7 @@ public class GeoPackageMetadataDb extends SQLiteOpenHelper {
     /**
      * Metadata database version
      */
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 2;
 
     /**
      * Open db
@@ -46,6 +48,7 @@ public class GeoPackageMetadataDb extends SQLiteOpenHelper {
         db.execSQL(GeoPackageMetadata.CREATE_SQL);
         db.execSQL(TableMetadata.CREATE_SQL);
         db.execSQL(GeometryMetadata.CREATE_SQL);
+        createRTree(db);
     }
 
     /**
@@ -53,10 +56,76 @@ public class GeoPackageMetadataDb extends SQLiteOpenHelper {
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + GeometryMetadata.TABLE_NAME);
-        db.execSQL("DROP TABLE IF EXISTS " + TableMetadata.TABLE_NAME);
-        db.execSQL("DROP TABLE IF EXISTS " + GeoPackageMetadata.TABLE_NAME);
-        onCreate(db);
+        if (oldVersion < 2) {
+            // Key the existing geometry metadata indexes by an explicit id
+            // and build the RTree from them
+            migrateGeometryMetadata(db);
+            createRTree(db);
+        }
+    }
+
+    /**
+     * Rebuild the geometry metadata table with the integer primary key
+     * metadata id column, copying the existing geometry metadata rows
+     *
+     * @param db database
+     */
+    private static void migrateGeometryMetadata(SQLiteDatabase db) {
+        String oldTable = GeometryMetadata.TABLE_NAME + "_old";
+        StringBuilder columns = new StringBuilder();
+        for (String column : GeometryMetadata.COLUMNS) {
+            if (columns.length() > 0) {
+                columns.append(", ");
+            }
+            columns.append(column);
+        }
+        dropRTree(db);
+        db.execSQL("ALTER TABLE " + GeometryMetadata.TABLE_NAME
+                + " RENAME TO " + oldTable);
+        db.execSQL(GeometryMetadata.CREATE_SQL);
+        db.execSQL("INSERT INTO " + GeometryMetadata.TABLE_NAME + " ("
+                + columns + ") SELECT " + columns + " FROM " + oldTable);
+        db.execSQL("DROP TABLE " + oldTable);
+    }
+
+    /**
+     * Create the optional geometry metadata RTree virtual table and triggers,
+     * populated from any existing geometry metadata. The RTree is skipped when
+     * the SQLite connection does not support the rtree module.
+     *
+     * @param db database
+     */
+    private static void createRTree(SQLiteDatabase db) {
+        try {
+            db.execSQL(GeometryMetadata.CREATE_RTREE_SQL);
+            for (String trigger : GeometryMetadata.CREATE_RTREE_TRIGGERS_SQL) {
+                db.execSQL(trigger);
+            }
+            db.execSQL(GeometryMetadata.POPULATE_RTREE_SQL);
+        } catch (SQLException e) {
+            Log.w(GeoPackageMetadataDb.class.getSimpleName(),
+                    "Geometry metadata RTree is not supported, using table range queries", e);
+            try {
+                dropRTree(db);
+            } catch (SQLException cleanupException) {
+                Log.w(GeoPackageMetadataDb.class.getSimpleName(),
+                        "Failed to clean up geometry metadata RTree", cleanupException);
+            }
+        }
+    }
+
+    /**
+     * Drop the geometry metadata RTree virtual table and triggers if they
+     * exist
+     *
+     * @param db database
+     */
+    private static void dropRTree(SQLiteDatabase db) {
+        for (String trigger : new String[]{"_insert", "_update", "_delete"}) {
+            db.execSQL("DROP TRIGGER IF EXISTS "
+                    + GeometryMetadata.RTREE_TABLE_NAME + trigger);
+        }
+        db.execSQL("DROP TABLE IF EXISTS " + GeometryMetadata.RTREE_TABLE_NAME);
     }
 
     /**
@@ -78,6 +147,25 @@ public class GeoPackageMetadataDb extends SQLiteOpenHelper {
         return db;
     }
 
+    /**
+     * Begin a transaction on the open database connection
+     *
+     * @since 6.7.5
+     */
+    public void beginTransaction() {
+        getDb().beginTransaction();
+    }
+
+    /**
+     * End the transaction on the open database connection
+     *
+     * @param successful true to commit, false to rollback
+     * @since 6.7.5
+     */
+    public void endTransaction(boolean successful) {
+        getDb().endTransaction(successful);
+    }
+
     /**
      * {@inheritDoc}
      */
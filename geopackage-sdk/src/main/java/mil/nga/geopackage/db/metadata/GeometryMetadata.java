@@ -12,6 +12,14 @@ public class GeometryMetadata {
      */
     public static final String TABLE_NAME = "geom_metadata";
 
+    /**
+     * Geometry metadata Id column, an integer primary key identifying the
+     * row in the RTree virtual table
+     *
+     * @since 6.7.5
+     */
+    public static final String COLUMN_METADATA_ID = "metadata_id";
+
     /**
      * GeoPackage Id column
      */
@@ -89,6 +97,7 @@ public class GeometryMetadata {
     public static final String CREATE_SQL = "CREATE TABLE "
             + TABLE_NAME
             + "("
+            + COLUMN_METADATA_ID + " INTEGER PRIMARY KEY, "
             + COLUMN_GEOPACKAGE_ID + " INTEGER NOT NULL, "
             + COLUMN_TABLE_NAME + " TEXT NOT NULL, "
             + COLUMN_ID + " INTEGER NOT NULL, "
@@ -100,11 +109,106 @@ public class GeometryMetadata {
             + COLUMN_MAX_Z + " DOUBLE, "
             + COLUMN_MIN_M + " DOUBLE, "
             + COLUMN_MAX_M + " DOUBLE, "
-            + "CONSTRAINT pk_geom_metadata PRIMARY KEY (" + COLUMN_GEOPACKAGE_ID + ", " + COLUMN_TABLE_NAME + ", " + COLUMN_ID + "), "
+            + "CONSTRAINT uk_geom_metadata UNIQUE (" + COLUMN_GEOPACKAGE_ID + ", " + COLUMN_TABLE_NAME + ", " + COLUMN_ID + "), "
             + "CONSTRAINT fk_gm_tm_gp FOREIGN KEY (" + COLUMN_GEOPACKAGE_ID + ") REFERENCES " + TableMetadata.TABLE_NAME + "(" + TableMetadata.COLUMN_GEOPACKAGE_ID + "), "
             + "CONSTRAINT fk_gm_tm FOREIGN KEY (" + COLUMN_TABLE_NAME + ") REFERENCES " + TableMetadata.TABLE_NAME + "(" + TableMetadata.COLUMN_TABLE_NAME + ")"
             + ");";
 
+    /**
+     * RTree virtual table name, keyed by the geometry metadata id
+     *
+     * @since 6.7.5
+     */
+    public static final String RTREE_TABLE_NAME = TABLE_NAME + "_rtree";
+
+    /**
+     * RTree id column
+     *
+     * @since 6.7.5
+     */
+    public static final String COLUMN_RTREE_ID = "id";
+
+    /**
+     * RTree min X column, named apart from the geometry metadata columns so
+     * joined queries are unambiguous
+     *
+     * @since 6.7.5
+     */
+    public static final String COLUMN_RTREE_MIN_X = "minx";
+
+    /**
+     * RTree max X column
+     *
+     * @since 6.7.5
+     */
+    public static final String COLUMN_RTREE_MAX_X = "maxx";
+
+    /**
+     * RTree min Y column
+     *
+     * @since 6.7.5
+     */
+    public static final String COLUMN_RTREE_MIN_Y = "miny";
+
+    /**
+     * RTree max Y column
+     *
+     * @since 6.7.5
+     */
+    public static final String COLUMN_RTREE_MAX_Y = "maxy";
+
+    /**
+     * Create RTree virtual table SQL
+     *
+     * @since 6.7.5
+     */
+    public static final String CREATE_RTREE_SQL = "CREATE VIRTUAL TABLE "
+            + RTREE_TABLE_NAME
+            + " USING rtree("
+            + COLUMN_RTREE_ID + ", "
+            + COLUMN_RTREE_MIN_X + ", "
+            + COLUMN_RTREE_MAX_X + ", "
+            + COLUMN_RTREE_MIN_Y + ", "
+            + COLUMN_RTREE_MAX_Y
+            + ");";
+
+    /**
+     * Populate the RTree virtual table from existing geometry metadata SQL
+     *
+     * @since 6.7.5
+     */
+    public static final String POPULATE_RTREE_SQL = "INSERT OR REPLACE INTO "
+            + RTREE_TABLE_NAME
+            + " SELECT " + COLUMN_METADATA_ID + ", "
+            + COLUMN_MIN_X + ", "
+            + COLUMN_MAX_X + ", "
+            + COLUMN_MIN_Y + ", "
+            + COLUMN_MAX_Y
+            + " FROM " + TABLE_NAME + ";";
+
+    /**
+     * Triggers maintaining the RTree virtual table as geometry metadata
+     * changes
+     *
+     * @since 6.7.5
+     */
+    public static final String[] CREATE_RTREE_TRIGGERS_SQL = {
+            "CREATE TRIGGER " + RTREE_TABLE_NAME + "_insert AFTER INSERT ON "
+                    + TABLE_NAME + " BEGIN INSERT OR REPLACE INTO "
+                    + RTREE_TABLE_NAME + " VALUES (NEW." + COLUMN_METADATA_ID + ", NEW."
+                    + COLUMN_MIN_X + ", NEW." + COLUMN_MAX_X + ", NEW."
+                    + COLUMN_MIN_Y + ", NEW." + COLUMN_MAX_Y + "); END;",
+            "CREATE TRIGGER " + RTREE_TABLE_NAME + "_update AFTER UPDATE ON "
+                    + TABLE_NAME + " BEGIN DELETE FROM " + RTREE_TABLE_NAME
+                    + " WHERE " + COLUMN_RTREE_ID + " = OLD." + COLUMN_METADATA_ID + "; "
+                    + "INSERT OR REPLACE INTO " + RTREE_TABLE_NAME
+                    + " VALUES (NEW." + COLUMN_METADATA_ID + ", NEW." + COLUMN_MIN_X + ", NEW."
+                    + COLUMN_MAX_X + ", NEW." + COLUMN_MIN_Y + ", NEW."
+                    + COLUMN_MAX_Y + "); END;",
+            "CREATE TRIGGER " + RTREE_TABLE_NAME + "_delete AFTER DELETE ON "
+                    + TABLE_NAME + " BEGIN DELETE FROM " + RTREE_TABLE_NAME
+                    + " WHERE " + COLUMN_RTREE_ID + " = OLD." + COLUMN_METADATA_ID + "; END;"};
+
     /**
      * GeoPackage Id
      */
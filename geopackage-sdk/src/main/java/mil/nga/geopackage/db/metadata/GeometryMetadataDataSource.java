@@ -3,10 +3,15 @@ package mil.nga.geopackage.db.metadata;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteQueryBuilder;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.db.GeoPackageSQLiteStatement;
+import mil.nga.geopackage.geom.GeometryEnvelopeReader;
+import mil.nga.geopackage.user.UserDao;
 import mil.nga.proj.Projection;
 import mil.nga.sf.GeometryEnvelope;
 import mil.nga.sf.proj.ProjectionGeometryUtils;
@@ -37,6 +42,11 @@ public class GeometryMetadataDataSource {
      */
     private Projection projection;
 
+    /**
+     * RTree virtual table exists flag, lazily checked
+     */
+    private Boolean rTree = null;
+
     /**
      * Constructor
      *
@@ -126,6 +136,27 @@ public class GeometryMetadataDataSource {
         this.projection = projection;
     }
 
+    /**
+     * Determine if the geometry metadata RTree virtual table exists and is
+     * used for envelope queries
+     *
+     * @return true if RTree queries are used
+     * @since 6.7.5
+     */
+    public boolean hasRTree() {
+        if (rTree == null) {
+            Cursor cursor = db.rawQuery(
+                    "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?",
+                    new String[]{GeometryMetadata.RTREE_TABLE_NAME});
+            try {
+                rTree = cursor.moveToNext() && cursor.getInt(0) > 0;
+            } finally {
+                cursor.close();
+            }
+        }
+        return rTree;
+    }
+
     /**
      * Create a new geometry metadata
      *
@@ -159,6 +190,103 @@ public class GeometryMetadataDataSource {
         return insertId;
     }
 
+    /**
+     * Create the geometry metadata in chunked transactions of
+     * {@link UserDao#DEFAULT_INSERT_CHUNK_LIMIT} rows, binding values to a
+     * reused compiled insert statement
+     *
+     * @param metadata geometry metadata
+     * @return created count
+     * @since 6.7.5
+     */
+    public int createBatch(Iterable<GeometryMetadata> metadata) {
+        return createBatch(metadata, UserDao.DEFAULT_INSERT_CHUNK_LIMIT);
+    }
+
+    /**
+     * Create the geometry metadata in chunked transactions, binding values to
+     * a reused compiled insert statement. Each chunk is committed in a single
+     * transaction. When an insert fails, the current chunk is rolled back and
+     * previously committed chunks remain.
+     *
+     * @param metadata   geometry metadata
+     * @param chunkLimit max geometry metadata created in a single transaction
+     * @return created count
+     * @since 6.7.5
+     */
+    public int createBatch(Iterable<GeometryMetadata> metadata, int chunkLimit) {
+
+        int count = 0;
+
+        GeoPackageSQLiteStatement statement = null;
+
+        boolean successful = false;
+        db.beginTransaction();
+        try {
+
+            statement = db.compileStatement("INSERT INTO "
+                    + GeometryMetadata.TABLE_NAME + " ("
+                    + GeometryMetadata.COLUMN_GEOPACKAGE_ID + ", "
+                    + GeometryMetadata.COLUMN_TABLE_NAME + ", "
+                    + GeometryMetadata.COLUMN_ID + ", "
+                    + GeometryMetadata.COLUMN_MIN_X + ", "
+                    + GeometryMetadata.COLUMN_MAX_X + ", "
+                    + GeometryMetadata.COLUMN_MIN_Y + ", "
+                    + GeometryMetadata.COLUMN_MAX_Y + ", "
+                    + GeometryMetadata.COLUMN_MIN_Z + ", "
+                    + GeometryMetadata.COLUMN_MAX_Z + ", "
+                    + GeometryMetadata.COLUMN_MIN_M + ", "
+                    + GeometryMetadata.COLUMN_MAX_M
+                    + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+
+            for (GeometryMetadata geometryMetadata : metadata) {
+
+                statement.bindLong(1, geometryMetadata.getGeoPackageId());
+                statement.bindString(2, geometryMetadata.getTableName());
+                statement.bindLong(3, geometryMetadata.getId());
+                statement.bindDouble(4, geometryMetadata.getMinX());
+                statement.bindDouble(5, geometryMetadata.getMaxX());
+                statement.bindDouble(6, geometryMetadata.getMinY());
+                statement.bindDouble(7, geometryMetadata.getMaxY());
+                bindDouble(statement, 8, geometryMetadata.getMinZ());
+                bindDouble(statement, 9, geometryMetadata.getMaxZ());
+                bindDouble(statement, 10, geometryMetadata.getMinM());
+                bindDouble(statement, 11, geometryMetadata.getMaxM());
+
+                statement.executeInsert();
+
+                count++;
+                if (count % chunkLimit == 0) {
+                    db.endAndBeginTransaction();
+                }
+            }
+
+            successful = true;
+        } finally {
+            if (statement != null) {
+                statement.close();
+            }
+            db.endTransaction(successful);
+        }
+
+        return count;
+    }
+
+    /**
+     * Bind the optional double value
+     *
+     * @param statement compiled statement
+     * @param index     bind index
+     * @param value     value or null
+     */
+    private static void bindDouble(GeoPackageSQLiteStatement statement, int index, Double value) {
+        if (value != null) {
+            statement.bindDouble(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
     /**
      * Create a new geometry metadata from an envelope
      *
@@ -218,6 +346,38 @@ public class GeometryMetadataDataSource {
         return metadata;
     }
 
+    /**
+     * Populate a new geometry metadata from the last envelope read by an
+     * envelope reader
+     *
+     * @param geoPackageId GeoPackage id
+     * @param tableName    table name
+     * @param geomId       geometry id
+     * @param reader       geometry envelope reader
+     * @return geometry metadata
+     * @since 6.7.5
+     */
+    public GeometryMetadata populate(long geoPackageId, String tableName, long geomId, GeometryEnvelopeReader reader) {
+
+        GeometryMetadata metadata = new GeometryMetadata();
+        metadata.setGeoPackageId(geoPackageId);
+        metadata.setTableName(tableName);
+        metadata.setId(geomId);
+        metadata.setMinX(reader.getMinX());
+        metadata.setMaxX(reader.getMaxX());
+        metadata.setMinY(reader.getMinY());
+        metadata.setMaxY(reader.getMaxY());
+        if (reader.hasZ()) {
+            metadata.setMinZ(reader.getMinZ());
+            metadata.setMaxZ(reader.getMaxZ());
+        }
+        if (reader.hasM()) {
+            metadata.setMinM(reader.getMinM());
+            metadata.setMaxM(reader.getMaxM());
+        }
+        return metadata;
+    }
+
     /**
      * Delete the geometry metadata
      *
@@ -561,6 +721,30 @@ public class GeometryMetadataDataSource {
         return DatabaseUtils.queryNumEntries(db.getAndroidSQLiteDatabase().getDb(), GeometryMetadata.TABLE_NAME, querySQL(), querySQLArgs(geoPackageId, tableName));
     }
 
+    /**
+     * Query for the max indexed geometry id of a table, the high-water mark
+     * of previously indexed feature rows
+     *
+     * @param geoPackageId GeoPackage id
+     * @param tableName    table name
+     * @return max geometry id or null if no geometries are indexed
+     * @since 6.7.5
+     */
+    public Long maxId(long geoPackageId, String tableName) {
+        Long maxId = null;
+        Cursor cursor = db.rawQuery("SELECT MAX(" + GeometryMetadata.COLUMN_ID
+                        + ") FROM " + GeometryMetadata.TABLE_NAME + " WHERE " + querySQL(),
+                querySQLArgs(geoPackageId, tableName));
+        try {
+            if (cursor.moveToNext() && !cursor.isNull(0)) {
+                maxId = cursor.getLong(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        return maxId;
+    }
+
     /**
      * Get the query SQL for a GeoPackage id and table name
      *
@@ -793,9 +977,7 @@ public class GeometryMetadataDataSource {
      * @since 3.4.0
      */
     public Cursor query(long geoPackageId, String tableName, String[] columns, GeometryEnvelope envelope) {
-        return db.query(
-                GeometryMetadata.TABLE_NAME,
-                columns, querySQL(envelope), querySQLArgs(envelope, geoPackageId, tableName), null, null, null);
+        return query(geoPackageId, tableName, false, columns, envelope, null, null);
     }
 
     /**
@@ -808,7 +990,7 @@ public class GeometryMetadataDataSource {
      * @since 3.4.0
      */
     public long count(long geoPackageId, String tableName, GeometryEnvelope envelope) {
-        return DatabaseUtils.queryNumEntries(db.getAndroidSQLiteDatabase().getDb(), GeometryMetadata.TABLE_NAME, querySQL(envelope), querySQLArgs(envelope, geoPackageId, tableName));
+        return DatabaseUtils.longForQuery(db.getAndroidSQLiteDatabase().getDb(), countSQL(envelope), querySQLArgs(envelope, geoPackageId, tableName));
     }
 
     /**
@@ -825,13 +1007,71 @@ public class GeometryMetadataDataSource {
      * @since 6.2.1
      */
     public Cursor query(long geoPackageId, String tableName, boolean distinct, String[] columns, GeometryEnvelope envelope, String orderBy, String limit) {
-        return db.query(distinct,
-                GeometryMetadata.TABLE_NAME,
-                columns, querySQL(envelope), querySQLArgs(envelope, geoPackageId, tableName), null, null, orderBy, limit);
+        return db.rawQuery(querySQL(distinct, columns, envelope, orderBy, limit),
+                querySQLArgs(envelope, geoPackageId, tableName));
+    }
+
+    /**
+     * Get the select SQL for an envelope, GeoPackage id, and table name.
+     * When the RTree exists, the query is driven from the RTree joined to the
+     * geometry metadata by id, so only RTree candidates are visited.
+     *
+     * @param distinct distinct flag
+     * @param columns  queried columns
+     * @param envelope geometry envelope
+     * @param orderBy  order by
+     * @param limit    limit
+     * @return SQL
+     * @since 6.7.5
+     */
+    public String querySQL(boolean distinct, String[] columns, GeometryEnvelope envelope, String orderBy, String limit) {
+        String[] queryColumns;
+        if (columns != null) {
+            queryColumns = CoreSQLUtils.quoteWrap(columns);
+        } else {
+            queryColumns = new String[]{
+                    CoreSQLUtils.quoteWrap(GeometryMetadata.TABLE_NAME) + ".*"};
+        }
+        return SQLiteQueryBuilder.buildQueryString(distinct, queryTableSQL(),
+                queryColumns, querySQL(envelope), null, null, orderBy, limit);
+    }
+
+    /**
+     * Get the count SQL for an envelope, GeoPackage id, and table name
+     *
+     * @param envelope geometry envelope
+     * @return SQL
+     * @since 6.7.5
+     */
+    public String countSQL(GeometryEnvelope envelope) {
+        return "SELECT COUNT(*) FROM " + queryTableSQL() + " WHERE "
+                + querySQL(envelope);
+    }
+
+    /**
+     * Get the envelope query table SQL, the RTree cross joined to the
+     * geometry metadata when the RTree exists. The cross join keeps the RTree
+     * as the outer loop so SQLite searches it instead of every geometry
+     * metadata row of the table.
+     *
+     * @return table SQL
+     */
+    private String queryTableSQL() {
+        String table = CoreSQLUtils.quoteWrap(GeometryMetadata.TABLE_NAME);
+        if (hasRTree()) {
+            String rTree = CoreSQLUtils.quoteWrap(GeometryMetadata.RTREE_TABLE_NAME);
+            table = rTree + " CROSS JOIN " + table + " ON " + table + "."
+                    + CoreSQLUtils.quoteWrap(GeometryMetadata.COLUMN_METADATA_ID)
+                    + " = " + rTree + "."
+                    + CoreSQLUtils.quoteWrap(GeometryMetadata.COLUMN_RTREE_ID);
+        }
+        return table;
     }
 
     /**
-     * Get the query SQL for an envelope, GeoPackage id, and table name
+     * Get the query SQL for an envelope, GeoPackage id, and table name. When
+     * the RTree exists, the SQL also constrains the RTree columns and applies
+     * to the tables of {@link #querySQL(boolean, String[], GeometryEnvelope, String, String)}.
      *
      * @param envelope geometry envelope
      * @return SQL
@@ -841,8 +1081,17 @@ public class GeometryMetadataDataSource {
 
         StringBuilder selection = new StringBuilder();
 
+        if (hasRTree()) {
+            // Search candidates in the RTree, exact bounds checked below
+            selection.append(GeometryMetadata.COLUMN_RTREE_MIN_X).append(" <= ? AND ")
+                    .append(GeometryMetadata.COLUMN_RTREE_MAX_X).append(" >= ? AND ")
+                    .append(GeometryMetadata.COLUMN_RTREE_MIN_Y).append(" <= ? AND ")
+                    .append(GeometryMetadata.COLUMN_RTREE_MAX_Y).append(" >= ? AND ");
+        }
+
         selection.append(GeometryMetadata.COLUMN_GEOPACKAGE_ID).append(" = ? AND ")
                 .append(GeometryMetadata.COLUMN_TABLE_NAME).append(" = ?");
+
         selection.append(" AND ").append(GeometryMetadata.COLUMN_MIN_X).append(" <= ?");
         selection.append(" AND ").append(GeometryMetadata.COLUMN_MAX_X).append(" >= ?");
         selection.append(" AND ").append(GeometryMetadata.COLUMN_MIN_Y).append(" <= ?");
@@ -872,7 +1121,12 @@ public class GeometryMetadataDataSource {
      */
     public String[] querySQLArgs(GeometryEnvelope envelope, long geoPackageId, String tableName) {
 
+        boolean rTreeQuery = hasRTree();
+
         int args = 6;
+        if (rTreeQuery) {
+            args += 4;
+        }
         if (envelope.hasZ()) {
             args += 2;
         }
@@ -892,6 +1146,12 @@ public class GeometryMetadataDataSource {
 
         String[] selectionArgs = new String[args];
         int argCount = 0;
+        if (rTreeQuery) {
+            selectionArgs[argCount++] = String.valueOf(maxX);
+            selectionArgs[argCount++] = String.valueOf(minX);
+            selectionArgs[argCount++] = String.valueOf(maxY);
+            selectionArgs[argCount++] = String.valueOf(minY);
+        }
         selectionArgs[argCount++] = String.valueOf(geoPackageId);
         selectionArgs[argCount++] = tableName;
         selectionArgs[argCount++] = String.valueOf(maxX);
@@ -0,0 +1,24 @@
+package mil.nga.geopackage.extension.nga.generalize;
+
+/**
+ * Line generalization algorithm enumeration used to create the generalized
+ * geometries of a zoom band
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public enum GeneralizationAlgorithm {
+
+    /**
+     * Douglas-Peucker, keeps the vertices farther than the tolerance distance
+     * from the simplified line
+     */
+    DOUGLAS_PEUCKER,
+
+    /**
+     * Visvalingam-Whyatt, removes the vertices forming the smallest effective
+     * triangle areas, up to the tolerance distance squared
+     */
+    VISVALINGAM;
+
+}
@@ -0,0 +1,748 @@
+package mil.nga.geopackage.extension.nga.generalize;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageConnection;
+import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.db.GeoPackageSQLiteStatement;
+import mil.nga.geopackage.extension.BaseExtension;
+import mil.nga.geopackage.extension.ExtensionScopeType;
+import mil.nga.geopackage.extension.Extensions;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.io.GeoPackageProgress;
+import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
+import mil.nga.geopackage.tiles.TileUtils;
+import mil.nga.sf.Geometry;
+
+/**
+ * Generalized Geometry Extension, stores feature geometries generalized once
+ * per zoom band so feature tiles are drawn from the matching level instead of
+ * simplifying every geometry on every tile draw. Each band level is simplified
+ * with the tolerance of the most detailed zoom in the band and is only stored
+ * when it has fewer points than the feature geometry. Features are read in
+ * chunks, generalized in parallel, and inserted with a compiled statement,
+ * one transaction per chunk.
+ * <p>
+ * Levels are stored in the feature projection and removed when the feature
+ * DAO updates or deletes the feature, see
+ * {@link GeneralizedGeometryMaintainer}. Features without a stored level are
+ * drawn by simplifying on the fly.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class GeneralizedGeometryExtension extends BaseExtension {
+
+    /**
+     * Extension author
+     */
+    public static final String EXTENSION_AUTHOR = "nga";
+
+    /**
+     * Extension name without the author
+     */
+    public static final String EXTENSION_NAME_NO_AUTHOR = "generalized_geometry";
+
+    /**
+     * Extension, with author and name
+     */
+    public static final String EXTENSION_NAME = Extensions.buildExtensionName(
+            EXTENSION_AUTHOR, EXTENSION_NAME_NO_AUTHOR);
+
+    /**
+     * Extension definition
+     */
+    public static final String DEFINITION = "Feature geometries generalized per zoom band for drawing feature tiles";
+
+    /**
+     * Generalized geometry table name
+     */
+    public static final String TABLE_NAME = "nga_generalized_geometry";
+
+    /**
+     * Feature table name column
+     */
+    public static final String COLUMN_TABLE_NAME = "table_name";
+
+    /**
+     * Feature id column
+     */
+    public static final String COLUMN_GEOM_ID = "geom_id";
+
+    /**
+     * Band min zoom column
+     */
+    public static final String COLUMN_MIN_ZOOM = "min_zoom";
+
+    /**
+     * Band max zoom column
+     */
+    public static final String COLUMN_MAX_ZOOM = "max_zoom";
+
+    /**
+     * Generalized GeoPackage geometry column
+     */
+    public static final String COLUMN_GEOMETRY = "geom";
+
+    /**
+     * Default max generalized zoom level, more detailed zooms are simplified
+     * on the fly
+     */
+    public static final int DEFAULT_MAX_ZOOM = 12;
+
+    /**
+     * Default number of zoom levels per generalized band
+     */
+    public static final int DEFAULT_ZOOM_BAND = 2;
+
+    /**
+     * Default number of features read and generalized per transaction
+     */
+    public static final int DEFAULT_CHUNK_LIMIT = 1000;
+
+    /**
+     * Max feature ids per query
+     */
+    private static final int QUERY_ID_LIMIT = 500;
+
+    /**
+     * GeoPackage connection
+     */
+    private final GeoPackageConnection connection;
+
+    /**
+     * Generalization algorithm
+     */
+    private GeneralizationAlgorithm algorithm = GeneralizationAlgorithm.DOUGLAS_PEUCKER;
+
+    /**
+     * Max generalized zoom level
+     */
+    private int maxZoom = DEFAULT_MAX_ZOOM;
+
+    /**
+     * Zoom levels per generalized band
+     */
+    private int zoomBand = DEFAULT_ZOOM_BAND;
+
+    /**
+     * Drawn tile width
+     */
+    private int tileWidth = TileUtils.TILE_PIXELS_HIGH;
+
+    /**
+     * Drawn tile height
+     */
+    private int tileHeight = TileUtils.TILE_PIXELS_HIGH;
+
+    /**
+     * Number of features read and generalized per transaction
+     */
+    private int chunkLimit = DEFAULT_CHUNK_LIMIT;
+
+    /**
+     * Number of features generalized concurrently
+     */
+    private int parallelism = 1;
+
+    /**
+     * Progress
+     */
+    private GeoPackageProgress progress;
+
+    /**
+     * Constructor
+     *
+     * @param geoPackage GeoPackage
+     */
+    public GeneralizedGeometryExtension(GeoPackage geoPackage) {
+        super(geoPackage);
+        connection = geoPackage.getConnection();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackage getGeoPackage() {
+        return (GeoPackage) super.getGeoPackage();
+    }
+
+    /**
+     * Get the generalization algorithm
+     *
+     * @return generalization algorithm
+     */
+    public GeneralizationAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Set the generalization algorithm
+     *
+     * @param algorithm generalization algorithm
+     */
+    public void setAlgorithm(GeneralizationAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Get the max generalized zoom level
+     *
+     * @return max zoom
+     */
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * Set the max generalized zoom level, more detailed zooms are simplified
+     * on the fly
+     *
+     * @param maxZoom max zoom
+     */
+    public void setMaxZoom(int maxZoom) {
+        this.maxZoom = maxZoom;
+    }
+
+    /**
+     * Get the number of zoom levels per generalized band
+     *
+     * @return zoom band
+     */
+    public int getZoomBand() {
+        return zoomBand;
+    }
+
+    /**
+     * Set the number of zoom levels per generalized band
+     *
+     * @param zoomBand zoom band
+     */
+    public void setZoomBand(int zoomBand) {
+        if (zoomBand < 1) {
+            throw new GeoPackageException(
+                    "Zoom band must be at least 1. Zoom Band: " + zoomBand);
+        }
+        this.zoomBand = zoomBand;
+    }
+
+    /**
+     * Set the drawn tile size the simplify tolerances are calculated for
+     *
+     * @param tileWidth  tile width
+     * @param tileHeight tile height
+     */
+    public void setTileSize(int tileWidth, int tileHeight) {
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+    }
+
+    /**
+     * Get the number of features read and generalized per transaction
+     *
+     * @return chunk limit
+     */
+    public int getChunkLimit() {
+        return chunkLimit;
+    }
+
+    /**
+     * Set the number of features read and generalized per transaction
+     *
+     * @param chunkLimit chunk limit
+     */
+    public void setChunkLimit(int chunkLimit) {
+        this.chunkLimit = chunkLimit;
+    }
+
+    /**
+     * Get the number of features generalized concurrently
+     *
+     * @return parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set the number of features generalized concurrently
+     *
+     * @param parallelism parallelism, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Set the progress tracker, incremented per generalized feature
+     *
+     * @param progress progress tracker
+     */
+    public void setProgress(GeoPackageProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Determine if the feature table has generalized geometries
+     *
+     * @param featureTable feature table
+     * @return true if generalized
+     */
+    public boolean has(String featureTable) {
+        return has(EXTENSION_NAME, featureTable, null)
+                && getGeoPackage().isTable(TABLE_NAME);
+    }
+
+    /**
+     * Generalize the feature table geometries, replacing any existing levels
+     *
+     * @param featureTable feature table
+     * @return number of stored generalized levels
+     */
+    public int generalize(String featureTable) {
+        return generalize(getGeoPackage().getFeatureDao(featureTable));
+    }
+
+    /**
+     * Generalize the feature geometries, replacing any existing levels.
+     * Features are read by id in chunks, each chunk generalized in parallel
+     * and inserted in a single transaction. A Generalized Geometry Maintainer
+     * is attached to the feature DAO, removing the levels of features
+     * written through the feature DAO.
+     *
+     * @param featureDao feature DAO
+     * @return number of stored generalized levels
+     */
+    public int generalize(FeatureDao featureDao) {
+
+        String tableName = featureDao.getTableName();
+
+        getOrCreate(EXTENSION_NAME, tableName, null, DEFINITION,
+                ExtensionScopeType.READ_WRITE);
+        createTable();
+        if (featureDao.getGeneralizedGeometries() == null) {
+            featureDao.setGeneralizedGeometries(getMaintainer(featureDao));
+        }
+        deleteLevels(tableName);
+
+        int count = 0;
+
+        String insertSQL = "INSERT OR REPLACE INTO "
+                + CoreSQLUtils.quoteWrap(TABLE_NAME) + " ("
+                + COLUMN_TABLE_NAME + ", " + COLUMN_GEOM_ID + ", "
+                + COLUMN_MIN_ZOOM + ", " + COLUMN_MAX_ZOOM + ", "
+                + COLUMN_GEOMETRY + ") VALUES (?, ?, ?, ?, ?)";
+
+        String[] columns = featureDao.getIdAndGeometryColumnNames();
+        String idColumn = CoreSQLUtils.quoteWrap(featureDao.getPkColumnName());
+        long srsId = featureDao.getSrsId();
+        int[][] bands = getBands();
+
+        GeoPackageDatabase database = connection.getDb().copy();
+        database.setUseBindings(true);
+        GeoPackageSQLiteStatement statement = database.compileStatement(insertSQL);
+        ExecutorService executor = parallelism > 1
+                ? Executors.newFixedThreadPool(parallelism) : null;
+        try {
+
+            long[] ids = new long[chunkLimit];
+            byte[][] geometries = new byte[chunkLimit][];
+
+            Long lastId = null;
+            boolean more = true;
+            while (more && (progress == null || progress.isActive())) {
+
+                // Read the chunk, closing the cursor before writing
+                int size = 0;
+                FeatureCursor cursor;
+                if (lastId == null) {
+                    cursor = featureDao.queryForChunk(columns, idColumn,
+                            chunkLimit);
+                } else {
+                    cursor = featureDao.queryForChunk(columns, idColumn + " > ?",
+                            new String[]{String.valueOf(lastId)}, idColumn,
+                            chunkLimit);
+                }
+                try {
+                    while (cursor.moveToNext()) {
+
+                        long id;
+                        byte[] geometry = null;
+
+                        // Null geometries, which may be large sized geometries
+                        // read as null, are read through the row
+                        if (cursor.isDirectRead()) {
+                            id = cursor.getId();
+                            geometry = cursor.getBlob(1);
+                        } else {
+                            FeatureRow row = cursor.getRow();
+                            if (!row.isValid()) {
+                                continue;
+                            }
+                            id = row.getId();
+                            GeoPackageGeometryData geometryData = row
+                                    .getGeometry();
+                            if (geometryData != null) {
+                                geometry = geometryData.getBytes();
+                            }
+                        }
+
+                        if (lastId == null || id > lastId) {
+                            lastId = id;
+                        }
+                        ids[size] = id;
+                        geometries[size] = geometry;
+                        size++;
+                    }
+                } finally {
+                    cursor.close();
+                }
+                more = size == chunkLimit;
+
+                List<Level> levels = generalize(featureDao, executor, srsId,
+                        bands, ids, geometries, size);
+
+                // Insert the chunk levels in a single transaction
+                if (!levels.isEmpty()) {
+                    boolean successful = false;
+                    database.beginTransaction();
+                    try {
+                        for (Level level : levels) {
+                            statement.clearBindings();
+                            statement.bindString(1, tableName);
+                            statement.bindLong(2, level.id);
+                            statement.bindLong(3, level.minZoom);
+                            statement.bindLong(4, level.maxZoom);
+                            statement.bindBlob(5, level.geometry);
+                            statement.executeInsert();
+                        }
+                        successful = true;
+                    } finally {
+                        database.endTransaction(successful);
+                    }
+                    count += levels.size();
+                }
+                if (progress != null) {
+                    progress.addProgress(size);
+                }
+            }
+
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            statement.close();
+            database.close();
+        }
+
+        return count;
+    }
+
+    /**
+     * Query for the generalized geometries of the features at the zoom level
+     *
+     * @param featureDao feature DAO, queried on its connection
+     * @param zoom       zoom level
+     * @param featureIds feature ids
+     * @return generalized geometries by feature id, features without a level
+     * are not included
+     */
+    public Map<Long, GeoPackageGeometryData> query(FeatureDao featureDao,
+                                                   int zoom, Collection<Long> featureIds) {
+
+        Map<Long, GeoPackageGeometryData> geometries = new HashMap<>();
+
+        if (!featureIds.isEmpty()) {
+
+            String sqlPrefix = "SELECT " + COLUMN_GEOM_ID + ", "
+                    + COLUMN_GEOMETRY + " FROM "
+                    + CoreSQLUtils.quoteWrap(TABLE_NAME) + " WHERE "
+                    + COLUMN_TABLE_NAME + " = ? AND " + COLUMN_MIN_ZOOM
+                    + " <= ? AND " + COLUMN_MAX_ZOOM + " >= ? AND "
+                    + COLUMN_GEOM_ID + " IN (";
+            String tableName = featureDao.getTableName();
+            String zoomArg = String.valueOf(zoom);
+
+            Iterator<Long> ids = featureIds.iterator();
+            while (ids.hasNext()) {
+
+                StringBuilder sql = new StringBuilder(sqlPrefix);
+                for (int i = 0; i < QUERY_ID_LIMIT && ids.hasNext(); i++) {
+                    if (i > 0) {
+                        sql.append(", ");
+                    }
+                    sql.append(ids.next());
+                }
+                sql.append(")");
+
+                Cursor cursor = featureDao.getDb().rawQuery(sql.toString(),
+                        new String[]{tableName, zoomArg, zoomArg});
+                try {
+                    while (cursor.moveToNext()) {
+                        geometries.put(cursor.getLong(0),
+                                GeoPackageGeometryData.create(cursor.getBlob(1)));
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+        }
+
+        return geometries;
+    }
+
+    /**
+     * Delete the generalized geometries of the feature table and the
+     * extension
+     *
+     * @param featureTable feature table
+     */
+    public void delete(String featureTable) {
+        if (getGeoPackage().isTable(TABLE_NAME)) {
+            deleteLevels(featureTable);
+        }
+        try {
+            if (extensionsDao.isTableExists()) {
+                extensionsDao.deleteByExtension(EXTENSION_NAME, featureTable);
+            }
+        } catch (SQLException e) {
+            throw new GeoPackageException(
+                    "Failed to delete Generalized Geometry extension. GeoPackage: "
+                            + getGeoPackage().getName() + ", Table: "
+                            + featureTable, e);
+        }
+    }
+
+    /**
+     * Detach the feature DAO Generalized Geometry Maintainer and delete the
+     * generalized geometries of the feature DAO table and the extension
+     *
+     * @param featureDao feature DAO
+     */
+    public void delete(FeatureDao featureDao) {
+        featureDao.setGeneralizedGeometries(null);
+        delete(featureDao.getTableName());
+    }
+
+    /**
+     * Create a Generalized Geometry Maintainer for removing stale
+     * generalized geometries on feature DAO writes
+     *
+     * @param featureDao feature DAO
+     * @return Generalized Geometry Maintainer
+     */
+    public GeneralizedGeometryMaintainer getMaintainer(FeatureDao featureDao) {
+        return new GeneralizedGeometryMaintainer(this, featureDao);
+    }
+
+    /**
+     * Create the generalized geometry table if it does not exist
+     */
+    private void createTable() {
+        connection.execSQL("CREATE TABLE IF NOT EXISTS "
+                + CoreSQLUtils.quoteWrap(TABLE_NAME) + " ("
+                + COLUMN_TABLE_NAME + " TEXT NOT NULL, "
+                + COLUMN_GEOM_ID + " INTEGER NOT NULL, "
+                + COLUMN_MIN_ZOOM + " INTEGER NOT NULL, "
+                + COLUMN_MAX_ZOOM + " INTEGER NOT NULL, "
+                + COLUMN_GEOMETRY + " BLOB NOT NULL, "
+                + "CONSTRAINT pk_ngg PRIMARY KEY (" + COLUMN_TABLE_NAME + ", "
+                + COLUMN_GEOM_ID + ", " + COLUMN_MIN_ZOOM + "))");
+    }
+
+    /**
+     * Delete the generalized geometries of the feature table
+     *
+     * @param featureTable feature table
+     */
+    private void deleteLevels(String featureTable) {
+        connection.delete(TABLE_NAME,
+                COLUMN_TABLE_NAME + " = ?", new String[]{featureTable});
+    }
+
+    /**
+     * Get the zoom bands from the max zoom, each as a min and max zoom
+     *
+     * @return zoom bands
+     */
+    private int[][] getBands() {
+        int count = maxZoom / zoomBand + 1;
+        int[][] bands = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int minZoom = i * zoomBand;
+            bands[i] = new int[]{minZoom,
+                    Math.min(minZoom + zoomBand - 1, maxZoom)};
+        }
+        return bands;
+    }
+
+    /**
+     * Generalize the chunk of feature geometries, in parallel when an
+     * executor is provided
+     *
+     * @param featureDao feature DAO
+     * @param executor   executor or null
+     * @param srsId      spatial reference system id
+     * @param bands      zoom bands
+     * @param ids        feature ids
+     * @param geometries feature geometry bytes
+     * @param size       chunk size
+     * @return generalized levels in feature order
+     */
+    private List<Level> generalize(final FeatureDao featureDao,
+                                   ExecutorService executor, final long srsId, final int[][] bands,
+                                   final long[] ids, final byte[][] geometries, int size) {
+
+        List<Level> levels = new ArrayList<>();
+
+        if (executor == null) {
+            generalize(new GeometryGeneralizer(featureDao.getProjection(),
+                    algorithm), srsId, bands, ids, geometries, 0, size, levels);
+        } else {
+
+            int slice = (size + parallelism - 1) / parallelism;
+            List<Future<List<Level>>> futures = new ArrayList<>(parallelism);
+            for (int start = 0; start < size; start += slice) {
+                final int sliceStart = start;
+                final int sliceEnd = Math.min(start + slice, size);
+                futures.add(executor.submit(new Callable<List<Level>>() {
+                    @Override
+                    public List<Level> call() {
+                        List<Level> sliceLevels = new ArrayList<>();
+                        generalize(new GeometryGeneralizer(
+                                        featureDao.getProjection(), algorithm),
+                                srsId, bands, ids, geometries, sliceStart,
+                                sliceEnd, sliceLevels);
+                        return sliceLevels;
+                    }
+                }));
+            }
+
+            try {
+                for (Future<List<Level>> future : futures) {
+                    levels.addAll(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GeoPackageException(
+                        "Interrupted while generalizing feature geometries. Table: "
+                                + featureDao.getTableName(), e);
+            } catch (ExecutionException e) {
+                throw new GeoPackageException(
+                        "Failed to generalize feature geometries. Table: "
+                                + featureDao.getTableName(), e.getCause());
+            }
+        }
+
+        return levels;
+    }
+
+    /**
+     * Generalize a range of the feature geometries into each zoom band
+     *
+     * @param generalizer geometry generalizer
+     * @param srsId       spatial reference system id
+     * @param bands       zoom bands
+     * @param ids         feature ids
+     * @param geometries  feature geometry bytes
+     * @param start       inclusive start index
+     * @param end         exclusive end index
+     * @param levels      generalized levels to add to
+     */
+    private void generalize(GeometryGeneralizer generalizer, long srsId,
+                            int[][] bands, long[] ids, byte[][] geometries, int start,
+                            int end, List<Level> levels) {
+        for (int i = start; i < end; i++) {
+            try {
+                if (geometries[i] == null) {
+                    continue;
+                }
+                Geometry geometry = GeoPackageGeometryData.create(geometries[i])
+                        .getGeometry();
+                if (geometry == null) {
+                    continue;
+                }
+                for (int[] band : bands) {
+                    double tolerance = TileBoundingBoxUtils.toleranceDistance(
+                            band[1], tileWidth, tileHeight);
+                    Geometry generalized = generalizer.generalize(geometry,
+                            tolerance);
+                    if (generalized != null) {
+                        byte[] bytes = GeoPackageGeometryData
+                                .create(srsId, generalized).toBytes();
+                        levels.add(new Level(ids[i], band[0], band[1], bytes));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                Log.e(GeneralizedGeometryExtension.class.getSimpleName(),
+                        "Failed to generalize feature geometry. Id: " + ids[i],
+                        e);
+            }
+        }
+    }
+
+    /**
+     * Generalized geometry level of a feature
+     */
+    private static class Level {
+
+        /**
+         * Feature id
+         */
+        private final long id;
+
+        /**
+         * Band min zoom
+         */
+        private final int minZoom;
+
+        /**
+         * Band max zoom
+         */
+        private final int maxZoom;
+
+        /**
+         * Generalized GeoPackage geometry bytes
+         */
+        private final byte[] geometry;
+
+        /**
+         * Constructor
+         *
+         * @param id       feature id
+         * @param minZoom  band min zoom
+         * @param maxZoom  band max zoom
+         * @param geometry generalized GeoPackage geometry bytes
+         */
+        Level(long id, int minZoom, int maxZoom, byte[] geometry) {
+            this.id = id;
+            this.minZoom = minZoom;
+            this.maxZoom = maxZoom;
+            this.geometry = geometry;
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package mil.nga.geopackage.extension.nga.generalize;
+
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.features.user.FeatureDao;
+
+/**
+ * Generalized Geometry Maintainer, removes the generalized geometries of
+ * features updated or deleted through the feature DAO. Removals are made on
+ * the feature connection so they commit or roll back with the feature write.
+ * Removed features are drawn by simplifying on the fly until generalized
+ * again.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class GeneralizedGeometryMaintainer {
+
+    /**
+     * Generalized Geometry Extension
+     */
+    private final GeneralizedGeometryExtension extension;
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Feature id subquery delete where clause prefix
+     */
+    private final String subqueryWhere;
+
+    /**
+     * Constructor
+     *
+     * @param extension  Generalized Geometry Extension
+     * @param featureDao feature DAO
+     */
+    public GeneralizedGeometryMaintainer(GeneralizedGeometryExtension extension,
+                                         FeatureDao featureDao) {
+        this.extension = extension;
+        this.featureDao = featureDao;
+        subqueryWhere = GeneralizedGeometryExtension.COLUMN_TABLE_NAME
+                + " = ? AND " + GeneralizedGeometryExtension.COLUMN_GEOM_ID
+                + " IN (SELECT "
+                + CoreSQLUtils.quoteWrap(featureDao.getPkColumnName())
+                + " FROM " + CoreSQLUtils.quoteWrap(featureDao.getTableName());
+    }
+
+    /**
+     * Get the Generalized Geometry Extension
+     *
+     * @return Generalized Geometry Extension
+     */
+    public GeneralizedGeometryExtension getExtension() {
+        return extension;
+    }
+
+    /**
+     * Remove the generalized geometries of the feature
+     *
+     * @param id feature id
+     * @return number of removed generalized levels
+     */
+    public int invalidate(long id) {
+        return featureDao.getDb().delete(GeneralizedGeometryExtension.TABLE_NAME,
+                GeneralizedGeometryExtension.COLUMN_TABLE_NAME + " = ? AND "
+                        + GeneralizedGeometryExtension.COLUMN_GEOM_ID + " = ?",
+                new String[]{featureDao.getTableName(), String.valueOf(id)});
+    }
+
+    /**
+     * Remove the generalized geometries of the features matching the where
+     * clause, called before the features are written
+     *
+     * @param where     feature where clause
+     * @param whereArgs feature where arguments
+     * @return number of removed generalized levels
+     */
+    public int invalidate(String where, String[] whereArgs) {
+
+        StringBuilder deleteWhere = new StringBuilder(subqueryWhere);
+        if (where != null) {
+            deleteWhere.append(" WHERE ").append(where);
+        }
+        deleteWhere.append(")");
+
+        int argCount = whereArgs != null ? whereArgs.length : 0;
+        String[] args = new String[argCount + 1];
+        args[0] = featureDao.getTableName();
+        if (argCount > 0) {
+            System.arraycopy(whereArgs, 0, args, 1, argCount);
+        }
+
+        return featureDao.getDb().delete(GeneralizedGeometryExtension.TABLE_NAME,
+                deleteWhere.toString(), args);
+    }
+
+}
@@ -0,0 +1,500 @@
+package mil.nga.geopackage.extension.nga.generalize;
+
+import org.locationtech.proj4j.units.Units;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import mil.nga.proj.Projection;
+import mil.nga.proj.ProjectionConstants;
+import mil.nga.proj.ProjectionFactory;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryCollection;
+import mil.nga.sf.LineString;
+import mil.nga.sf.MultiLineString;
+import mil.nga.sf.MultiPolygon;
+import mil.nga.sf.Point;
+import mil.nga.sf.Polygon;
+import mil.nga.sf.proj.GeometryTransform;
+
+/**
+ * Geometry Generalizer, simplifies the line strings and polygon rings of a
+ * geometry with a tolerance in web mercator meters. Vertices are measured in
+ * web mercator while the kept vertices are the original feature projection
+ * points. Line strings keep at least their end points and rings keep at least
+ * four points, rings that would collapse are kept as is.
+ * <p>
+ * A generalizer reuses its coordinate buffers and is used by a single thread.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+class GeometryGeneralizer {
+
+    /**
+     * Web mercator projection
+     */
+    private static final Projection WEB_MERCATOR_PROJECTION = ProjectionFactory
+            .getProjection(ProjectionConstants.EPSG_WEB_MERCATOR);
+
+    /**
+     * Minimum closed ring point count
+     */
+    private static final int MIN_RING_POINTS = 4;
+
+    /**
+     * Generalization algorithm
+     */
+    private final GeneralizationAlgorithm algorithm;
+
+    /**
+     * Feature projection to web mercator transform, null when in meters
+     */
+    private final GeometryTransform transform;
+
+    /**
+     * Tolerance in web mercator meters
+     */
+    private double tolerance;
+
+    /**
+     * True if the last generalized geometry removed points
+     */
+    private boolean reduced;
+
+    /**
+     * Web mercator x coordinates
+     */
+    private double[] xs = new double[256];
+
+    /**
+     * Web mercator y coordinates
+     */
+    private double[] ys = new double[256];
+
+    /**
+     * Kept vertices
+     */
+    private boolean[] keep = new boolean[256];
+
+    /**
+     * Douglas-Peucker segment stack of start and end indices
+     */
+    private int[] stack = new int[64];
+
+    /**
+     * Visvalingam previous vertex indices
+     */
+    private int[] previous = new int[256];
+
+    /**
+     * Visvalingam next vertex indices
+     */
+    private int[] next = new int[256];
+
+    /**
+     * Visvalingam effective areas
+     */
+    private double[] areas = new double[256];
+
+    /**
+     * Constructor
+     *
+     * @param projection feature projection
+     * @param algorithm  generalization algorithm
+     */
+    GeometryGeneralizer(Projection projection,
+                        GeneralizationAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        if (projection != null && !projection.isUnit(Units.METRES)) {
+            transform = GeometryTransform.create(projection,
+                    WEB_MERCATOR_PROJECTION);
+        } else {
+            transform = null;
+        }
+    }
+
+    /**
+     * Generalize the geometry
+     *
+     * @param geometry  geometry
+     * @param tolerance tolerance in web mercator meters
+     * @return generalized geometry, or null if no points were removed
+     */
+    Geometry generalize(Geometry geometry, double tolerance) {
+        this.tolerance = tolerance;
+        reduced = false;
+        Geometry generalized = generalizeGeometry(geometry);
+        return reduced ? generalized : null;
+    }
+
+    /**
+     * Generalize the geometry, points and unsupported geometry types are
+     * returned as is
+     *
+     * @param geometry geometry
+     * @return generalized geometry
+     */
+    private Geometry generalizeGeometry(Geometry geometry) {
+
+        Geometry generalized;
+
+        switch (geometry.getGeometryType()) {
+            case LINESTRING:
+                generalized = generalize((LineString) geometry);
+                break;
+            case POLYGON:
+                generalized = generalize((Polygon) geometry);
+                break;
+            case MULTILINESTRING:
+                MultiLineString multiLineString = (MultiLineString) geometry;
+                MultiLineString generalizedMultiLineString = new MultiLineString(
+                        multiLineString.hasZ(), multiLineString.hasM());
+                for (LineString lineString : multiLineString.getLineStrings()) {
+                    generalizedMultiLineString.addLineString(
+                            generalize(lineString));
+                }
+                generalized = generalizedMultiLineString;
+                break;
+            case MULTIPOLYGON:
+                MultiPolygon multiPolygon = (MultiPolygon) geometry;
+                MultiPolygon generalizedMultiPolygon = new MultiPolygon(
+                        multiPolygon.hasZ(), multiPolygon.hasM());
+                for (Polygon polygon : multiPolygon.getPolygons()) {
+                    generalizedMultiPolygon.addPolygon(generalize(polygon));
+                }
+                generalized = generalizedMultiPolygon;
+                break;
+            case GEOMETRYCOLLECTION:
+                @SuppressWarnings("unchecked")
+                GeometryCollection<Geometry> geometryCollection = (GeometryCollection<Geometry>) geometry;
+                GeometryCollection<Geometry> generalizedCollection = new GeometryCollection<>(
+                        geometryCollection.hasZ(), geometryCollection.hasM());
+                for (Geometry collectionGeometry : geometryCollection
+                        .getGeometries()) {
+                    generalizedCollection.addGeometry(
+                            generalizeGeometry(collectionGeometry));
+                }
+                generalized = generalizedCollection;
+                break;
+            default:
+                generalized = geometry;
+        }
+
+        return generalized;
+    }
+
+    /**
+     * Generalize the line string
+     *
+     * @param lineString line string
+     * @return generalized line string
+     */
+    private LineString generalize(LineString lineString) {
+        LineString generalized = new LineString(lineString.hasZ(),
+                lineString.hasM());
+        generalized.setPoints(generalize(lineString.getPoints(), 2));
+        return generalized;
+    }
+
+    /**
+     * Generalize the polygon rings
+     *
+     * @param polygon polygon
+     * @return generalized polygon
+     */
+    private Polygon generalize(Polygon polygon) {
+        Polygon generalized = new Polygon(polygon.hasZ(), polygon.hasM());
+        for (LineString ring : polygon.getRings()) {
+            LineString generalizedRing = new LineString(ring.hasZ(),
+                    ring.hasM());
+            generalizedRing.setPoints(generalize(ring.getPoints(),
+                    MIN_RING_POINTS));
+            generalized.addRing(generalizedRing);
+        }
+        return generalized;
+    }
+
+    /**
+     * Generalize the points
+     *
+     * @param points    points
+     * @param minPoints minimum generalized point count
+     * @return generalized points, or the points when not reduced
+     */
+    private List<Point> generalize(List<Point> points, int minPoints) {
+
+        int count = points.size();
+        if (count <= minPoints) {
+            return points;
+        }
+
+        read(points);
+
+        int kept;
+        if (algorithm == GeneralizationAlgorithm.VISVALINGAM) {
+            kept = visvalingam(count);
+        } else {
+            kept = douglasPeucker(count);
+        }
+
+        if (kept >= count || kept < minPoints) {
+            return points;
+        }
+
+        List<Point> generalized = new ArrayList<>(kept);
+        int i = 0;
+        for (Point point : points) {
+            if (keep[i++]) {
+                generalized.add(point);
+            }
+        }
+        reduced = true;
+
+        return generalized;
+    }
+
+    /**
+     * Read the points into the web mercator coordinate buffers
+     *
+     * @param points points
+     */
+    private void read(List<Point> points) {
+
+        int count = points.size();
+        if (count > xs.length) {
+            int length = Math.max(count, xs.length * 2);
+            xs = new double[length];
+            ys = new double[length];
+            keep = new boolean[length];
+            previous = new int[length];
+            next = new int[length];
+            areas = new double[length];
+        }
+
+        if (transform != null) {
+            points = transform.transform(points);
+        }
+
+        int i = 0;
+        for (Point point : points) {
+            xs[i] = point.getX();
+            ys[i] = point.getY();
+            i++;
+        }
+    }
+
+    /**
+     * Simplify the buffered coordinates with Douglas-Peucker, marking the
+     * kept vertices
+     *
+     * @param count number of coordinates
+     * @return kept vertex count
+     */
+    private int douglasPeucker(int count) {
+
+        for (int i = 1; i < count - 1; i++) {
+            keep[i] = false;
+        }
+        keep[0] = true;
+        keep[count - 1] = true;
+        int kept = 2;
+
+        int size = push(0, 0, count - 1);
+        while (size > 0) {
+
+            int end = stack[--size];
+            int start = stack[--size];
+
+            double maxDistance = 0;
+            int index = -1;
+            for (int i = start + 1; i < end; i++) {
+                double distance = distance(i, start, end);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    index = i;
+                }
+            }
+
+            if (index >= 0 && maxDistance > tolerance) {
+                keep[index] = true;
+                kept++;
+                size = push(size, start, index);
+                size = push(size, index, end);
+            }
+        }
+
+        return kept;
+    }
+
+    /**
+     * Simplify the buffered coordinates with Visvalingam-Whyatt, marking the
+     * kept vertices. Vertices are removed in order of effective area while
+     * below the tolerance squared, neighbor areas never decreasing below the
+     * area of a removed vertex.
+     *
+     * @param count number of coordinates
+     * @return kept vertex count
+     */
+    private int visvalingam(int count) {
+
+        double maxArea = tolerance * tolerance;
+
+        PriorityQueue<Vertex> queue = new PriorityQueue<>(count);
+        for (int i = 0; i < count; i++) {
+            keep[i] = true;
+            previous[i] = i - 1;
+            next[i] = i + 1;
+            if (i > 0 && i < count - 1) {
+                areas[i] = area(i - 1, i, i + 1);
+                queue.add(new Vertex(i, areas[i]));
+            }
+        }
+        int kept = count;
+
+        while (!queue.isEmpty()) {
+
+            Vertex vertex = queue.poll();
+            int index = vertex.index;
+            if (!keep[index] || vertex.area != areas[index]) {
+                continue;
+            }
+            if (vertex.area >= maxArea) {
+                break;
+            }
+
+            keep[index] = false;
+            kept--;
+
+            int before = previous[index];
+            int after = next[index];
+            next[before] = after;
+            previous[after] = before;
+
+            if (before > 0) {
+                areas[before] = Math.max(vertex.area,
+                        area(previous[before], before, after));
+                queue.add(new Vertex(before, areas[before]));
+            }
+            if (after < count - 1) {
+                areas[after] = Math.max(vertex.area,
+                        area(before, after, next[after]));
+                queue.add(new Vertex(after, areas[after]));
+            }
+        }
+
+        return kept;
+    }
+
+    /**
+     * Push a segment onto the Douglas-Peucker stack
+     *
+     * @param size  stack size
+     * @param start segment start index
+     * @param end   segment end index
+     * @return new stack size
+     */
+    private int push(int size, int start, int end) {
+        if (end - start > 1) {
+            if (size + 2 > stack.length) {
+                int[] larger = new int[stack.length * 2];
+                System.arraycopy(stack, 0, larger, 0, size);
+                stack = larger;
+            }
+            stack[size++] = start;
+            stack[size++] = end;
+        }
+        return size;
+    }
+
+    /**
+     * Distance from the coordinate to the segment
+     *
+     * @param index coordinate index
+     * @param start segment start index
+     * @param end   segment end index
+     * @return distance
+     */
+    private double distance(int index, int start, int end) {
+
+        double x = xs[index];
+        double y = ys[index];
+        double startX = xs[start];
+        double startY = ys[start];
+        double vX = xs[end] - startX;
+        double vY = ys[end] - startY;
+        double wX = x - startX;
+        double wY = y - startY;
+
+        double c1 = wX * vX + wY * vY;
+        double c2 = vX * vX + vY * vY;
+
+        double dX;
+        double dY;
+        if (c1 <= 0 || c2 == 0) {
+            dX = wX;
+            dY = wY;
+        } else if (c2 <= c1) {
+            dX = x - xs[end];
+            dY = y - ys[end];
+        } else {
+            double b = c1 / c2;
+            dX = wX - b * vX;
+            dY = wY - b * vY;
+        }
+
+        return Math.sqrt(dX * dX + dY * dY);
+    }
+
+    /**
+     * Area of the triangle formed by three coordinates
+     *
+     * @param a first coordinate index
+     * @param b second coordinate index
+     * @param c third coordinate index
+     * @return area
+     */
+    private double area(int a, int b, int c) {
+        return Math.abs((xs[a] - xs[c]) * (ys[b] - ys[a])
+                - (xs[a] - xs[b]) * (ys[c] - ys[a])) / 2.0;
+    }
+
+    /**
+     * Visvalingam queued vertex and effective area, stale once the vertex
+     * area changes
+     */
+    private static class Vertex implements Comparable<Vertex> {
+
+        /**
+         * Vertex index
+         */
+        private final int index;
+
+        /**
+         * Effective area when queued
+         */
+        private final double area;
+
+        /**
+         * Constructor
+         *
+         * @param index vertex index
+         * @param area  effective area
+         */
+        Vertex(int index, double area) {
+            this.index = index;
+            this.area = area;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(Vertex other) {
+            return Double.compare(area, other.area);
+        }
+
+    }
+
+}
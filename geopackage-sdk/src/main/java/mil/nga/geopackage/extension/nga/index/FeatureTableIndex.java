@@ -6,16 +6,22 @@ import com.j256.ormlite.misc.TransactionManager;
 import com.j256.ormlite.support.ConnectionSource;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageDataType;
+import mil.nga.geopackage.features.index.FeatureIndexPipeline;
 import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureRowSync;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.geom.GeometryEnvelopeReader;
 import mil.nga.proj.Projection;
 import mil.nga.sf.GeometryEnvelope;
 
@@ -43,6 +49,12 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
      */
     private final FeatureRowSync featureRowSync = new FeatureRowSync();
 
+    /**
+     * Number of geometry decoding threads used when indexing the table, values
+     * greater than 1 index through a {@link FeatureIndexPipeline}
+     */
+    private int parallelism = 1;
+
     /**
      * Constructor
      *
@@ -86,6 +98,40 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
         return featureDao.getPkColumnName();
     }
 
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     * @since 6.7.5
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
+    /**
+     * Get the number of geometry decoding threads used when indexing the table
+     *
+     * @return parallelism
+     * @since 6.7.5
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set the number of geometry decoding threads used when indexing the
+     * table. When greater than 1, features are read by primary key on the
+     * calling thread, geometry envelopes are decoded by a bounded worker pool,
+     * and index rows are written in batch transactions by a single writer
+     * thread.
+     *
+     * @param parallelism number of decoding threads, 1 to index serially
+     * @since 6.7.5
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
     /**
      * Close the table index
      */
@@ -122,6 +168,10 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
     @Override
     protected int indexTable(final TableIndex tableIndex) {
 
+        if (parallelism > 1) {
+            return indexTableParallel(tableIndex);
+        }
+
         int count = 0;
 
         long offset = 0;
@@ -167,6 +217,247 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
         return count;
     }
 
+    /**
+     * Index the feature table through a pipeline of a single cursor reader,
+     * parallel geometry envelope decoding, and a single index writer
+     *
+     * @param tableIndex table index
+     * @return count
+     */
+    private int indexTableParallel(final TableIndex tableIndex) {
+
+        int count = 0;
+
+        String idColumn = CoreSQLUtils.quoteWrap(getPkColumnName());
+        String[] columns = featureDao.getIdAndGeometryColumnNames();
+        String where = idColumn + " > ?";
+
+        final ConnectionSource connectionSource = getGeoPackage().getDatabase()
+                .getConnectionSource();
+
+        FeatureIndexPipeline pipeline = new FeatureIndexPipeline(parallelism, progress);
+        pipeline.start(new FeatureIndexPipeline.Writer() {
+            @Override
+            public int write(final FeatureIndexPipeline.Batch batch) {
+                try {
+                    return TransactionManager.callInTransaction(connectionSource,
+                            new Callable<Integer>() {
+                                public Integer call() throws Exception {
+                                    int indexed = 0;
+                                    for (int i = 0; i < batch.size(); i++) {
+                                        GeometryEnvelope envelope = batch.getEnvelope(i);
+                                        if (envelope != null) {
+                                            try {
+                                                GeoPackageGeometryData geomData = new GeoPackageGeometryData();
+                                                geomData.setEnvelope(envelope);
+                                                if (index(tableIndex, batch.getId(i), geomData)) {
+                                                    indexed++;
+                                                }
+                                            } catch (Exception e) {
+                                                Log.e(FeatureTableIndex.class.getSimpleName(), "Failed to index feature. Table: "
+                                                        + tableIndex.getTableName() + ", Id: " + batch.getId(i), e);
+                                            }
+                                        }
+                                    }
+                                    return indexed;
+                                }
+                            });
+                } catch (SQLException e) {
+                    throw new GeoPackageException("Failed to Index Table. GeoPackage: "
+                            + getGeoPackage().getName() + ", Table: " + getTableName(),
+                            e);
+                }
+            }
+        });
+
+        try {
+
+            boolean more = true;
+            while (more && (progress == null || progress.isActive())) {
+
+                Long lastId = pipeline.getLastId();
+                FeatureCursor cursor;
+                if (lastId == null) {
+                    cursor = featureDao.queryForChunk(columns, idColumn, chunkLimit);
+                } else {
+                    cursor = featureDao.queryForChunk(columns, where,
+                            new String[]{String.valueOf(lastId)}, idColumn, chunkLimit);
+                }
+
+                int chunkRows = pipeline.read(cursor);
+                more = chunkRows >= chunkLimit;
+            }
+
+            count = pipeline.finish();
+
+        } finally {
+            pipeline.close();
+        }
+
+        // Update the last indexed time
+        if (progress == null || progress.isActive()) {
+            updateLastIndexed();
+        }
+
+        return count;
+    }
+
+    /**
+     * Incrementally index the feature table. Features inserted after the
+     * highest previously indexed id are indexed, and the provided changed
+     * feature ids (inserted, updated, or deleted since the last index) are
+     * removed from the index and re-indexed when they still exist. Performs a
+     * full index when the table has not been indexed.
+     *
+     * @param changedIds changed feature ids since the last index
+     * @return count of indexed features
+     * @since 6.7.5
+     */
+    public int indexDelta(final Collection<Long> changedIds) {
+
+        final TableIndex tableIndex = getTableIndex();
+        if (tableIndex == null || getLastIndexed() == null) {
+            return index(true);
+        }
+
+        int count = 0;
+
+        ConnectionSource connectionSource = getGeoPackage().getDatabase()
+                .getConnectionSource();
+
+        try {
+
+            // Index the features inserted beyond the high-water mark
+            Object maxIdValue = featureDao.getDb().querySingleResult(
+                    "SELECT MAX(" + CoreSQLUtils.quoteWrap(GeometryIndex.COLUMN_GEOM_ID)
+                            + ") FROM " + CoreSQLUtils.quoteWrap(GeometryIndex.TABLE_NAME)
+                            + " WHERE " + CoreSQLUtils.quoteWrap(GeometryIndex.COLUMN_TABLE_NAME)
+                            + " = ?", new String[]{getTableName()}, 0,
+                    GeoPackageDataType.INTEGER);
+            String idColumn = CoreSQLUtils.quoteWrap(getPkColumnName());
+            final String[] columns = featureDao.getIdAndGeometryColumnNames();
+            final String where = idColumn + " > ?";
+            final String orderBy = idColumn;
+
+            final Long maxId = maxIdValue != null ? ((Number) maxIdValue).longValue() : null;
+            Long lastId = maxId;
+            boolean more = true;
+            while (more && (progress == null || progress.isActive())) {
+
+                final Long chunkLastId = lastId;
+                long[] chunk = TransactionManager.callInTransaction(connectionSource,
+                        new Callable<long[]>() {
+                            public long[] call() throws Exception {
+
+                                FeatureCursor cursor;
+                                if (chunkLastId == null) {
+                                    cursor = featureDao.queryForChunk(columns, orderBy, chunkLimit);
+                                } else {
+                                    cursor = featureDao.queryForChunk(columns, where,
+                                            new String[]{String.valueOf(chunkLastId)}, orderBy,
+                                            chunkLimit);
+                                }
+
+                                // Indexed count, row count, and max id
+                                long[] chunk = new long[]{0, 0,
+                                        chunkLastId != null ? chunkLastId : Long.MIN_VALUE};
+
+                                GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+
+                                try {
+                                    while ((progress == null || progress.isActive())
+                                            && cursor.moveToNext()) {
+
+                                        long id;
+                                        FeatureRow row = null;
+                                        if (cursor.isDirectRead()) {
+                                            id = cursor.getId();
+                                        } else {
+                                            row = cursor.getRow();
+                                            if (!row.isValid()) {
+                                                continue;
+                                            }
+                                            id = row.getId();
+                                        }
+
+                                        // Page past the row before indexing so a row failing
+                                        // to index is skipped without ending the paging
+                                        chunk[1]++;
+                                        chunk[2] = Math.max(chunk[2], id);
+
+                                        try {
+                                            boolean indexed;
+                                            if (row == null) {
+                                                indexed = index(tableIndex, id, cursor, envelopeReader);
+                                            } else {
+                                                indexed = index(tableIndex, id, row.getGeometry());
+                                            }
+                                            if (indexed) {
+                                                chunk[0]++;
+                                            }
+                                        } catch (Exception e) {
+                                            Log.e(FeatureTableIndex.class.getSimpleName(), "Failed to index feature. Table: "
+                                                    + tableIndex.getTableName() + ", Id: " + id, e);
+                                        }
+                                        if (progress != null) {
+                                            progress.addProgress(1);
+                                        }
+                                    }
+                                } finally {
+                                    cursor.close();
+                                }
+
+                                return chunk;
+                            }
+                        });
+
+                count += chunk[0];
+                more = chunk[1] >= chunkLimit;
+                lastId = chunk[2];
+            }
+
+            // Re-index the changed features
+            if (changedIds != null && !changedIds.isEmpty()) {
+                count += TransactionManager.callInTransaction(connectionSource,
+                        new Callable<Integer>() {
+                            public Integer call() throws Exception {
+                                int count = 0;
+                                for (long id : changedIds) {
+                                    if (progress != null && !progress.isActive()) {
+                                        break;
+                                    }
+                                    if (maxId == null || id > maxId) {
+                                        // Indexed as an inserted feature
+                                        continue;
+                                    }
+                                    deleteIndex(id);
+                                    FeatureRow row = featureDao.queryForIdRow(id);
+                                    if (row != null && index(tableIndex, id, row.getGeometry())) {
+                                        count++;
+                                    }
+                                    if (progress != null) {
+                                        progress.addProgress(1);
+                                    }
+                                }
+                                return count;
+                            }
+                        });
+            }
+
+        } catch (SQLException e) {
+            throw new GeoPackageException("Failed to Delta Index Table. GeoPackage: "
+                    + getGeoPackage().getName() + ", Table: " + getTableName(),
+                    e);
+        }
+
+        // Update the last indexed time
+        if (progress == null || progress.isActive()) {
+            updateLastIndexed();
+        }
+
+        return count;
+    }
+
     /**
      * Index the feature rows in the cursor
      *
@@ -178,6 +469,8 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
 
         int count = -1;
 
+        GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+
         try {
             while ((progress == null || progress.isActive())
                     && cursor.moveToNext()) {
@@ -185,10 +478,8 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
                     count++;
                 }
                 try {
-                    FeatureRow row = cursor.getRow();
-                    if (row.isValid()) {
-                        boolean indexed = index(tableIndex,
-                                row.getId(), row.getGeometry());
+                    Boolean indexed = indexRow(tableIndex, cursor, envelopeReader);
+                    if (indexed != null) {
                         if (indexed) {
                             count++;
                         }
@@ -208,6 +499,52 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
         return count;
     }
 
+    /**
+     * Index the current cursor feature row
+     *
+     * @param tableIndex     table index
+     * @param cursor         feature cursor
+     * @param envelopeReader geometry envelope reader
+     * @return true if indexed, false if not indexed, null if not a valid row
+     */
+    private Boolean indexRow(TableIndex tableIndex, FeatureCursor cursor,
+                             GeometryEnvelopeReader envelopeReader) {
+        Boolean indexed = null;
+        if (cursor.isDirectRead()) {
+            indexed = index(tableIndex, cursor.getId(), cursor, envelopeReader);
+        } else {
+            FeatureRow row = cursor.getRow();
+            if (row.isValid()) {
+                indexed = index(tableIndex, row.getId(), row.getGeometry());
+            }
+        }
+        return indexed;
+    }
+
+    /**
+     * Index the current cursor feature row, reading the geometry envelope
+     * from the geometry header or WKB bytes without decoding the geometry
+     *
+     * @param tableIndex     table index
+     * @param geomId         feature id
+     * @param cursor         feature cursor positioned on a directly readable row
+     * @param envelopeReader geometry envelope reader
+     * @return true if indexed
+     */
+    private boolean index(TableIndex tableIndex, long geomId, FeatureCursor cursor,
+                          GeometryEnvelopeReader envelopeReader) {
+
+        boolean indexed = false;
+
+        if (cursor.readGeometryEnvelope(envelopeReader)) {
+            GeoPackageGeometryData geomData = new GeoPackageGeometryData();
+            geomData.setEnvelope(envelopeReader.getEnvelope());
+            indexed = index(tableIndex, geomId, geomData);
+        }
+
+        return indexed;
+    }
+
     /**
      * Delete the index for the feature row
      *
@@ -6616,4 +6953,100 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
                 offset);
     }
 
+    /**
+     * Query for features within the geometry envelope using a join to the
+     * geometry index instead of an id IN subquery. SQLite drives the join
+     * from the geometry index range query and looks up each feature by
+     * primary key, applying the where clause to the joined rows.
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return feature cursor
+     * @since 6.7.5
+     */
+    public FeatureCursor queryFeaturesJoin(boolean distinct, String[] columns,
+                                           GeometryEnvelope envelope, String where, String[] whereArgs) {
+        return featureDao.queryJoin(distinct, columns, joinIdsSQL(envelope),
+                null, where, whereArgs);
+    }
+
+    /**
+     * Query for features within the geometry envelope using a join to the
+     * geometry index, ordered and returning no more than the limit
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param orderBy   order by
+     * @param limit     chunk limit
+     * @return feature cursor
+     * @since 6.7.5
+     */
+    public FeatureCursor queryFeaturesJoinForChunk(boolean distinct,
+                                                   String[] columns, GeometryEnvelope envelope, String where,
+                                                   String[] whereArgs, String orderBy, int limit) {
+        return featureDao.queryJoinForChunk(distinct, columns,
+                joinIdsSQL(envelope), null, where, whereArgs, orderBy, limit);
+    }
+
+    /**
+     * Query for features within the geometry envelope using a join to the
+     * geometry index, ordered, starting at the offset and returning no more
+     * than the limit
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param orderBy   order by
+     * @param limit     chunk limit
+     * @param offset    chunk query offset
+     * @return feature cursor
+     * @since 6.7.5
+     */
+    public FeatureCursor queryFeaturesJoinForChunk(boolean distinct,
+                                                   String[] columns, GeometryEnvelope envelope, String where,
+                                                   String[] whereArgs, String orderBy, int limit, long offset) {
+        return featureDao.queryJoinForChunk(distinct, columns,
+                joinIdsSQL(envelope), null, where, whereArgs, orderBy, limit,
+                offset);
+    }
+
+    /**
+     * Count the features within the geometry envelope using a join to the
+     * geometry index instead of an id IN subquery
+     *
+     * @param distinct  distinct column values
+     * @param column    count column name
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return count
+     * @since 6.7.5
+     */
+    public int countFeaturesJoin(boolean distinct, String column,
+                                 GeometryEnvelope envelope, String where, String[] whereArgs) {
+        return featureDao.countJoin(distinct, column, joinIdsSQL(envelope),
+                null, where, whereArgs);
+    }
+
+    /**
+     * Build the join subquery of the geometry index ids overlapping the
+     * envelope, with the id aliased as {@link FeatureDao#JOIN_ID_COLUMN}
+     *
+     * @param envelope geometry envelope
+     * @return join subquery SQL
+     */
+    private String joinIdsSQL(GeometryEnvelope envelope) {
+        return "SELECT " + CoreSQLUtils.quoteWrap(GeometryIndex.COLUMN_GEOM_ID)
+                + " AS " + CoreSQLUtils.quoteWrap(FeatureDao.JOIN_ID_COLUMN)
+                + " FROM (" + queryIdsSQL(envelope) + ")";
+    }
+
 }
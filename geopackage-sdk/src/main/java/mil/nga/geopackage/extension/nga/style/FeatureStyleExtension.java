@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
 
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.attributes.AttributesCursor;
@@ -27,6 +28,12 @@ import mil.nga.sf.GeometryType;
  */
 public class FeatureStyleExtension extends FeatureCoreStyleExtension {
 
+    /**
+     * Count of style, icon, and mapping writes made through any feature style
+     * extension, used to invalidate resolved feature styles
+     */
+    private static final AtomicLong modifications = new AtomicLong();
+
     /**
      * Related Tables extension
      */
@@ -58,6 +65,25 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
         return relatedTables;
     }
 
+    /**
+     * Get the count of style, icon, and mapping writes made through any
+     * feature style extension, changed when resolved or rendered feature
+     * styles may be stale
+     *
+     * @return modification count
+     * @since 6.7.5
+     */
+    public static long getModifications() {
+        return modifications.get();
+    }
+
+    /**
+     * Record a style, icon, or mapping write
+     */
+    private static void modified() {
+        modifications.incrementAndGet();
+    }
+
     /**
      * Get a Style Mapping DAO
      *
@@ -1509,6 +1535,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
         row.setGeometryType(geometryType);
 
         mappingDao.insert(row);
+        modified();
     }
 
     /**
@@ -1717,6 +1744,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
             Long featureContentsId = contentsId.getId(featureTable);
             if (featureContentsId != null) {
                 mappingDao.deleteByBaseId(featureContentsId);
+                modified();
             }
         }
     }
@@ -1734,6 +1762,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
             Long featureContentsId = contentsId.getId(featureTable);
             if (featureContentsId != null) {
                 mappingDao.deleteByBaseId(featureContentsId, geometryType);
+                modified();
             }
         }
     }
@@ -2004,7 +2033,9 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
      * @since 6.3.0
      */
     public int deleteStyleRowMappings(long id) throws SQLException {
-        return relatedTables.deleteMappingsToRelated(StyleTable.TABLE_NAME, id);
+        int count = relatedTables.deleteMappingsToRelated(StyleTable.TABLE_NAME, id);
+        modified();
+        return count;
     }
 
     /**
@@ -2045,6 +2076,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
         if (styleDao != null) {
             count = deleteStyleRowMappings(id);
             count += styleDao.deleteById(id);
+            modified();
         }
         return count;
     }
@@ -2081,6 +2113,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
         if (styleDao != null) {
             count += deleteStyleRows(styleDao.query(whereClause, whereArgs));
             count += styleDao.delete(whereClause, whereArgs);
+            modified();
         }
         return count;
     }
@@ -2120,6 +2153,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
         if (styleDao != null) {
             count += deleteStyleRows(styleDao.queryForFieldValues(fieldValues));
             count += styleDao.delete(fieldValues);
+            modified();
         }
         return count;
     }
@@ -2156,6 +2190,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
         if (styleDao != null) {
             count += deleteStyleRows(styleDao.query());
             count += styleDao.deleteAll();
+            modified();
         }
         return count;
     }
@@ -2285,7 +2320,9 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
      * @since 6.3.0
      */
     public int deleteIconRowMappings(long id) throws SQLException {
-        return relatedTables.deleteMappingsToRelated(IconTable.TABLE_NAME, id);
+        int count = relatedTables.deleteMappingsToRelated(IconTable.TABLE_NAME, id);
+        modified();
+        return count;
     }
 
     /**
@@ -2326,6 +2363,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
         if (iconDao != null) {
             count = deleteIconRowMappings(id);
             count += iconDao.deleteById(id);
+            modified();
         }
         return count;
     }
@@ -2362,6 +2400,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
         if (iconDao != null) {
             count += deleteIconRows(iconDao.query(whereClause, whereArgs));
             count += iconDao.delete(whereClause, whereArgs);
+            modified();
         }
         return count;
     }
@@ -2401,6 +2440,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
         if (iconDao != null) {
             count += deleteIconRows(iconDao.queryForFieldValues(fieldValues));
             count += iconDao.delete(fieldValues);
+            modified();
         }
         return count;
     }
@@ -2437,6 +2477,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
         if (iconDao != null) {
             count += deleteIconRows(iconDao.query());
             count += iconDao.deleteAll();
+            modified();
         }
         return count;
     }
@@ -2505,6 +2546,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
     private void deleteMappings(StyleMappingDao mappingDao) {
         if (mappingDao != null) {
             mappingDao.deleteAll();
+            modified();
         }
     }
 
@@ -2517,6 +2559,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
     private void deleteMappings(StyleMappingDao mappingDao, long featureId) {
         if (mappingDao != null) {
             mappingDao.deleteByBaseId(featureId);
+            modified();
         }
     }
 
@@ -2531,6 +2574,7 @@ public class FeatureStyleExtension extends FeatureCoreStyleExtension {
                                GeometryType geometryType) {
         if (mappingDao != null) {
             mappingDao.deleteByBaseId(featureId, geometryType);
+            modified();
         }
     }
 
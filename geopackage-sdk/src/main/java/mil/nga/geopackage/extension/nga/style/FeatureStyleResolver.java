@@ -0,0 +1,556 @@
+package mil.nga.geopackage.extension.nga.style;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mil.nga.geopackage.attributes.AttributesCursor;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.extension.related.UserMappingTable;
+import mil.nga.geopackage.user.custom.UserCustomCursor;
+import mil.nga.sf.GeometryType;
+
+/**
+ * Feature Style Resolver, resolves the styles and icons of many features of a
+ * feature table with few queries. The feature style and icon mappings of the
+ * table are read once into sorted primitive arrays of feature ids, style or
+ * icon ids, and geometry types. Style and icon rows are cached by id, fetched
+ * in batched id queries for the features about to be resolved. Writes through
+ * any {@link FeatureStyleExtension} invalidate the read mappings and rows.
+ * Changes made directly to the style, icon, or mapping tables are not
+ * detected until {@link #clear()} is called.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureStyleResolver {
+
+    /**
+     * Max number of ids queried per style or icon row query, within the
+     * SQLite default host parameter limit
+     */
+    private static final int QUERY_BATCH_SIZE = 500;
+
+    /**
+     * Geometry types by ordinal
+     */
+    private static final GeometryType[] GEOMETRY_TYPES = GeometryType.values();
+
+    /**
+     * Feature table styles
+     */
+    private final FeatureTableStyles featureTableStyles;
+
+    /**
+     * Feature style extension modification count the mappings were read at
+     */
+    private long modifications = -1;
+
+    /**
+     * Feature style mappings
+     */
+    private Mappings styleMappings;
+
+    /**
+     * Feature icon mappings
+     */
+    private Mappings iconMappings;
+
+    /**
+     * Style rows by id, null values for missing rows
+     */
+    private final Map<Long, StyleRow> styles = new HashMap<>();
+
+    /**
+     * Icon rows by id, null values for missing rows
+     */
+    private final Map<Long, IconRow> icons = new HashMap<>();
+
+    /**
+     * Style DAO
+     */
+    private StyleDao styleDao;
+
+    /**
+     * Icon DAO
+     */
+    private IconDao iconDao;
+
+    /**
+     * Constructor
+     *
+     * @param featureTableStyles feature table styles
+     */
+    public FeatureStyleResolver(FeatureTableStyles featureTableStyles) {
+        this.featureTableStyles = featureTableStyles;
+    }
+
+    /**
+     * Get the feature table styles
+     *
+     * @return feature table styles
+     */
+    public FeatureTableStyles getFeatureTableStyles() {
+        return featureTableStyles;
+    }
+
+    /**
+     * Clear the read mappings and cached style and icon rows, read again
+     * when next needed
+     */
+    public synchronized void clear() {
+        modifications = -1;
+    }
+
+    /**
+     * Prefetch the style and icon rows of the features not already cached,
+     * with a batched id query per style and icon table
+     *
+     * @param featureIds feature ids
+     */
+    public synchronized void prefetch(Iterable<Long> featureIds) {
+
+        refresh();
+
+        List<Long> styleIds = new ArrayList<>();
+        List<Long> iconIds = new ArrayList<>();
+        for (Long featureId : featureIds) {
+            if (featureId != null) {
+                styleMappings.missing(featureId, styles, styleIds);
+                iconMappings.missing(featureId, icons, iconIds);
+            }
+        }
+
+        queryStyles(styleIds);
+        queryIcons(iconIds);
+    }
+
+    /**
+     * Get the feature style (style and icon) of the feature, searching in
+     * order: feature geometry type style or icon, feature default style or
+     * icon, table geometry type style or icon, table default style or icon
+     *
+     * @param featureId    feature id
+     * @param geometryType geometry type
+     * @return feature style
+     */
+    public FeatureStyle getFeatureStyle(long featureId,
+                                        GeometryType geometryType) {
+
+        FeatureStyle featureStyle = null;
+
+        StyleRow style = getStyle(featureId, geometryType);
+        IconRow icon = getIcon(featureId, geometryType);
+
+        if (style != null || icon != null) {
+            featureStyle = new FeatureStyle(style, icon);
+        }
+
+        return featureStyle;
+    }
+
+    /**
+     * Get the style of the feature, searching in order: feature geometry type
+     * style, feature default style, table geometry type style, table default
+     * style
+     *
+     * @param featureId    feature id
+     * @param geometryType geometry type
+     * @return style row
+     */
+    public StyleRow getStyle(long featureId, GeometryType geometryType) {
+
+        StyleRow styleRow = null;
+
+        // Feature Style
+        Styles featureStyles = getStyles(featureId);
+        if (featureStyles != null) {
+            styleRow = featureStyles.getStyle(geometryType);
+        }
+
+        if (styleRow == null) {
+
+            // Table Style
+            Styles tableStyles = featureTableStyles.getCachedTableStyles();
+            if (tableStyles != null) {
+                styleRow = tableStyles.getStyle(geometryType);
+            }
+
+        }
+
+        return styleRow;
+    }
+
+    /**
+     * Get the icon of the feature, searching in order: feature geometry type
+     * icon, feature default icon, table geometry type icon, table default icon
+     *
+     * @param featureId    feature id
+     * @param geometryType geometry type
+     * @return icon row
+     */
+    public IconRow getIcon(long featureId, GeometryType geometryType) {
+
+        IconRow iconRow = null;
+
+        // Feature Icon
+        Icons featureIcons = getIcons(featureId);
+        if (featureIcons != null) {
+            iconRow = featureIcons.getIcon(geometryType);
+        }
+
+        if (iconRow == null) {
+
+            // Table Icon
+            Icons tableIcons = featureTableStyles.getCachedTableIcons();
+            if (tableIcons != null) {
+                iconRow = tableIcons.getIcon(geometryType);
+            }
+
+        }
+
+        return iconRow;
+    }
+
+    /**
+     * Get the feature styles of the feature, without table styles
+     *
+     * @param featureId feature id
+     * @return styles or null
+     */
+    public synchronized Styles getStyles(long featureId) {
+
+        refresh();
+
+        Styles featureStyles = null;
+
+        int index = styleMappings.first(featureId);
+        if (index >= 0) {
+            List<Long> missing = new ArrayList<>();
+            styleMappings.missing(featureId, styles, missing);
+            queryStyles(missing);
+            for (; index < styleMappings.count
+                    && styleMappings.featureIds[index] == featureId; index++) {
+                StyleRow styleRow = styles.get(styleMappings.relatedIds[index]);
+                if (styleRow != null) {
+                    if (featureStyles == null) {
+                        featureStyles = new Styles();
+                    }
+                    featureStyles.setStyle(styleRow,
+                            styleMappings.getGeometryType(index));
+                }
+            }
+        }
+
+        return featureStyles;
+    }
+
+    /**
+     * Get the feature icons of the feature, without table icons
+     *
+     * @param featureId feature id
+     * @return icons or null
+     */
+    public synchronized Icons getIcons(long featureId) {
+
+        refresh();
+
+        Icons featureIcons = null;
+
+        int index = iconMappings.first(featureId);
+        if (index >= 0) {
+            List<Long> missing = new ArrayList<>();
+            iconMappings.missing(featureId, icons, missing);
+            queryIcons(missing);
+            for (; index < iconMappings.count
+                    && iconMappings.featureIds[index] == featureId; index++) {
+                IconRow iconRow = icons.get(iconMappings.relatedIds[index]);
+                if (iconRow != null) {
+                    if (featureIcons == null) {
+                        featureIcons = new Icons();
+                    }
+                    featureIcons.setIcon(iconRow,
+                            iconMappings.getGeometryType(index));
+                }
+            }
+        }
+
+        return featureIcons;
+    }
+
+    /**
+     * Read the mappings when not read or modified since being read
+     */
+    private void refresh() {
+
+        long current = FeatureStyleExtension.getModifications();
+        if (current != modifications) {
+
+            styles.clear();
+            icons.clear();
+
+            FeatureStyleExtension extension = featureTableStyles
+                    .getFeatureStyleExtension();
+            String tableName = featureTableStyles.getTableName();
+
+            styleDao = extension.getStyleDao();
+            iconDao = extension.getIconDao();
+            styleMappings = readMappings(styleDao != null
+                    ? extension.getStyleMappingDao(tableName) : null);
+            iconMappings = readMappings(iconDao != null
+                    ? extension.getIconMappingDao(tableName) : null);
+
+            modifications = current;
+        }
+    }
+
+    /**
+     * Read the mappings of the mapping table ordered by feature id
+     *
+     * @param mappingDao mapping DAO
+     * @return mappings
+     */
+    private static Mappings readMappings(StyleMappingDao mappingDao) {
+
+        Mappings mappings = new Mappings();
+
+        if (mappingDao != null) {
+
+            StringBuilder sql = new StringBuilder("SELECT ");
+            sql.append(CoreSQLUtils.quoteWrap(UserMappingTable.COLUMN_BASE_ID));
+            sql.append(", ");
+            sql.append(CoreSQLUtils.quoteWrap(UserMappingTable.COLUMN_RELATED_ID));
+            sql.append(", ");
+            sql.append(CoreSQLUtils.quoteWrap(StyleMappingTable.COLUMN_GEOMETRY_TYPE_NAME));
+            sql.append(" FROM ");
+            sql.append(CoreSQLUtils.quoteWrap(mappingDao.getTableName()));
+            sql.append(" ORDER BY ");
+            sql.append(CoreSQLUtils.quoteWrap(UserMappingTable.COLUMN_BASE_ID));
+
+            Cursor cursor = mappingDao.getDb().rawQuery(sql.toString(), null);
+            try {
+                while (cursor.moveToNext()) {
+                    GeometryType geometryType = null;
+                    if (!cursor.isNull(2)) {
+                        geometryType = GeometryType.fromName(cursor.getString(2));
+                    }
+                    mappings.add(cursor.getLong(0), cursor.getLong(1),
+                            geometryType);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        return mappings;
+    }
+
+    /**
+     * Query and cache the style rows by id
+     *
+     * @param ids style ids
+     */
+    private void queryStyles(List<Long> ids) {
+        for (int start = 0; start < ids.size(); start += QUERY_BATCH_SIZE) {
+            List<Long> batch = ids.subList(start,
+                    Math.min(start + QUERY_BATCH_SIZE, ids.size()));
+            String[] args = idArgs(batch);
+            try {
+                AttributesCursor cursor = styleDao.query(
+                        idsWhere(styleDao.getPkColumnName(), batch.size()), args);
+                try {
+                    while (cursor.moveToNext()) {
+                        StyleRow styleRow = styleDao.getRow(cursor);
+                        styles.put(styleRow.getId(), styleRow);
+                    }
+                } finally {
+                    cursor.close();
+                }
+            } catch (Exception e) {
+                Log.e(FeatureStyleResolver.class.getSimpleName(),
+                        "Failed to query styles. Table: "
+                                + featureTableStyles.getTableName(), e);
+            }
+            for (Long id : batch) {
+                if (!styles.containsKey(id)) {
+                    styles.put(id, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Query and cache the icon rows by id
+     *
+     * @param ids icon ids
+     */
+    private void queryIcons(List<Long> ids) {
+        for (int start = 0; start < ids.size(); start += QUERY_BATCH_SIZE) {
+            List<Long> batch = ids.subList(start,
+                    Math.min(start + QUERY_BATCH_SIZE, ids.size()));
+            String[] args = idArgs(batch);
+            try {
+                UserCustomCursor cursor = iconDao.query(
+                        idsWhere(iconDao.getPkColumnName(), batch.size()), args);
+                try {
+                    while (cursor.moveToNext()) {
+                        IconRow iconRow = iconDao.getRow(cursor);
+                        icons.put(iconRow.getId(), iconRow);
+                    }
+                } finally {
+                    cursor.close();
+                }
+            } catch (Exception e) {
+                Log.e(FeatureStyleResolver.class.getSimpleName(),
+                        "Failed to query icons. Table: "
+                                + featureTableStyles.getTableName(), e);
+            }
+            for (Long id : batch) {
+                if (!icons.containsKey(id)) {
+                    icons.put(id, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build an id IN where clause
+     *
+     * @param idColumn id column
+     * @param count    number of ids
+     * @return where clause
+     */
+    private static String idsWhere(String idColumn, int count) {
+        StringBuilder where = new StringBuilder();
+        where.append(CoreSQLUtils.quoteWrap(idColumn));
+        where.append(" IN (");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                where.append(", ");
+            }
+            where.append("?");
+        }
+        where.append(")");
+        return where.toString();
+    }
+
+    /**
+     * Build the id where arguments
+     *
+     * @param ids ids
+     * @return where arguments
+     */
+    private static String[] idArgs(List<Long> ids) {
+        String[] args = new String[ids.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = String.valueOf(ids.get(i));
+        }
+        return args;
+    }
+
+    /**
+     * Style or icon mappings of a feature table in primitive arrays sorted by
+     * feature id
+     */
+    private static class Mappings {
+
+        /**
+         * Feature ids
+         */
+        private long[] featureIds = new long[16];
+
+        /**
+         * Style or icon ids
+         */
+        private long[] relatedIds = new long[16];
+
+        /**
+         * Geometry type ordinals, -1 for the default
+         */
+        private byte[] geometryTypes = new byte[16];
+
+        /**
+         * Number of mappings
+         */
+        private int count = 0;
+
+        /**
+         * Add a mapping, in feature id order
+         *
+         * @param featureId    feature id
+         * @param relatedId    style or icon id
+         * @param geometryType geometry type or null for the default
+         */
+        void add(long featureId, long relatedId, GeometryType geometryType) {
+            if (count == featureIds.length) {
+                int length = count * 2;
+                featureIds = Arrays.copyOf(featureIds, length);
+                relatedIds = Arrays.copyOf(relatedIds, length);
+                geometryTypes = Arrays.copyOf(geometryTypes, length);
+            }
+            featureIds[count] = featureId;
+            relatedIds[count] = relatedId;
+            geometryTypes[count] = geometryType != null
+                    ? (byte) geometryType.ordinal() : -1;
+            count++;
+        }
+
+        /**
+         * Get the index of the first mapping of the feature
+         *
+         * @param featureId feature id
+         * @return index or -1 if the feature has no mappings
+         */
+        int first(long featureId) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (featureIds[mid] < featureId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low < count && featureIds[low] == featureId ? low : -1;
+        }
+
+        /**
+         * Get the geometry type of the mapping
+         *
+         * @param index mapping index
+         * @return geometry type or null for the default
+         */
+        GeometryType getGeometryType(int index) {
+            byte ordinal = geometryTypes[index];
+            return ordinal >= 0 ? GEOMETRY_TYPES[ordinal] : null;
+        }
+
+        /**
+         * Add the style or icon ids of the feature not yet cached
+         *
+         * @param featureId feature id
+         * @param cached    cached rows by id
+         * @param missing   missing ids
+         */
+        void missing(long featureId, Map<Long, ?> cached, List<Long> missing) {
+            int index = first(featureId);
+            if (index >= 0) {
+                for (; index < count && featureIds[index] == featureId; index++) {
+                    Long relatedId = relatedIds[index];
+                    if (!cached.containsKey(relatedId)
+                            && !missing.contains(relatedId)) {
+                        missing.add(relatedId);
+                    }
+                }
+            }
+        }
+
+    }
+
+}
@@ -35,6 +35,11 @@ public class FeatureTableStyles {
      */
     private final FeatureStyles cachedTableFeatureStyles = new FeatureStyles();
 
+    /**
+     * Feature style resolver
+     */
+    private FeatureStyleResolver featureStyleResolver;
+
     /**
      * Constructor
      *
@@ -101,6 +106,20 @@ public class FeatureTableStyles {
         return tableName;
     }
 
+    /**
+     * Get the feature style resolver, resolving the feature styles of many
+     * features of the table with few queries
+     *
+     * @return feature style resolver
+     * @since 6.7.5
+     */
+    public synchronized FeatureStyleResolver getFeatureStyleResolver() {
+        if (featureStyleResolver == null) {
+            featureStyleResolver = new FeatureStyleResolver(this);
+        }
+        return featureStyleResolver;
+    }
+
     /**
      * Determine if the GeoPackage has the extension for the table
      *
@@ -1,8 +1,10 @@
 package mil.nga.geopackage.extension.rtree;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import mil.nga.geopackage.features.index.FeatureIndexResults;
+import mil.nga.geopackage.features.user.FeatureIdRowIterator;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.user.custom.UserCustomCursor;
 
@@ -25,6 +27,11 @@ public class FeatureIndexRTreeResults implements FeatureIndexResults {
      */
     private final UserCustomCursor cursor;
 
+    /**
+     * Number of feature rows read per query when iterating
+     */
+    private int batchSize = FeatureIdRowIterator.DEFAULT_BATCH_SIZE;
+
     /**
      * Constructor
      *
@@ -37,29 +44,67 @@ public class FeatureIndexRTreeResults implements FeatureIndexResults {
         this.cursor = cursor;
     }
 
+    /**
+     * Get the number of feature rows read per query when iterating
+     *
+     * @return batch size
+     * @since 6.7.5
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the number of feature rows read per query when iterating
+     *
+     * @param batchSize batch size
+     * @since 6.7.5
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
     /**
      * {@inheritDoc}
+     * <p>
+     * Feature rows are read in batches of {@link #getBatchSize()} ids
      */
     @Override
     public Iterator<FeatureRow> iterator() {
-        return new Iterator<FeatureRow>() {
+
+        Iterator<Long> ids = new Iterator<Long>() {
+
+            /**
+             * Next cursor row read flag
+             */
+            private Boolean next = null;
 
             /**
              * {@inheritDoc}
              */
             @Override
             public boolean hasNext() {
-                return cursor.moveToNext();
+                if (next == null) {
+                    next = cursor.moveToNext();
+                }
+                return next;
             }
 
             /**
              * {@inheritDoc}
              */
             @Override
-            public FeatureRow next() {
-                return dao.getFeatureRow(cursor);
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                next = null;
+                return dao.getRow(cursor).getId();
             }
         };
+
+        return new FeatureIdRowIterator(dao.getFeatureDao(), null, ids,
+                batchSize);
     }
 
     /**
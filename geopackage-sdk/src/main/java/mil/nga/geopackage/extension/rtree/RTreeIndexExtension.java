@@ -1,10 +1,20 @@
 package mil.nga.geopackage.extension.rtree;
 
+import android.util.Log;
+
 import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.GeoPackageConnection;
 import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.db.GeoPackageSQLiteStatement;
+import mil.nga.geopackage.extension.ExtensionScopeType;
+import mil.nga.geopackage.extension.Extensions;
+import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.geom.GeometryEnvelopeReader;
+import mil.nga.geopackage.io.GeoPackageProgress;
 import mil.nga.geopackage.user.custom.UserCustomDao;
 import mil.nga.geopackage.user.custom.UserCustomTable;
 import mil.nga.sf.GeometryEnvelope;
@@ -13,6 +23,15 @@ import mil.nga.sf.GeometryEnvelope;
  * RTree Index Extension
  * TODO User defined functions that return values are not currently supported for Android
  * <p>
+ * RTree indexes are created and loaded from envelopes computed in Java
+ * instead of the SQL geometry functions. The spec triggers call the SQL
+ * geometry functions and are only created when the functions are supported,
+ * see {@link #isGeometryFunctionsSupported()}. Without the triggers, feature
+ * writes made outside of the feature DAOs of this library, such as raw SQL
+ * or other applications, are not indexed. Feature DAO writes are indexed by
+ * the {@link RTreeIndexMaintainer} attached by {@link #create(FeatureDao)}
+ * and by writable GeoPackages, which drop the RTree triggers when opened.
+ * <p>
  * <a href="https://www.geopackage.org/spec/#extension_rtree">https://www.geopackage.org/spec/#extension_rtree</a>
  *
  * @author osbornb
@@ -30,6 +49,25 @@ public class RTreeIndexExtension extends RTreeIndexCoreExtension {
      */
     private final GeoPackageDatabase database;
 
+    /**
+     * Default number of features read and inserted per transaction when
+     * loading an RTree index
+     *
+     * @since 6.7.5
+     */
+    public static final int DEFAULT_CHUNK_LIMIT = 1000;
+
+    /**
+     * Number of features read and inserted per transaction when loading an
+     * RTree index
+     */
+    private int chunkLimit = DEFAULT_CHUNK_LIMIT;
+
+    /**
+     * Progress
+     */
+    private GeoPackageProgress progress;
+
     /**
      * Constructor
      *
@@ -60,6 +98,303 @@ public class RTreeIndexExtension extends RTreeIndexCoreExtension {
         return (GeoPackage) super.getGeoPackage();
     }
 
+    /**
+     * Get the number of features read and inserted per transaction when
+     * loading an RTree index
+     *
+     * @return chunk limit
+     * @since 6.7.5
+     */
+    public int getChunkLimit() {
+        return chunkLimit;
+    }
+
+    /**
+     * Set the number of features read and inserted per transaction when
+     * loading an RTree index
+     *
+     * @param chunkLimit chunk limit
+     * @since 6.7.5
+     */
+    public void setChunkLimit(int chunkLimit) {
+        this.chunkLimit = chunkLimit;
+    }
+
+    /**
+     * Set the progress tracker, incremented per loaded feature
+     *
+     * @param progress progress tracker
+     * @since 6.7.5
+     */
+    public void setProgress(GeoPackageProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Determine if the SQL geometry functions called by the RTree triggers
+     * are supported on Android connections
+     *
+     * @return false, user defined functions that return values are not
+     * currently supported
+     * @since 6.7.5
+     */
+    public boolean isGeometryFunctionsSupported() {
+        // TODO User defined functions that return values are not currently supported for Android
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Creates the RTree index and loads it from envelopes computed in Java.
+     * The triggers are created when the SQL geometry functions they call are
+     * supported. Otherwise only feature DAO writes with an attached
+     * {@link RTreeIndexMaintainer} are indexed, see
+     * {@link #create(FeatureDao)}.
+     */
+    @Override
+    public Extensions create(String tableName, String geometryColumnName,
+                             String idColumnName) {
+
+        Extensions extension = getOrCreate(EXTENSION_NAME, tableName,
+                geometryColumnName, DEFINITION, ExtensionScopeType.WRITE_ONLY);
+
+        createRTreeIndex(tableName, geometryColumnName);
+        loadRTreeIndex(tableName, geometryColumnName, idColumnName);
+
+        if (isGeometryFunctionsSupported()) {
+            createAllFunctions();
+            createAllTriggers(tableName, geometryColumnName, idColumnName);
+        }
+
+        return extension;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Loads the RTree index from envelopes computed in Java.
+     */
+    @Override
+    public void loadRTreeIndex(String tableName, String geometryColumnName,
+                               String idColumnName) {
+        loadRTreeIndex(getGeoPackage().getFeatureDao(tableName));
+    }
+
+    /**
+     * Load the RTree index from the feature envelopes, computed in Java
+     * without the SQL geometry functions. Features are read by id in chunks
+     * and inserted with a compiled statement, one transaction per chunk.
+     * Null and empty geometries are not indexed.
+     *
+     * @param featureDao feature DAO
+     * @return number of indexed features
+     * @since 6.7.5
+     */
+    public int loadRTreeIndex(FeatureDao featureDao) {
+
+        int count = 0;
+
+        String insertSQL = "INSERT OR REPLACE INTO "
+                + CoreSQLUtils.quoteWrap(getRTreeTableName(
+                featureDao.getTableName(), featureDao.getGeometryColumnName()))
+                + " (" + COLUMN_ID + ", " + COLUMN_MIN_X + ", " + COLUMN_MAX_X
+                + ", " + COLUMN_MIN_Y + ", " + COLUMN_MAX_Y
+                + ") VALUES (?, ?, ?, ?, ?)";
+
+        String[] columns = featureDao.getIdAndGeometryColumnNames();
+        String idColumn = CoreSQLUtils.quoteWrap(featureDao.getPkColumnName());
+        int srsId = (int) featureDao.getSrsId();
+        GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+
+        long[] ids = new long[chunkLimit];
+        double[] envelopes = new double[chunkLimit * 4];
+
+        boolean previousBindings = database.setUseBindings(true);
+        GeoPackageSQLiteStatement statement = database.compileStatement(insertSQL);
+        try {
+
+            Long lastId = null;
+            boolean more = true;
+            while (more && (progress == null || progress.isActive())) {
+
+                // Read the chunk, closing the cursor before writing
+                int size = 0;
+                int read = 0;
+                FeatureCursor cursor;
+                if (lastId == null) {
+                    cursor = featureDao.queryForChunk(columns, idColumn,
+                            chunkLimit);
+                } else {
+                    cursor = featureDao.queryForChunk(columns, idColumn + " > ?",
+                            new String[]{String.valueOf(lastId)}, idColumn,
+                            chunkLimit);
+                }
+                try {
+                    while (cursor.moveToNext()) {
+                        long id;
+                        FeatureRow row = null;
+                        if (cursor.isDirectRead()) {
+                            id = cursor.getId();
+                        } else {
+                            // Rows with large blobs are invalid when first
+                            // read and re-read at the end of the chunk
+                            row = cursor.getRow();
+                            if (!row.isValid()) {
+                                continue;
+                            }
+                            id = row.getId();
+                        }
+                        read++;
+                        if (lastId == null || id > lastId) {
+                            lastId = id;
+                        }
+                        GeometryEnvelope envelope = getEnvelope(cursor, row,
+                                id, envelopeReader, srsId);
+                        if (envelope != null) {
+                            ids[size] = id;
+                            int index = size * 4;
+                            envelopes[index] = envelope.getMinX();
+                            envelopes[index + 1] = envelope.getMaxX();
+                            envelopes[index + 2] = envelope.getMinY();
+                            envelopes[index + 3] = envelope.getMaxY();
+                            size++;
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+                more = read == chunkLimit;
+
+                // Insert the chunk in a single transaction
+                if (size > 0) {
+                    boolean successful = false;
+                    database.beginTransaction();
+                    try {
+                        for (int i = 0; i < size; i++) {
+                            int index = i * 4;
+                            statement.clearBindings();
+                            statement.bindLong(1, ids[i]);
+                            statement.bindDouble(2, envelopes[index]);
+                            statement.bindDouble(3, envelopes[index + 1]);
+                            statement.bindDouble(4, envelopes[index + 2]);
+                            statement.bindDouble(5, envelopes[index + 3]);
+                            statement.executeInsert();
+                        }
+                        successful = true;
+                    } finally {
+                        database.endTransaction(successful);
+                    }
+                    count += size;
+                    if (progress != null) {
+                        progress.addProgress(size);
+                    }
+                }
+            }
+
+        } finally {
+            statement.close();
+            database.setUseBindings(previousBindings);
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the envelope of the current feature, with the geodesic adjustment
+     * applied by the min and max y functions
+     *
+     * @param cursor         feature cursor
+     * @param row            feature row when the cursor is not directly
+     *                       readable, null to read the cursor directly
+     * @param id             feature id
+     * @param envelopeReader envelope reader
+     * @param srsId          spatial reference system id
+     * @return envelope or null for null and empty geometries
+     */
+    private GeometryEnvelope getEnvelope(FeatureCursor cursor, FeatureRow row,
+                                         long id, GeometryEnvelopeReader envelopeReader, int srsId) {
+        GeometryEnvelope envelope = null;
+        try {
+            if (row == null) {
+                if (cursor.readGeometryEnvelope(envelopeReader)) {
+                    envelope = envelopeReader.getEnvelope();
+                }
+            } else {
+                envelope = row.getGeometryEnvelope();
+            }
+        } catch (Exception e) {
+            Log.e(RTreeIndexExtension.class.getSimpleName(),
+                    "Failed to read feature geometry envelope. Id: " + id, e);
+        }
+        if (envelope != null && srsId > 0) {
+            envelope = geodesicEnvelope(envelope, srsId);
+        }
+        return envelope;
+    }
+
+    /**
+     * Get the index envelope of the geometry data, with the geodesic
+     * adjustment applied by the min and max y functions
+     *
+     * @param data  geometry data
+     * @param srsId spatial reference system id
+     * @return envelope or null for null and empty geometries
+     */
+    GeometryEnvelope getEnvelope(GeoPackageGeometryData data, int srsId) {
+        GeometryEnvelope envelope = getEnvelope(data);
+        if (envelope != null && srsId > 0) {
+            envelope = geodesicEnvelope(envelope, srsId);
+        }
+        return envelope;
+    }
+
+    /**
+     * Create a RTree Index Maintainer for keeping the feature table RTree
+     * index current with the feature DAO writes
+     *
+     * @param featureDao feature DAO
+     * @return RTree Index Maintainer
+     * @since 6.7.5
+     */
+    public RTreeIndexMaintainer getMaintainer(FeatureDao featureDao) {
+        return new RTreeIndexMaintainer(this, featureDao);
+    }
+
+    /**
+     * Create the RTree index extension for the feature DAO table and attach
+     * a RTree Index Maintainer to the feature DAO, keeping the index current
+     * with the feature DAO writes when the RTree triggers are not supported
+     *
+     * @param featureDao feature DAO
+     * @return extension
+     * @since 6.7.5
+     */
+    public Extensions create(FeatureDao featureDao) {
+        Extensions extension = create(featureDao.getTable());
+        if (!isGeometryFunctionsSupported()
+                && featureDao.getRTreeIndex() == null) {
+            featureDao.setRTreeIndex(getMaintainer(featureDao));
+        }
+        return extension;
+    }
+
+    /**
+     * Detach and close the feature DAO RTree Index Maintainer and delete the
+     * RTree index extension for the feature DAO table
+     *
+     * @param featureDao feature DAO
+     * @since 6.7.5
+     */
+    public void delete(FeatureDao featureDao) {
+        RTreeIndexMaintainer maintainer = featureDao.getRTreeIndex();
+        if (maintainer != null) {
+            featureDao.setRTreeIndex(null);
+            maintainer.close();
+        }
+        delete(featureDao.getTable());
+    }
+
     /**
      * Get a RTree Index Table DAO for the feature table
      *
@@ -0,0 +1,461 @@
+package mil.nga.geopackage.extension.rtree;
+
+import android.util.Log;
+
+import java.util.Arrays;
+
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.db.GeoPackageSQLiteStatement;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * RTree Index Maintainer, keeps a feature table RTree index current with
+ * the feature DAO writes in place of the RTree triggers dropped from
+ * writable GeoPackages. Envelopes are computed in Java from the written
+ * geometries and applied with cached compiled statements.
+ * <p>
+ * Index changes are made on the feature DAO connection so they commit or
+ * roll back with the feature write. The feature DAO writes through the
+ * bindings connection, which supports the RTree module, while a maintainer
+ * is attached. Transactions spanning multiple feature writes should be begun
+ * through the feature DAO.
+ * <p>
+ * In batch mode, index changes are deferred and applied together before the
+ * batch transaction commits, see {@link #beginBatch()}.
+ * <p>
+ * When the RTree index is deleted, the maintainer detaches from the feature
+ * DAO on the next index change instead of failing the feature write.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class RTreeIndexMaintainer {
+
+    /**
+     * Initial deferred change capacity
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * RTree Index Extension
+     */
+    private final RTreeIndexExtension extension;
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Spatial reference system id
+     */
+    private final int srsId;
+
+    /**
+     * RTree insert or replace SQL
+     */
+    private final String insertSQL;
+
+    /**
+     * RTree delete SQL
+     */
+    private final String deleteSQL;
+
+    /**
+     * Cached compiled insert or replace statement
+     */
+    private GeoPackageSQLiteStatement insertStatement;
+
+    /**
+     * Cached compiled delete statement
+     */
+    private GeoPackageSQLiteStatement deleteStatement;
+
+    /**
+     * Bindings connection flag of the cached compiled statements
+     */
+    private boolean statementBindings;
+
+    /**
+     * Batch mode flag
+     */
+    private boolean batch = false;
+
+    /**
+     * Deferred change feature ids
+     */
+    private long[] ids = new long[INITIAL_CAPACITY];
+
+    /**
+     * Deferred change envelopes as min x, max x, min y, max y, with a NaN min
+     * x for deletes
+     */
+    private double[] envelopes = new double[INITIAL_CAPACITY * 4];
+
+    /**
+     * Deferred change count
+     */
+    private int size = 0;
+
+    /**
+     * Detached flag, set when the RTree index no longer exists
+     */
+    private boolean detached = false;
+
+    /**
+     * Constructor
+     *
+     * @param extension  RTree Index Extension
+     * @param featureDao feature DAO
+     */
+    public RTreeIndexMaintainer(RTreeIndexExtension extension,
+                                FeatureDao featureDao) {
+        this.extension = extension;
+        this.featureDao = featureDao;
+        this.srsId = (int) featureDao.getSrsId();
+
+        String rTreeTable = CoreSQLUtils.quoteWrap(extension.getRTreeTableName(
+                featureDao.getTableName(), featureDao.getGeometryColumnName()));
+        insertSQL = "INSERT OR REPLACE INTO " + rTreeTable + " ("
+                + RTreeIndexExtension.COLUMN_ID + ", "
+                + RTreeIndexExtension.COLUMN_MIN_X + ", "
+                + RTreeIndexExtension.COLUMN_MAX_X + ", "
+                + RTreeIndexExtension.COLUMN_MIN_Y + ", "
+                + RTreeIndexExtension.COLUMN_MAX_Y + ") VALUES (?, ?, ?, ?, ?)";
+        deleteSQL = "DELETE FROM " + rTreeTable + " WHERE "
+                + RTreeIndexExtension.COLUMN_ID + " = ?";
+    }
+
+    /**
+     * Get the RTree Index Extension
+     *
+     * @return RTree Index Extension
+     */
+    public RTreeIndexExtension getExtension() {
+        return extension;
+    }
+
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
+    /**
+     * Is batch mode enabled
+     *
+     * @return true if in batch mode
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * Begin batch mode for bulk loads, beginning a transaction on the feature
+     * DAO connection and deferring all index changes until the batch ends.
+     * Every batch must be ended by {@link #endBatch(boolean)}.
+     */
+    public void beginBatch() {
+        if (!batch) {
+            featureDao.beginTransaction();
+            batch = true;
+        }
+    }
+
+    /**
+     * End batch mode, applying the deferred index changes and committing the
+     * batch transaction
+     *
+     * @return number of applied changes
+     */
+    public int endBatch() {
+        return endBatch(true);
+    }
+
+    /**
+     * End batch mode. When successful, the deferred index changes are applied
+     * and the batch transaction is committed. Otherwise the deferred changes
+     * are discarded and the batch transaction, including the feature writes,
+     * is rolled back.
+     *
+     * @param successful true to apply and commit, false to roll back
+     * @return number of applied changes
+     */
+    public int endBatch(boolean successful) {
+        int applied = 0;
+        if (batch) {
+            batch = false;
+            boolean committed = false;
+            try {
+                if (successful) {
+                    applied = flush();
+                    committed = true;
+                }
+            } finally {
+                size = 0;
+                featureDao.endTransaction(committed);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Get the number of deferred index changes
+     *
+     * @return deferred changes
+     */
+    public int getPending() {
+        return size;
+    }
+
+    /**
+     * Index the feature geometry, removing the feature from the index for
+     * null and empty geometries
+     *
+     * @param id           feature id
+     * @param geometryData geometry data
+     */
+    public void index(long id, GeoPackageGeometryData geometryData) {
+        GeometryEnvelope envelope = null;
+        if (geometryData != null) {
+            envelope = extension.getEnvelope(geometryData, srsId);
+        }
+        if (envelope != null) {
+            change(id, envelope.getMinX(), envelope.getMaxX(),
+                    envelope.getMinY(), envelope.getMaxY());
+        } else {
+            delete(id);
+        }
+    }
+
+    /**
+     * Index the features with the same geometry
+     *
+     * @param ids          feature ids
+     * @param geometryData geometry data
+     */
+    public void index(long[] ids, GeoPackageGeometryData geometryData) {
+        GeometryEnvelope envelope = null;
+        if (geometryData != null) {
+            envelope = extension.getEnvelope(geometryData, srsId);
+        }
+        for (long id : ids) {
+            if (envelope != null) {
+                change(id, envelope.getMinX(), envelope.getMaxX(),
+                        envelope.getMinY(), envelope.getMaxY());
+            } else {
+                delete(id);
+            }
+        }
+    }
+
+    /**
+     * Remove the feature from the index
+     *
+     * @param id feature id
+     */
+    public void delete(long id) {
+        change(id, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Remove the features from the index
+     *
+     * @param ids feature ids
+     */
+    public void delete(long[] ids) {
+        for (long id : ids) {
+            delete(id);
+        }
+    }
+
+    /**
+     * Query for the ids of the features matching the where clause, used to
+     * capture the index changes of where clause updates and deletes
+     *
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return feature ids
+     */
+    public long[] queryIds(String where, String[] whereArgs) {
+        long[] featureIds = new long[INITIAL_CAPACITY];
+        int count = 0;
+        FeatureCursor cursor = featureDao.query(false,
+                new String[]{featureDao.getPkColumnName()}, where, whereArgs);
+        try {
+            while (cursor.moveToNext()) {
+                if (count == featureIds.length) {
+                    featureIds = Arrays.copyOf(featureIds, count * 2);
+                }
+                featureIds[count++] = cursor.getLong(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        return Arrays.copyOf(featureIds, count);
+    }
+
+    /**
+     * Close the cached compiled statements, deferred changes are not applied
+     */
+    public void close() {
+        size = 0;
+        closeStatements();
+    }
+
+    /**
+     * Apply the deferred index changes on the feature DAO connection
+     *
+     * @return number of applied changes
+     */
+    private int flush() {
+        int applied = 0;
+        for (int i = 0; i < size && !detached; i++) {
+            int index = i * 4;
+            apply(ids[i], envelopes[index], envelopes[index + 1],
+                    envelopes[index + 2], envelopes[index + 3]);
+        }
+        if (!detached) {
+            applied = size;
+        }
+        size = 0;
+        return applied;
+    }
+
+    /**
+     * Apply or defer an index change
+     *
+     * @param id   feature id
+     * @param minX min x, NaN for a delete
+     * @param maxX max x
+     * @param minY min y
+     * @param maxY max y
+     */
+    private void change(long id, double minX, double maxX, double minY,
+                        double maxY) {
+        if (detached) {
+            return;
+        }
+        if (batch) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                envelopes = Arrays.copyOf(envelopes, size * 8);
+            }
+            ids[size] = id;
+            int index = size * 4;
+            envelopes[index] = minX;
+            envelopes[index + 1] = maxX;
+            envelopes[index + 2] = minY;
+            envelopes[index + 3] = maxY;
+            size++;
+        } else {
+            apply(id, minX, maxX, minY, maxY);
+        }
+    }
+
+    /**
+     * Apply an index change, detaching when the RTree index no longer exists
+     *
+     * @param id   feature id
+     * @param minX min x, NaN for a delete
+     * @param maxX max x
+     * @param minY min y
+     * @param maxY max y
+     */
+    private void apply(long id, double minX, double maxX, double minY,
+                       double maxY) {
+        if (!execute(id, minX, maxX, minY, maxY)) {
+            detach();
+        }
+    }
+
+    /**
+     * Execute an index change with the cached compiled statements on the
+     * active feature DAO connection
+     *
+     * @param id   feature id
+     * @param minX min x, NaN for a delete
+     * @param maxX max x
+     * @param minY min y
+     * @param maxY max y
+     * @return false if the RTree index no longer exists
+     */
+    private boolean execute(long id, double minX, double maxX, double minY,
+                            double maxY) {
+        GeoPackageDatabase database = featureDao.getDatabaseConnection();
+        if (database.isUseBindings() != statementBindings) {
+            closeStatements();
+            statementBindings = database.isUseBindings();
+        }
+        try {
+            if (Double.isNaN(minX)) {
+                if (deleteStatement == null) {
+                    deleteStatement = database.compileStatement(deleteSQL);
+                }
+                deleteStatement.clearBindings();
+                deleteStatement.bindLong(1, id);
+                deleteStatement.executeUpdateDelete();
+            } else {
+                if (insertStatement == null) {
+                    insertStatement = database.compileStatement(insertSQL);
+                }
+                insertStatement.clearBindings();
+                insertStatement.bindLong(1, id);
+                insertStatement.bindDouble(2, minX);
+                insertStatement.bindDouble(3, maxX);
+                insertStatement.bindDouble(4, minY);
+                insertStatement.bindDouble(5, maxY);
+                insertStatement.executeInsert();
+            }
+        } catch (Exception e) {
+            if (!extension.has(featureDao.getTable())) {
+                return false;
+            }
+            Log.e(RTreeIndexMaintainer.class.getSimpleName(),
+                    "Failed to update RTree index. Table: "
+                            + featureDao.getTableName() + ", Id: " + id, e);
+            throw new GeoPackageException(
+                    "Failed to update RTree index. Table: "
+                            + featureDao.getTableName() + ", Id: " + id, e);
+        }
+        return true;
+    }
+
+    /**
+     * Close the cached compiled statements
+     */
+    private void closeStatements() {
+        if (insertStatement != null) {
+            insertStatement.close();
+            insertStatement = null;
+        }
+        if (deleteStatement != null) {
+            deleteStatement.close();
+            deleteStatement = null;
+        }
+    }
+
+    /**
+     * Detach from the feature DAO after the RTree index was deleted,
+     * discarding the deferred changes
+     */
+    private void detach() {
+        Log.w(RTreeIndexMaintainer.class.getSimpleName(),
+                "RTree index no longer exists, detaching from feature writes. Table: "
+                        + featureDao.getTableName());
+        detached = true;
+        close();
+        if (featureDao.getRTreeIndex() == this) {
+            featureDao.setRTreeIndex(null);
+        }
+    }
+
+}
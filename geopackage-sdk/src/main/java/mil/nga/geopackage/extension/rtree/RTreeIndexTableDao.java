@@ -70,6 +70,7 @@ public class RTreeIndexTableDao extends UserCustomDao {
      */
     public void setProgress(GeoPackageProgress progress) {
         this.progress = progress;
+        rTree.setProgress(progress);
     }
 
     /**
@@ -108,9 +109,6 @@ public class RTreeIndexTableDao extends UserCustomDao {
         Extensions extension = null;
         if (!has()) {
             extension = rTree.create(featureDao.getTable());
-            if (progress != null) {
-                progress.addProgress(count());
-            }
         }
         return extension;
     }
@@ -10251,6 +10249,169 @@ public class RTreeIndexTableDao extends UserCustomDao {
                 orderBy, limit, offset);
     }
 
+    /**
+     * Query for features within the Geometry Envelope using a join to the
+     * RTree instead of an id IN subquery
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return cursor
+     * @since 6.7.5
+     */
+    public FeatureCursor queryFeaturesJoin(boolean distinct, String[] columns,
+                                           GeometryEnvelope envelope, String where, String[] whereArgs) {
+        return queryFeaturesJoin(distinct, columns, envelope.getMinX(),
+                envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY(),
+                where, whereArgs);
+    }
+
+    /**
+     * Query for features within the bounds using a join to the RTree instead
+     * of an id IN subquery. SQLite drives the join from the RTree range
+     * query and looks up each feature by primary key, applying the where
+     * clause to the joined rows.
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param minX      min x
+     * @param minY      min y
+     * @param maxX      max x
+     * @param maxY      max y
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return cursor
+     * @since 6.7.5
+     */
+    public FeatureCursor queryFeaturesJoin(boolean distinct, String[] columns,
+                                           double minX, double minY, double maxX, double maxY, String where,
+                                           String[] whereArgs) {
+        validateRTree();
+        return featureDao.queryJoin(distinct, columns,
+                joinIdsSQL(minX, minY, maxX, maxY),
+                buildWhereArgs(minX, minY, maxX, maxY), where, whereArgs);
+    }
+
+    /**
+     * Query for features within the bounds using a join to the RTree,
+     * ordered and returning no more than the limit
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param minX      min x
+     * @param minY      min y
+     * @param maxX      max x
+     * @param maxY      max y
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param orderBy   order by
+     * @param limit     chunk limit
+     * @return cursor
+     * @since 6.7.5
+     */
+    public FeatureCursor queryFeaturesJoinForChunk(boolean distinct,
+                                                   String[] columns, double minX, double minY, double maxX,
+                                                   double maxY, String where, String[] whereArgs, String orderBy,
+                                                   int limit) {
+        validateRTree();
+        return featureDao.queryJoinForChunk(distinct, columns,
+                joinIdsSQL(minX, minY, maxX, maxY),
+                buildWhereArgs(minX, minY, maxX, maxY), where, whereArgs,
+                orderBy, limit);
+    }
+
+    /**
+     * Query for features within the bounds using a join to the RTree,
+     * ordered, starting at the offset and returning no more than the limit
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param minX      min x
+     * @param minY      min y
+     * @param maxX      max x
+     * @param maxY      max y
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param orderBy   order by
+     * @param limit     chunk limit
+     * @param offset    chunk query offset
+     * @return cursor
+     * @since 6.7.5
+     */
+    public FeatureCursor queryFeaturesJoinForChunk(boolean distinct,
+                                                   String[] columns, double minX, double minY, double maxX,
+                                                   double maxY, String where, String[] whereArgs, String orderBy,
+                                                   int limit, long offset) {
+        validateRTree();
+        return featureDao.queryJoinForChunk(distinct, columns,
+                joinIdsSQL(minX, minY, maxX, maxY),
+                buildWhereArgs(minX, minY, maxX, maxY), where, whereArgs,
+                orderBy, limit, offset);
+    }
+
+    /**
+     * Count the features within the Geometry Envelope using a join to the
+     * RTree instead of an id IN subquery
+     *
+     * @param distinct  distinct column values
+     * @param column    count column name
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return count
+     * @since 6.7.5
+     */
+    public int countFeaturesJoin(boolean distinct, String column,
+                                 GeometryEnvelope envelope, String where, String[] whereArgs) {
+        return countFeaturesJoin(distinct, column, envelope.getMinX(),
+                envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY(),
+                where, whereArgs);
+    }
+
+    /**
+     * Count the features within the bounds using a join to the RTree instead
+     * of an id IN subquery
+     *
+     * @param distinct  distinct column values
+     * @param column    count column name
+     * @param minX      min x
+     * @param minY      min y
+     * @param maxX      max x
+     * @param maxY      max y
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return count
+     * @since 6.7.5
+     */
+    public int countFeaturesJoin(boolean distinct, String column, double minX,
+                                 double minY, double maxX, double maxY, String where,
+                                 String[] whereArgs) {
+        validateRTree();
+        return featureDao.countJoin(distinct, column,
+                joinIdsSQL(minX, minY, maxX, maxY),
+                buildWhereArgs(minX, minY, maxX, maxY), where, whereArgs);
+    }
+
+    /**
+     * Build the join subquery of the RTree ids overlapping the bounds, with
+     * the id aliased as {@link FeatureDao#JOIN_ID_COLUMN}
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param maxX max x
+     * @param maxY max y
+     * @return join subquery SQL
+     */
+    private String joinIdsSQL(double minX, double minY, double maxX,
+                              double maxY) {
+        return "SELECT " + CoreSQLUtils.quoteWrap(RTreeIndexExtension.COLUMN_ID)
+                + " AS " + CoreSQLUtils.quoteWrap(FeatureDao.JOIN_ID_COLUMN)
+                + " FROM " + CoreSQLUtils.quoteWrap(getTableName()) + " WHERE "
+                + buildWhere(minX, minY, maxX, maxY);
+    }
+
     /**
      * Validate that the RTree extension exists for the table and column
      */
@@ -6,6 +6,7 @@ import java.util.Iterator;
 
 import mil.nga.geopackage.extension.nga.index.FeatureTableIndex;
 import mil.nga.geopackage.extension.nga.index.GeometryIndex;
+import mil.nga.geopackage.features.user.FeatureIdRowIterator;
 import mil.nga.geopackage.features.user.FeatureRow;
 
 /**
@@ -32,6 +33,11 @@ public class FeatureIndexGeoPackageResults implements FeatureIndexResults {
      */
     private final CloseableIterator<GeometryIndex> geometryIndices;
 
+    /**
+     * Number of feature rows read per query when iterating
+     */
+    private int batchSize = FeatureIdRowIterator.DEFAULT_BATCH_SIZE;
+
     /**
      * Constructor
      *
@@ -45,31 +51,35 @@ public class FeatureIndexGeoPackageResults implements FeatureIndexResults {
         this.geometryIndices = geometryIndices;
     }
 
+    /**
+     * Get the number of feature rows read per query when iterating
+     *
+     * @return batch size
+     * @since 6.7.5
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the number of feature rows read per query when iterating
+     *
+     * @param batchSize batch size
+     * @since 6.7.5
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
     /**
      * {@inheritDoc}
+     * <p>
+     * Feature rows are read in batches of {@link #getBatchSize()} ids
      */
     @Override
     public Iterator<FeatureRow> iterator() {
-        return new Iterator<FeatureRow>() {
-
-            /**
-             * {@inheritDoc}
-             */
-            @Override
-            public boolean hasNext() {
-                return geometryIndices.hasNext();
-            }
-
-            /**
-             * {@inheritDoc}
-             */
-            @Override
-            public FeatureRow next() {
-                GeometryIndex geometryIndex = geometryIndices.next();
-                FeatureRow featureRow = featureTableIndex.getFeatureRow(geometryIndex);
-                return featureRow;
-            }
-        };
+        return new FeatureIdRowIterator(featureTableIndex.getFeatureDao(),
+                null, ids().iterator(), batchSize);
     }
 
     /**
@@ -0,0 +1,442 @@
+package mil.nga.geopackage.features.index;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageConnection;
+import mil.nga.geopackage.extension.BaseExtension;
+import mil.nga.geopackage.extension.ExtensionScopeType;
+import mil.nga.geopackage.extension.Extensions;
+import mil.nga.geopackage.features.user.FeatureDao;
+
+/**
+ * Feature Index Journal, records the ids of feature rows inserted, updated,
+ * and deleted using triggers stored in the GeoPackage. The journaled ids are
+ * consumed by delta indexing of the {@link FeatureIndexType#GEOPACKAGE} and
+ * {@link FeatureIndexType#METADATA} index types to re-index only the changed
+ * features.
+ * <p>
+ * The journal table and triggers persist in the GeoPackage, journaling the
+ * changes of all connections and sessions while started. An index type is
+ * covered by the journal once it is indexed while the journal is started.
+ * Only covered index types are delta indexed from the journal, others miss
+ * the changes made before the journal started and are fully re-indexed.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureIndexJournal extends BaseExtension {
+
+    /**
+     * Extension author
+     */
+    public static final String EXTENSION_AUTHOR = "nga";
+
+    /**
+     * Extension name without the author
+     */
+    public static final String EXTENSION_NAME_NO_AUTHOR = "feature_index_journal";
+
+    /**
+     * Extension, with author and name
+     */
+    public static final String EXTENSION_NAME = Extensions.buildExtensionName(
+            EXTENSION_AUTHOR, EXTENSION_NAME_NO_AUTHOR);
+
+    /**
+     * Extension definition
+     */
+    public static final String DEFINITION = "Feature ids changed since the last feature index, for delta indexing";
+
+    /**
+     * Journal table name
+     */
+    public static final String TABLE_NAME = "nga_feature_index_journal";
+
+    /**
+     * Journal coverage table name, index types indexed while the journal was
+     * started
+     */
+    public static final String COVERAGE_TABLE_NAME = "nga_feature_index_journal_coverage";
+
+    /**
+     * Table name column
+     */
+    public static final String COLUMN_TABLE_NAME = "table_name";
+
+    /**
+     * Index type column
+     */
+    public static final String COLUMN_INDEX_TYPE = "index_type";
+
+    /**
+     * Feature id column
+     */
+    public static final String COLUMN_ID = "id";
+
+    /**
+     * Max number of ids in a single delete statement
+     */
+    private static final int DELETE_CHUNK = 500;
+
+    /**
+     * Journaled index types
+     */
+    private static final FeatureIndexType[] TYPES = new FeatureIndexType[]{
+            FeatureIndexType.GEOPACKAGE, FeatureIndexType.METADATA};
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * GeoPackage connection
+     */
+    private final GeoPackageConnection connection;
+
+    /**
+     * Constructor
+     *
+     * @param geoPackage GeoPackage
+     * @param featureDao feature DAO
+     */
+    public FeatureIndexJournal(GeoPackage geoPackage, FeatureDao featureDao) {
+        super(geoPackage);
+        this.featureDao = featureDao;
+        this.connection = featureDao.getDb();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackage getGeoPackage() {
+        return (GeoPackage) super.getGeoPackage();
+    }
+
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
+    /**
+     * Start journaling feature changes by creating the journal tables and
+     * triggers. Index types are not covered until indexed while started.
+     */
+    public void start() {
+
+        getOrCreate(EXTENSION_NAME, featureDao.getTableName(), null,
+                DEFINITION, ExtensionScopeType.READ_WRITE);
+
+        connection.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_NAME
+                + " (" + COLUMN_TABLE_NAME + " TEXT NOT NULL, "
+                + COLUMN_INDEX_TYPE + " TEXT NOT NULL, "
+                + COLUMN_ID + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_TABLE_NAME + ", "
+                + COLUMN_INDEX_TYPE + ", " + COLUMN_ID + "))");
+        connection.execSQL("CREATE TABLE IF NOT EXISTS " + COVERAGE_TABLE_NAME
+                + " (" + COLUMN_TABLE_NAME + " TEXT NOT NULL, "
+                + COLUMN_INDEX_TYPE + " TEXT NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_TABLE_NAME + ", "
+                + COLUMN_INDEX_TYPE + "))");
+
+        String table = CoreSQLUtils.quoteWrap(featureDao.getTableName());
+        String id = CoreSQLUtils.quoteWrap(featureDao.getPkColumnName());
+        String geometry = CoreSQLUtils
+                .quoteWrap(featureDao.getGeometryColumnName());
+
+        connection.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + getTriggerName("insert") + " AFTER INSERT ON " + table
+                + " BEGIN " + journalSQL("NEW." + id) + " END");
+        connection.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + getTriggerName("update") + " AFTER UPDATE OF " + geometry
+                + ", " + id + " ON " + table + " BEGIN "
+                + journalSQL("OLD." + id) + " " + journalSQL("NEW." + id)
+                + " END");
+        connection.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + getTriggerName("delete") + " AFTER DELETE ON " + table
+                + " BEGIN " + journalSQL("OLD." + id) + " END");
+    }
+
+    /**
+     * Stop journaling feature changes by dropping the triggers and clearing
+     * the table journal and coverage
+     */
+    public void stop() {
+        for (String trigger : new String[]{"insert", "update", "delete"}) {
+            connection.execSQL(
+                    "DROP TRIGGER IF EXISTS " + getTriggerName(trigger));
+        }
+        String[] whereArgs = new String[]{featureDao.getTableName()};
+        if (hasTable()) {
+            connection.delete(TABLE_NAME, COLUMN_TABLE_NAME + " = ?",
+                    whereArgs);
+        }
+        if (hasCoverageTable()) {
+            connection.delete(COVERAGE_TABLE_NAME, COLUMN_TABLE_NAME + " = ?",
+                    whereArgs);
+        }
+        try {
+            if (extensionsDao.isTableExists()) {
+                extensionsDao.deleteByExtension(EXTENSION_NAME,
+                        featureDao.getTableName());
+            }
+        } catch (SQLException e) {
+            throw new GeoPackageException(
+                    "Failed to delete Feature Index Journal extension. GeoPackage: "
+                            + getGeoPackage().getName() + ", Table: "
+                            + featureDao.getTableName(), e);
+        }
+    }
+
+    /**
+     * Determine if the journal is started for the feature table
+     *
+     * @return true if started
+     */
+    public boolean isStarted() {
+        return exists("trigger", "nga_fij_" + featureDao.getTableName() + "_insert");
+    }
+
+    /**
+     * Determine if the index type is covered by the journal, journaling all
+     * changes since the index type was last indexed
+     *
+     * @param type feature index type
+     * @return true if covered
+     */
+    public boolean isCovered(FeatureIndexType type) {
+        boolean covered = false;
+        if (isStarted() && hasCoverageTable()) {
+            Cursor cursor = connection.rawQuery("SELECT COUNT(*) FROM "
+                            + COVERAGE_TABLE_NAME + " WHERE " + whereSQL(),
+                    whereArgs(type));
+            try {
+                covered = cursor.moveToNext() && cursor.getInt(0) > 0;
+            } finally {
+                cursor.close();
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * Set the index type as covered by the journal, called after indexing
+     * the index type when the journal was started before indexing
+     *
+     * @param type feature index type
+     */
+    public void cover(FeatureIndexType type) {
+        if (isStarted() && hasCoverageTable()) {
+            connection.execSQL("INSERT OR IGNORE INTO " + COVERAGE_TABLE_NAME
+                    + " (" + COLUMN_TABLE_NAME + ", " + COLUMN_INDEX_TYPE
+                    + ") VALUES (" + DatabaseUtils.sqlEscapeString(
+                    featureDao.getTableName()) + ", '" + type.name() + "')");
+        }
+    }
+
+    /**
+     * Remove the journal coverage and journaled feature ids of the index
+     * type, called when the index type is deleted
+     *
+     * @param type feature index type
+     */
+    public void uncover(FeatureIndexType type) {
+        if (hasCoverageTable()) {
+            connection.delete(COVERAGE_TABLE_NAME, whereSQL(),
+                    whereArgs(type));
+        }
+        clear(type);
+    }
+
+    /**
+     * Get the journaled feature ids for the index type
+     *
+     * @param type feature index type
+     * @return ids in ascending order
+     */
+    public List<Long> getIds(FeatureIndexType type) {
+        List<Long> ids = new ArrayList<>();
+        if (hasTable()) {
+            Cursor cursor = connection.rawQuery("SELECT " + COLUMN_ID
+                            + " FROM " + TABLE_NAME + " WHERE " + whereSQL()
+                            + " ORDER BY " + COLUMN_ID,
+                    whereArgs(type));
+            try {
+                while (cursor.moveToNext()) {
+                    ids.add(cursor.getLong(0));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Count the journaled feature ids for the index type
+     *
+     * @param type feature index type
+     * @return count
+     */
+    public long count(FeatureIndexType type) {
+        long count = 0;
+        if (hasTable()) {
+            Cursor cursor = connection.rawQuery("SELECT COUNT(*) FROM "
+                    + TABLE_NAME + " WHERE " + whereSQL(), whereArgs(type));
+            try {
+                if (cursor.moveToNext()) {
+                    count = cursor.getLong(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Clear the journaled feature ids for the index type
+     *
+     * @param type feature index type
+     * @param ids  ids to clear
+     * @return cleared count
+     */
+    public int clear(FeatureIndexType type, Collection<Long> ids) {
+        int count = 0;
+        if (hasTable() && !ids.isEmpty()) {
+            Iterator<Long> iterator = ids.iterator();
+            while (iterator.hasNext()) {
+                StringBuilder in = new StringBuilder();
+                for (int i = 0; i < DELETE_CHUNK && iterator.hasNext(); i++) {
+                    if (i > 0) {
+                        in.append(", ");
+                    }
+                    in.append(iterator.next().longValue());
+                }
+                count += connection.delete(TABLE_NAME, whereSQL() + " AND "
+                        + COLUMN_ID + " IN (" + in + ")", whereArgs(type));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Clear all journaled feature ids for the index type
+     *
+     * @param type feature index type
+     * @return cleared count
+     */
+    public int clear(FeatureIndexType type) {
+        int count = 0;
+        if (hasTable()) {
+            count = connection.delete(TABLE_NAME, whereSQL(), whereArgs(type));
+        }
+        return count;
+    }
+
+    /**
+     * Build the trigger body SQL to journal the id value for each index type
+     *
+     * @param idValue id value expression
+     * @return SQL
+     */
+    private String journalSQL(String idValue) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("INSERT OR IGNORE INTO ").append(TABLE_NAME).append(" (")
+                .append(COLUMN_TABLE_NAME).append(", ")
+                .append(COLUMN_INDEX_TYPE).append(", ").append(COLUMN_ID)
+                .append(") VALUES ");
+        String table = DatabaseUtils.sqlEscapeString(featureDao.getTableName());
+        for (int i = 0; i < TYPES.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(").append(table).append(", '").append(TYPES[i].name())
+                    .append("', ").append(idValue).append(")");
+        }
+        sql.append(";");
+        return sql.toString();
+    }
+
+    /**
+     * Get the quoted trigger name
+     *
+     * @param trigger trigger type
+     * @return trigger name
+     */
+    private String getTriggerName(String trigger) {
+        return CoreSQLUtils.quoteWrap(
+                "nga_fij_" + featureDao.getTableName() + "_" + trigger);
+    }
+
+    /**
+     * Determine if the journal table exists
+     *
+     * @return true if exists
+     */
+    private boolean hasTable() {
+        return exists("table", TABLE_NAME);
+    }
+
+    /**
+     * Determine if the journal coverage table exists
+     *
+     * @return true if exists
+     */
+    private boolean hasCoverageTable() {
+        return exists("table", COVERAGE_TABLE_NAME);
+    }
+
+    /**
+     * Determine if a schema object exists
+     *
+     * @param type object type
+     * @param name object name
+     * @return true if exists
+     */
+    private boolean exists(String type, String name) {
+        Cursor cursor = connection.rawQuery(
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = ? AND name = ?",
+                new String[]{type, name});
+        try {
+            return cursor.moveToNext() && cursor.getInt(0) > 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Journal table and index type where clause
+     *
+     * @return where clause
+     */
+    private String whereSQL() {
+        return COLUMN_TABLE_NAME + " = ? AND " + COLUMN_INDEX_TYPE + " = ?";
+    }
+
+    /**
+     * Journal table and index type where arguments
+     *
+     * @param type feature index type
+     * @return where arguments
+     */
+    private String[] whereArgs(FeatureIndexType type) {
+        return new String[]{featureDao.getTableName(), type.name()};
+    }
+
+}
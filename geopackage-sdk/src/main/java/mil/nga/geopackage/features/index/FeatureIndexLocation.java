@@ -15,13 +15,42 @@ public class FeatureIndexLocation implements Iterable<FeatureIndexType> {
      */
     private final FeatureIndexManager manager;
 
+    /**
+     * Feature index plan, null to use the manager query order
+     */
+    private final FeatureIndexPlan plan;
+
     /**
      * Constructor
      *
      * @param manager feature index manager
      */
     public FeatureIndexLocation(FeatureIndexManager manager) {
+        this(manager, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param manager feature index manager
+     * @param plan    feature index plan ordering the types, null to use the
+     *                manager query order
+     * @since 6.7.5
+     */
+    public FeatureIndexLocation(FeatureIndexManager manager,
+                                FeatureIndexPlan plan) {
         this.manager = manager;
+        this.plan = plan;
+    }
+
+    /**
+     * Get the feature index plan
+     *
+     * @return plan or null
+     * @since 6.7.5
+     */
+    public FeatureIndexPlan getPlan() {
+        return plan;
     }
 
     /**
@@ -34,7 +63,9 @@ public class FeatureIndexLocation implements Iterable<FeatureIndexType> {
             /**
              * Feature index type query order
              */
-            private Iterator<FeatureIndexType> order = manager.getIndexLocationQueryOrder().iterator();
+            private Iterator<FeatureIndexType> order = plan != null
+                    ? plan.getTypes().iterator()
+                    : manager.getIndexLocationQueryOrder().iterator();
 
             /**
              * Current feature index type
@@ -3,6 +3,9 @@ package mil.nga.geopackage.features.index;
 import android.content.Context;
 import android.util.Log;
 
+import org.locationtech.proj4j.units.Units;
+
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -22,12 +25,17 @@ import mil.nga.geopackage.extension.rtree.RTreeIndexExtension;
 import mil.nga.geopackage.extension.rtree.RTreeIndexTableDao;
 import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureIdList;
 import mil.nga.geopackage.features.user.FeaturePaginatedCursor;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.ManualFeatureQuery;
+import mil.nga.geopackage.features.user.ManualFeatureQueryResults;
 import mil.nga.geopackage.io.GeoPackageProgress;
 import mil.nga.proj.Projection;
+import mil.nga.sf.Geometry;
 import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.Point;
+import mil.nga.sf.proj.GeometryTransform;
 
 /**
  * Feature Index Manager to manage indexing of feature geometries in both Android metadata and
@@ -60,11 +68,26 @@ public class FeatureIndexManager {
      */
     private final RTreeIndexTableDao rTreeIndexTableDao;
 
+    /**
+     * Feature Memory Index, for indexing in a static in memory R-tree
+     */
+    private final FeatureMemoryIndex memoryIndex;
+
     /**
      * Manual Feature Queries
      */
     private final ManualFeatureQuery manualFeatureQuery;
 
+    /**
+     * Feature change journal for delta indexing
+     */
+    private final FeatureIndexJournal journal;
+
+    /**
+     * Progress
+     */
+    private GeoPackageProgress progress;
+
     /**
      * Ordered set of index locations to check in order when checking if features are indexed
      * and when querying for features
@@ -87,6 +110,21 @@ public class FeatureIndexManager {
      */
     private boolean geodesic = false;
 
+    /**
+     * Cost based index selection planner
+     */
+    private final FeatureIndexPlanner planner;
+
+    /**
+     * Cost based index selection for envelope queries flag
+     */
+    private boolean queryPlanning = false;
+
+    /**
+     * Join based envelope queries flag for the GeoPackage and RTree indexes
+     */
+    private boolean joinQueries = false;
+
     /**
      * Constructor
      *
@@ -148,7 +186,10 @@ public class FeatureIndexManager {
         RTreeIndexExtension rTreeExtension = new RTreeIndexExtension(geoPackage,
                 geodesic);
         rTreeIndexTableDao = rTreeExtension.getTableDao(featureDao.copy());
+        memoryIndex = new FeatureMemoryIndex(featureDao.copy(), geodesic);
         manualFeatureQuery = new ManualFeatureQuery(featureDao.copy(), geodesic);
+        journal = new FeatureIndexJournal(geoPackage, featureDao);
+        planner = new FeatureIndexPlanner(this);
 
         // Set the default indexed check and query order
         indexLocationQueryOrder.add(FeatureIndexType.RTREE);
@@ -156,6 +197,7 @@ public class FeatureIndexManager {
         if (featureIndexer != null) {
             indexLocationQueryOrder.add(FeatureIndexType.METADATA);
         }
+        indexLocationQueryOrder.add(FeatureIndexType.MEMORY);
     }
 
     /**
@@ -166,6 +208,7 @@ public class FeatureIndexManager {
         if (featureIndexer != null) {
             featureIndexer.close();
         }
+        memoryIndex.clear();
         // rTreeIndexTableDao.close();
     }
 
@@ -207,6 +250,69 @@ public class FeatureIndexManager {
         return rTreeIndexTableDao;
     }
 
+    /**
+     * Get the feature memory index, used to index in a static in memory
+     * R-tree
+     *
+     * @return feature memory index
+     * @since 6.7.5
+     */
+    public FeatureMemoryIndex getMemoryIndex() {
+        return memoryIndex;
+    }
+
+    /**
+     * Get the file the {@link FeatureIndexType#MEMORY} index is saved to
+     *
+     * @return memory index file or null
+     * @since 6.7.5
+     */
+    public File getMemoryIndexFile() {
+        return memoryIndex.getFile();
+    }
+
+    /**
+     * Set the file to save the {@link FeatureIndexType#MEMORY} index to when
+     * indexed, and to memory map a previously saved index from when it still
+     * matches the feature table
+     *
+     * @param file memory index file or null to only index in memory
+     * @since 6.7.5
+     */
+    public void setMemoryIndexFile(File file) {
+        memoryIndex.setFile(file);
+    }
+
+    /**
+     * Get the feature change journal used for delta indexing
+     *
+     * @return feature index journal
+     * @since 6.7.5
+     */
+    public FeatureIndexJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Start journaling feature changes in the GeoPackage for delta indexing.
+     * The journal is started before indexing, index types indexed before the
+     * journal started are fully re-indexed by the next delta index.
+     *
+     * @since 6.7.5
+     */
+    public void startJournal() {
+        journal.start();
+    }
+
+    /**
+     * Stop journaling feature changes and clear the journal and its coverage
+     *
+     * @since 6.7.5
+     */
+    public void stopJournal() {
+        journal.stop();
+    }
+
     /**
      * Get the ordered set of ordered index query locations
      *
@@ -270,9 +376,103 @@ public class FeatureIndexManager {
             featureIndexer.setGeodesic(geodesic);
         }
         rTreeIndexTableDao.getRTreeIndexExtension().setGeodesic(geodesic);
+        memoryIndex.setGeodesic(geodesic);
         manualFeatureQuery.setGeodesic(geodesic);
     }
 
+    /**
+     * Get the cost based index selection planner
+     *
+     * @return planner
+     * @since 6.7.5
+     */
+    public FeatureIndexPlanner getPlanner() {
+        return planner;
+    }
+
+    /**
+     * Is cost based index selection enabled for envelope queries
+     *
+     * @return true if planning queries
+     * @since 6.7.5
+     */
+    public boolean isQueryPlanning() {
+        return queryPlanning;
+    }
+
+    /**
+     * Set cost based index selection for envelope queries. When enabled,
+     * envelope queries and counts use the cheapest up to date index type, or
+     * a manual scan, estimated from the table statistics instead of the
+     * first indexed type in the query order. Other queries continue to use
+     * the query order.
+     *
+     * @param queryPlanning true to plan queries
+     * @see #explain(GeometryEnvelope)
+     * @since 6.7.5
+     */
+    public void setQueryPlanning(boolean queryPlanning) {
+        this.queryPlanning = queryPlanning;
+    }
+
+    /**
+     * Get the number of geometry decoding threads used when indexing
+     *
+     * @return parallelism
+     * @since 6.7.5
+     */
+    public int getParallelism() {
+        return featureTableIndex.getParallelism();
+    }
+
+    /**
+     * Set the number of geometry decoding threads used when indexing the
+     * {@link FeatureIndexType#GEOPACKAGE} and
+     * {@link FeatureIndexType#METADATA} index types, 1 to index serially.
+     * Also sets the number of concurrent id range partition scans of manual
+     * envelope queries and counts, see
+     * {@link ManualFeatureQuery#setParallelism(int)}.
+     *
+     * @param parallelism number of decoding threads
+     * @since 6.7.5
+     */
+    public void setParallelism(int parallelism) {
+        featureTableIndex.setParallelism(parallelism);
+        if (featureIndexer != null) {
+            featureIndexer.setParallelism(parallelism);
+        }
+        manualFeatureQuery.setParallelism(parallelism);
+    }
+
+    /**
+     * Is join based envelope querying enabled for the
+     * {@link FeatureIndexType#GEOPACKAGE} and {@link FeatureIndexType#RTREE}
+     * index types
+     *
+     * @return true if join queries
+     * @since 6.7.5
+     */
+    public boolean isJoinQueries() {
+        return joinQueries;
+    }
+
+    /**
+     * Set join based envelope querying for the
+     * {@link FeatureIndexType#GEOPACKAGE} and {@link FeatureIndexType#RTREE}
+     * index types. When enabled, envelope queries and counts join the
+     * feature table to the index range query instead of filtering by an id
+     * IN subquery, letting SQLite drive combined spatial and attribute
+     * queries from the index. Individual queries may also select the join
+     * form through the queryFeaturesJoin and countFeaturesJoin methods of
+     * {@link FeatureTableIndex} and {@link RTreeIndexTableDao}.
+     *
+     * @param joinQueries true for join queries
+     * @since 6.7.5
+     */
+    public void setJoinQueries(boolean joinQueries) {
+        this.joinQueries = joinQueries;
+    }
+
     /**
      * Prioritize the query location order.  All types are placed at the front of the query order
      * in the order they are given. Omitting a location leaves it at it's current priority location.
@@ -347,11 +547,13 @@ public class FeatureIndexManager {
      * @param progress GeoPackage progress
      */
     public void setProgress(GeoPackageProgress progress) {
+        this.progress = progress;
         featureTableIndex.setProgress(progress);
         if (featureIndexer != null) {
             featureIndexer.setProgress(progress);
         }
         rTreeIndexTableDao.setProgress(progress);
+        memoryIndex.setProgress(progress);
     }
 
     /**
@@ -428,23 +630,129 @@ public class FeatureIndexManager {
             throw new GeoPackageException("FeatureIndexType is required to index");
         }
         int count = 0;
+        boolean journaled;
         switch (type) {
             case GEOPACKAGE:
-                count = featureTableIndex.index(force);
+                journaled = journal.isStarted();
+                if (force || !featureTableIndex.isIndexed()) {
+                    count = featureTableIndex.index(true);
+                    journalIndexed(type, journaled);
+                }
                 break;
             case METADATA:
-                count = getRequiredFeatureIndexer().index(force);
+                journaled = journal.isStarted();
+                FeatureIndexer indexer = getRequiredFeatureIndexer();
+                if (force || !indexer.isIndexed()) {
+                    count = indexer.index(true);
+                    journalIndexed(type, journaled);
+                }
                 break;
             case RTREE:
                 boolean rTreeIndexed = rTreeIndexTableDao.has();
                 if (!rTreeIndexed || force) {
+                    // Attach the RTree maintainer to the feature DAO
+                    RTreeIndexExtension rTreeExtension = rTreeIndexTableDao
+                            .getRTreeIndexExtension();
                     if (rTreeIndexed) {
-                        rTreeIndexTableDao.delete();
+                        rTreeExtension.delete(featureDao);
                     }
-                    rTreeIndexTableDao.create();
+                    rTreeExtension.create(featureDao);
                     count = rTreeIndexTableDao.count();
                 }
                 break;
+            case MEMORY:
+                count = memoryIndex.index(force);
+                break;
+            default:
+                throw new GeoPackageException("Unsupported FeatureIndexType: "
+                        + type);
+        }
+        planner.clearStatistics();
+        return count;
+    }
+
+    /**
+     * Incrementally index the feature table, using the set index location.
+     * Only features inserted beyond the last indexed id and features
+     * journaled as changed since the last index are re-indexed. Index types
+     * not covered by the journal are fully re-indexed.
+     *
+     * @return count of indexed features
+     * @see #startJournal()
+     * @since 6.7.5
+     */
+    public int indexDelta() {
+        return indexDelta(verifyIndexLocation());
+    }
+
+    /**
+     * Incrementally index the feature tables for the index types
+     *
+     * @param types feature index types
+     * @return largest count of indexed features
+     * @see #startJournal()
+     * @since 6.7.5
+     */
+    public int indexDelta(List<FeatureIndexType> types) {
+        int count = 0;
+        for (FeatureIndexType type : types) {
+            int typeCount = indexDelta(type);
+            count = Math.max(count, typeCount);
+        }
+        return count;
+    }
+
+    /**
+     * Incrementally index the feature table. Only features inserted beyond
+     * the last indexed id and features journaled as changed since the last
+     * index are re-indexed. Tables not yet indexed and index types not
+     * covered by the journal, not indexed since the journal was started, are
+     * fully indexed. RTree indexes are maintained by the feature DAO writes
+     * and are only created when missing.
+     *
+     * @param type index location type
+     * @return count of indexed features
+     * @see #startJournal()
+     * @since 6.7.5
+     */
+    public int indexDelta(FeatureIndexType type) {
+        if (type == null) {
+            throw new GeoPackageException("FeatureIndexType is required to index");
+        }
+        int count = 0;
+        List<Long> changedIds;
+        switch (type) {
+            case GEOPACKAGE:
+                if (!journal.isCovered(type)) {
+                    // Changes before the journal started were not journaled
+                    count = index(type, true);
+                    break;
+                }
+                changedIds = journal.getIds(type);
+                count = featureTableIndex.indexDelta(changedIds);
+                if (progress == null || progress.isActive()) {
+                    journal.clear(type, changedIds);
+                }
+                break;
+            case METADATA:
+                if (!journal.isCovered(type)) {
+                    // Changes before the journal started were not journaled
+                    count = index(type, true);
+                    break;
+                }
+                changedIds = journal.getIds(type);
+                count = getRequiredFeatureIndexer().indexDelta(changedIds);
+                if (progress == null || progress.isActive()) {
+                    journal.clear(type, changedIds);
+                }
+                break;
+            case RTREE:
+                count = index(type, false);
+                break;
+            case MEMORY:
+                // Static index, rebuilt when the table has changed
+                count = index(type, false);
+                break;
             default:
                 throw new GeoPackageException("Unsupported FeatureIndexType: "
                         + type);
@@ -505,9 +813,13 @@ public class FeatureIndexManager {
                 indexed = getRequiredFeatureIndexer().index(row);
                 break;
             case RTREE:
-                // Updated by triggers, ignore for RTree
+                // Updated by the feature DAO RTree maintainer, ignore for RTree
                 indexed = true;
                 break;
+            case MEMORY:
+                // Static index, cleared to be rebuilt
+                memoryIndex.deleteIndex();
+                break;
             default:
                 throw new GeoPackageException("Unsupported FeatureIndexType: " + type);
         }
@@ -564,17 +876,24 @@ public class FeatureIndexManager {
         switch (type) {
             case GEOPACKAGE:
                 deleted = featureTableIndex.deleteIndex();
+                journal.uncover(type);
                 break;
             case METADATA:
                 deleted = getRequiredFeatureIndexer().deleteIndex();
+                journal.uncover(type);
                 break;
             case RTREE:
-                rTreeIndexTableDao.delete();
+                // Detach the RTree maintainer from the feature DAO
+                rTreeIndexTableDao.getRTreeIndexExtension().delete(featureDao);
                 deleted = true;
                 break;
+            case MEMORY:
+                deleted = memoryIndex.deleteIndex();
+                break;
             default:
                 throw new GeoPackageException("Unsupported FeatureIndexType: " + type);
         }
+        planner.clearStatistics();
         return deleted;
     }
 
@@ -665,9 +984,13 @@ public class FeatureIndexManager {
                 deleted = getRequiredFeatureIndexer().deleteIndex(geomId);
                 break;
             case RTREE:
-                // Updated by triggers, ignore for RTree
+                // Updated by the feature DAO RTree maintainer, ignore for RTree
                 deleted = true;
                 break;
+            case MEMORY:
+                // Static index, cleared to be rebuilt
+                deleted = memoryIndex.deleteIndex();
+                break;
             default:
                 throw new GeoPackageException("Unsupported FeatureIndexType: " + type);
         }
@@ -737,6 +1060,9 @@ public class FeatureIndexManager {
                 case RTREE:
                     indexed = rTreeIndexTableDao.has();
                     break;
+                case MEMORY:
+                    indexed = memoryIndex.isIndexed();
+                    break;
                 default:
                     throw new GeoPackageException("Unsupported FeatureIndexType: " + type);
             }
@@ -796,10 +1122,13 @@ public class FeatureIndexManager {
                     break;
                 case RTREE:
                     if (rTreeIndexTableDao.has()) {
-                        // Updated by triggers, assume up to date
+                        // Updated by the feature DAO RTree maintainer, assume up to date
                         lastIndexed = new Date();
                     }
                     break;
+                case MEMORY:
+                    lastIndexed = memoryIndex.getLastIndexed();
+                    break;
                 default:
                     throw new GeoPackageException("Unsupported FeatureIndexType: " + type);
             }
@@ -817,6 +1146,119 @@ public class FeatureIndexManager {
         return new FeatureIndexLocation(this);
     }
 
+    /**
+     * Get a feature index location to iterate over indexed types for an
+     * envelope query, ordered by the cost based planner when query planning
+     * is enabled
+     *
+     * @param envelope query envelope
+     * @param count    true for a count query
+     * @param manual   true if a manual scan can be selected
+     * @return feature index location, empty when a manual scan is selected
+     */
+    private FeatureIndexLocation getLocation(GeometryEnvelope envelope,
+                                             boolean count, boolean manual) {
+        FeatureIndexLocation location;
+        if (queryPlanning) {
+            location = new FeatureIndexLocation(this,
+                    planner.plan(envelope, count, manual));
+        } else {
+            location = getLocation();
+        }
+        return location;
+    }
+
+    /**
+     * Record the latency of a planned count query
+     *
+     * @param location feature index location
+     * @param type     counted type, {@link FeatureIndexType#NONE} for a
+     *                 manual scan
+     * @param start    start time in nanoseconds
+     */
+    private void recordLatency(FeatureIndexLocation location,
+                               FeatureIndexType type, long start) {
+        FeatureIndexPlan plan = location.getPlan();
+        if (plan != null) {
+            planner.record(plan, type, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Record the latency of a planned feature row query when the results are
+     * closed
+     *
+     * @param location feature index location
+     * @param type     queried type, {@link FeatureIndexType#NONE} for a
+     *                 manual scan
+     * @param start    start time in nanoseconds
+     * @param results  query results
+     * @return results recording the latency on close
+     */
+    private FeatureIndexResults recordLatency(FeatureIndexLocation location,
+                                              FeatureIndexType type, long start,
+                                              FeatureIndexResults results) {
+        FeatureIndexPlan plan = location.getPlan();
+        if (plan != null) {
+            results = FeatureIndexPlannedResults.create(results, planner,
+                    plan, type, start);
+        }
+        return results;
+    }
+
+    /**
+     * Explain the index selection of an envelope query, as planned from the
+     * table statistics whether or not query planning is enabled
+     *
+     * @param envelope geometry envelope
+     * @return feature index plan
+     * @since 6.7.5
+     */
+    public FeatureIndexPlan explain(GeometryEnvelope envelope) {
+        return planner.plan(envelope, false, true);
+    }
+
+    /**
+     * Explain the index selection of an envelope count, as planned from the
+     * table statistics whether or not query planning is enabled
+     *
+     * @param envelope geometry envelope
+     * @return feature index plan
+     * @since 6.7.5
+     */
+    public FeatureIndexPlan explainCount(GeometryEnvelope envelope) {
+        return planner.plan(envelope, true, true);
+    }
+
+    /**
+     * Explain the index selection of a bounding box query, as planned from
+     * the table statistics whether or not query planning is enabled
+     *
+     * @param boundingBox bounding box
+     * @return feature index plan
+     * @since 6.7.5
+     */
+    public FeatureIndexPlan explain(BoundingBox boundingBox) {
+        return explain(boundingBox.buildEnvelope());
+    }
+
+    /**
+     * Explain the index selection of a bounding box query in the provided
+     * projection, as planned from the table statistics whether or not query
+     * planning is enabled
+     *
+     * @param boundingBox bounding box
+     * @param projection  projection
+     * @return feature index plan
+     * @since 6.7.5
+     */
+    public FeatureIndexPlan explain(BoundingBox boundingBox,
+                                    Projection projection) {
+        BoundingBox featureBoundingBox = featureDao
+                .projectBoundingBox(boundingBox, projection);
+        return explain(featureBoundingBox);
+    }
+
     /**
      * Get the first ordered indexed type
      *
@@ -848,6 +1290,19 @@ public class FeatureIndexManager {
         return featureDao.getPkColumnName();
     }
 
+    /**
+     * Cover the index type by the journal after indexing when the journal was
+     * started before indexing and the indexing completed
+     *
+     * @param type      feature index type
+     * @param journaled true if the journal was started before indexing
+     */
+    private void journalIndexed(FeatureIndexType type, boolean journaled) {
+        if (journaled && (progress == null || progress.isActive())) {
+            journal.cover(type);
+        }
+    }
+
     /**
      * Validate and get the feature indexer for required operations
      *
@@ -920,6 +1375,11 @@ public class FeatureIndexManager {
                                 .queryFeatures(distinct, columns);
                         results = new FeatureIndexFeatureResults(rTreeCursor);
                         break;
+                    case MEMORY:
+                        FeatureCursor memoryCursor = memoryIndex
+                                .queryFeatures(distinct, columns);
+                        results = new FeatureIndexFeatureResults(memoryCursor);
+                        break;
                     default:
                         throw new GeoPackageException("Unsupported feature index type: " + type);
                 }
@@ -976,6 +1436,10 @@ public class FeatureIndexManager {
                         count = (long) rTreeIndexTableDao.countFeatures(distinct,
                                 column);
                         break;
+                    case MEMORY:
+                        count = (long) memoryIndex.countFeatures(distinct,
+                                column);
+                        break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
@@ -1015,6 +1479,9 @@ public class FeatureIndexManager {
                     case RTREE:
                         count = (long) rTreeIndexTableDao.count();
                         break;
+                    case MEMORY:
+                        count = memoryIndex.count();
+                        break;
                     default:
                         throw new GeoPackageException("Unsupported feature index type: " + type);
                 }
@@ -1285,6 +1752,11 @@ public class FeatureIndexManager {
                                 .queryFeatures(distinct, columns, where, whereArgs);
                         results = new FeatureIndexFeatureResults(rTreeCursor);
                         break;
+                    case MEMORY:
+                        FeatureCursor memoryCursor = memoryIndex
+                                .queryFeatures(distinct, columns, where, whereArgs);
+                        results = new FeatureIndexFeatureResults(memoryCursor);
+                        break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
@@ -1360,6 +1832,10 @@ public class FeatureIndexManager {
                         count = (long) rTreeIndexTableDao.countFeatures(distinct, column, where,
                                 whereArgs);
                         break;
+                    case MEMORY:
+                        count = (long) memoryIndex.countFeatures(distinct, column, where,
+                                whereArgs);
+                        break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
@@ -1400,6 +1876,9 @@ public class FeatureIndexManager {
                     case RTREE:
                         bounds = rTreeIndexTableDao.getBoundingBox();
                         break;
+                    case MEMORY:
+                        bounds = memoryIndex.getBoundingBox();
+                        break;
                     default:
                         throw new GeoPackageException("Unsupported feature index type: " + type);
                 }
@@ -1441,6 +1920,9 @@ public class FeatureIndexManager {
                     case RTREE:
                         bounds = rTreeIndexTableDao.getBoundingBox(projection);
                         break;
+                    case MEMORY:
+                        bounds = memoryIndex.getBoundingBox(projection);
+                        break;
                     default:
                         throw new GeoPackageException("Unsupported feature index type: " + type);
                 }
@@ -1461,6 +1943,199 @@ public class FeatureIndexManager {
         return bounds;
     }
 
+    /**
+     * Find the k nearest features to the point, in the feature projection.
+     * The memory index is searched best first when indexed, otherwise
+     * envelope queries around the point are expanded until k features are
+     * found within the search distance. Distances are refined from the
+     * decoded geometries. When {@link #isGeodesic()} and the feature
+     * projection is in degrees, distances are great circle meters.
+     *
+     * @param point point in the feature projection
+     * @param k     number of nearest features
+     * @return nearest features ordered by distance, fewer than k when the
+     * table has fewer features with geometries
+     * @since 6.7.5
+     */
+    public List<NearestFeature> nearest(Point point, int k) {
+        return nearest(point, k, null);
+    }
+
+    /**
+     * Find the k nearest features to the point in the provided projection.
+     * The memory index is searched best first when indexed, otherwise
+     * envelope queries around the point are expanded until k features are
+     * found within the search distance. Distances are refined from the
+     * decoded geometries. When {@link #isGeodesic()} and the feature
+     * projection is in degrees, distances are great circle meters, otherwise
+     * in the feature projection units.
+     *
+     * @param point      point
+     * @param k          number of nearest features
+     * @param projection point projection, null for the feature projection
+     * @return nearest features ordered by distance, fewer than k when the
+     * table has fewer features with geometries
+     * @since 6.7.5
+     */
+    public List<NearestFeature> nearest(Point point, int k,
+                                        Projection projection) {
+
+        List<NearestFeature> nearest = new ArrayList<>();
+        if (k < 1) {
+            return nearest;
+        }
+
+        Projection featureProjection = featureDao.getProjection();
+        if (projection != null && !projection.equals(featureProjection)) {
+            GeometryTransform transform = GeometryTransform.create(projection,
+                    featureProjection);
+            point = transform.transform(point);
+        }
+
+        boolean geodesicDistance = geodesic
+                && featureProjection.isUnit(Units.DEGREES);
+
+        boolean searched = false;
+        if (indexLocationQueryOrder.contains(FeatureIndexType.MEMORY)
+                && isIndexed(FeatureIndexType.MEMORY)) {
+            try {
+                PackedHilbertRTree tree = memoryIndex.getTree();
+                if (tree != null) {
+                    nearest = new FeatureIndexNearestSearch(this, point, k,
+                            geodesicDistance).searchMemory(tree);
+                    searched = true;
+                }
+            } catch (Exception e) {
+                if (continueOnError) {
+                    Log.e(FeatureIndexManager.class.getSimpleName(),
+                            "Failed to search nearest from feature index: "
+                                    + FeatureIndexType.MEMORY, e);
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        if (!searched) {
+            FeatureIndexNearestSearch search = new FeatureIndexNearestSearch(
+                    this, point, k, geodesicDistance);
+            if (isIndexed()) {
+                nearest = search.searchExpanding();
+            } else {
+                nearest = search.searchScan();
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Query for the features satisfying the spatial predicate against the
+     * geometry, in the feature projection. Envelope overlap candidates from
+     * the index are refined by exact planar predicate tests against the
+     * prepared geometry.
+     *
+     * @param geometry  query geometry in the feature projection
+     * @param predicate spatial predicate of the feature geometry to the
+     *                  query geometry
+     * @return feature index results, close when done
+     * @since 6.7.5
+     */
+    public FeatureIndexResults query(Geometry geometry,
+                                     SpatialPredicate predicate) {
+        return query(geometry, predicate, null);
+    }
+
+    /**
+     * Query for the features satisfying the spatial predicate against the
+     * geometry in the provided projection. Envelope overlap candidates from
+     * the index are refined by exact planar predicate tests against the
+     * prepared geometry.
+     *
+     * @param geometry   query geometry
+     * @param predicate  spatial predicate of the feature geometry to the
+     *                   query geometry
+     * @param projection geometry projection, null for the feature projection
+     * @return feature index results, close when done
+     * @since 6.7.5
+     */
+    public FeatureIndexResults query(Geometry geometry,
+                                     SpatialPredicate predicate, Projection projection) {
+        return query(featureDao.getColumnNames(), geometry, predicate,
+                projection, null, null);
+    }
+
+    /**
+     * Query for the features satisfying the spatial predicate against the
+     * geometry in the provided projection. Envelope overlap candidates from
+     * the index are refined by exact planar predicate tests against the
+     * prepared geometry, which is indexed once and shared across the
+     * candidates. Candidates are refined concurrently when
+     * {@link #getParallelism()} is greater than 1.
+     *
+     * @param columns    columns
+     * @param geometry   query geometry
+     * @param predicate  spatial predicate of the feature geometry to the
+     *                   query geometry
+     * @param projection geometry projection, null for the feature projection
+     * @param where      where clause
+     * @param whereArgs  where arguments
+     * @return feature index results, close when done
+     * @since 6.7.5
+     */
+    public FeatureIndexResults query(String[] columns, Geometry geometry,
+                                     SpatialPredicate predicate, Projection projection, String where,
+                                     String[] whereArgs) {
+
+        Projection featureProjection = featureDao.getProjection();
+        if (projection != null && !projection.equals(featureProjection)) {
+            GeometryTransform transform = GeometryTransform.create(projection,
+                    featureProjection);
+            geometry = transform.transform(geometry);
+        }
+
+        PreparedGeometry prepared = new PreparedGeometry(geometry);
+
+        FeatureIdList ids;
+        GeometryEnvelope envelope = prepared.getEnvelope();
+        if (envelope != null) {
+            FeatureIndexResults candidates = query(
+                    new String[]{featureDao.getPkColumnName()}, envelope,
+                    where, whereArgs);
+            try {
+                ids = new FeatureIndexRefiner(featureDao, prepared, predicate,
+                        getParallelism()).refine(candidates.ids());
+            } finally {
+                candidates.close();
+            }
+        } else {
+            ids = new FeatureIdList();
+        }
+
+        return new ManualFeatureQueryResults(featureDao, columns, ids);
+    }
+
+    /**
+     * Count the features satisfying the spatial predicate against the
+     * geometry, in the feature projection
+     *
+     * @param geometry  query geometry in the feature projection
+     * @param predicate spatial predicate of the feature geometry to the
+     *                  query geometry
+     * @return count
+     * @since 6.7.5
+     */
+    public long count(Geometry geometry, SpatialPredicate predicate) {
+        FeatureIndexResults results = query(
+                new String[]{featureDao.getPkColumnName()}, geometry,
+                predicate, null, null, null);
+        try {
+            return results.count();
+        } finally {
+            results.close();
+        }
+    }
+
     /**
      * Query for feature index results within the bounding box, projected
      * correctly
@@ -1961,7 +2636,11 @@ public class FeatureIndexManager {
     public long count(boolean distinct, String column,
                       GeometryEnvelope envelope) {
         Long count = null;
-        for (FeatureIndexType type : getLocation()) {
+        FeatureIndexType countType = FeatureIndexType.NONE;
+        FeatureIndexLocation location = getLocation(envelope, true,
+                column == null);
+        long start = System.nanoTime();
+        for (FeatureIndexType type : location) {
             try {
                 switch (type) {
                     case GEOPACKAGE:
@@ -1988,9 +2667,18 @@ public class FeatureIndexManager {
                             count = (long) rTreeIndexTableDao.count(envelope);
                         }
                         break;
+                    case MEMORY:
+                        if (column != null) {
+                            count = (long) memoryIndex.countFeatures(distinct,
+                                    column, envelope);
+                        } else {
+                            count = memoryIndex.count(envelope);
+                        }
+                        break;
                     default:
                         throw new GeoPackageException("Unsupported feature index type: " + type);
                 }
+                countType = type;
                 break;
             } catch (Exception e) {
                 if (continueOnError) {
@@ -2010,6 +2698,7 @@ public class FeatureIndexManager {
                 count = manualFeatureQuery.count(envelope);
             }
         }
+        recordLatency(location, countType, start);
         return count;
     }
 
@@ -2271,12 +2960,21 @@ public class FeatureIndexManager {
     public FeatureIndexResults query(boolean distinct, String[] columns,
                                      GeometryEnvelope envelope, String where, String[] whereArgs) {
         FeatureIndexResults results = null;
-        for (FeatureIndexType type : getLocation()) {
+        FeatureIndexType queryType = FeatureIndexType.NONE;
+        FeatureIndexLocation location = getLocation(envelope, false, true);
+        long start = System.nanoTime();
+        for (FeatureIndexType type : location) {
             try {
                 switch (type) {
                     case GEOPACKAGE:
-                        FeatureCursor geoPackageCursor = featureTableIndex
-                                .queryFeatures(distinct, columns, envelope, where, whereArgs);
+                        FeatureCursor geoPackageCursor;
+                        if (joinQueries) {
+                            geoPackageCursor = featureTableIndex.queryFeaturesJoin(
+                                    distinct, columns, envelope, where, whereArgs);
+                        } else {
+                            geoPackageCursor = featureTableIndex.queryFeatures(
+                                    distinct, columns, envelope, where, whereArgs);
+                        }
                         results = new FeatureIndexFeatureResults(
                                 geoPackageCursor);
                         break;
@@ -2286,14 +2984,25 @@ public class FeatureIndexManager {
                         results = new FeatureIndexFeatureResults(geometryMetadataCursor);
                         break;
                     case RTREE:
-                        FeatureCursor rTreeCursor = rTreeIndexTableDao
-                                .queryFeatures(distinct, columns, envelope, where, whereArgs);
+                        FeatureCursor rTreeCursor;
+                        if (joinQueries) {
+                            rTreeCursor = rTreeIndexTableDao.queryFeaturesJoin(
+                                    distinct, columns, envelope, where, whereArgs);
+                        } else {
+                            rTreeCursor = rTreeIndexTableDao.queryFeatures(
+                                    distinct, columns, envelope, where, whereArgs);
+                        }
                         results = new FeatureIndexFeatureResults(rTreeCursor);
                         break;
+                    case MEMORY:
+                        results = memoryIndex.queryFeatures(distinct, columns,
+                                envelope, where, whereArgs);
+                        break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
                 }
+                queryType = type;
                 break;
             } catch (Exception e) {
                 if (continueOnError) {
@@ -2305,9 +3014,10 @@ public class FeatureIndexManager {
             }
         }
         if (results == null) {
-            results = manualFeatureQuery.query(distinct, columns, envelope, where, whereArgs);
+            results = manualFeatureQuery.queryStreaming(distinct, columns,
+                    envelope, where, whereArgs);
         }
-        return results;
+        return recordLatency(location, queryType, start, results);
     }
 
     /**
@@ -2353,25 +3063,44 @@ public class FeatureIndexManager {
     public long count(boolean distinct, String column,
                       GeometryEnvelope envelope, String where, String[] whereArgs) {
         Long count = null;
-        for (FeatureIndexType type : getLocation()) {
+        FeatureIndexType countType = FeatureIndexType.NONE;
+        FeatureIndexLocation location = getLocation(envelope, true,
+                column == null);
+        long start = System.nanoTime();
+        for (FeatureIndexType type : location) {
             try {
                 switch (type) {
                     case GEOPACKAGE:
-                        count = (long) featureTableIndex.countFeatures(distinct, column, envelope,
-                                where, whereArgs);
+                        if (joinQueries) {
+                            count = (long) featureTableIndex.countFeaturesJoin(distinct,
+                                    column, envelope, where, whereArgs);
+                        } else {
+                            count = (long) featureTableIndex.countFeatures(distinct, column,
+                                    envelope, where, whereArgs);
+                        }
                         break;
                     case METADATA:
                         count = (long) featureIndexer.countFeatures(distinct, column, envelope,
                                 where, whereArgs);
                         break;
                     case RTREE:
-                        count = (long) rTreeIndexTableDao.countFeatures(distinct, column, envelope,
+                        if (joinQueries) {
+                            count = (long) rTreeIndexTableDao.countFeaturesJoin(distinct,
+                                    column, envelope, where, whereArgs);
+                        } else {
+                            count = (long) rTreeIndexTableDao.countFeatures(distinct, column,
+                                    envelope, where, whereArgs);
+                        }
+                        break;
+                    case MEMORY:
+                        count = (long) memoryIndex.countFeatures(distinct, column, envelope,
                                 where, whereArgs);
                         break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
                 }
+                countType = type;
                 break;
             } catch (Exception e) {
                 if (continueOnError) {
@@ -2391,6 +3120,7 @@ public class FeatureIndexManager {
                 count = manualFeatureQuery.count(envelope, where, whereArgs);
             }
         }
+        recordLatency(location, countType, start);
         return count;
     }
 
@@ -3173,6 +3903,12 @@ public class FeatureIndexManager {
                                         limit, offset);
                         results = new FeatureIndexFeatureResults(rTreeCursor);
                         break;
+                    case MEMORY:
+                        FeatureCursor memoryCursor = memoryIndex
+                                .queryFeaturesForChunk(distinct, columns, orderBy,
+                                        limit, offset);
+                        results = new FeatureIndexFeatureResults(memoryCursor);
+                        break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
@@ -4028,6 +4764,12 @@ public class FeatureIndexManager {
                                         whereArgs, orderBy, limit, offset);
                         results = new FeatureIndexFeatureResults(rTreeCursor);
                         break;
+                    case MEMORY:
+                        FeatureCursor memoryCursor = memoryIndex
+                                .queryFeaturesForChunk(distinct, columns, where,
+                                        whereArgs, orderBy, limit, offset);
+                        results = new FeatureIndexFeatureResults(memoryCursor);
+                        break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
@@ -6419,7 +7161,10 @@ public class FeatureIndexManager {
                                              GeometryEnvelope envelope, String where, String[] whereArgs,
                                              String orderBy, int limit, long offset) {
         FeatureIndexResults results = null;
-        for (FeatureIndexType type : getLocation()) {
+        FeatureIndexType queryType = FeatureIndexType.NONE;
+        FeatureIndexLocation location = getLocation(envelope, false, true);
+        long start = System.nanoTime();
+        for (FeatureIndexType type : location) {
             try {
                 switch (type) {
                     case GEOPACKAGE:
@@ -6441,10 +7186,16 @@ public class FeatureIndexManager {
                                         where, whereArgs, orderBy, limit, offset);
                         results = new FeatureIndexFeatureResults(rTreeCursor);
                         break;
+                    case MEMORY:
+                        results = memoryIndex.queryFeaturesForChunk(distinct,
+                                columns, envelope, where, whereArgs, orderBy, limit,
+                                offset);
+                        break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
                 }
+                queryType = type;
                 break;
             } catch (Exception e) {
                 if (continueOnError) {
@@ -6459,7 +7210,7 @@ public class FeatureIndexManager {
             results = manualFeatureQuery.queryForChunk(distinct, columns,
                     envelope, where, whereArgs, orderBy, limit, offset);
         }
-        return results;
+        return recordLatency(location, queryType, start, results);
     }
 
     /**
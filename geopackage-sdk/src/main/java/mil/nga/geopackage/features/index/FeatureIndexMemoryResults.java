@@ -0,0 +1,167 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureIdRowIterator;
+import mil.nga.geopackage.features.user.FeatureRow;
+
+/**
+ * Feature Index Memory Results, reads the feature rows in id batches from
+ * the primitive id results of a {@link FeatureMemoryIndex} query
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureIndexMemoryResults implements FeatureIndexResults {
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Feature columns
+     */
+    private final String[] columns;
+
+    /**
+     * Feature ids
+     */
+    private final long[] featureIds;
+
+    /**
+     * Number of feature rows read per query when iterating
+     */
+    private int batchSize = FeatureIdRowIterator.DEFAULT_BATCH_SIZE;
+
+    /**
+     * Constructor
+     *
+     * @param featureDao feature DAO
+     * @param columns    columns
+     * @param featureIds feature ids
+     */
+    public FeatureIndexMemoryResults(FeatureDao featureDao, String[] columns,
+                                     long[] featureIds) {
+        this.featureDao = featureDao;
+        this.columns = columns != null ? columns : featureDao.getColumnNames();
+        this.featureIds = featureIds;
+    }
+
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
+    /**
+     * Get the feature columns
+     *
+     * @return columns
+     */
+    public String[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the feature ids
+     *
+     * @return feature ids
+     */
+    public long[] getFeatureIds() {
+        return featureIds;
+    }
+
+    /**
+     * Get the number of feature rows read per query when iterating
+     *
+     * @return batch size
+     * @since 6.7.5
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the number of feature rows read per query when iterating
+     *
+     * @param batchSize batch size
+     * @since 6.7.5
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Feature rows are read in batches of {@link #getBatchSize()} ids
+     */
+    @Override
+    public Iterator<FeatureRow> iterator() {
+        return new FeatureIdRowIterator(featureDao, columns,
+                ids().iterator(), batchSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long count() {
+        return featureIds.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<Long> ids() {
+
+        return new Iterable<Long>() {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public Iterator<Long> iterator() {
+                return new Iterator<Long>() {
+
+                    int index = 0;
+
+                    /**
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public boolean hasNext() {
+                        return index < featureIds.length;
+                    }
+
+                    /**
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public Long next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return featureIds[index++];
+                    }
+                };
+            }
+        };
+    }
+
+}
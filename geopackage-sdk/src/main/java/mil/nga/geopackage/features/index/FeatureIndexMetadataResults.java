@@ -5,6 +5,7 @@ import android.database.Cursor;
 import java.util.Iterator;
 
 import mil.nga.geopackage.db.FeatureIndexer;
+import mil.nga.geopackage.features.user.FeatureIdRowIterator;
 import mil.nga.geopackage.features.user.FeatureRow;
 
 /**
@@ -31,6 +32,11 @@ public class FeatureIndexMetadataResults implements FeatureIndexResults {
      */
     private boolean idOnly = false;
 
+    /**
+     * Number of feature rows read per query when iterating
+     */
+    private int batchSize = FeatureIdRowIterator.DEFAULT_BATCH_SIZE;
+
     /**
      * Constructor
      *
@@ -43,25 +49,35 @@ public class FeatureIndexMetadataResults implements FeatureIndexResults {
         this.idOnly = geometryMetadata.getColumnCount() == 1;
     }
 
+    /**
+     * Get the number of feature rows read per query when iterating
+     *
+     * @return batch size
+     * @since 6.7.5
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the number of feature rows read per query when iterating
+     *
+     * @param batchSize batch size
+     * @since 6.7.5
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
     /**
      * {@inheritDoc}
+     * <p>
+     * Feature rows are read in batches of {@link #getBatchSize()} ids
      */
     @Override
     public Iterator<FeatureRow> iterator() {
-        return new Iterator<FeatureRow>() {
-
-            @Override
-            public boolean hasNext() {
-                return geometryMetadata.getCount() > 0 && !geometryMetadata.isLast();
-            }
-
-            @Override
-            public FeatureRow next() {
-                geometryMetadata.moveToNext();
-                FeatureRow featureRow = featureIndexer.getFeatureRow(geometryMetadata);
-                return featureRow;
-            }
-        };
+        return new FeatureIdRowIterator(featureIndexer.getFeatureDao(),
+                null, ids().iterator(), batchSize);
     }
 
     /**
@@ -0,0 +1,345 @@
+package mil.nga.geopackage.features.index;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.Point;
+
+/**
+ * Feature Index Nearest Search, finds the k nearest features to a point.
+ * Candidates are found by a best first traversal of the memory index, by
+ * incrementally expanding envelope queries against the other indexes, or by
+ * a single table scan when not indexed. Candidate distances are refined
+ * from the decoded geometries.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+class FeatureIndexNearestSearch {
+
+    /**
+     * Feature index manager
+     */
+    private final FeatureIndexManager manager;
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Search point in the feature projection
+     */
+    private final Point point;
+
+    /**
+     * Number of nearest features
+     */
+    private final int k;
+
+    /**
+     * Geometry distance calculator
+     */
+    private final GeometryDistance distance;
+
+    /**
+     * Id and geometry columns
+     */
+    private final String[] columns;
+
+    /**
+     * Nearest candidate ids, ordered by distance
+     */
+    private final long[] ids;
+
+    /**
+     * Nearest candidate distances, ascending
+     */
+    private final double[] distances;
+
+    /**
+     * Number of nearest candidates
+     */
+    private int size = 0;
+
+    /**
+     * Constructor
+     *
+     * @param manager  feature index manager
+     * @param point    search point in the feature projection
+     * @param k        number of nearest features
+     * @param geodesic true for geodesic meters from degree coordinates
+     */
+    FeatureIndexNearestSearch(FeatureIndexManager manager, Point point, int k,
+                              boolean geodesic) {
+        this.manager = manager;
+        this.featureDao = manager.getFeatureDao();
+        this.point = point;
+        this.k = k;
+        this.distance = new GeometryDistance(point, geodesic);
+        this.columns = featureDao.getIdAndGeometryColumnNames();
+        ids = new long[k];
+        distances = new double[k];
+    }
+
+    /**
+     * Search the memory index best first, in order of increasing envelope
+     * distance, until the next envelope is farther than the kth nearest
+     * feature
+     *
+     * @param tree memory index tree
+     * @return nearest features
+     */
+    List<NearestFeature> searchMemory(PackedHilbertRTree tree) {
+
+        PackedHilbertRTree.Nearest nearest = tree
+                .nearest(new PackedHilbertRTree.EnvelopeDistance() {
+                    @Override
+                    public double distance(double minX, double minY,
+                                           double maxX, double maxY) {
+                        return distance.lowerBound(minX, minY, maxX, maxY);
+                    }
+                });
+
+        while (nearest.next()) {
+            if (size == k && nearest.getDistance() > distances[k - 1]) {
+                break;
+            }
+            long id = nearest.getId();
+            FeatureRow row = featureDao.queryForIdRow(columns, id);
+            if (row != null) {
+                add(id, distance(row));
+            }
+        }
+
+        return results();
+    }
+
+    /**
+     * Search the indexes with envelope queries around the point, doubling the
+     * search distance until k features are found within it or the envelope
+     * covers the indexed features
+     *
+     * @return nearest features
+     */
+    List<NearestFeature> searchExpanding() {
+
+        BoundingBox boundingBox = manager.getBoundingBox();
+        if (boundingBox != null) {
+
+            GeometryEnvelope extent = boundingBox.buildEnvelope();
+            double radius = initialRadius(extent, manager.count());
+
+            Set<Long> evaluated = new HashSet<>();
+            while (true) {
+
+                GeometryEnvelope envelope = envelope(radius);
+
+                FeatureIndexResults results = manager.query(columns, envelope);
+                try {
+                    for (FeatureRow row : results) {
+                        if (row != null && evaluated.add(row.getId())) {
+                            add(row.getId(), distance(row));
+                        }
+                    }
+                } finally {
+                    results.close();
+                }
+
+                if ((size == k && distances[k - 1] <= radius)
+                        || covers(envelope, extent)
+                        || Double.isInfinite(radius)) {
+                    break;
+                }
+
+                radius *= 2;
+            }
+        }
+
+        return results();
+    }
+
+    /**
+     * Scan every feature, used when the feature table is not indexed
+     *
+     * @return nearest features
+     */
+    List<NearestFeature> searchScan() {
+
+        FeatureCursor cursor = featureDao.query(columns);
+        try {
+            while (cursor.moveToNext()) {
+                FeatureRow row = cursor.getRow();
+                add(row.getId(), distance(row));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return results();
+    }
+
+    /**
+     * Get the distance from the point to the feature row geometry
+     *
+     * @param row feature row
+     * @return distance or {@link Double#POSITIVE_INFINITY} when no geometry
+     */
+    private double distance(FeatureRow row) {
+        double rowDistance = Double.POSITIVE_INFINITY;
+        try {
+            GeoPackageGeometryData geometryData = row.getGeometry();
+            if (geometryData != null) {
+                Geometry geometry = geometryData.getGeometry();
+                if (geometry != null) {
+                    rowDistance = distance.distance(geometry);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(FeatureIndexNearestSearch.class.getSimpleName(),
+                    "Failed to read feature geometry. Table: "
+                            + featureDao.getTableName() + ", Id: "
+                            + row.getId(), e);
+        }
+        return rowDistance;
+    }
+
+    /**
+     * Add a candidate, keeping the k nearest ordered by distance and id
+     *
+     * @param id          feature id
+     * @param rowDistance distance
+     */
+    private void add(long id, double rowDistance) {
+        if (Double.isInfinite(rowDistance) || Double.isNaN(rowDistance)) {
+            return;
+        }
+        if (size == k && !closer(rowDistance, id, distances[k - 1],
+                ids[k - 1])) {
+            return;
+        }
+        int index = size < k ? size++ : k - 1;
+        while (index > 0 && closer(rowDistance, id, distances[index - 1],
+                ids[index - 1])) {
+            distances[index] = distances[index - 1];
+            ids[index] = ids[index - 1];
+            index--;
+        }
+        distances[index] = rowDistance;
+        ids[index] = id;
+    }
+
+    /**
+     * Determine if a candidate is closer than another, ties ordered by id
+     *
+     * @param distance1 first distance
+     * @param id1       first id
+     * @param distance2 second distance
+     * @param id2       second id
+     * @return true if the first is closer
+     */
+    private static boolean closer(double distance1, long id1,
+                                  double distance2, long id2) {
+        return distance1 < distance2 || (distance1 == distance2 && id1 < id2);
+    }
+
+    /**
+     * Read the full feature rows of the nearest candidates
+     *
+     * @return nearest features
+     */
+    private List<NearestFeature> results() {
+        List<NearestFeature> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            FeatureRow row = featureDao.queryForIdRow(ids[i]);
+            if (row != null) {
+                results.add(new NearestFeature(row, distances[i]));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Estimate the initial search distance expected to contain k features
+     * from the extent and feature count, at least reaching the extent
+     *
+     * @param extent extent of the indexed features
+     * @param count  number of indexed features
+     * @return search distance
+     */
+    private double initialRadius(GeometryEnvelope extent, long count) {
+
+        double width = extent.getMaxX() - extent.getMinX();
+        double height = extent.getMaxY() - extent.getMinY();
+        double features = Math.max(1, count);
+
+        double radius;
+        if (width > 0 && height > 0) {
+            radius = Math.sqrt(k * width * height / (Math.PI * features));
+        } else {
+            radius = Math.max(width, height) * k / features;
+        }
+        if (distance.isGeodesic()) {
+            radius = Math.toRadians(radius) * GeometryDistance.EARTH_RADIUS;
+        }
+        if (!(radius > 0)) {
+            radius = distance.isGeodesic() ? 1.0 : 1.0e-9 * Math.max(1.0,
+                    Math.max(Math.abs(point.getX()), Math.abs(point.getY())));
+        }
+
+        return Math.max(radius, distance.lowerBound(extent.getMinX(),
+                extent.getMinY(), extent.getMaxX(), extent.getMaxY()));
+    }
+
+    /**
+     * Build the query envelope containing every location within the search
+     * distance of the point
+     *
+     * @param radius search distance
+     * @return envelope
+     */
+    private GeometryEnvelope envelope(double radius) {
+        double[] expansion = distance.expansion(radius);
+        double minX = point.getX() - expansion[0];
+        double maxX = point.getX() + expansion[0];
+        double minY = point.getY() - expansion[1];
+        double maxY = point.getY() + expansion[1];
+        if (distance.isGeodesic()) {
+            // Search all longitudes when wrapping across the antimeridian
+            if (minX < -180.0 || maxX > 180.0) {
+                minX = -180.0;
+                maxX = 180.0;
+            }
+            minY = Math.max(-90.0, minY);
+            maxY = Math.min(90.0, maxY);
+        }
+        return new GeometryEnvelope(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Determine if the envelope covers the extent
+     *
+     * @param envelope envelope
+     * @param extent   extent
+     * @return true if covered
+     */
+    private static boolean covers(GeometryEnvelope envelope,
+                                  GeometryEnvelope extent) {
+        return envelope.getMinX() <= extent.getMinX()
+                && envelope.getMinY() <= extent.getMinY()
+                && envelope.getMaxX() >= extent.getMaxX()
+                && envelope.getMaxY() >= extent.getMaxY();
+    }
+
+}
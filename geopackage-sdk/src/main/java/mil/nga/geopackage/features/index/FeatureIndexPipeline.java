@@ -0,0 +1,488 @@
+package mil.nga.geopackage.features.index;
+
+import android.util.Log;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.geom.GeometryEnvelopeReader;
+import mil.nga.geopackage.io.GeoPackageProgress;
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Feature Index Pipeline, indexes feature geometries with a single cursor
+ * reader, a bounded pool of envelope decoding workers, and a single index
+ * writer thread. The reader blocks when the max number of pending batches
+ * are awaiting decoding or writing.
+ * <p>
+ * The reader reads on the calling thread and the writer writes each batch on
+ * the writer thread, keeping each database connection used by a single
+ * thread at a time. Writers should commit each batch in a single
+ * transaction and must not hold a transaction open between batches.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureIndexPipeline {
+
+    /**
+     * Default number of features in a batch
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * Index batch writer, called in batch order on the single writer thread
+     */
+    public interface Writer {
+
+        /**
+         * Write the decoded batch to the index
+         *
+         * @param batch decoded batch
+         * @return number of indexed features
+         */
+        int write(Batch batch);
+
+    }
+
+    /**
+     * Batch of feature ids, geometry bytes, and decoded envelopes
+     */
+    public static class Batch {
+
+        /**
+         * Feature ids
+         */
+        private final long[] ids;
+
+        /**
+         * Geometry bytes, released after decoding
+         */
+        private byte[][] geometries;
+
+        /**
+         * Decoded envelopes
+         */
+        private final GeometryEnvelope[] envelopes;
+
+        /**
+         * Number of features in the batch
+         */
+        private int size = 0;
+
+        /**
+         * Constructor
+         *
+         * @param capacity batch capacity
+         */
+        private Batch(int capacity) {
+            ids = new long[capacity];
+            geometries = new byte[capacity][];
+            envelopes = new GeometryEnvelope[capacity];
+        }
+
+        /**
+         * Get the number of features in the batch
+         *
+         * @return size
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Get the feature id
+         *
+         * @param index batch index
+         * @return feature id
+         */
+        public long getId(int index) {
+            return ids[index];
+        }
+
+        /**
+         * Get the decoded geometry envelope
+         *
+         * @param index batch index
+         * @return envelope or null for null and empty geometries
+         */
+        public GeometryEnvelope getEnvelope(int index) {
+            return envelopes[index];
+        }
+
+        /**
+         * Add a feature to the batch
+         *
+         * @param id       feature id
+         * @param geometry geometry bytes
+         */
+        private void add(long id, byte[] geometry) {
+            ids[size] = id;
+            geometries[size] = geometry;
+            size++;
+        }
+
+        /**
+         * Determine if the batch is full
+         *
+         * @return true if full
+         */
+        private boolean isFull() {
+            return size == ids.length;
+        }
+
+        /**
+         * Decode the geometry envelopes
+         */
+        private void decode() {
+            GeometryEnvelopeReader reader = new GeometryEnvelopeReader();
+            for (int i = 0; i < size; i++) {
+                byte[] geometry = geometries[i];
+                if (geometry != null) {
+                    try {
+                        if (reader.read(geometry)) {
+                            envelopes[i] = reader.getEnvelope();
+                        }
+                    } catch (Exception e) {
+                        Log.e(FeatureIndexPipeline.class.getSimpleName(),
+                                "Failed to decode feature geometry envelope. Id: "
+                                        + ids[i], e);
+                    }
+                }
+            }
+            geometries = null;
+        }
+
+    }
+
+    /**
+     * Number of decoding worker threads
+     */
+    private final int parallelism;
+
+    /**
+     * Max number of batches read and awaiting decoding or writing
+     */
+    private int maxPendingBatches;
+
+    /**
+     * Number of features in a batch
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Progress
+     */
+    private final GeoPackageProgress progress;
+
+    /**
+     * Decoding worker pool
+     */
+    private ExecutorService workers;
+
+    /**
+     * Single writer thread
+     */
+    private ExecutorService writerThread;
+
+    /**
+     * Pending batch permits providing back pressure to the reader
+     */
+    private Semaphore pending;
+
+    /**
+     * Index batch writer
+     */
+    private Writer writer;
+
+    /**
+     * Current batch being read
+     */
+    private Batch batch;
+
+    /**
+     * Max feature id read
+     */
+    private Long lastId;
+
+    /**
+     * Number of indexed features
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * First writer error
+     */
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    /**
+     * Constructor
+     *
+     * @param parallelism number of decoding worker threads
+     * @param progress    progress tracker, may be null
+     */
+    public FeatureIndexPipeline(int parallelism, GeoPackageProgress progress) {
+        if (parallelism < 1) {
+            throw new GeoPackageException(
+                    "Pipeline parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.maxPendingBatches = parallelism * 2;
+        this.progress = progress;
+    }
+
+    /**
+     * Get the number of decoding worker threads
+     *
+     * @return parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Get the max number of pending batches before the reader blocks
+     *
+     * @return max pending batches
+     */
+    public int getMaxPendingBatches() {
+        return maxPendingBatches;
+    }
+
+    /**
+     * Set the max number of pending batches before the reader blocks
+     *
+     * @param maxPendingBatches max pending batches
+     */
+    public void setMaxPendingBatches(int maxPendingBatches) {
+        this.maxPendingBatches = maxPendingBatches;
+    }
+
+    /**
+     * Get the number of features in a batch
+     *
+     * @return batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the number of features in a batch
+     *
+     * @param batchSize batch size
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Get the max feature id read
+     *
+     * @return max id or null if no features read
+     */
+    public Long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Start the decoding workers and writer thread
+     *
+     * @param writer index batch writer
+     */
+    public void start(Writer writer) {
+        if (workers != null) {
+            throw new GeoPackageException("Pipeline has already been started");
+        }
+        this.writer = writer;
+        workers = Executors.newFixedThreadPool(parallelism);
+        writerThread = Executors.newSingleThreadExecutor();
+        pending = new Semaphore(Math.max(1, maxPendingBatches));
+        batch = new Batch(batchSize);
+        lastId = null;
+        count.set(0);
+        error.set(null);
+    }
+
+    /**
+     * Read the features from the cursor into the pipeline, closing the
+     * cursor when done
+     *
+     * @param cursor feature cursor
+     * @return number of valid feature rows read
+     */
+    public int read(FeatureCursor cursor) {
+
+        int rows = 0;
+
+        int geometryIndex = cursor.getColumns().getGeometryIndex();
+
+        try {
+            while (isActive() && cursor.moveToNext()) {
+
+                long id;
+                byte[] geometry = null;
+
+                // Null geometries, which may be large sized geometries read
+                // as null, are read through the row
+                if (cursor.isDirectRead()) {
+                    id = cursor.getId();
+                    geometry = cursor.getBlob(geometryIndex);
+                } else {
+                    FeatureRow row = cursor.getRow();
+                    if (!row.isValid()) {
+                        continue;
+                    }
+                    id = row.getId();
+                    GeoPackageGeometryData geometryData = row.getGeometry();
+                    if (geometryData != null) {
+                        geometry = geometryData.getBytes();
+                    }
+                }
+
+                rows++;
+                if (lastId == null || id > lastId) {
+                    lastId = id;
+                }
+
+                batch.add(id, geometry);
+                if (batch.isFull()) {
+                    submit();
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return rows;
+    }
+
+    /**
+     * Flush the remaining features, wait for all batches to be written, and
+     * stop the pipeline threads
+     *
+     * @return number of indexed features
+     */
+    public int finish() {
+        try {
+            if (batch != null && batch.size() > 0 && isActive()) {
+                submit();
+            }
+            writerThread.shutdown();
+            awaitTermination(writerThread);
+        } finally {
+            close();
+        }
+        Throwable writeError = error.get();
+        if (writeError != null) {
+            throw new GeoPackageException("Failed to write feature index batch",
+                    writeError);
+        }
+        return count.get();
+    }
+
+    /**
+     * Stop the pipeline threads without waiting for pending batches, used to
+     * clean up after a failure. Safe to call after {@link #finish()}.
+     */
+    public void close() {
+        if (workers != null) {
+            workers.shutdownNow();
+            writerThread.shutdownNow();
+            workers = null;
+            writerThread = null;
+            batch = null;
+        }
+    }
+
+    /**
+     * Submit the current batch for decoding and writing, blocking while the
+     * max number of batches are pending
+     */
+    private void submit() {
+
+        final Batch decodeBatch = batch;
+        batch = new Batch(batchSize);
+
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeoPackageException(
+                    "Interrupted while waiting to submit feature index batch", e);
+        }
+
+        final Future<?> decoded = workers.submit(new Runnable() {
+            @Override
+            public void run() {
+                decodeBatch.decode();
+            }
+        });
+
+        writerThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    decoded.get();
+                    if (error.get() == null && isActive()) {
+                        count.addAndGet(writer.write(decodeBatch));
+                        if (progress != null) {
+                            progress.addProgress(decodeBatch.size());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    error.compareAndSet(null, e);
+                } catch (ExecutionException e) {
+                    error.compareAndSet(null, e.getCause());
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    pending.release();
+                }
+            }
+        });
+
+        if (error.get() != null) {
+            throw new GeoPackageException("Failed to write feature index batch",
+                    error.get());
+        }
+    }
+
+    /**
+     * Check if the pipeline is active and has not been canceled
+     *
+     * @return true if active
+     */
+    private boolean isActive() {
+        return progress == null || progress.isActive();
+    }
+
+    /**
+     * Wait for the executor to terminate
+     *
+     * @param executor executor
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Continue waiting for queued batches
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeoPackageException(
+                    "Interrupted while waiting for the feature index writer", e);
+        }
+    }
+
+}
@@ -0,0 +1,237 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Feature Index Plan, the feature index type selected by the
+ * {@link FeatureIndexPlanner} for an envelope query along with the table
+ * statistics and estimated costs the selection was made from
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureIndexPlan {
+
+    /**
+     * Query envelope
+     */
+    private final GeometryEnvelope envelope;
+
+    /**
+     * Count query flag
+     */
+    private final boolean count;
+
+    /**
+     * Table row count, -1 when unknown
+     */
+    private final long rowCount;
+
+    /**
+     * Estimated fraction of rows within the envelope, -1 when unknown
+     */
+    private final double selectivity;
+
+    /**
+     * Selected type, {@link FeatureIndexType#NONE} for a manual scan
+     */
+    private final FeatureIndexType type;
+
+    /**
+     * Ordered index types to query, empty for a manual scan
+     */
+    private final List<FeatureIndexType> types;
+
+    /**
+     * Estimated costs, including {@link FeatureIndexType#NONE} for a manual
+     * scan
+     */
+    private final Map<FeatureIndexType, Double> costs;
+
+    /**
+     * Model costs before latency adjustments
+     */
+    private final Map<FeatureIndexType, Double> modelCosts;
+
+    /**
+     * Constructor
+     *
+     * @param envelope    query envelope
+     * @param count       count query flag
+     * @param rowCount    table row count, -1 when unknown
+     * @param selectivity estimated fraction of rows within the envelope, -1
+     *                    when unknown
+     * @param type        selected type, {@link FeatureIndexType#NONE} for a
+     *                    manual scan
+     * @param types       ordered index types to query
+     * @param costs       estimated costs
+     * @param modelCosts  model costs before latency adjustments
+     */
+    FeatureIndexPlan(GeometryEnvelope envelope, boolean count, long rowCount,
+                     double selectivity, FeatureIndexType type,
+                     List<FeatureIndexType> types,
+                     Map<FeatureIndexType, Double> costs,
+                     Map<FeatureIndexType, Double> modelCosts) {
+        this.envelope = envelope;
+        this.count = count;
+        this.rowCount = rowCount;
+        this.selectivity = selectivity;
+        this.type = type;
+        this.types = Collections.unmodifiableList(types);
+        this.costs = costs;
+        this.modelCosts = modelCosts;
+    }
+
+    /**
+     * Get the query envelope
+     *
+     * @return envelope
+     */
+    public GeometryEnvelope getEnvelope() {
+        return envelope;
+    }
+
+    /**
+     * Is the plan for a count query
+     *
+     * @return true if a count query
+     */
+    public boolean isCount() {
+        return count;
+    }
+
+    /**
+     * Get the table row count statistic, estimated from the primary key range
+     *
+     * @return row count, -1 when unknown
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the estimated fraction of rows within the envelope
+     *
+     * @return selectivity between 0.0 and 1.0, -1 when unknown
+     */
+    public double getSelectivity() {
+        return selectivity;
+    }
+
+    /**
+     * Get the estimated number of rows within the envelope
+     *
+     * @return estimated rows, -1 when unknown
+     */
+    public long getEstimatedRows() {
+        long rows = -1;
+        if (rowCount >= 0 && selectivity >= 0) {
+            rows = Math.round(rowCount * selectivity);
+        }
+        return rows;
+    }
+
+    /**
+     * Get the selected feature index type
+     *
+     * @return type, {@link FeatureIndexType#NONE} for a manual scan
+     */
+    public FeatureIndexType getType() {
+        return type;
+    }
+
+    /**
+     * Is a manual scan selected over the indexes
+     *
+     * @return true if a manual scan
+     */
+    public boolean isManual() {
+        return type == FeatureIndexType.NONE;
+    }
+
+    /**
+     * Get the ordered index types to query, the selected type followed by
+     * the fallback types used when a query fails
+     *
+     * @return index types, empty for a manual scan
+     */
+    public List<FeatureIndexType> getTypes() {
+        return types;
+    }
+
+    /**
+     * Determine if costs were estimated, false when the table statistics are
+     * unavailable and the configured query order is used
+     *
+     * @return true if costs were estimated
+     */
+    public boolean hasCosts() {
+        return !costs.isEmpty();
+    }
+
+    /**
+     * Get the estimated cost of querying the type
+     *
+     * @param type feature index type, {@link FeatureIndexType#NONE} for a
+     *             manual scan
+     * @return estimated cost or null if not estimated
+     */
+    public Double getCost(FeatureIndexType type) {
+        return costs.get(type);
+    }
+
+    /**
+     * Get the estimated costs by type
+     *
+     * @return costs
+     */
+    public Map<FeatureIndexType, Double> getCosts() {
+        return Collections.unmodifiableMap(costs);
+    }
+
+    /**
+     * Get the model cost before latency adjustments
+     *
+     * @param type feature index type
+     * @return model cost or null
+     */
+    Double getModelCost(FeatureIndexType type) {
+        return modelCosts.get(type);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder explain = new StringBuilder();
+        explain.append(count ? "Count" : "Query");
+        explain.append(" using ");
+        explain.append(isManual() ? "manual scan" : type.name());
+        explain.append(", rows: ").append(rowCount);
+        if (selectivity >= 0) {
+            explain.append(", selectivity: ").append(
+                    String.format("%.4f", selectivity));
+            explain.append(", estimated rows: ").append(getEstimatedRows());
+        }
+        if (costs.isEmpty()) {
+            explain.append(", configured order: ").append(types);
+        } else {
+            Map<FeatureIndexType, Double> ordered = new EnumMap<>(costs);
+            for (Map.Entry<FeatureIndexType, Double> cost : ordered.entrySet()) {
+                explain.append("\n  ");
+                explain.append(cost.getKey() == FeatureIndexType.NONE
+                        ? "MANUAL" : cost.getKey().name());
+                explain.append(": ").append(
+                        String.format("%.1f", cost.getValue()));
+            }
+        }
+        return explain.toString();
+    }
+
+}
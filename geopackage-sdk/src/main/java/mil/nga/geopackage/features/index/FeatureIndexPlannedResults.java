@@ -0,0 +1,169 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.Iterator;
+
+import mil.nga.geopackage.features.user.FeatureRow;
+
+/**
+ * Feature Index Results of a planned query, recording the query latency with
+ * the planner when the results are closed. Feature row queries read lazily,
+ * so the latency covers the reads made through the results rather than only
+ * the query creation.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+class FeatureIndexPlannedResults implements FeatureIndexResults {
+
+    /**
+     * Wrap the results to record the planned query latency on close. Feature
+     * results remain {@link FeatureIndexFeatureResults} so they can still be
+     * paginated.
+     *
+     * @param results results
+     * @param planner feature index planner
+     * @param plan    executed plan
+     * @param type    queried type, {@link FeatureIndexType#NONE} for a manual
+     *                scan
+     * @param start   start time in nanoseconds
+     * @return planned results
+     */
+    static FeatureIndexResults create(FeatureIndexResults results,
+                                      FeatureIndexPlanner planner, FeatureIndexPlan plan,
+                                      FeatureIndexType type, long start) {
+        final Latency latency = new Latency(planner, plan, type, start);
+        FeatureIndexResults plannedResults;
+        if (results instanceof FeatureIndexFeatureResults) {
+            plannedResults = new FeatureIndexFeatureResults(
+                    ((FeatureIndexFeatureResults) results).getCursor()) {
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public void close() {
+                    super.close();
+                    latency.record();
+                }
+
+            };
+        } else {
+            plannedResults = new FeatureIndexPlannedResults(results, latency);
+        }
+        return plannedResults;
+    }
+
+    /**
+     * Planned query latency, recorded once
+     */
+    private static class Latency {
+
+        /**
+         * Feature index planner
+         */
+        private final FeatureIndexPlanner planner;
+
+        /**
+         * Executed plan
+         */
+        private final FeatureIndexPlan plan;
+
+        /**
+         * Queried type
+         */
+        private final FeatureIndexType type;
+
+        /**
+         * Start time in nanoseconds
+         */
+        private final long start;
+
+        /**
+         * Recorded flag
+         */
+        private boolean recorded = false;
+
+        /**
+         * Constructor
+         *
+         * @param planner feature index planner
+         * @param plan    executed plan
+         * @param type    queried type
+         * @param start   start time in nanoseconds
+         */
+        private Latency(FeatureIndexPlanner planner, FeatureIndexPlan plan,
+                        FeatureIndexType type, long start) {
+            this.planner = planner;
+            this.plan = plan;
+            this.type = type;
+            this.start = start;
+        }
+
+        /**
+         * Record the latency with the planner if not yet recorded
+         */
+        private synchronized void record() {
+            if (!recorded) {
+                recorded = true;
+                planner.record(plan, type, System.nanoTime() - start);
+            }
+        }
+
+    }
+
+    /**
+     * Results
+     */
+    private final FeatureIndexResults results;
+
+    /**
+     * Planned query latency
+     */
+    private final Latency latency;
+
+    /**
+     * Constructor
+     *
+     * @param results results
+     * @param latency planned query latency
+     */
+    private FeatureIndexPlannedResults(FeatureIndexResults results,
+                                       Latency latency) {
+        this.results = results;
+        this.latency = latency;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<FeatureRow> iterator() {
+        return results.iterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long count() {
+        return results.count();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        results.close();
+        latency.record();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<Long> ids() {
+        return results.ids();
+    }
+
+}
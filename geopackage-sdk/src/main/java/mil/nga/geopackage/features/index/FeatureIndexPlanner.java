@@ -0,0 +1,443 @@
+package mil.nga.geopackage.features.index;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageDataType;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Feature Index Planner, selects the cheapest feature index type for an
+ * envelope query from cheap table statistics: the row count estimated from
+ * the primary key range, the contents extent, the index freshness, and the
+ * recently measured latencies. A manual scan is selected when the query
+ * envelope covers enough of the extent that an index only adds overhead.
+ * <p>
+ * Costs are estimated in feature row reads. The index freshness is checked
+ * per plan, stale indexes are not queried. Measured latencies adjust the
+ * estimates of each type relative to the other types, averaged separately
+ * for counts and for feature row queries measured until the results close. Statistics and
+ * latencies are synchronized for planning concurrent queries.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureIndexPlanner {
+
+    /**
+     * Default statistics time to live in milliseconds
+     */
+    public static final long DEFAULT_STATISTICS_TTL = 60000;
+
+    /**
+     * Weight of the latest latency measurement in the latency moving average
+     */
+    public static final double LATENCY_WEIGHT = 0.2;
+
+    /**
+     * Fixed cost of an index query
+     */
+    private static final double QUERY_COST = 10.0;
+
+    /**
+     * Manual scan cost per table row
+     */
+    private static final double SCAN_ROW_COST = 1.0;
+
+    /**
+     * Cost per candidate row range scanned from a single dimension SQL index
+     */
+    private static final double RANGE_ROW_COST = 0.25;
+
+    /**
+     * Feature Index Manager
+     */
+    private final FeatureIndexManager manager;
+
+    /**
+     * Statistics time to live in milliseconds
+     */
+    private long statisticsTTL = DEFAULT_STATISTICS_TTL;
+
+    /**
+     * Statistics collection time, -1 when not collected
+     */
+    private long statisticsTime = -1;
+
+    /**
+     * Row count statistic estimated from the primary key range, -1 when
+     * unknown
+     */
+    private long rowCount = -1;
+
+    /**
+     * Extent statistic in the feature projection, null when unknown
+     */
+    private GeometryEnvelope extent;
+
+    /**
+     * Count latency moving averages in nanoseconds per model cost unit
+     */
+    private final Map<FeatureIndexType, Double> countLatencies = new EnumMap<>(
+            FeatureIndexType.class);
+
+    /**
+     * Feature row query latency moving averages in nanoseconds per model cost
+     * unit
+     */
+    private final Map<FeatureIndexType, Double> queryLatencies = new EnumMap<>(
+            FeatureIndexType.class);
+
+    /**
+     * Constructor
+     *
+     * @param manager feature index manager
+     */
+    FeatureIndexPlanner(FeatureIndexManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Get the statistics time to live
+     *
+     * @return time to live in milliseconds
+     */
+    public long getStatisticsTTL() {
+        return statisticsTTL;
+    }
+
+    /**
+     * Set the statistics time to live, after which the row count and extent
+     * are collected again
+     *
+     * @param statisticsTTL time to live in milliseconds
+     */
+    public void setStatisticsTTL(long statisticsTTL) {
+        this.statisticsTTL = statisticsTTL;
+    }
+
+    /**
+     * Get the row count statistic, collecting the statistics if needed. The
+     * row count is estimated from the primary key range, an upper bound of
+     * the row count read from the primary key index without scanning the
+     * table.
+     *
+     * @return row count, -1 when unknown
+     */
+    public long getRowCount() {
+        collectStatistics();
+        return rowCount;
+    }
+
+    /**
+     * Get the extent statistic, collecting the statistics if needed
+     *
+     * @return extent in the feature projection, null when unknown
+     */
+    public GeometryEnvelope getExtent() {
+        collectStatistics();
+        return extent;
+    }
+
+    /**
+     * Get the count latency moving average of the type
+     *
+     * @param type feature index type, {@link FeatureIndexType#NONE} for a
+     *             manual scan
+     * @return nanoseconds per model cost unit, null when not measured
+     */
+    public Double getLatency(FeatureIndexType type) {
+        return getLatency(type, true);
+    }
+
+    /**
+     * Get the count or feature row query latency moving average of the type
+     *
+     * @param type  feature index type, {@link FeatureIndexType#NONE} for a
+     *              manual scan
+     * @param count true for count latency, false for feature row query
+     *              latency
+     * @return nanoseconds per model cost unit, null when not measured
+     */
+    public synchronized Double getLatency(FeatureIndexType type, boolean count) {
+        return latencies(count).get(type);
+    }
+
+    /**
+     * Clear the row count and extent statistics, collected again by the
+     * next plan
+     */
+    public synchronized void clearStatistics() {
+        statisticsTime = -1;
+    }
+
+    /**
+     * Clear the measured latencies
+     */
+    public synchronized void clearLatencies() {
+        countLatencies.clear();
+        queryLatencies.clear();
+    }
+
+    /**
+     * Plan an envelope query
+     *
+     * @param envelope query envelope in the feature projection
+     * @param count    true for a count query, false for a feature row query
+     * @param manual   true if a manual scan can be selected
+     * @return plan
+     */
+    public FeatureIndexPlan plan(GeometryEnvelope envelope, boolean count,
+                                 boolean manual) {
+
+        collectStatistics();
+
+        // Indexed and up to date types, in the configured query order
+        List<FeatureIndexType> types = manager.getIndexedTypes();
+
+        Map<FeatureIndexType, Double> modelCosts = new EnumMap<>(
+                FeatureIndexType.class);
+        final Map<FeatureIndexType, Double> costs = new EnumMap<>(
+                FeatureIndexType.class);
+
+        if (rowCount < 0 || extent == null || envelope == null) {
+            FeatureIndexType type = types.isEmpty() ? FeatureIndexType.NONE
+                    : types.get(0);
+            return new FeatureIndexPlan(envelope, count, rowCount, -1, type,
+                    types, costs, modelCosts);
+        }
+
+        double selectivityX = overlap(envelope.getMinX(), envelope.getMaxX(),
+                extent.getMinX(), extent.getMaxX());
+        double selectivityY = overlap(envelope.getMinY(), envelope.getMaxY(),
+                extent.getMinY(), extent.getMaxY());
+        double selectivity = selectivityX * selectivityY;
+
+        double latencyDefault = defaultLatency(count);
+        for (FeatureIndexType type : types) {
+            double modelCost = cost(type, selectivity,
+                    Math.min(selectivityX, selectivityY), count);
+            modelCosts.put(type, modelCost);
+            costs.put(type, modelCost * latency(type, count, latencyDefault));
+        }
+        double manualCost = rowCount * SCAN_ROW_COST;
+        modelCosts.put(FeatureIndexType.NONE, manualCost);
+        costs.put(FeatureIndexType.NONE, manualCost
+                * latency(FeatureIndexType.NONE, count, latencyDefault));
+
+        // Order by cost, ties remaining in the configured query order
+        List<FeatureIndexType> ordered = new ArrayList<>(types);
+        Collections.sort(ordered, new Comparator<FeatureIndexType>() {
+            @Override
+            public int compare(FeatureIndexType type1, FeatureIndexType type2) {
+                return Double.compare(costs.get(type1), costs.get(type2));
+            }
+        });
+
+        FeatureIndexType type = FeatureIndexType.NONE;
+        if (!ordered.isEmpty()) {
+            type = ordered.get(0);
+            if (manual && costs.get(FeatureIndexType.NONE) < costs.get(type)) {
+                type = FeatureIndexType.NONE;
+                ordered.clear();
+            }
+        }
+
+        return new FeatureIndexPlan(envelope, count, rowCount, selectivity,
+                type, ordered, costs, modelCosts);
+    }
+
+    /**
+     * Record the measured latency of a planned count or feature row query
+     *
+     * @param plan  executed plan
+     * @param type  queried type, {@link FeatureIndexType#NONE} for a manual
+     *              scan
+     * @param nanos elapsed nanoseconds
+     */
+    public synchronized void record(FeatureIndexPlan plan, FeatureIndexType type,
+                       long nanos) {
+        Double modelCost = plan.getModelCost(type);
+        if (modelCost != null && modelCost > 0) {
+            Map<FeatureIndexType, Double> latencies = latencies(plan.isCount());
+            double latency = nanos / modelCost;
+            Double average = latencies.get(type);
+            if (average != null) {
+                latency = average + LATENCY_WEIGHT * (latency - average);
+            }
+            latencies.put(type, latency);
+        }
+    }
+
+    /**
+     * Collect the row count and extent statistics when expired
+     */
+    private synchronized void collectStatistics() {
+        long now = System.currentTimeMillis();
+        if (statisticsTime < 0 || now - statisticsTime > statisticsTTL) {
+            FeatureDao featureDao = manager.getFeatureDao();
+            try {
+                rowCount = estimateRowCount(featureDao);
+                BoundingBox boundingBox = featureDao.getBoundingBox();
+                extent = boundingBox != null ? boundingBox.buildEnvelope()
+                        : null;
+            } catch (Exception e) {
+                Log.w(FeatureIndexPlanner.class.getSimpleName(),
+                        "Failed to collect feature table statistics. Table: "
+                                + featureDao.getTableName(), e);
+                rowCount = -1;
+                extent = null;
+            }
+            statisticsTime = now;
+        }
+    }
+
+    /**
+     * Estimate the row count from the min and max primary key values, each
+     * read from the end of the primary key index
+     *
+     * @param featureDao feature DAO
+     * @return row count estimate
+     */
+    private static long estimateRowCount(FeatureDao featureDao) {
+        long rowCount = 0;
+        Long maxId = queryPrimaryKey(featureDao, "MAX");
+        if (maxId != null) {
+            Long minId = queryPrimaryKey(featureDao, "MIN");
+            rowCount = maxId - minId + 1;
+        }
+        return rowCount;
+    }
+
+    /**
+     * Query the primary key aggregate, kept as a single aggregate query so
+     * SQLite reads it from the primary key index
+     *
+     * @param featureDao feature DAO
+     * @param function   MIN or MAX
+     * @return primary key value, null when the table is empty
+     */
+    private static Long queryPrimaryKey(FeatureDao featureDao, String function) {
+        Object value = featureDao.getDb().querySingleResult("SELECT "
+                + function + "("
+                + CoreSQLUtils.quoteWrap(featureDao.getPkColumnName())
+                + ") FROM " + CoreSQLUtils.quoteWrap(featureDao.getTableName()),
+                null, 0, GeoPackageDataType.INTEGER);
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    /**
+     * Estimate the model cost of an index query
+     *
+     * @param type             feature index type
+     * @param selectivity      fraction of rows within the envelope
+     * @param rangeSelectivity fraction of rows within the most selective
+     *                         envelope dimension
+     * @param count            count query flag
+     * @return model cost
+     */
+    private double cost(FeatureIndexType type, double selectivity,
+                        double rangeSelectivity, boolean count) {
+        double rows = rowCount * selectivity;
+        double lookup = Math.log(rowCount + 1) / Math.log(2);
+        double cost;
+        switch (type) {
+            case MEMORY:
+                // Tree search in memory, rows read individually by id
+                cost = lookup + rows * (count ? 0.01 : 2.0);
+                break;
+            case RTREE:
+                // Virtual table tree search joined to the feature table
+                cost = QUERY_COST + lookup + rows * (count ? 0.1 : 1.2);
+                break;
+            case GEOPACKAGE:
+            case METADATA:
+                // Single dimension index range scan, nested feature query
+                cost = QUERY_COST + lookup
+                        + rowCount * rangeSelectivity * RANGE_ROW_COST
+                        + rows * (count ? 0.2 : 1.5);
+                break;
+            default:
+                cost = rowCount * SCAN_ROW_COST;
+        }
+        return cost;
+    }
+
+    /**
+     * Get the count or feature row query latency moving averages
+     *
+     * @param count true for count latencies
+     * @return latencies
+     */
+    private Map<FeatureIndexType, Double> latencies(boolean count) {
+        return count ? countLatencies : queryLatencies;
+    }
+
+    /**
+     * Get the latency multiplier of the type
+     *
+     * @param type           feature index type
+     * @param count          count query flag
+     * @param latencyDefault latency of types not yet measured
+     * @return latency
+     */
+    private synchronized double latency(FeatureIndexType type, boolean count,
+                                        double latencyDefault) {
+        Double latency = latencies(count).get(type);
+        return latency != null ? latency : latencyDefault;
+    }
+
+    /**
+     * Get the latency of types not yet measured, the average of the measured
+     * latencies so estimates remain comparable
+     *
+     * @param count count query flag
+     * @return default latency
+     */
+    private synchronized double defaultLatency(boolean count) {
+        Map<FeatureIndexType, Double> latencies = latencies(count);
+        double latency = 1.0;
+        if (!latencies.isEmpty()) {
+            double sum = 0;
+            for (double value : latencies.values()) {
+                sum += value;
+            }
+            latency = sum / latencies.size();
+        }
+        return latency;
+    }
+
+    /**
+     * Get the fraction of the extent range overlapped by the query range
+     *
+     * @param min       query min
+     * @param max       query max
+     * @param extentMin extent min
+     * @param extentMax extent max
+     * @return overlap fraction between 0.0 and 1.0
+     */
+    private static double overlap(double min, double max, double extentMin,
+                                  double extentMax) {
+        double overlap;
+        double width = extentMax - extentMin;
+        if (width <= 0) {
+            overlap = min <= extentMax && max >= extentMin ? 1.0 : 0.0;
+        } else {
+            overlap = Math.max(0.0,
+                    Math.min(max, extentMax) - Math.max(min, extentMin))
+                    / width;
+            overlap = Math.min(1.0, overlap);
+        }
+        return overlap;
+    }
+
+}
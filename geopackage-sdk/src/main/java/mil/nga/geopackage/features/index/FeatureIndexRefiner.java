@@ -0,0 +1,279 @@
+package mil.nga.geopackage.features.index;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureIdList;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.sf.Geometry;
+
+/**
+ * Feature Index Refiner, refines envelope overlap candidates to the features
+ * satisfying an exact spatial predicate against a prepared query geometry.
+ * Candidate geometries are read as raw bytes in id batches, then decoded and
+ * tested serially or concurrently on worker threads. Matching ids are
+ * returned in candidate order.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+class FeatureIndexRefiner {
+
+    /**
+     * Number of candidate geometries read per query, within the SQLite
+     * default host parameter limit
+     */
+    static final int BATCH_SIZE = 500;
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Prepared query geometry
+     */
+    private final PreparedGeometry prepared;
+
+    /**
+     * Spatial predicate
+     */
+    private final SpatialPredicate predicate;
+
+    /**
+     * Number of refinement threads
+     */
+    private final int parallelism;
+
+    /**
+     * Constructor
+     *
+     * @param featureDao  feature DAO
+     * @param prepared    prepared query geometry
+     * @param predicate   spatial predicate
+     * @param parallelism number of refinement threads, 1 to refine serially
+     */
+    FeatureIndexRefiner(FeatureDao featureDao, PreparedGeometry prepared,
+                        SpatialPredicate predicate, int parallelism) {
+        this.featureDao = featureDao;
+        this.prepared = prepared;
+        this.predicate = predicate;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Refine the candidate feature ids
+     *
+     * @param candidates candidate feature ids
+     * @return matching feature ids in candidate order
+     */
+    FeatureIdList refine(Iterable<Long> candidates) {
+
+        FeatureIdList ids = new FeatureIdList();
+
+        Iterator<Long> iterator = candidates.iterator();
+        if (parallelism == 1) {
+            while (iterator.hasNext()) {
+                Batch batch = read(iterator);
+                batch.test();
+                batch.addMatches(ids);
+            }
+        } else {
+            refineParallel(iterator, ids);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Refine the candidates with concurrent batch tests, bounding the
+     * number of batches read ahead of the collected results
+     *
+     * @param iterator candidate feature ids
+     * @param ids      matching feature ids
+     */
+    private void refineParallel(Iterator<Long> iterator, FeatureIdList ids) {
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+
+            Deque<Future<Batch>> pending = new ArrayDeque<>();
+            while (iterator.hasNext()) {
+                final Batch batch = read(iterator);
+                pending.add(executor.submit(new Callable<Batch>() {
+                    @Override
+                    public Batch call() {
+                        batch.test();
+                        return batch;
+                    }
+                }));
+                if (pending.size() > parallelism * 2) {
+                    pending.poll().get().addMatches(ids);
+                }
+            }
+            while (!pending.isEmpty()) {
+                pending.poll().get().addMatches(ids);
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeoPackageException(
+                    "Interrupted while refining feature index results. Table: "
+                            + featureDao.getTableName(), e);
+        } catch (ExecutionException e) {
+            throw new GeoPackageException(
+                    "Failed to refine feature index results. Table: "
+                            + featureDao.getTableName(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read the next batch of candidate geometry bytes with a single id IN
+     * query, without decoding the geometries
+     *
+     * @param iterator candidate feature ids
+     * @return batch
+     */
+    private Batch read(Iterator<Long> iterator) {
+
+        Batch batch = new Batch();
+
+        StringBuilder where = new StringBuilder();
+        where.append(CoreSQLUtils.quoteWrap(featureDao.getPkColumnName()));
+        where.append(" IN (");
+        int count = 0;
+        String[] args = new String[BATCH_SIZE];
+        while (count < BATCH_SIZE && iterator.hasNext()) {
+            Long id = iterator.next();
+            if (id == null) {
+                continue;
+            }
+            if (count > 0) {
+                where.append(", ");
+            }
+            where.append("?");
+            args[count++] = String.valueOf(id);
+        }
+        where.append(")");
+
+        if (count > 0) {
+
+            String[] whereArgs = new String[count];
+            System.arraycopy(args, 0, whereArgs, 0, count);
+
+            FeatureCursor cursor = featureDao.query(false,
+                    featureDao.getIdAndGeometryColumnNames(),
+                    where.toString(), whereArgs);
+            try {
+                int geometryIndex = cursor.getColumns().getGeometryIndex();
+                while (cursor.moveToNext()) {
+                    // Null geometries, which may be large sized geometries
+                    // read as null, are read through the row
+                    if (cursor.isDirectRead()) {
+                        batch.add(cursor.getId(),
+                                cursor.getBlob(geometryIndex));
+                    } else {
+                        FeatureRow row = cursor.getRow();
+                        GeoPackageGeometryData geometryData = row.getGeometry();
+                        if (row.isValid() && geometryData != null) {
+                            batch.add(row.getId(), geometryData.getBytes());
+                        }
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        return batch;
+    }
+
+    /**
+     * Batch of candidate ids and geometry bytes
+     */
+    private class Batch {
+
+        /**
+         * Candidate ids
+         */
+        private final long[] ids = new long[BATCH_SIZE];
+
+        /**
+         * Candidate geometry bytes
+         */
+        private final byte[][] geometries = new byte[BATCH_SIZE][];
+
+        /**
+         * Predicate results
+         */
+        private final boolean[] matches = new boolean[BATCH_SIZE];
+
+        /**
+         * Number of candidates
+         */
+        private int count = 0;
+
+        /**
+         * Add a candidate
+         *
+         * @param id       feature id
+         * @param geometry geometry bytes
+         */
+        void add(long id, byte[] geometry) {
+            ids[count] = id;
+            geometries[count] = geometry;
+            count++;
+        }
+
+        /**
+         * Decode and test each candidate geometry, releasing the bytes
+         */
+        void test() {
+            for (int i = 0; i < count; i++) {
+                try {
+                    GeoPackageGeometryData geometryData = GeoPackageGeometryData
+                            .create(geometries[i]);
+                    Geometry geometry = geometryData.getGeometry();
+                    matches[i] = geometry != null
+                            && prepared.test(predicate, geometry);
+                } catch (Exception e) {
+                    Log.w(FeatureIndexRefiner.class.getSimpleName(),
+                            "Failed to read feature geometry. Table: "
+                                    + featureDao.getTableName() + ", Id: "
+                                    + ids[i], e);
+                }
+                geometries[i] = null;
+            }
+        }
+
+        /**
+         * Add the matching candidate ids
+         *
+         * @param matchIds matching feature ids
+         */
+        void addMatches(FeatureIdList matchIds) {
+            for (int i = 0; i < count; i++) {
+                if (matches[i]) {
+                    matchIds.addId(ids[i]);
+                }
+            }
+        }
+
+    }
+
+}
@@ -25,6 +25,14 @@ public enum FeatureIndexType {
      */
     RTREE,
 
+    /**
+     * Static packed Hilbert R-tree in memory, optionally saved to a memory
+     * mapped file
+     *
+     * @since 6.7.5
+     */
+    MEMORY,
+
     /**
      * No index
      *
@@ -0,0 +1,915 @@
+package mil.nga.geopackage.features.index;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.contents.Contents;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.DateConverter;
+import mil.nga.geopackage.db.GeoPackageDataType;
+import mil.nga.geopackage.db.SQLiteDatabaseUtils;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.features.user.FeatureWriteListener;
+import mil.nga.geopackage.geom.GeometryEnvelopeReader;
+import mil.nga.geopackage.io.GeoPackageProgress;
+import mil.nga.proj.Projection;
+import mil.nga.proj.ProjectionTransform;
+import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.proj.ProjectionGeometryUtils;
+
+/**
+ * Feature Memory Index, indexes the feature table envelopes in a static
+ * {@link PackedHilbertRTree} held in memory. The index is built in a single
+ * pass over the feature geometry envelopes and is not updated as features
+ * change, any feature change requires the index to be rebuilt. While
+ * indexed, writes through the feature DAO or its copies clear the index, see
+ * {@link FeatureDao#addWriteListener(FeatureWriteListener)}. Writes through
+ * other feature DAOs of the table are not observed.
+ * <p>
+ * When a file is set, the built index is saved to the file and memory mapped
+ * when first used by a later index instance, if the feature table row count
+ * and max id are unchanged and the GeoPackage file is unchanged since built.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureMemoryIndex {
+
+    /**
+     * Max number of ids in a single id filter query
+     */
+    private static final int ID_CHUNK = 500;
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * GeoPackage database file
+     */
+    private final File databaseFile;
+
+    /**
+     * Index geometries using geodesic lines
+     */
+    private boolean geodesic;
+
+    /**
+     * Progress
+     */
+    private GeoPackageProgress progress;
+
+    /**
+     * Query single chunk limit when reading features to index
+     */
+    private int chunkLimit = 1000;
+
+    /**
+     * Number of children per tree node
+     */
+    private int nodeSize = PackedHilbertRTree.DEFAULT_NODE_SIZE;
+
+    /**
+     * Query envelope tolerance
+     */
+    private double tolerance = .00000000000001;
+
+    /**
+     * Index file, null to only index in memory
+     */
+    private File file;
+
+    /**
+     * Packed Hilbert R-tree
+     */
+    private volatile PackedHilbertRTree tree;
+
+    /**
+     * Date last indexed
+     */
+    private volatile Date lastIndexed;
+
+    /**
+     * Number of feature write invalidations
+     */
+    private volatile long invalidations = 0;
+
+    /**
+     * True when the index file load has been attempted
+     */
+    private boolean fileChecked = false;
+
+    /**
+     * Feature DAO write listener, registered while indexed
+     */
+    private final FeatureWriteListener writeListener = new FeatureWriteListener() {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isEnvelopeUsed() {
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void featuresWritten(FeatureDao featureDao,
+                                    GeometryEnvelope envelope) {
+            invalidate();
+        }
+
+    };
+
+    /**
+     * Constructor
+     *
+     * @param featureDao feature DAO
+     * @param geodesic   index using geodesic bounds
+     */
+    public FeatureMemoryIndex(FeatureDao featureDao, boolean geodesic) {
+        this.featureDao = featureDao;
+        this.geodesic = geodesic;
+        databaseFile = new File(featureDao.getDatabaseConnection().getDb()
+                .getPath());
+    }
+
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
+    /**
+     * Is the index geodesic
+     *
+     * @return true if geodesic
+     */
+    public boolean isGeodesic() {
+        return geodesic;
+    }
+
+    /**
+     * Set the geodesic flag, clearing an index built with a different value
+     *
+     * @param geodesic index using geodesic bounds
+     */
+    public void setGeodesic(boolean geodesic) {
+        if (this.geodesic != geodesic) {
+            clear();
+        }
+        this.geodesic = geodesic;
+    }
+
+    /**
+     * Set the progress tracker
+     *
+     * @param progress progress tracker
+     */
+    public void setProgress(GeoPackageProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Get the SQL query chunk limit
+     *
+     * @return chunk limit
+     */
+    public int getChunkLimit() {
+        return chunkLimit;
+    }
+
+    /**
+     * Set the SQL query chunk limit
+     *
+     * @param chunkLimit chunk limit
+     */
+    public void setChunkLimit(int chunkLimit) {
+        this.chunkLimit = chunkLimit;
+    }
+
+    /**
+     * Get the number of children per tree node
+     *
+     * @return node size
+     */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Set the number of children per tree node, used by the next index
+     *
+     * @param nodeSize node size
+     */
+    public void setNodeSize(int nodeSize) {
+        this.nodeSize = nodeSize;
+    }
+
+    /**
+     * Get the query envelope tolerance
+     *
+     * @return tolerance
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Set the query envelope tolerance
+     *
+     * @param tolerance tolerance
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Get the index file
+     *
+     * @return index file or null
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Set the index file to save built indexes to and load indexes from
+     *
+     * @param file index file or null to only index in memory
+     */
+    public void setFile(File file) {
+        this.file = file;
+        fileChecked = false;
+    }
+
+    /**
+     * Get the packed Hilbert R-tree, loading from the index file if needed
+     *
+     * @return tree or null if not indexed
+     */
+    public PackedHilbertRTree getTree() {
+        loadFile();
+        return tree;
+    }
+
+    /**
+     * Index the feature table if needed
+     *
+     * @return count
+     */
+    public int index() {
+        return index(false);
+    }
+
+    /**
+     * Index the feature table
+     *
+     * @param force true to force re-indexing
+     * @return count
+     */
+    public int index(boolean force) {
+        int count = 0;
+        if (force || !isIndexed()) {
+            count = indexTable();
+        }
+        return count;
+    }
+
+    /**
+     * Index the feature table in a single pass over the feature envelopes
+     *
+     * @return count
+     */
+    private int indexTable() {
+
+        PackedHilbertRTree.Builder builder = new PackedHilbertRTree.Builder(
+                Math.max(1, featureDao.count()));
+
+        // Writes made while indexing leave the index stale
+        featureDao.addWriteListener(writeListener);
+        long indexInvalidations = invalidations;
+        String dataVersion = SQLiteDatabaseUtils.getFileState(databaseFile);
+
+        long rowCount = 0;
+        long maxId = 0;
+        Long lastId = null;
+        boolean hasResults = true;
+
+        String[] columns = featureDao.getIdAndGeometryColumnNames();
+        String pk = CoreSQLUtils.quoteWrap(featureDao.getPkColumnName());
+        GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+        Projection projection = featureDao.getProjection();
+
+        while (hasResults && (progress == null || progress.isActive())) {
+
+            hasResults = false;
+
+            FeatureCursor cursor;
+            if (lastId == null) {
+                cursor = featureDao.queryForChunk(columns, pk, chunkLimit);
+            } else {
+                cursor = featureDao.queryForChunk(columns, pk + " > ?",
+                        new String[]{String.valueOf(lastId)}, pk, chunkLimit);
+            }
+            try {
+                while (cursor.moveToNext()) {
+                    hasResults = true;
+
+                    Long id = null;
+                    GeometryEnvelope envelope = null;
+                    try {
+                        if (cursor.isDirectRead()) {
+                            id = cursor.getId();
+                            if (cursor.readGeometryEnvelope(envelopeReader)) {
+                                envelope = envelopeReader.getEnvelope();
+                            }
+                        } else {
+                            // Rows with large blobs are invalid when first
+                            // read and re-read at the end of the chunk
+                            FeatureRow row = cursor.getRow();
+                            if (!row.isValid()) {
+                                continue;
+                            }
+                            id = row.getId();
+                            envelope = row.getGeometryEnvelope();
+                        }
+                    } catch (Exception e) {
+                        Log.e(FeatureMemoryIndex.class.getSimpleName(),
+                                "Failed to read feature geometry envelope. Table: "
+                                        + featureDao.getTableName() + ", Id: "
+                                        + id, e);
+                    }
+
+                    if (id == null) {
+                        continue;
+                    }
+
+                    if (lastId == null || id > lastId) {
+                        lastId = id;
+                    }
+                    rowCount++;
+                    maxId = Math.max(maxId, id);
+
+                    if (envelope != null) {
+                        if (geodesic) {
+                            envelope = ProjectionGeometryUtils
+                                    .geodesicEnvelope(envelope, projection);
+                        }
+                        builder.add(id, envelope);
+                        if (progress != null) {
+                            progress.addProgress(1);
+                        }
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        int count = 0;
+
+        if ((progress == null || progress.isActive())
+                && indexInvalidations == invalidations) {
+            PackedHilbertRTree tree = builder.build(nodeSize);
+            this.tree = tree;
+            lastIndexed = new Date();
+            fileChecked = true;
+            count = tree.size();
+
+            if (file != null && dataVersion != null) {
+                try {
+                    tree.save(file, featureDao.getTableName(), rowCount, maxId,
+                            lastIndexed.getTime(), geodesic, dataVersion);
+                } catch (IOException e) {
+                    Log.w(FeatureMemoryIndex.class.getSimpleName(),
+                            "Failed to save feature memory index. Table: "
+                                    + featureDao.getTableName() + ", File: "
+                                    + file, e);
+                    file.delete();
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Determine if the feature table is indexed
+     *
+     * @return true if indexed
+     */
+    public boolean isIndexed() {
+        boolean indexed = false;
+        Date lastIndexed = getLastIndexed();
+        if (lastIndexed != null) {
+            Date lastChange = queryLastChange();
+            indexed = lastChange == null || !lastIndexed.before(lastChange);
+        }
+        return indexed;
+    }
+
+    /**
+     * Query the current contents last change of the feature table, instead
+     * of the cached contents
+     *
+     * @return last change or null
+     */
+    private Date queryLastChange() {
+        Date lastChange = null;
+        Object value = featureDao.getDb().querySingleResult(
+                "SELECT " + CoreSQLUtils.quoteWrap(Contents.COLUMN_LAST_CHANGE)
+                        + " FROM " + CoreSQLUtils.quoteWrap(Contents.TABLE_NAME)
+                        + " WHERE " + CoreSQLUtils.quoteWrap(Contents.COLUMN_TABLE_NAME)
+                        + " = ?", new String[]{featureDao.getTableName()}, 0,
+                GeoPackageDataType.TEXT);
+        if (value != null) {
+            try {
+                lastChange = DateConverter.dateTimeConverter()
+                        .dateValue(value.toString());
+            } catch (Exception e) {
+                Log.w(FeatureMemoryIndex.class.getSimpleName(),
+                        "Failed to parse contents last change. Table: "
+                                + featureDao.getTableName() + ", Last Change: "
+                                + value, e);
+            }
+        }
+        return lastChange;
+    }
+
+    /**
+     * Get the date last indexed
+     *
+     * @return last indexed date or null
+     */
+    public Date getLastIndexed() {
+        loadFile();
+        return lastIndexed;
+    }
+
+    /**
+     * Delete the index, including the index file
+     *
+     * @return true if an index was deleted
+     */
+    public boolean deleteIndex() {
+        boolean deleted = tree != null;
+        clear();
+        if (file != null && file.exists()) {
+            deleted = file.delete() || deleted;
+        }
+        fileChecked = true;
+        return deleted;
+    }
+
+    /**
+     * Clear the index from memory, leaving the index file
+     */
+    public void clear() {
+        featureDao.removeWriteListener(writeListener);
+        tree = null;
+        lastIndexed = null;
+        fileChecked = false;
+    }
+
+    /**
+     * Clear the index from memory and delete the stale index file after
+     * feature writes
+     */
+    private void invalidate() {
+        invalidations++;
+        featureDao.removeWriteListener(writeListener);
+        tree = null;
+        lastIndexed = null;
+        fileChecked = true;
+        File file = this.file;
+        if (file != null && file.exists()) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Load the index from the index file when not indexed in memory and the
+     * file matches the current feature table
+     */
+    private void loadFile() {
+        if (tree == null && !fileChecked) {
+            fileChecked = true;
+            if (file != null && file.exists()) {
+                try {
+                    PackedHilbertRTree.Header header = PackedHilbertRTree
+                            .readHeader(file);
+                    if (isCurrent(header)) {
+                        featureDao.addWriteListener(writeListener);
+                        tree = PackedHilbertRTree.load(file);
+                        lastIndexed = new Date(header.getBuilt());
+                    }
+                } catch (Exception e) {
+                    Log.w(FeatureMemoryIndex.class.getSimpleName(),
+                            "Failed to load feature memory index. Table: "
+                                    + featureDao.getTableName() + ", File: "
+                                    + file, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determine if the saved index header matches the current feature table
+     *
+     * @param header index file header
+     * @return true if current
+     */
+    private boolean isCurrent(PackedHilbertRTree.Header header) {
+        boolean current = header.isGeodesic() == geodesic
+                && header.getTableName().equals(featureDao.getTableName())
+                && header.getDataVersion().equals(
+                SQLiteDatabaseUtils.getFileState(databaseFile))
+                && header.getRowCount() == featureDao.count();
+        if (current) {
+            Object maxIdValue = featureDao.getDb().querySingleResult(
+                    "SELECT MAX(" + CoreSQLUtils.quoteWrap(featureDao.getPkColumnName())
+                            + ") FROM " + CoreSQLUtils.quoteWrap(featureDao.getTableName()),
+                    null, 0, GeoPackageDataType.INTEGER);
+            long maxId = maxIdValue != null ? ((Number) maxIdValue).longValue() : 0;
+            current = maxId == header.getMaxId();
+        }
+        return current;
+    }
+
+    /**
+     * Get the tree, verifying the table is indexed
+     *
+     * @return tree
+     */
+    private PackedHilbertRTree getRequiredTree() {
+        PackedHilbertRTree tree = getTree();
+        if (tree == null) {
+            throw new GeoPackageException(
+                    "Feature table is not indexed in memory: "
+                            + featureDao.getTableName());
+        }
+        return tree;
+    }
+
+    /**
+     * Count the indexed features
+     *
+     * @return count
+     */
+    public long count() {
+        return getRequiredTree().size();
+    }
+
+    /**
+     * Count the indexed features within the envelope
+     *
+     * @param envelope geometry envelope
+     * @return count
+     */
+    public long count(GeometryEnvelope envelope) {
+        return getRequiredTree().count(envelope.getMinX() - tolerance,
+                envelope.getMinY() - tolerance, envelope.getMaxX() + tolerance,
+                envelope.getMaxY() + tolerance);
+    }
+
+    /**
+     * Get the indexed feature ids within the envelope
+     *
+     * @param envelope geometry envelope, null for all indexed features
+     * @return ids in ascending order
+     */
+    public long[] ids(GeometryEnvelope envelope) {
+        PackedHilbertRTree tree = getRequiredTree();
+        long[] ids;
+        if (envelope == null) {
+            ids = tree.ids();
+        } else {
+            ids = tree.query(envelope.getMinX() - tolerance,
+                    envelope.getMinY() - tolerance,
+                    envelope.getMaxX() + tolerance,
+                    envelope.getMaxY() + tolerance);
+        }
+        return ids;
+    }
+
+    /**
+     * Get the indexed feature ids within the envelope matching the where
+     * clause
+     *
+     * @param envelope  geometry envelope, null for all indexed features
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return ids in ascending order
+     */
+    public long[] ids(GeometryEnvelope envelope, String where,
+                      String[] whereArgs) {
+        long[] ids = ids(envelope);
+        if (where != null && ids.length > 0) {
+            long[] filtered = new long[ids.length];
+            int count = 0;
+            String[] idColumn = new String[]{featureDao.getPkColumnName()};
+            for (int start = 0; start < ids.length; start += ID_CHUNK) {
+                FeatureCursor cursor = featureDao.query(idColumn,
+                        idWhere(ids, start, where), whereArgs);
+                try {
+                    while (cursor.moveToNext()) {
+                        filtered[count++] = cursor.getId();
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+            ids = Arrays.copyOf(filtered, count);
+            Arrays.sort(ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Query for all indexed features
+     *
+     * @param distinct distinct rows
+     * @param columns  columns
+     * @return feature cursor
+     */
+    public FeatureCursor queryFeatures(boolean distinct, String[] columns) {
+        return queryFeatures(distinct, columns, null, null);
+    }
+
+    /**
+     * Query for indexed features
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return feature cursor
+     */
+    public FeatureCursor queryFeatures(boolean distinct, String[] columns,
+                                       String where, String[] whereArgs) {
+        getRequiredTree();
+        return featureDao.query(distinct, columns, indexedWhere(where),
+                whereArgs);
+    }
+
+    /**
+     * Count the indexed features
+     *
+     * @param distinct distinct column values
+     * @param column   count column name
+     * @return count
+     */
+    public int countFeatures(boolean distinct, String column) {
+        return countFeatures(distinct, column, null, null);
+    }
+
+    /**
+     * Count the indexed features
+     *
+     * @param distinct  distinct column values
+     * @param column    count column name
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return count
+     */
+    public int countFeatures(boolean distinct, String column, String where,
+                             String[] whereArgs) {
+        getRequiredTree();
+        return featureDao.count(distinct, column, indexedWhere(where),
+                whereArgs);
+    }
+
+    /**
+     * Count the indexed features within the envelope
+     *
+     * @param distinct distinct column values
+     * @param column   count column name
+     * @param envelope geometry envelope
+     * @return count
+     */
+    public int countFeatures(boolean distinct, String column,
+                             GeometryEnvelope envelope) {
+        return countFeatures(distinct, column, envelope, null, null);
+    }
+
+    /**
+     * Count the indexed features within the envelope. Distinct column counts
+     * are not supported.
+     *
+     * @param distinct  distinct column values
+     * @param column    count column name
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return count
+     */
+    public int countFeatures(boolean distinct, String column,
+                             GeometryEnvelope envelope, String where, String[] whereArgs) {
+        int count;
+        if (distinct && column != null) {
+            throw new GeoPackageException(
+                    "Distinct column counts are not supported by the feature memory index. Column: "
+                            + column);
+        } else if (column == null && where == null) {
+            count = (int) count(envelope);
+        } else if (column == null) {
+            count = ids(envelope, where, whereArgs).length;
+        } else {
+            count = 0;
+            long[] ids = ids(envelope);
+            for (int start = 0; start < ids.length; start += ID_CHUNK) {
+                count += featureDao.count(false, column,
+                        idWhere(ids, start, where), whereArgs);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Query for indexed features within the envelope. Distinct queries are
+     * not supported.
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return feature index results
+     */
+    public FeatureIndexMemoryResults queryFeatures(boolean distinct,
+                                                   String[] columns, GeometryEnvelope envelope, String where,
+                                                   String[] whereArgs) {
+        verifyNotDistinct(distinct);
+        return new FeatureIndexMemoryResults(featureDao, columns,
+                ids(envelope, where, whereArgs));
+    }
+
+    /**
+     * Query for indexed features, starting at the offset and returning no
+     * more than the limit
+     *
+     * @param distinct distinct rows
+     * @param columns  columns
+     * @param orderBy  order by
+     * @param limit    chunk limit
+     * @param offset   chunk query offset
+     * @return feature cursor
+     */
+    public FeatureCursor queryFeaturesForChunk(boolean distinct,
+                                               String[] columns, String orderBy, int limit, long offset) {
+        return queryFeaturesForChunk(distinct, columns, null, null, orderBy,
+                limit, offset);
+    }
+
+    /**
+     * Query for indexed features, starting at the offset and returning no
+     * more than the limit
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param orderBy   order by
+     * @param limit     chunk limit
+     * @param offset    chunk query offset
+     * @return feature cursor
+     */
+    public FeatureCursor queryFeaturesForChunk(boolean distinct,
+                                               String[] columns, String where, String[] whereArgs,
+                                               String orderBy, int limit, long offset) {
+        getRequiredTree();
+        return featureDao.queryForChunk(distinct, columns, indexedWhere(where),
+                whereArgs, orderBy, limit, offset);
+    }
+
+    /**
+     * Query for indexed features within the envelope, starting at the offset
+     * and returning no more than the limit. Only id ordering is supported.
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param orderBy   order by, null or the id column
+     * @param limit     chunk limit
+     * @param offset    chunk query offset
+     * @return feature index results
+     */
+    public FeatureIndexMemoryResults queryFeaturesForChunk(boolean distinct,
+                                                           String[] columns, GeometryEnvelope envelope, String where,
+                                                           String[] whereArgs, String orderBy, int limit, long offset) {
+        verifyNotDistinct(distinct);
+        String pk = featureDao.getPkColumnName();
+        if (orderBy != null && !orderBy.equals(pk)
+                && !orderBy.equals(CoreSQLUtils.quoteWrap(pk))) {
+            throw new GeoPackageException(
+                    "Feature memory index chunk queries only support id ordering. Order By: "
+                            + orderBy);
+        }
+        long[] ids = ids(envelope, where, whereArgs);
+        int start = (int) Math.min(ids.length, Math.max(0, offset));
+        int end = (int) Math.min(ids.length, (long) start + limit);
+        return new FeatureIndexMemoryResults(featureDao, columns,
+                Arrays.copyOfRange(ids, start, end));
+    }
+
+    /**
+     * Get the bounding box of the indexed features
+     *
+     * @return bounding box or null when empty
+     */
+    public BoundingBox getBoundingBox() {
+        GeometryEnvelope envelope = getRequiredTree().getEnvelope();
+        BoundingBox boundingBox = null;
+        if (envelope != null) {
+            boundingBox = new BoundingBox(envelope);
+        }
+        return boundingBox;
+    }
+
+    /**
+     * Get the bounding box of the indexed features in the provided projection
+     *
+     * @param projection desired projection
+     * @return bounding box or null when empty
+     */
+    public BoundingBox getBoundingBox(Projection projection) {
+        BoundingBox boundingBox = getBoundingBox();
+        if (boundingBox != null && projection != null) {
+            ProjectionTransform projectionTransform = featureDao
+                    .getProjection().getTransformation(projection);
+            boundingBox = boundingBox.transform(projectionTransform);
+        }
+        return boundingBox;
+    }
+
+    /**
+     * Build a where clause restricting to indexed features
+     *
+     * @param where where clause
+     * @return where clause
+     */
+    private String indexedWhere(String where) {
+        String indexed = CoreSQLUtils.quoteWrap(featureDao
+                .getGeometryColumnName()) + " IS NOT NULL";
+        if (where != null) {
+            indexed += " AND (" + where + ")";
+        }
+        return indexed;
+    }
+
+    /**
+     * Build a where clause restricting to a chunk of ids
+     *
+     * @param ids   ids
+     * @param start chunk start index
+     * @param where additional where clause
+     * @return where clause
+     */
+    private String idWhere(long[] ids, int start, String where) {
+        StringBuilder sql = new StringBuilder();
+        sql.append(CoreSQLUtils.quoteWrap(featureDao.getPkColumnName()))
+                .append(" IN (");
+        int end = Math.min(ids.length, start + ID_CHUNK);
+        for (int i = start; i < end; i++) {
+            if (i > start) {
+                sql.append(", ");
+            }
+            sql.append(ids[i]);
+        }
+        sql.append(")");
+        if (where != null) {
+            sql.append(" AND (").append(where).append(")");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Verify a query is not distinct
+     *
+     * @param distinct distinct rows
+     */
+    private void verifyNotDistinct(boolean distinct) {
+        if (distinct) {
+            throw new GeoPackageException(
+                    "Distinct envelope queries are not supported by the feature memory index");
+        }
+    }
+
+}
@@ -0,0 +1,378 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.List;
+
+import mil.nga.sf.CompoundCurve;
+import mil.nga.sf.Curve;
+import mil.nga.sf.CurvePolygon;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryCollection;
+import mil.nga.sf.LineString;
+import mil.nga.sf.Point;
+import mil.nga.sf.Polygon;
+import mil.nga.sf.PolyhedralSurface;
+
+/**
+ * Geometry Distance, computes the distance from a point to a geometry and
+ * the lower bound distance from a point to an envelope. Planar distances are
+ * in the geometry units. Geodesic distances are great circle meters from
+ * degree coordinates, with the closest point of each segment found in a
+ * local equirectangular plane around the point.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+class GeometryDistance {
+
+    /**
+     * Mean earth radius in meters
+     */
+    public static final double EARTH_RADIUS = 6371008.8;
+
+    /**
+     * Query point x
+     */
+    private final double x;
+
+    /**
+     * Query point y
+     */
+    private final double y;
+
+    /**
+     * Geodesic distance flag
+     */
+    private final boolean geodesic;
+
+    /**
+     * Longitude scale of the local equirectangular plane when geodesic
+     */
+    private final double scale;
+
+    /**
+     * Constructor
+     *
+     * @param point    query point
+     * @param geodesic true for geodesic meters from degree coordinates
+     */
+    GeometryDistance(Point point, boolean geodesic) {
+        this.x = point.getX();
+        this.y = point.getY();
+        this.geodesic = geodesic;
+        this.scale = geodesic ? Math.cos(Math.toRadians(point.getY())) : 1.0;
+    }
+
+    /**
+     * Is the distance geodesic
+     *
+     * @return true if geodesic meters
+     */
+    boolean isGeodesic() {
+        return geodesic;
+    }
+
+    /**
+     * Get the distance from the point to the geometry, 0 when the point is
+     * within a polygon
+     *
+     * @param geometry geometry
+     * @return distance or {@link Double#POSITIVE_INFINITY} for empty
+     * geometries
+     */
+    double distance(Geometry geometry) {
+
+        double distance = Double.POSITIVE_INFINITY;
+
+        if (geometry instanceof Point) {
+            Point point = (Point) geometry;
+            distance = pointDistance(point.getX(), point.getY());
+        } else if (geometry instanceof LineString) {
+            distance = lineDistance(((LineString) geometry).getPoints(),
+                    false);
+        } else if (geometry instanceof CompoundCurve) {
+            for (LineString lineString : ((CompoundCurve) geometry)
+                    .getLineStrings()) {
+                distance = Math.min(distance,
+                        lineDistance(lineString.getPoints(), false));
+            }
+        } else if (geometry instanceof Polygon) {
+            distance = polygonDistance(((Polygon) geometry).getRings());
+        } else if (geometry instanceof CurvePolygon) {
+            CurvePolygon<?> curvePolygon = (CurvePolygon<?>) geometry;
+            for (Curve ring : curvePolygon.getRings()) {
+                distance = Math.min(distance, distance(ring));
+            }
+        } else if (geometry instanceof PolyhedralSurface) {
+            for (Polygon polygon : ((PolyhedralSurface) geometry)
+                    .getPolygons()) {
+                distance = Math.min(distance,
+                        polygonDistance(polygon.getRings()));
+                if (distance == 0) {
+                    break;
+                }
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            for (Geometry child : ((GeometryCollection<?>) geometry)
+                    .getGeometries()) {
+                distance = Math.min(distance, distance(child));
+                if (distance == 0) {
+                    break;
+                }
+            }
+        }
+
+        return distance;
+    }
+
+    /**
+     * Get the lower bound distance from the point to any geometry within the
+     * envelope
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param maxX max x
+     * @param maxY max y
+     * @return lower bound distance
+     */
+    double lowerBound(double minX, double minY, double maxX, double maxY) {
+
+        double distance;
+
+        double dy = y < minY ? minY - y : (y > maxY ? y - maxY : 0);
+
+        if (geodesic) {
+            // hav(d) = hav(dLat) + cos(lat1) cos(lat2) hav(dLon), bounded
+            // below using the max absolute latitude of the point and envelope
+            double dx = 0;
+            if (x < minX || x > maxX) {
+                dx = Math.min(longitudeDifference(x, minX),
+                        longitudeDifference(x, maxX));
+            }
+            double maxLatitude = Math.min(90.0, Math.max(Math.abs(y),
+                    Math.max(Math.abs(minY), Math.abs(maxY))));
+            double cos = Math.cos(Math.toRadians(maxLatitude));
+            double hav = haversine(Math.toRadians(dy))
+                    + cos * cos * haversine(Math.toRadians(dx));
+            distance = 2 * EARTH_RADIUS
+                    * Math.asin(Math.sqrt(Math.min(1.0, hav)));
+        } else {
+            double dx = x < minX ? minX - x : (x > maxX ? x - maxX : 0);
+            distance = Math.sqrt(dx * dx + dy * dy);
+        }
+
+        return distance;
+    }
+
+    /**
+     * Get the half width and half height of an envelope around the point
+     * containing every location within the distance
+     *
+     * @param distance distance
+     * @return half width and half height
+     */
+    double[] expansion(double distance) {
+        double[] expansion;
+        if (geodesic) {
+            double halfHeight = Math.toDegrees(distance / EARTH_RADIUS);
+            double maxLatitude = Math.abs(y) + halfHeight;
+            double halfWidth;
+            if (maxLatitude >= 90.0) {
+                halfWidth = 180.0;
+            } else {
+                halfWidth = Math.min(180.0, halfHeight
+                        / Math.cos(Math.toRadians(maxLatitude)));
+            }
+            expansion = new double[]{halfWidth, halfHeight};
+        } else {
+            expansion = new double[]{distance, distance};
+        }
+        return expansion;
+    }
+
+    /**
+     * Get the distance from the point to a polygon, 0 when within
+     *
+     * @param rings polygon rings, exterior first
+     * @return distance
+     */
+    private double polygonDistance(List<LineString> rings) {
+        double distance = Double.POSITIVE_INFINITY;
+        if (!rings.isEmpty()) {
+            boolean inside = contains(rings.get(0).getPoints());
+            for (int i = 1; inside && i < rings.size(); i++) {
+                if (contains(rings.get(i).getPoints())) {
+                    inside = false;
+                }
+            }
+            if (inside) {
+                distance = 0;
+            } else {
+                for (LineString ring : rings) {
+                    distance = Math.min(distance,
+                            lineDistance(ring.getPoints(), true));
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Get the distance from the point to a line
+     *
+     * @param points line points
+     * @param closed true to include the closing segment of a ring
+     * @return distance
+     */
+    private double lineDistance(List<Point> points, boolean closed) {
+
+        double distance = Double.POSITIVE_INFINITY;
+
+        int size = points.size();
+        if (size == 1) {
+            distance = pointDistance(points.get(0).getX(),
+                    points.get(0).getY());
+        } else if (size > 1) {
+            int segments = closed ? size : size - 1;
+            for (int i = 0; i < segments; i++) {
+                Point start = points.get(i);
+                Point end = points.get((i + 1) % size);
+                distance = Math.min(distance, segmentDistance(start.getX(),
+                        start.getY(), end.getX(), end.getY()));
+                if (distance == 0) {
+                    break;
+                }
+            }
+        }
+
+        return distance;
+    }
+
+    /**
+     * Get the distance from the point to a segment
+     *
+     * @param x1 start x
+     * @param y1 start y
+     * @param x2 end x
+     * @param y2 end y
+     * @return distance
+     */
+    private double segmentDistance(double x1, double y1, double x2,
+                                   double y2) {
+
+        // Segment relative to the point in the local plane
+        double ax = localX(x1);
+        double ay = y1 - y;
+        double bx = localX(x2);
+        double by = y2 - y;
+
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = 0;
+        if (lengthSquared > 0) {
+            t = Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+        }
+        double cx = ax + t * dx;
+        double cy = ay + t * dy;
+
+        double distance;
+        if (geodesic) {
+            double closestX = scale > 0 ? x + cx / scale : x1 + t * (x2 - x1);
+            distance = pointDistance(closestX, y + cy);
+        } else {
+            distance = Math.sqrt(cx * cx + cy * cy);
+        }
+        return distance;
+    }
+
+    /**
+     * Get the distance from the query point to a point
+     *
+     * @param px point x
+     * @param py point y
+     * @return distance
+     */
+    private double pointDistance(double px, double py) {
+        double distance;
+        if (geodesic) {
+            double lat1 = Math.toRadians(y);
+            double lat2 = Math.toRadians(py);
+            double hav = haversine(lat2 - lat1) + Math.cos(lat1)
+                    * Math.cos(lat2)
+                    * haversine(Math.toRadians(longitudeDifference(x, px)));
+            distance = 2 * EARTH_RADIUS
+                    * Math.asin(Math.sqrt(Math.min(1.0, hav)));
+        } else {
+            double dx = px - x;
+            double dy = py - y;
+            distance = Math.sqrt(dx * dx + dy * dy);
+        }
+        return distance;
+    }
+
+    /**
+     * Determine if the point is within the ring
+     *
+     * @param ring ring points
+     * @return true if within
+     */
+    private boolean contains(List<Point> ring) {
+        boolean inside = false;
+        int size = ring.size();
+        for (int i = 0, j = size - 1; i < size; j = i++) {
+            double xi = localX(ring.get(i).getX());
+            double yi = ring.get(i).getY() - y;
+            double xj = localX(ring.get(j).getX());
+            double yj = ring.get(j).getY() - y;
+            if ((yi > 0) != (yj > 0)
+                    && 0 < (xj - xi) * (0 - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Get the x coordinate relative to the point in the local plane,
+     * wrapping longitudes across the antimeridian when geodesic
+     *
+     * @param px point x
+     * @return local x
+     */
+    private double localX(double px) {
+        double dx = px - x;
+        if (geodesic) {
+            if (dx > 180.0) {
+                dx -= 360.0;
+            } else if (dx < -180.0) {
+                dx += 360.0;
+            }
+            dx *= scale;
+        }
+        return dx;
+    }
+
+    /**
+     * Get the absolute longitude difference, wrapped to at most 180 degrees
+     *
+     * @param lon1 first longitude
+     * @param lon2 second longitude
+     * @return difference in degrees
+     */
+    private static double longitudeDifference(double lon1, double lon2) {
+        double difference = Math.abs(lon1 - lon2) % 360.0;
+        return difference > 180.0 ? 360.0 - difference : difference;
+    }
+
+    /**
+     * Haversine function
+     *
+     * @param angle angle in radians
+     * @return haversine
+     */
+    private static double haversine(double angle) {
+        double sin = Math.sin(angle / 2);
+        return sin * sin;
+    }
+
+}
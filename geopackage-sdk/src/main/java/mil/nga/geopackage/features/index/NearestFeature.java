@@ -0,0 +1,72 @@
+package mil.nga.geopackage.features.index;
+
+import mil.nga.geopackage.features.user.FeatureRow;
+
+/**
+ * Nearest Feature, a feature row returned from a nearest neighbor search
+ * along with its distance from the search point
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class NearestFeature {
+
+    /**
+     * Feature row
+     */
+    private final FeatureRow row;
+
+    /**
+     * Distance from the search point
+     */
+    private final double distance;
+
+    /**
+     * Constructor
+     *
+     * @param row      feature row
+     * @param distance distance from the search point
+     */
+    public NearestFeature(FeatureRow row, double distance) {
+        this.row = row;
+        this.distance = distance;
+    }
+
+    /**
+     * Get the feature row
+     *
+     * @return feature row
+     */
+    public FeatureRow getRow() {
+        return row;
+    }
+
+    /**
+     * Get the feature id
+     *
+     * @return feature id
+     */
+    public long getId() {
+        return row.getId();
+    }
+
+    /**
+     * Get the distance from the search point, in the feature projection units
+     * or in meters for geodesic searches. 0 when the point is within a
+     * polygon.
+     *
+     * @return distance
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "Id: " + row.getId() + ", Distance: " + distance;
+    }
+
+}
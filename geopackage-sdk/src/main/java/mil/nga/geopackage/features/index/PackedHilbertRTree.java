@@ -0,0 +1,1042 @@
+package mil.nga.geopackage.features.index;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Static packed Hilbert R-tree of feature envelopes. Items are sorted by the
+ * Hilbert value of their envelope centers and packed bottom up into nodes of
+ * a fixed size. Node envelopes and item ids are stored in primitive buffers
+ * (heap arrays when built, or a memory mapped file when loaded) without per
+ * node objects.
+ * <p>
+ * The tree is immutable once built and safe for concurrent queries.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class PackedHilbertRTree {
+
+    /**
+     * Default number of children per node
+     */
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    /**
+     * File magic number, "GPKGMIDX" as little endian bytes
+     */
+    private static final long MAGIC = 0x5844494D474B5047L;
+
+    /**
+     * File format version
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Max Hilbert grid coordinate
+     */
+    private static final int HILBERT_MAX = (1 << 16) - 1;
+
+    /**
+     * File character set
+     */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Number of children per node
+     */
+    private final int nodeSize;
+
+    /**
+     * Number of indexed items
+     */
+    private final int numItems;
+
+    /**
+     * Exclusive end node index of each level, leaf level first
+     */
+    private final int[] levelBounds;
+
+    /**
+     * Node envelopes as min x, min y, max x, max y per node
+     */
+    private final DoubleBuffer boxes;
+
+    /**
+     * Item ids for leaf nodes and first child node indices for parent nodes
+     */
+    private final LongBuffer indices;
+
+    /**
+     * Constructor
+     *
+     * @param nodeSize    node size
+     * @param numItems    number of items
+     * @param levelBounds level bounds
+     * @param boxes       node envelopes
+     * @param indices     node indices
+     */
+    private PackedHilbertRTree(int nodeSize, int numItems, int[] levelBounds,
+                               DoubleBuffer boxes, LongBuffer indices) {
+        this.nodeSize = nodeSize;
+        this.numItems = numItems;
+        this.levelBounds = levelBounds;
+        this.boxes = boxes;
+        this.indices = indices;
+    }
+
+    /**
+     * Get the number of children per node
+     *
+     * @return node size
+     */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Get the number of indexed items
+     *
+     * @return item count
+     */
+    public int size() {
+        return numItems;
+    }
+
+    /**
+     * Get the total number of nodes, including leaf items
+     *
+     * @return node count
+     */
+    public int getNumNodes() {
+        return levelBounds.length > 0 ? levelBounds[levelBounds.length - 1] : 0;
+    }
+
+    /**
+     * Get the envelope of all items
+     *
+     * @return envelope or null when empty
+     */
+    public GeometryEnvelope getEnvelope() {
+        GeometryEnvelope envelope = null;
+        if (numItems > 0) {
+            int root = (getNumNodes() - 1) * 4;
+            envelope = new GeometryEnvelope(boxes.get(root),
+                    boxes.get(root + 1), boxes.get(root + 2),
+                    boxes.get(root + 3));
+        }
+        return envelope;
+    }
+
+    /**
+     * Query for the ids of items intersecting the envelope, inclusive of
+     * touching edges
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param maxX max x
+     * @param maxY max y
+     * @return item ids in ascending order
+     */
+    public long[] query(double minX, double minY, double maxX, double maxY) {
+        long[][] results = new long[][]{new long[Math.min(numItems, 64)]};
+        int count = search(minX, minY, maxX, maxY, results);
+        long[] ids = Arrays.copyOf(results[0], count);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Count the items intersecting the envelope, inclusive of touching edges,
+     * without allocating a result
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param maxX max x
+     * @param maxY max y
+     * @return count
+     */
+    public int count(double minX, double minY, double maxX, double maxY) {
+        return search(minX, minY, maxX, maxY, null);
+    }
+
+    /**
+     * Get all item ids
+     *
+     * @return item ids in ascending order
+     */
+    public long[] ids() {
+        long[] ids = new long[numItems];
+        for (int i = 0; i < numItems; i++) {
+            ids[i] = indices.get(i);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Envelope distance function used to order a nearest search
+     */
+    public interface EnvelopeDistance {
+
+        /**
+         * Get the lower bound distance to any item within the envelope
+         *
+         * @param minX min x
+         * @param minY min y
+         * @param maxX max x
+         * @param maxY max y
+         * @return lower bound distance
+         */
+        double distance(double minX, double minY, double maxX, double maxY);
+
+    }
+
+    /**
+     * Nearest search, a best first traversal returning items in order of
+     * increasing envelope distance. Nodes are expanded lazily as items are
+     * requested.
+     */
+    public class Nearest {
+
+        /**
+         * Envelope distance function
+         */
+        private final EnvelopeDistance envelopeDistance;
+
+        /**
+         * Queued distances, a binary min heap
+         */
+        private double[] distances = new double[64];
+
+        /**
+         * Queued node positions
+         */
+        private int[] positions = new int[64];
+
+        /**
+         * Queued node levels
+         */
+        private int[] levels = new int[64];
+
+        /**
+         * Number of queued nodes
+         */
+        private int size = 0;
+
+        /**
+         * Current item id
+         */
+        private long id;
+
+        /**
+         * Current item envelope distance
+         */
+        private double distance;
+
+        /**
+         * Constructor
+         *
+         * @param envelopeDistance envelope distance function
+         */
+        private Nearest(EnvelopeDistance envelopeDistance) {
+            this.envelopeDistance = envelopeDistance;
+            if (numItems > 0) {
+                push(getNumNodes() - 1, levelBounds.length - 1);
+            }
+        }
+
+        /**
+         * Move to the next nearest item
+         *
+         * @return true if an item is available
+         */
+        public boolean next() {
+            boolean found = false;
+            while (!found && size > 0) {
+                double nodeDistance = distances[0];
+                int position = positions[0];
+                int level = levels[0];
+                pop();
+                if (level == 0) {
+                    id = indices.get(position);
+                    distance = nodeDistance;
+                    found = true;
+                } else {
+                    int child = (int) indices.get(position);
+                    int end = Math.min(child + nodeSize,
+                            levelBounds[level - 1]);
+                    for (int pos = child; pos < end; pos++) {
+                        push(pos, level - 1);
+                    }
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Get the current item id
+         *
+         * @return id
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Get the current item envelope distance
+         *
+         * @return envelope distance
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * Get the lower bound distance of the remaining items
+         *
+         * @return distance, {@link Double#POSITIVE_INFINITY} when no items
+         * remain
+         */
+        public double peekDistance() {
+            return size > 0 ? distances[0] : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Queue a node
+         *
+         * @param position node position
+         * @param level    node level
+         */
+        private void push(int position, int level) {
+            int box = position * 4;
+            double nodeDistance = envelopeDistance.distance(boxes.get(box),
+                    boxes.get(box + 1), boxes.get(box + 2),
+                    boxes.get(box + 3));
+            if (size == distances.length) {
+                distances = Arrays.copyOf(distances, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+                levels = Arrays.copyOf(levels, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (distances[parent] <= nodeDistance) {
+                    break;
+                }
+                move(parent, index);
+                index = parent;
+            }
+            distances[index] = nodeDistance;
+            positions[index] = position;
+            levels[index] = level;
+        }
+
+        /**
+         * Remove the nearest queued node
+         */
+        private void pop() {
+            size--;
+            if (size > 0) {
+                double lastDistance = distances[size];
+                int lastPosition = positions[size];
+                int lastLevel = levels[size];
+                int index = 0;
+                while (true) {
+                    int child = 2 * index + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size
+                            && distances[child + 1] < distances[child]) {
+                        child++;
+                    }
+                    if (lastDistance <= distances[child]) {
+                        break;
+                    }
+                    move(child, index);
+                    index = child;
+                }
+                distances[index] = lastDistance;
+                positions[index] = lastPosition;
+                levels[index] = lastLevel;
+            }
+        }
+
+        /**
+         * Move a queued node within the heap
+         *
+         * @param from from index
+         * @param to   to index
+         */
+        private void move(int from, int to) {
+            distances[to] = distances[from];
+            positions[to] = positions[from];
+            levels[to] = levels[from];
+        }
+
+    }
+
+    /**
+     * Start a nearest search returning items in order of increasing envelope
+     * distance
+     *
+     * @param envelopeDistance envelope distance function
+     * @return nearest search
+     */
+    public Nearest nearest(EnvelopeDistance envelopeDistance) {
+        return new Nearest(envelopeDistance);
+    }
+
+    /**
+     * Search the tree
+     *
+     * @param minX    min x
+     * @param minY    min y
+     * @param maxX    max x
+     * @param maxY    max y
+     * @param results single element holder of the results buffer, replaced
+     *                when grown, or null to only count
+     * @return count
+     */
+    private int search(double minX, double minY, double maxX, double maxY,
+                       long[][] results) {
+
+        int count = 0;
+
+        if (numItems == 0) {
+            return count;
+        }
+
+        int level = levelBounds.length - 1;
+        int nodeIndex = getNumNodes() - 1;
+
+        // Stack of node index and level pairs
+        int[] stack = new int[levelBounds.length * nodeSize * 2];
+        int stackSize = 0;
+
+        while (true) {
+
+            int end = Math.min(nodeIndex + nodeSize, levelBounds[level]);
+
+            for (int pos = nodeIndex; pos < end; pos++) {
+
+                int box = pos * 4;
+                if (maxX < boxes.get(box) || maxY < boxes.get(box + 1)
+                        || minX > boxes.get(box + 2)
+                        || minY > boxes.get(box + 3)) {
+                    continue;
+                }
+
+                long index = indices.get(pos);
+
+                if (nodeIndex < numItems) {
+                    if (results != null) {
+                        if (count == results[0].length) {
+                            results[0] = Arrays.copyOf(results[0],
+                                    Math.max(16, results[0].length * 2));
+                        }
+                        results[0][count] = index;
+                    }
+                    count++;
+                } else {
+                    stack[stackSize++] = (int) index;
+                    stack[stackSize++] = level - 1;
+                }
+            }
+
+            if (stackSize == 0) {
+                break;
+            }
+            level = stack[--stackSize];
+            nodeIndex = stack[--stackSize];
+        }
+
+        return count;
+    }
+
+    /**
+     * Save the tree to a file
+     *
+     * @param file      file
+     * @param tableName feature table name
+     * @param rowCount  feature table row count when built
+     * @param maxId     feature table max id when built
+     * @param built       built time in milliseconds
+     * @param geodesic    true if built from geodesic envelopes
+     * @param dataVersion GeoPackage data version when built
+     * @throws IOException upon failure
+     */
+    public void save(File file, String tableName, long rowCount, long maxId,
+                     long built, boolean geodesic, String dataVersion)
+            throws IOException {
+
+        byte[] name = tableName.getBytes(CHARSET);
+        byte[] version = dataVersion.getBytes(CHARSET);
+        int numNodes = getNumNodes();
+
+        int headerSize = headerSize(name.length, version.length,
+                levelBounds.length);
+        ByteBuffer header = ByteBuffer.allocate(headerSize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(nodeSize);
+        header.putInt(numItems);
+        header.putInt(levelBounds.length);
+        header.putLong(rowCount);
+        header.putLong(maxId);
+        header.putLong(built);
+        header.putInt(geodesic ? 1 : 0);
+        header.putInt(name.length);
+        header.put(name);
+        header.putInt(version.length);
+        header.put(version);
+        for (int levelBound : levelBounds) {
+            header.putInt(levelBound);
+        }
+        header.position(headerSize);
+        header.flip();
+
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            FileChannel channel = output.getChannel();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(8 * 4096)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < numNodes * 4; i++) {
+                if (!buffer.hasRemaining()) {
+                    write(channel, buffer);
+                }
+                buffer.putDouble(boxes.get(i));
+            }
+            for (int i = 0; i < numNodes; i++) {
+                if (!buffer.hasRemaining()) {
+                    write(channel, buffer);
+                }
+                buffer.putLong(indices.get(i));
+            }
+            write(channel, buffer);
+            channel.force(false);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Write and clear the buffer
+     *
+     * @param channel file channel
+     * @param buffer  buffer
+     * @throws IOException upon failure
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Get the 8 byte aligned file header size
+     *
+     * @param nameLength    table name byte length
+     * @param versionLength data version byte length
+     * @param numLevels     number of levels
+     * @return header size
+     */
+    private static int headerSize(int nameLength, int versionLength,
+                                  int numLevels) {
+        int size = 8 + 4 * 4 + 8 * 3 + 4 * 3 + nameLength + versionLength
+                + 4 * numLevels;
+        return (size + 7) & ~7;
+    }
+
+    /**
+     * Saved tree file header
+     */
+    public static class Header {
+
+        /**
+         * Feature table name
+         */
+        private String tableName;
+
+        /**
+         * Feature table row count when built
+         */
+        private long rowCount;
+
+        /**
+         * Feature table max id when built
+         */
+        private long maxId;
+
+        /**
+         * Built time in milliseconds
+         */
+        private long built;
+
+        /**
+         * Built from geodesic envelopes
+         */
+        private boolean geodesic;
+
+        /**
+         * GeoPackage data version when built
+         */
+        private String dataVersion;
+
+        /**
+         * Get the feature table name
+         *
+         * @return table name
+         */
+        public String getTableName() {
+            return tableName;
+        }
+
+        /**
+         * Get the feature table row count when built
+         *
+         * @return row count
+         */
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Get the feature table max id when built
+         *
+         * @return max id
+         */
+        public long getMaxId() {
+            return maxId;
+        }
+
+        /**
+         * Get the built time in milliseconds
+         *
+         * @return built time
+         */
+        public long getBuilt() {
+            return built;
+        }
+
+        /**
+         * Is the tree built from geodesic envelopes
+         *
+         * @return true if geodesic
+         */
+        public boolean isGeodesic() {
+            return geodesic;
+        }
+
+        /**
+         * Get the GeoPackage data version when built
+         *
+         * @return data version
+         */
+        public String getDataVersion() {
+            return dataVersion;
+        }
+
+    }
+
+    /**
+     * Read the header of a saved tree file
+     *
+     * @param file file
+     * @return header
+     * @throws IOException upon failure
+     */
+    public static Header readHeader(File file) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        try {
+            FileChannel channel = input.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(
+                    (int) Math.min(channel.size(), 4096))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read the header bytes
+            }
+            buffer.flip();
+            return readHeader(buffer, new int[3]);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Read the header
+     *
+     * @param buffer    buffer positioned at the start
+     * @param structure populated node size, item count, and level count
+     * @return header
+     */
+    private static Header readHeader(ByteBuffer buffer, int[] structure) {
+        if (buffer.remaining() < headerSize(0, 0, 0)
+                || buffer.getLong() != MAGIC) {
+            throw new GeoPackageException(
+                    "Not a packed Hilbert R-tree file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new GeoPackageException(
+                    "Unsupported packed Hilbert R-tree file version: "
+                            + version);
+        }
+        structure[0] = buffer.getInt();
+        structure[1] = buffer.getInt();
+        structure[2] = buffer.getInt();
+        Header header = new Header();
+        header.rowCount = buffer.getLong();
+        header.maxId = buffer.getLong();
+        header.built = buffer.getLong();
+        header.geodesic = buffer.getInt() != 0;
+        byte[] name = new byte[buffer.getInt()];
+        buffer.get(name);
+        header.tableName = new String(name, CHARSET);
+        byte[] version = new byte[buffer.getInt()];
+        buffer.get(version);
+        header.dataVersion = new String(version, CHARSET);
+        return header;
+    }
+
+    /**
+     * Load a saved tree by memory mapping the file
+     *
+     * @param file file
+     * @return tree
+     * @throws IOException upon failure
+     */
+    public static PackedHilbertRTree load(File file) throws IOException {
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            int[] structure = new int[3];
+            Header header = readHeader(mapped, structure);
+            int nodeSize = structure[0];
+            int numItems = structure[1];
+            int[] levelBounds = new int[structure[2]];
+            for (int i = 0; i < levelBounds.length; i++) {
+                levelBounds[i] = mapped.getInt();
+            }
+            int numNodes = levelBounds.length > 0
+                    ? levelBounds[levelBounds.length - 1] : 0;
+
+            int boxesOffset = headerSize(
+                    header.tableName.getBytes(CHARSET).length,
+                    header.dataVersion.getBytes(CHARSET).length,
+                    levelBounds.length);
+            long indicesOffset = boxesOffset + 8L * 4 * numNodes;
+            if (indicesOffset + 8L * numNodes > channel.size()) {
+                throw new GeoPackageException(
+                        "Truncated packed Hilbert R-tree file: " + file);
+            }
+
+            mapped.position(boxesOffset);
+            DoubleBuffer boxes = mapped.slice()
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            boxes.limit(numNodes * 4);
+
+            mapped.position((int) indicesOffset);
+            LongBuffer indices = mapped.slice()
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            indices.limit(numNodes);
+
+            return new PackedHilbertRTree(nodeSize, numItems, levelBounds,
+                    boxes, indices);
+        } finally {
+            // The mapping remains valid after the channel is closed
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Packed Hilbert R-tree builder, collects item envelopes in primitive
+     * arrays
+     */
+    public static class Builder {
+
+        /**
+         * Item envelopes as min x, min y, max x, max y per item
+         */
+        private double[] boxes;
+
+        /**
+         * Item ids
+         */
+        private long[] ids;
+
+        /**
+         * Number of items
+         */
+        private int size = 0;
+
+        /**
+         * Constructor
+         */
+        public Builder() {
+            this(1024);
+        }
+
+        /**
+         * Constructor
+         *
+         * @param capacity initial item capacity
+         */
+        public Builder(int capacity) {
+            capacity = Math.max(1, capacity);
+            boxes = new double[capacity * 4];
+            ids = new long[capacity];
+        }
+
+        /**
+         * Get the number of added items
+         *
+         * @return size
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Add an item
+         *
+         * @param id       item id
+         * @param envelope item envelope
+         */
+        public void add(long id, GeometryEnvelope envelope) {
+            add(id, envelope.getMinX(), envelope.getMinY(),
+                    envelope.getMaxX(), envelope.getMaxY());
+        }
+
+        /**
+         * Add an item
+         *
+         * @param id   item id
+         * @param minX min x
+         * @param minY min y
+         * @param maxX max x
+         * @param maxY max y
+         */
+        public void add(long id, double minX, double minY, double maxX,
+                        double maxY) {
+            if (size == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                boxes = Arrays.copyOf(boxes, capacity * 4);
+            }
+            int box = size * 4;
+            boxes[box] = minX;
+            boxes[box + 1] = minY;
+            boxes[box + 2] = maxX;
+            boxes[box + 3] = maxY;
+            ids[size++] = id;
+        }
+
+        /**
+         * Build the tree with the default node size
+         *
+         * @return tree
+         */
+        public PackedHilbertRTree build() {
+            return build(DEFAULT_NODE_SIZE);
+        }
+
+        /**
+         * Build the tree
+         *
+         * @param nodeSize number of children per node
+         * @return tree
+         */
+        public PackedHilbertRTree build(int nodeSize) {
+
+            if (nodeSize < 2) {
+                throw new GeoPackageException(
+                        "Node size must be at least 2: " + nodeSize);
+            }
+
+            // Determine the level bounds
+            int[] levelBounds;
+            int numNodes = size;
+            if (size == 0) {
+                levelBounds = new int[0];
+            } else {
+                int[] bounds = new int[64];
+                int levels = 0;
+                int count = size;
+                bounds[levels++] = numNodes;
+                do {
+                    count = (count + nodeSize - 1) / nodeSize;
+                    numNodes += count;
+                    bounds[levels++] = numNodes;
+                } while (count != 1);
+                levelBounds = Arrays.copyOf(bounds, levels);
+            }
+
+            double[] nodeBoxes = new double[numNodes * 4];
+            long[] nodeIndices = new long[numNodes];
+
+            if (size > 0) {
+
+                // Bounds of all items for Hilbert scaling
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < size; i++) {
+                    int box = i * 4;
+                    minX = Math.min(minX, boxes[box]);
+                    minY = Math.min(minY, boxes[box + 1]);
+                    maxX = Math.max(maxX, boxes[box + 2]);
+                    maxY = Math.max(maxY, boxes[box + 3]);
+                }
+                double width = maxX - minX;
+                double height = maxY - minY;
+                double scaleX = width > 0 ? HILBERT_MAX / width : 0;
+                double scaleY = height > 0 ? HILBERT_MAX / height : 0;
+
+                // Sort the items by Hilbert value, packing the value and item
+                // position into a single primitive sort key
+                long[] keys = new long[size];
+                for (int i = 0; i < size; i++) {
+                    int box = i * 4;
+                    int x = (int) Math.floor(scaleX
+                            * ((boxes[box] + boxes[box + 2]) / 2 - minX));
+                    int y = (int) Math.floor(scaleY
+                            * ((boxes[box + 1] + boxes[box + 3]) / 2 - minY));
+                    keys[i] = ((hilbert(x, y) & 0xFFFFFFFFL) << 31) | i;
+                }
+                Arrays.sort(keys);
+
+                // Leaf items in Hilbert order
+                for (int i = 0; i < size; i++) {
+                    int item = (int) (keys[i] & 0x7FFFFFFFL);
+                    System.arraycopy(boxes, item * 4, nodeBoxes, i * 4, 4);
+                    nodeIndices[i] = ids[item];
+                }
+
+                // Pack each level into parent nodes
+                int pos = 0;
+                int write = size;
+                for (int level = 0; level < levelBounds.length - 1; level++) {
+                    int end = levelBounds[level];
+                    while (pos < end) {
+                        int nodeIndex = pos;
+                        double nodeMinX = Double.POSITIVE_INFINITY;
+                        double nodeMinY = Double.POSITIVE_INFINITY;
+                        double nodeMaxX = Double.NEGATIVE_INFINITY;
+                        double nodeMaxY = Double.NEGATIVE_INFINITY;
+                        for (int i = 0; i < nodeSize && pos < end; i++, pos++) {
+                            int box = pos * 4;
+                            nodeMinX = Math.min(nodeMinX, nodeBoxes[box]);
+                            nodeMinY = Math.min(nodeMinY, nodeBoxes[box + 1]);
+                            nodeMaxX = Math.max(nodeMaxX, nodeBoxes[box + 2]);
+                            nodeMaxY = Math.max(nodeMaxY, nodeBoxes[box + 3]);
+                        }
+                        int box = write * 4;
+                        nodeBoxes[box] = nodeMinX;
+                        nodeBoxes[box + 1] = nodeMinY;
+                        nodeBoxes[box + 2] = nodeMaxX;
+                        nodeBoxes[box + 3] = nodeMaxY;
+                        nodeIndices[write++] = nodeIndex;
+                    }
+                }
+            }
+
+            return new PackedHilbertRTree(nodeSize, size, levelBounds,
+                    DoubleBuffer.wrap(nodeBoxes), LongBuffer.wrap(nodeIndices));
+        }
+
+    }
+
+    /**
+     * Get the Hilbert curve value of the grid coordinate
+     *
+     * @param x x coordinate, 0 to 65535
+     * @param y y coordinate, 0 to 65535
+     * @return unsigned 32 bit Hilbert value
+     */
+    private static int hilbert(int x, int y) {
+
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int A = a | (b >>> 1);
+        int B = (a >>> 1) ^ a;
+        int C = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+        int D = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = (a & (a >>> 2)) ^ (b & (b >>> 2));
+        B = (a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2));
+        C ^= (a & (c >>> 2)) ^ (b & (d >>> 2));
+        D ^= (b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = (a & (a >>> 4)) ^ (b & (b >>> 4));
+        B = (a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4));
+        C ^= (a & (c >>> 4)) ^ (b & (d >>> 4));
+        D ^= (b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        C ^= (a & (c >>> 8)) ^ (b & (d >>> 8));
+        D ^= (b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8));
+
+        a = C ^ (C >>> 1);
+        b = D ^ (D >>> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+        i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+        i0 = (i0 | (i0 << 2)) & 0x33333333;
+        i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+        i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+        i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+        i1 = (i1 | (i1 << 2)) & 0x33333333;
+        i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+        return (i1 << 1) | i0;
+    }
+
+}
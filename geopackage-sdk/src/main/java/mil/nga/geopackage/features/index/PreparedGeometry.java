@@ -0,0 +1,932 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+import mil.nga.sf.CompoundCurve;
+import mil.nga.sf.Curve;
+import mil.nga.sf.CurvePolygon;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryCollection;
+import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.LineString;
+import mil.nga.sf.Point;
+import mil.nga.sf.Polygon;
+import mil.nga.sf.PolyhedralSurface;
+import mil.nga.sf.util.GeometryEnvelopeBuilder;
+
+/**
+ * Prepared Geometry, a query geometry indexed once for repeated exact
+ * spatial predicate tests against feature geometries. Segments are binned
+ * into a uniform grid for intersection tests, and grid cells not crossed by
+ * a polygon ring are classified as inside or outside for constant time
+ * point in polygon tests.
+ * <p>
+ * Predicates are planar and evaluated in the coordinates of the geometries.
+ * Prepared geometries are immutable and safe for concurrent tests.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class PreparedGeometry {
+
+    /**
+     * Max grid cells per dimension
+     */
+    private static final int MAX_GRID_SIZE = 64;
+
+    /**
+     * Point location outside of the area
+     */
+    private static final int OUTSIDE = 0;
+
+    /**
+     * Point location on the area boundary
+     */
+    private static final int BOUNDARY = 1;
+
+    /**
+     * Point location inside of the area
+     */
+    private static final int INSIDE = 2;
+
+    /**
+     * Cell state requiring a full point in polygon test
+     */
+    private static final byte CELL_BOUNDARY = 0;
+
+    /**
+     * Cell state of cells fully inside the area
+     */
+    private static final byte CELL_INSIDE = 1;
+
+    /**
+     * Cell state of cells fully outside the area
+     */
+    private static final byte CELL_OUTSIDE = 2;
+
+    /**
+     * Geometry
+     */
+    private final Geometry geometry;
+
+    /**
+     * Geometry parts
+     */
+    private final Parts parts;
+
+    /**
+     * Envelope
+     */
+    private final GeometryEnvelope envelope;
+
+    /**
+     * Grid size per dimension
+     */
+    private final int gridSize;
+
+    /**
+     * Grid cell width
+     */
+    private final double cellWidth;
+
+    /**
+     * Grid cell height
+     */
+    private final double cellHeight;
+
+    /**
+     * Segment index start of each cell, cell segments in row major order
+     */
+    private final int[] cellStarts;
+
+    /**
+     * Segment indices of each cell
+     */
+    private final int[] cellSegments;
+
+    /**
+     * Ring segment index start of each row band
+     */
+    private final int[] rowStarts;
+
+    /**
+     * Ring segment indices of each row band
+     */
+    private final int[] rowSegments;
+
+    /**
+     * Point in polygon state of each cell
+     */
+    private final byte[] cellStates;
+
+    /**
+     * Test points, the vertices and segment midpoints
+     */
+    private final double[] testPoints;
+
+    /**
+     * Constructor
+     *
+     * @param geometry geometry
+     */
+    public PreparedGeometry(Geometry geometry) {
+        this.geometry = geometry;
+        this.parts = new Parts(geometry);
+        this.envelope = GeometryEnvelopeBuilder.buildEnvelope(geometry);
+
+        int segments = parts.segmentCount;
+        gridSize = Math.max(1, Math.min(MAX_GRID_SIZE,
+                (int) Math.sqrt(segments)));
+        if (envelope != null) {
+            cellWidth = (envelope.getMaxX() - envelope.getMinX()) / gridSize;
+            cellHeight = (envelope.getMaxY() - envelope.getMinY()) / gridSize;
+        } else {
+            cellWidth = 0;
+            cellHeight = 0;
+        }
+
+        // Bin the segments into grid cells and the ring segments into rows
+        int cells = gridSize * gridSize;
+        cellStarts = new int[cells + 1];
+        rowStarts = new int[gridSize + 1];
+        int[] cellSegmentsFill = null;
+        int[] rowSegmentsFill = null;
+        for (int pass = 0; pass < 2; pass++) {
+            int[] cellCounts = new int[cells];
+            int[] rowCounts = new int[gridSize];
+            for (int i = 0; i < segments; i++) {
+                int s = i * 4;
+                double[] seg = parts.segments;
+                int minCol = column(Math.min(seg[s], seg[s + 2]));
+                int maxCol = column(Math.max(seg[s], seg[s + 2]));
+                int minRow = row(Math.min(seg[s + 1], seg[s + 3]));
+                int maxRow = row(Math.max(seg[s + 1], seg[s + 3]));
+                for (int row = minRow; row <= maxRow; row++) {
+                    for (int col = minCol; col <= maxCol; col++) {
+                        int cell = row * gridSize + col;
+                        if (pass == 1) {
+                            cellSegmentsFill[cellStarts[cell]
+                                    + cellCounts[cell]] = i;
+                        }
+                        cellCounts[cell]++;
+                    }
+                    if (parts.ring[i]) {
+                        if (pass == 1) {
+                            rowSegmentsFill[rowStarts[row]
+                                    + rowCounts[row]] = i;
+                        }
+                        rowCounts[row]++;
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int cell = 0; cell < cells; cell++) {
+                    cellStarts[cell + 1] = cellStarts[cell] + cellCounts[cell];
+                }
+                for (int row = 0; row < gridSize; row++) {
+                    rowStarts[row + 1] = rowStarts[row] + rowCounts[row];
+                }
+                cellSegmentsFill = new int[cellStarts[cells]];
+                rowSegmentsFill = new int[rowStarts[gridSize]];
+            }
+        }
+        cellSegments = cellSegmentsFill;
+        rowSegments = rowSegmentsFill;
+
+        // Classify the cells not crossed by a ring
+        cellStates = new byte[cells];
+        if (parts.area && envelope != null) {
+            for (int row = 0; row < gridSize; row++) {
+                for (int col = 0; col < gridSize; col++) {
+                    int cell = row * gridSize + col;
+                    boolean crossed = false;
+                    for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                        if (parts.ring[cellSegments[i]]) {
+                            crossed = true;
+                            break;
+                        }
+                    }
+                    if (!crossed) {
+                        double x = envelope.getMinX() + (col + 0.5) * cellWidth;
+                        double y = envelope.getMinY() + (row + 0.5) * cellHeight;
+                        cellStates[cell] = locateArea(x, y, false) == INSIDE
+                                ? CELL_INSIDE : CELL_OUTSIDE;
+                    }
+                }
+            }
+        }
+
+        testPoints = parts.testPoints();
+    }
+
+    /**
+     * Get the geometry
+     *
+     * @return geometry
+     */
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Get the geometry envelope
+     *
+     * @return envelope, null for an empty geometry
+     */
+    public GeometryEnvelope getEnvelope() {
+        return envelope;
+    }
+
+    /**
+     * Test the spatial predicate between the feature geometry and this
+     * prepared query geometry
+     *
+     * @param predicate       spatial predicate
+     * @param featureGeometry feature geometry
+     * @return true if the predicate is satisfied
+     */
+    public boolean test(SpatialPredicate predicate, Geometry featureGeometry) {
+        boolean result = false;
+        if (envelope != null && featureGeometry != null) {
+            switch (predicate) {
+                case INTERSECTS:
+                    result = intersects(featureGeometry);
+                    break;
+                case CONTAINS:
+                    result = isContainedBy(featureGeometry);
+                    break;
+                case WITHIN:
+                    result = contains(featureGeometry);
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                            "Unsupported spatial predicate: " + predicate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determine if the geometry intersects this prepared geometry
+     *
+     * @param other geometry
+     * @return true if intersecting
+     */
+    public boolean intersects(Geometry other) {
+
+        Parts otherParts = new Parts(other);
+
+        // Other vertices on or within this geometry
+        for (int i = 0; i < otherParts.vertexCount; i++) {
+            if (covers(otherParts.vertices[i * 2],
+                    otherParts.vertices[i * 2 + 1])) {
+                return true;
+            }
+        }
+
+        // Crossing segments
+        for (int i = 0; i < otherParts.segmentCount; i++) {
+            int s = i * 4;
+            if (intersectsSegment(otherParts.segments[s],
+                    otherParts.segments[s + 1], otherParts.segments[s + 2],
+                    otherParts.segments[s + 3], false)) {
+                return true;
+            }
+        }
+
+        // This geometry within the other area
+        if (otherParts.area) {
+            for (int i = 0; i < parts.anchorCount; i++) {
+                if (otherParts.locate(parts.anchors[i * 2],
+                        parts.anchors[i * 2 + 1]) != OUTSIDE) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Determine if this prepared geometry contains the geometry, every point
+     * of the geometry on or within this geometry
+     *
+     * @param other geometry
+     * @return true if contained
+     */
+    public boolean contains(Geometry other) {
+
+        Parts otherParts = new Parts(other);
+
+        if ((otherParts.area && !parts.area) || otherParts.vertexCount == 0) {
+            return false;
+        }
+
+        double[] otherTestPoints = otherParts.testPoints();
+        for (int i = 0; i < otherTestPoints.length; i += 2) {
+            if (!covers(otherTestPoints[i], otherTestPoints[i + 1])) {
+                return false;
+            }
+        }
+
+        if (parts.area) {
+            for (int i = 0; i < otherParts.segmentCount; i++) {
+                int s = i * 4;
+                if (intersectsSegment(otherParts.segments[s],
+                        otherParts.segments[s + 1], otherParts.segments[s + 2],
+                        otherParts.segments[s + 3], true)) {
+                    return false;
+                }
+            }
+        }
+
+        // Holes or boundaries of this geometry within the other area
+        if (otherParts.area) {
+            for (int i = 0; i < parts.segmentCount; i++) {
+                if (parts.ring[i]) {
+                    int s = i * 4;
+                    if (otherParts.locate(parts.segments[s],
+                            parts.segments[s + 1]) == INSIDE) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Determine if this prepared geometry is contained by the geometry, every
+     * point of this geometry on or within the geometry
+     *
+     * @param other geometry
+     * @return true if contained by the geometry
+     */
+    public boolean isContainedBy(Geometry other) {
+
+        Parts otherParts = new Parts(other);
+
+        if ((parts.area && !otherParts.area) || parts.vertexCount == 0) {
+            return false;
+        }
+
+        for (int i = 0; i < testPoints.length; i += 2) {
+            if (otherParts.locate(testPoints[i], testPoints[i + 1]) == OUTSIDE) {
+                return false;
+            }
+        }
+
+        if (otherParts.area) {
+            for (int i = 0; i < otherParts.segmentCount; i++) {
+                if (otherParts.ring[i]) {
+                    int s = i * 4;
+                    if (intersectsSegment(otherParts.segments[s],
+                            otherParts.segments[s + 1],
+                            otherParts.segments[s + 2],
+                            otherParts.segments[s + 3], true)) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        // Holes or boundaries of the other geometry within this area
+        if (parts.area) {
+            for (int i = 0; i < otherParts.segmentCount; i++) {
+                if (otherParts.ring[i]) {
+                    int s = i * 4;
+                    if (locateArea(otherParts.segments[s],
+                            otherParts.segments[s + 1], true) == INSIDE) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Determine if the point is on or within this geometry
+     *
+     * @param x x
+     * @param y y
+     * @return true if covered
+     */
+    public boolean covers(double x, double y) {
+
+        if (envelope == null || x < envelope.getMinX()
+                || x > envelope.getMaxX() || y < envelope.getMinY()
+                || y > envelope.getMaxY()) {
+            return false;
+        }
+
+        if (parts.area && locateArea(x, y, true) != OUTSIDE) {
+            return true;
+        }
+
+        int cell = row(y) * gridSize + column(x);
+        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+            int s = cellSegments[i] * 4;
+            if (onSegment(x, y, parts.segments[s], parts.segments[s + 1],
+                    parts.segments[s + 2], parts.segments[s + 3])) {
+                return true;
+            }
+        }
+
+        for (int i = 0; i < parts.pointCount; i++) {
+            if (parts.points[i * 2] == x && parts.points[i * 2 + 1] == y) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Locate the point relative to the polygon area
+     *
+     * @param x        x
+     * @param y        y
+     * @param useCells true to use the classified cells
+     * @return {@link #INSIDE}, {@link #BOUNDARY}, or {@link #OUTSIDE}
+     */
+    private int locateArea(double x, double y, boolean useCells) {
+
+        if (x < envelope.getMinX() || x > envelope.getMaxX()
+                || y < envelope.getMinY() || y > envelope.getMaxY()) {
+            return OUTSIDE;
+        }
+
+        int row = row(y);
+        if (useCells) {
+            byte state = cellStates[row * gridSize + column(x)];
+            if (state == CELL_INSIDE) {
+                return INSIDE;
+            } else if (state == CELL_OUTSIDE) {
+                return OUTSIDE;
+            }
+        }
+
+        boolean inside = false;
+        for (int i = rowStarts[row]; i < rowStarts[row + 1]; i++) {
+            int s = rowSegments[i] * 4;
+            double x1 = parts.segments[s];
+            double y1 = parts.segments[s + 1];
+            double x2 = parts.segments[s + 2];
+            double y2 = parts.segments[s + 3];
+            if (onSegment(x, y, x1, y1, x2, y2)) {
+                return BOUNDARY;
+            }
+            if ((y1 > y) != (y2 > y)
+                    && x < (x2 - x1) * (y - y1) / (y2 - y1) + x1) {
+                inside = !inside;
+            }
+        }
+
+        return inside ? INSIDE : OUTSIDE;
+    }
+
+    /**
+     * Determine if the segment intersects a segment of this geometry
+     *
+     * @param x1     start x
+     * @param y1     start y
+     * @param x2     end x
+     * @param y2     end y
+     * @param proper true to only match proper crossings of ring segments at
+     *               a single point interior to both segments
+     * @return true if intersecting
+     */
+    private boolean intersectsSegment(double x1, double y1, double x2,
+                                      double y2, boolean proper) {
+
+        double minX = Math.min(x1, x2);
+        double maxX = Math.max(x1, x2);
+        double minY = Math.min(y1, y2);
+        double maxY = Math.max(y1, y2);
+        if (envelope == null || maxX < envelope.getMinX()
+                || minX > envelope.getMaxX() || maxY < envelope.getMinY()
+                || minY > envelope.getMaxY()) {
+            return false;
+        }
+
+        int minCol = column(minX);
+        int maxCol = column(maxX);
+        int minRow = row(minY);
+        int maxRow = row(maxY);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int cell = row * gridSize + col;
+                for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                    int index = cellSegments[i];
+                    if (proper && !parts.ring[index]) {
+                        continue;
+                    }
+                    int s = index * 4;
+                    double x3 = parts.segments[s];
+                    double y3 = parts.segments[s + 1];
+                    double x4 = parts.segments[s + 2];
+                    double y4 = parts.segments[s + 3];
+                    if (proper ? crosses(x1, y1, x2, y2, x3, y3, x4, y4)
+                            : intersects(x1, y1, x2, y2, x3, y3, x4, y4)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the grid column of the x coordinate
+     *
+     * @param x x
+     * @return column
+     */
+    private int column(double x) {
+        int column = 0;
+        if (cellWidth > 0) {
+            column = (int) ((x - envelope.getMinX()) / cellWidth);
+            column = Math.max(0, Math.min(gridSize - 1, column));
+        }
+        return column;
+    }
+
+    /**
+     * Get the grid row of the y coordinate
+     *
+     * @param y y
+     * @return row
+     */
+    private int row(double y) {
+        int row = 0;
+        if (cellHeight > 0) {
+            row = (int) ((y - envelope.getMinY()) / cellHeight);
+            row = Math.max(0, Math.min(gridSize - 1, row));
+        }
+        return row;
+    }
+
+    /**
+     * Orientation of the point relative to the directed segment
+     *
+     * @param x1 start x
+     * @param y1 start y
+     * @param x2 end x
+     * @param y2 end y
+     * @param x  point x
+     * @param y  point y
+     * @return positive when left, negative when right, 0 when collinear
+     */
+    private static double orientation(double x1, double y1, double x2,
+                                      double y2, double x, double y) {
+        return (x2 - x1) * (y - y1) - (y2 - y1) * (x - x1);
+    }
+
+    /**
+     * Determine if the point is on the segment
+     *
+     * @param x  point x
+     * @param y  point y
+     * @param x1 start x
+     * @param y1 start y
+     * @param x2 end x
+     * @param y2 end y
+     * @return true if on the segment
+     */
+    private static boolean onSegment(double x, double y, double x1,
+                                     double y1, double x2, double y2) {
+        return x >= Math.min(x1, x2) && x <= Math.max(x1, x2)
+                && y >= Math.min(y1, y2) && y <= Math.max(y1, y2)
+                && orientation(x1, y1, x2, y2, x, y) == 0;
+    }
+
+    /**
+     * Determine if two segments share at least one point
+     *
+     * @param x1 first start x
+     * @param y1 first start y
+     * @param x2 first end x
+     * @param y2 first end y
+     * @param x3 second start x
+     * @param y3 second start y
+     * @param x4 second end x
+     * @param y4 second end y
+     * @return true if intersecting
+     */
+    private static boolean intersects(double x1, double y1, double x2,
+                                      double y2, double x3, double y3, double x4, double y4) {
+        double o1 = orientation(x1, y1, x2, y2, x3, y3);
+        double o2 = orientation(x1, y1, x2, y2, x4, y4);
+        double o3 = orientation(x3, y3, x4, y4, x1, y1);
+        double o4 = orientation(x3, y3, x4, y4, x2, y2);
+        if (Math.signum(o1) * Math.signum(o2) < 0
+                && Math.signum(o3) * Math.signum(o4) < 0) {
+            return true;
+        }
+        return onSegment(x3, y3, x1, y1, x2, y2)
+                || onSegment(x4, y4, x1, y1, x2, y2)
+                || onSegment(x1, y1, x3, y3, x4, y4)
+                || onSegment(x2, y2, x3, y3, x4, y4);
+    }
+
+    /**
+     * Determine if two segments properly cross at a single point interior to
+     * both segments
+     *
+     * @param x1 first start x
+     * @param y1 first start y
+     * @param x2 first end x
+     * @param y2 first end y
+     * @param x3 second start x
+     * @param y3 second start y
+     * @param x4 second end x
+     * @param y4 second end y
+     * @return true if properly crossing
+     */
+    private static boolean crosses(double x1, double y1, double x2,
+                                   double y2, double x3, double y3, double x4, double y4) {
+        double o1 = orientation(x1, y1, x2, y2, x3, y3);
+        double o2 = orientation(x1, y1, x2, y2, x4, y4);
+        double o3 = orientation(x3, y3, x4, y4, x1, y1);
+        double o4 = orientation(x3, y3, x4, y4, x2, y2);
+        return Math.signum(o1) * Math.signum(o2) < 0
+                && Math.signum(o3) * Math.signum(o4) < 0;
+    }
+
+    /**
+     * Geometry parts flattened into primitive arrays of isolated points,
+     * vertices, segments, and component anchor points
+     */
+    private static class Parts {
+
+        /**
+         * Isolated points as x, y pairs
+         */
+        private double[] points = new double[8];
+
+        /**
+         * Number of isolated points
+         */
+        private int pointCount = 0;
+
+        /**
+         * Vertices as x, y pairs
+         */
+        private double[] vertices = new double[16];
+
+        /**
+         * Number of vertices
+         */
+        private int vertexCount = 0;
+
+        /**
+         * Segments as x1, y1, x2, y2
+         */
+        private double[] segments = new double[32];
+
+        /**
+         * Ring segment flags
+         */
+        private boolean[] ring = new boolean[8];
+
+        /**
+         * Number of segments
+         */
+        private int segmentCount = 0;
+
+        /**
+         * First vertex of each component as x, y pairs
+         */
+        private double[] anchors = new double[8];
+
+        /**
+         * Number of components
+         */
+        private int anchorCount = 0;
+
+        /**
+         * Polygon area flag
+         */
+        private boolean area = false;
+
+        /**
+         * Constructor
+         *
+         * @param geometry geometry
+         */
+        Parts(Geometry geometry) {
+            add(geometry);
+        }
+
+        /**
+         * Add the geometry parts
+         *
+         * @param geometry geometry
+         */
+        private void add(Geometry geometry) {
+            if (geometry instanceof Point) {
+                Point point = (Point) geometry;
+                points = ensure(points, pointCount * 2 + 2);
+                points[pointCount * 2] = point.getX();
+                points[pointCount * 2 + 1] = point.getY();
+                pointCount++;
+                addVertex(point.getX(), point.getY());
+                addAnchor(point.getX(), point.getY());
+            } else if (geometry instanceof LineString) {
+                addLine(((LineString) geometry).getPoints(), false);
+            } else if (geometry instanceof CompoundCurve) {
+                for (LineString lineString : ((CompoundCurve) geometry)
+                        .getLineStrings()) {
+                    addLine(lineString.getPoints(), false);
+                }
+            } else if (geometry instanceof Polygon) {
+                addPolygon(((Polygon) geometry).getRings());
+            } else if (geometry instanceof CurvePolygon) {
+                for (Curve ring : ((CurvePolygon<?>) geometry).getRings()) {
+                    if (ring instanceof LineString) {
+                        addLine(((LineString) ring).getPoints(), true);
+                    } else if (ring instanceof CompoundCurve) {
+                        for (LineString lineString : ((CompoundCurve) ring)
+                                .getLineStrings()) {
+                            addLine(lineString.getPoints(), true);
+                        }
+                    }
+                }
+                area = true;
+            } else if (geometry instanceof PolyhedralSurface) {
+                for (Polygon polygon : ((PolyhedralSurface) geometry)
+                        .getPolygons()) {
+                    addPolygon(polygon.getRings());
+                }
+            } else if (geometry instanceof GeometryCollection) {
+                for (Geometry child : ((GeometryCollection<?>) geometry)
+                        .getGeometries()) {
+                    add(child);
+                }
+            }
+        }
+
+        /**
+         * Add polygon rings
+         *
+         * @param rings rings
+         */
+        private void addPolygon(List<LineString> rings) {
+            for (LineString ring : rings) {
+                addLine(ring.getPoints(), true);
+            }
+            area = true;
+        }
+
+        /**
+         * Add a line or ring
+         *
+         * @param linePoints line points
+         * @param isRing     true if a polygon ring
+         */
+        private void addLine(List<Point> linePoints, boolean isRing) {
+            int size = linePoints.size();
+            if (size == 0) {
+                return;
+            }
+            addAnchor(linePoints.get(0).getX(), linePoints.get(0).getY());
+            for (int i = 0; i < size; i++) {
+                Point point = linePoints.get(i);
+                addVertex(point.getX(), point.getY());
+                if (i > 0) {
+                    Point previous = linePoints.get(i - 1);
+                    addSegment(previous.getX(), previous.getY(), point.getX(),
+                            point.getY(), isRing);
+                }
+            }
+            if (isRing && size > 1) {
+                Point first = linePoints.get(0);
+                Point last = linePoints.get(size - 1);
+                if (first.getX() != last.getX() || first.getY() != last.getY()) {
+                    addSegment(last.getX(), last.getY(), first.getX(),
+                            first.getY(), true);
+                }
+            }
+        }
+
+        /**
+         * Add a vertex
+         *
+         * @param x x
+         * @param y y
+         */
+        private void addVertex(double x, double y) {
+            vertices = ensure(vertices, vertexCount * 2 + 2);
+            vertices[vertexCount * 2] = x;
+            vertices[vertexCount * 2 + 1] = y;
+            vertexCount++;
+        }
+
+        /**
+         * Add a component anchor point
+         *
+         * @param x x
+         * @param y y
+         */
+        private void addAnchor(double x, double y) {
+            anchors = ensure(anchors, anchorCount * 2 + 2);
+            anchors[anchorCount * 2] = x;
+            anchors[anchorCount * 2 + 1] = y;
+            anchorCount++;
+        }
+
+        /**
+         * Add a segment
+         *
+         * @param x1     start x
+         * @param y1     start y
+         * @param x2     end x
+         * @param y2     end y
+         * @param isRing true if a polygon ring segment
+         */
+        private void addSegment(double x1, double y1, double x2, double y2,
+                                boolean isRing) {
+            segments = ensure(segments, segmentCount * 4 + 4);
+            if (ring.length <= segmentCount) {
+                ring = Arrays.copyOf(ring, ring.length * 2);
+            }
+            int s = segmentCount * 4;
+            segments[s] = x1;
+            segments[s + 1] = y1;
+            segments[s + 2] = x2;
+            segments[s + 3] = y2;
+            ring[segmentCount] = isRing;
+            segmentCount++;
+        }
+
+        /**
+         * Get the test points, the vertices and segment midpoints
+         *
+         * @return test points as x, y pairs
+         */
+        double[] testPoints() {
+            double[] test = new double[vertexCount * 2 + segmentCount * 2];
+            System.arraycopy(vertices, 0, test, 0, vertexCount * 2);
+            int index = vertexCount * 2;
+            for (int i = 0; i < segmentCount; i++) {
+                int s = i * 4;
+                test[index++] = (segments[s] + segments[s + 2]) / 2;
+                test[index++] = (segments[s + 1] + segments[s + 3]) / 2;
+            }
+            return test;
+        }
+
+        /**
+         * Locate the point relative to these parts with a linear scan
+         *
+         * @param x x
+         * @param y y
+         * @return {@link #INSIDE}, {@link #BOUNDARY}, or {@link #OUTSIDE}
+         */
+        int locate(double x, double y) {
+            boolean inside = false;
+            for (int i = 0; i < segmentCount; i++) {
+                int s = i * 4;
+                double x1 = segments[s];
+                double y1 = segments[s + 1];
+                double x2 = segments[s + 2];
+                double y2 = segments[s + 3];
+                if (onSegment(x, y, x1, y1, x2, y2)) {
+                    return BOUNDARY;
+                }
+                if (ring[i] && (y1 > y) != (y2 > y)
+                        && x < (x2 - x1) * (y - y1) / (y2 - y1) + x1) {
+                    inside = !inside;
+                }
+            }
+            for (int i = 0; i < pointCount; i++) {
+                if (points[i * 2] == x && points[i * 2 + 1] == y) {
+                    return BOUNDARY;
+                }
+            }
+            return inside ? INSIDE : OUTSIDE;
+        }
+
+        /**
+         * Ensure the array capacity
+         *
+         * @param array    array
+         * @param capacity required capacity
+         * @return array with the capacity
+         */
+        private static double[] ensure(double[] array, int capacity) {
+            if (array.length < capacity) {
+                array = Arrays.copyOf(array, Math.max(capacity,
+                        array.length * 2));
+            }
+            return array;
+        }
+
+    }
+
+}
@@ -0,0 +1,29 @@
+package mil.nga.geopackage.features.index;
+
+/**
+ * Spatial predicate between a feature geometry and a query geometry, used to
+ * refine envelope overlap index results to exact results
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public enum SpatialPredicate {
+
+    /**
+     * Feature geometry shares at least one point with the query geometry
+     */
+    INTERSECTS,
+
+    /**
+     * Feature geometry contains the query geometry, every query geometry
+     * point is within or on the boundary of the feature geometry
+     */
+    CONTAINS,
+
+    /**
+     * Feature geometry is within the query geometry, every feature geometry
+     * point is within or on the boundary of the query geometry
+     */
+    WITHIN;
+
+}
@@ -5,6 +5,7 @@ import android.database.Cursor;
 import java.util.List;
 
 import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.geom.GeometryEnvelopeReader;
 import mil.nga.geopackage.user.UserCursor;
 import mil.nga.geopackage.user.UserDao;
 import mil.nga.geopackage.user.UserInvalidCursor;
@@ -94,6 +95,33 @@ public class FeatureCursor extends
         return geometry;
     }
 
+    /**
+     * Read the geometry envelope of the current row without decoding the
+     * geometry. Only valid when {@link #isDirectRead()} is true, as large
+     * sized geometry blobs are read as null.
+     *
+     * @param reader geometry envelope reader
+     * @return true if an envelope was read, false if a null or empty geometry
+     * @since 6.7.5
+     */
+    public boolean readGeometryEnvelope(GeometryEnvelopeReader reader) {
+
+        boolean read = false;
+
+        int columnIndex = getColumns().getGeometryIndex();
+        int type = getType(columnIndex);
+
+        if (type != FIELD_TYPE_NULL) {
+            byte[] geometryBytes = getBlob(columnIndex);
+
+            if (geometryBytes != null) {
+                read = reader.read(geometryBytes);
+            }
+        }
+
+        return read;
+    }
+
     /**
      * Enable requery attempt of invalid rows after iterating through original query rows.
      * Only supported for {@link #moveToNext()} and {@link #getRow()} usage.
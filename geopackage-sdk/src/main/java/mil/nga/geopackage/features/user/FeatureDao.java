@@ -1,13 +1,24 @@
 package mil.nga.geopackage.features.user;
 
+import android.content.ContentValues;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.contents.Contents;
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.GeoPackageConnection;
+import mil.nga.geopackage.db.GeoPackageDataType;
+import mil.nga.geopackage.extension.nga.generalize.GeneralizedGeometryMaintainer;
+import mil.nga.geopackage.extension.rtree.RTreeIndexMaintainer;
 import mil.nga.geopackage.features.columns.GeometryColumns;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.geom.GeometryEnvelopeReader;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
 import mil.nga.geopackage.user.UserDao;
 import mil.nga.proj.Projection;
+import mil.nga.sf.GeometryEnvelope;
 import mil.nga.sf.GeometryType;
 
 /**
@@ -18,6 +29,19 @@ import mil.nga.sf.GeometryType;
 public class FeatureDao extends
         UserDao<FeatureColumn, FeatureTable, FeatureRow, FeatureCursor> {
 
+    /**
+     * Id column alias of join index subqueries, see
+     * {@link #queryJoin(boolean, String[], String, String[], String, String[])}
+     *
+     * @since 6.7.5
+     */
+    public static final String JOIN_ID_COLUMN = "nga_join_id";
+
+    /**
+     * Table alias of join index subqueries
+     */
+    private static final String JOIN_TABLE_ALIAS = "nga_join";
+
     /**
      * Feature connection
      */
@@ -28,6 +52,33 @@ public class FeatureDao extends
      */
     private final GeometryColumns geometryColumns;
 
+    /**
+     * RTree index maintainer, updates the RTree index on feature writes
+     */
+    private RTreeIndexMaintainer rTreeIndex;
+
+    /**
+     * Generalized geometry maintainer, removes stale generalized geometries
+     * on feature writes
+     */
+    private GeneralizedGeometryMaintainer generalizedGeometries;
+
+    /**
+     * Write listeners, shared with copies of the DAO
+     */
+    private CopyOnWriteArrayList<FeatureWriteListener> writeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Rows inserted in the current batch insert flag
+     */
+    private boolean batchWritten;
+
+    /**
+     * Envelope of the features inserted in the current batch insert, for
+     * notifying the write listeners once
+     */
+    private GeometryEnvelope batchEnvelope;
+
     /**
      * Constructor
      *
@@ -64,6 +115,14 @@ public class FeatureDao extends
      */
     public FeatureDao(FeatureDao featureDao) {
         this(featureDao.getDatabase(), featureDao.getDb(), featureDao.getGeometryColumns(), featureDao.getTable());
+        writeListeners = featureDao.writeListeners;
+        if (featureDao.rTreeIndex != null) {
+            setRTreeIndex(featureDao.rTreeIndex.getExtension().getMaintainer(this));
+        }
+        if (featureDao.generalizedGeometries != null) {
+            generalizedGeometries = featureDao.generalizedGeometries
+                    .getExtension().getMaintainer(this);
+        }
     }
 
     /**
@@ -188,4 +247,709 @@ public class FeatureDao extends
         return getTable().getIdAndGeometryColumnNames();
     }
 
+    /**
+     * Get the RTree index maintainer, non null when feature writes update
+     * the RTree index
+     *
+     * @return RTree index maintainer or null
+     * @since 6.7.5
+     */
+    public RTreeIndexMaintainer getRTreeIndex() {
+        return rTreeIndex;
+    }
+
+    /**
+     * Set the RTree index maintainer for updating the RTree index on feature
+     * inserts, updates, and deletes. Set by writable GeoPackages for feature
+     * tables with a RTree index, as the RTree triggers are dropped. The DAO
+     * writes through the bindings connection while a maintainer is set, so
+     * feature writes and RTree index changes share a transaction.
+     *
+     * @param rTreeIndex RTree index maintainer or null
+     * @since 6.7.5
+     */
+    public void setRTreeIndex(RTreeIndexMaintainer rTreeIndex) {
+        this.rTreeIndex = rTreeIndex;
+        if (rTreeIndex != null) {
+            setUseBindings(true);
+        }
+    }
+
+    /**
+     * Get the generalized geometry maintainer, non null when feature writes
+     * remove stale generalized geometries
+     *
+     * @return generalized geometry maintainer or null
+     * @since 6.7.5
+     */
+    public GeneralizedGeometryMaintainer getGeneralizedGeometries() {
+        return generalizedGeometries;
+    }
+
+    /**
+     * Set the generalized geometry maintainer for removing the generalized
+     * geometries of updated and deleted features. Set by writable GeoPackages
+     * for feature tables with generalized geometries.
+     *
+     * @param generalizedGeometries generalized geometry maintainer or null
+     * @since 6.7.5
+     */
+    public void setGeneralizedGeometries(
+            GeneralizedGeometryMaintainer generalizedGeometries) {
+        this.generalizedGeometries = generalizedGeometries;
+    }
+
+    /**
+     * Add a listener notified after features are written through this DAO
+     * or its copies
+     *
+     * @param listener write listener
+     * @since 6.7.5
+     */
+    public void addWriteListener(FeatureWriteListener listener) {
+        writeListeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Remove a write listener
+     *
+     * @param listener write listener
+     * @since 6.7.5
+     */
+    public void removeWriteListener(FeatureWriteListener listener) {
+        writeListeners.remove(listener);
+    }
+
+    /**
+     * Begin a transaction deferring RTree index updates for a bulk load. The
+     * deferred updates are applied before the transaction commits by
+     * {@link #endRTreeIndexBatch()}.
+     *
+     * @since 6.7.5
+     */
+    public void beginRTreeIndexBatch() {
+        if (rTreeIndex != null) {
+            rTreeIndex.beginBatch();
+        }
+    }
+
+    /**
+     * Apply the deferred RTree index updates and commit the batch transaction
+     *
+     * @return number of applied RTree index updates
+     * @since 6.7.5
+     */
+    public int endRTreeIndexBatch() {
+        return endRTreeIndexBatch(true);
+    }
+
+    /**
+     * End the RTree index batch, applying the deferred updates and committing
+     * when successful, or rolling back the batch feature writes
+     *
+     * @param successful true to apply and commit, false to roll back
+     * @return number of applied RTree index updates
+     * @since 6.7.5
+     */
+    public int endRTreeIndexBatch(boolean successful) {
+        int applied = 0;
+        if (rTreeIndex != null) {
+            applied = rTreeIndex.endBatch(successful);
+        }
+        return applied;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long insert(FeatureRow row) {
+        long id;
+        boolean transaction = beginMaintainedWrite();
+        boolean successful = false;
+        try {
+            id = super.insert(row);
+            if (rTreeIndex != null) {
+                rTreeIndex.index(id, row.getGeometry());
+            }
+            successful = true;
+        } finally {
+            endMaintainedWrite(transaction, successful);
+        }
+        written(writtenEnvelope(null, row.getGeometry()));
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long insert(ContentValues values) {
+        long id;
+        boolean transaction = beginMaintainedWrite();
+        boolean successful = false;
+        try {
+            id = super.insert(values);
+            if (rTreeIndex != null && id != -1) {
+                rTreeIndex.index(id, getGeometry(values));
+            }
+            successful = true;
+        } finally {
+            endMaintainedWrite(transaction, successful);
+        }
+        if (id != -1) {
+            written(writtenEnvelope(null, values));
+        }
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long insertOrThrow(ContentValues values) {
+        long id;
+        boolean transaction = beginMaintainedWrite();
+        boolean successful = false;
+        try {
+            id = super.insertOrThrow(values);
+            if (rTreeIndex != null) {
+                rTreeIndex.index(id, getGeometry(values));
+            }
+            successful = true;
+        } finally {
+            endMaintainedWrite(transaction, successful);
+        }
+        written(writtenEnvelope(null, values));
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int insertBatch(Iterable<FeatureRow> rows, int chunkLimit) {
+        int count = 0;
+        batchWritten = false;
+        batchEnvelope = null;
+        try {
+            count = super.insertBatch(rows, chunkLimit);
+        } finally {
+            if (batchWritten) {
+                written(batchEnvelope);
+            }
+            batchWritten = false;
+            batchEnvelope = null;
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void batchInserted(FeatureRow row, long id) {
+        if (rTreeIndex != null) {
+            rTreeIndex.index(id, row.getGeometry());
+        }
+        batchWritten = true;
+        batchEnvelope = writtenEnvelope(batchEnvelope, row.getGeometry());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int update(FeatureRow row) {
+        boolean geometryColumn = row.getColumns()
+                .hasColumn(getGeometryColumnName());
+        GeometryEnvelope envelope = null;
+        if (geometryColumn) {
+            envelope = queryWrittenEnvelope(getPkWhere(row.getId()),
+                    getPkWhereArgs(row.getId()));
+        }
+        int updated;
+        boolean transaction = beginMaintainedWrite();
+        boolean successful = false;
+        try {
+            updated = super.update(row);
+            if (updated > 0 && geometryColumn) {
+                if (generalizedGeometries != null) {
+                    generalizedGeometries.invalidate(row.getId());
+                }
+                if (rTreeIndex != null) {
+                    rTreeIndex.index(row.getId(), row.getGeometry());
+                }
+            }
+            successful = true;
+        } finally {
+            endMaintainedWrite(transaction, successful);
+        }
+        if (updated > 0) {
+            if (geometryColumn) {
+                envelope = writtenEnvelope(envelope, row.getGeometry());
+            }
+            written(envelope);
+        }
+        return updated;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int update(ContentValues values, String whereClause,
+                      String[] whereArgs) {
+        boolean geometryColumn = values.containsKey(getGeometryColumnName());
+        GeometryEnvelope envelope = null;
+        if (geometryColumn) {
+            envelope = queryWrittenEnvelope(whereClause, whereArgs);
+        }
+        int updated;
+        boolean transaction = beginMaintainedWrite();
+        boolean successful = false;
+        try {
+            long[] ids = null;
+            if (geometryColumn) {
+                if (generalizedGeometries != null) {
+                    generalizedGeometries.invalidate(whereClause, whereArgs);
+                }
+                if (rTreeIndex != null) {
+                    ids = rTreeIndex.queryIds(whereClause, whereArgs);
+                }
+            }
+            updated = super.update(values, whereClause, whereArgs);
+            if (ids != null && updated > 0) {
+                rTreeIndex.index(ids, getGeometry(values));
+            }
+            successful = true;
+        } finally {
+            endMaintainedWrite(transaction, successful);
+        }
+        if (updated > 0) {
+            if (geometryColumn) {
+                envelope = writtenEnvelope(envelope, values);
+            }
+            written(envelope);
+        }
+        return updated;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Deletes through the parent where clause delete rather than
+     * {@link #delete(String, String[])}, so the feature is removed from the
+     * maintained indexes once.
+     */
+    @Override
+    public int deleteById(long id) {
+        GeometryEnvelope envelope = queryWrittenEnvelope(getPkWhere(id),
+                getPkWhereArgs(id));
+        int deleted;
+        boolean transaction = beginMaintainedWrite();
+        boolean successful = false;
+        try {
+            deleted = super.delete(getPkWhere(id), getPkWhereArgs(id));
+            if (deleted > 0) {
+                if (generalizedGeometries != null) {
+                    generalizedGeometries.invalidate(id);
+                }
+                if (rTreeIndex != null) {
+                    rTreeIndex.delete(id);
+                }
+            }
+            successful = true;
+        } finally {
+            endMaintainedWrite(transaction, successful);
+        }
+        if (deleted > 0) {
+            written(envelope);
+        }
+        return deleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int delete(String whereClause, String[] whereArgs) {
+        GeometryEnvelope envelope = queryWrittenEnvelope(whereClause,
+                whereArgs);
+        int deleted;
+        boolean transaction = beginMaintainedWrite();
+        boolean successful = false;
+        try {
+            if (generalizedGeometries != null) {
+                generalizedGeometries.invalidate(whereClause, whereArgs);
+            }
+            long[] ids = null;
+            if (rTreeIndex != null) {
+                ids = rTreeIndex.queryIds(whereClause, whereArgs);
+            }
+            deleted = super.delete(whereClause, whereArgs);
+            if (ids != null && deleted > 0) {
+                rTreeIndex.delete(ids);
+            }
+            successful = true;
+        } finally {
+            endMaintainedWrite(transaction, successful);
+        }
+        if (deleted > 0) {
+            written(envelope);
+        }
+        return deleted;
+    }
+
+    /**
+     * Begin a transaction for a feature write with maintained indexes when
+     * not already within a transaction, so the feature write and the index
+     * changes commit or roll back together
+     *
+     * @return true if a transaction was begun
+     */
+    private boolean beginMaintainedWrite() {
+        boolean transaction = (rTreeIndex != null
+                || generalizedGeometries != null) && !inTransaction();
+        if (transaction) {
+            beginTransaction();
+        }
+        return transaction;
+    }
+
+    /**
+     * End the transaction begun for a feature write with maintained indexes
+     *
+     * @param transaction true if a transaction was begun
+     * @param successful  true if the write and index changes were successful
+     */
+    private void endMaintainedWrite(boolean transaction, boolean successful) {
+        if (transaction) {
+            endTransaction(successful);
+        }
+    }
+
+    /**
+     * Query for features joined to an index subquery. The join subquery
+     * selects matching feature ids aliased as {@link #JOIN_ID_COLUMN}, such
+     * as the ids of overlapping index ranges. Unlike the id IN subquery form
+     * of the queryIn methods, the explicit join lets SQLite drive the query
+     * from the index and look up features by primary key.
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param joinSQL   join subquery selecting {@link #JOIN_ID_COLUMN}
+     * @param joinArgs  join subquery arguments
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return feature cursor
+     * @since 6.7.5
+     */
+    public FeatureCursor queryJoin(boolean distinct, String[] columns,
+                                   String joinSQL, String[] joinArgs, String where,
+                                   String[] whereArgs) {
+        return queryJoin(distinct, columns, joinSQL, joinArgs, where,
+                whereArgs, null, null);
+    }
+
+    /**
+     * Query for features joined to an index subquery, ordered and returning
+     * no more than the limit
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param joinSQL   join subquery selecting {@link #JOIN_ID_COLUMN}
+     * @param joinArgs  join subquery arguments
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param orderBy   order by
+     * @param limit     chunk limit
+     * @return feature cursor
+     * @since 6.7.5
+     */
+    public FeatureCursor queryJoinForChunk(boolean distinct, String[] columns,
+                                           String joinSQL, String[] joinArgs, String where,
+                                           String[] whereArgs, String orderBy, int limit) {
+        return queryJoin(distinct, columns, joinSQL, joinArgs, where,
+                whereArgs, orderBy, String.valueOf(limit));
+    }
+
+    /**
+     * Query for features joined to an index subquery, ordered, starting at
+     * the offset and returning no more than the limit
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param joinSQL   join subquery selecting {@link #JOIN_ID_COLUMN}
+     * @param joinArgs  join subquery arguments
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param orderBy   order by
+     * @param limit     chunk limit
+     * @param offset    chunk query offset
+     * @return feature cursor
+     * @since 6.7.5
+     */
+    public FeatureCursor queryJoinForChunk(boolean distinct, String[] columns,
+                                           String joinSQL, String[] joinArgs, String where,
+                                           String[] whereArgs, String orderBy, int limit, long offset) {
+        return queryJoin(distinct, columns, joinSQL, joinArgs, where,
+                whereArgs, orderBy, limit + " OFFSET " + offset);
+    }
+
+    /**
+     * Count features joined to an index subquery
+     *
+     * @param distinct  distinct column values
+     * @param column    count column name, null to count rows
+     * @param joinSQL   join subquery selecting {@link #JOIN_ID_COLUMN}
+     * @param joinArgs  join subquery arguments
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return count
+     * @since 6.7.5
+     */
+    public int countJoin(boolean distinct, String column, String joinSQL,
+                         String[] joinArgs, String where, String[] whereArgs) {
+
+        StringBuilder sql = new StringBuilder("SELECT COUNT(");
+        if (column != null) {
+            if (distinct) {
+                sql.append("DISTINCT ");
+            }
+            sql.append(qualifiedColumn(column));
+        } else {
+            sql.append("*");
+        }
+        sql.append(")");
+        appendJoin(sql, joinSQL, where);
+
+        Object count = getDb().querySingleResult(
+                sql.toString(), joinArgs(joinArgs, whereArgs), 0,
+                GeoPackageDataType.INTEGER);
+        return count != null ? ((Number) count).intValue() : 0;
+    }
+
+    /**
+     * Build the SQL query for features joined to an index subquery
+     *
+     * @param distinct distinct rows
+     * @param columns  columns
+     * @param joinSQL  join subquery selecting {@link #JOIN_ID_COLUMN}
+     * @param where    where clause
+     * @param orderBy  order by
+     * @param limit    limit and offset
+     * @return SQL
+     * @since 6.7.5
+     */
+    public String queryJoinSQL(boolean distinct, String[] columns,
+                               String joinSQL, String where, String orderBy, String limit) {
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        if (distinct) {
+            sql.append("DISTINCT ");
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(qualifiedColumn(columns[i]));
+        }
+        appendJoin(sql, joinSQL, where);
+        if (orderBy != null && !orderBy.isEmpty()) {
+            sql.append(" ORDER BY ").append(orderBy);
+        }
+        if (limit != null) {
+            sql.append(" LIMIT ").append(limit);
+        }
+
+        return sql.toString();
+    }
+
+    /**
+     * Query for features joined to an index subquery
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param joinSQL   join subquery selecting {@link #JOIN_ID_COLUMN}
+     * @param joinArgs  join subquery arguments
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param orderBy   order by
+     * @param limit     limit and offset
+     * @return feature cursor
+     */
+    private FeatureCursor queryJoin(boolean distinct, String[] columns,
+                                    String joinSQL, String[] joinArgs, String where,
+                                    String[] whereArgs, String orderBy, String limit) {
+        if (columns == null) {
+            columns = getColumnNames();
+        }
+        String sql = queryJoinSQL(distinct, columns, joinSQL, where, orderBy,
+                limit);
+        return featureDb.rawQuery(sql, columns, joinArgs(joinArgs, whereArgs));
+    }
+
+    /**
+     * Append the join and where clauses
+     *
+     * @param sql     SQL builder
+     * @param joinSQL join subquery selecting {@link #JOIN_ID_COLUMN}
+     * @param where   where clause
+     */
+    private void appendJoin(StringBuilder sql, String joinSQL, String where) {
+        sql.append(" FROM ").append(CoreSQLUtils.quoteWrap(getTableName()));
+        sql.append(" JOIN (").append(joinSQL).append(") AS ")
+                .append(CoreSQLUtils.quoteWrap(JOIN_TABLE_ALIAS));
+        sql.append(" ON ").append(qualifiedColumn(getPkColumnName()))
+                .append(" = ").append(CoreSQLUtils.quoteWrap(JOIN_TABLE_ALIAS))
+                .append(".").append(CoreSQLUtils.quoteWrap(JOIN_ID_COLUMN));
+        if (where != null && !where.isEmpty()) {
+            sql.append(" WHERE ").append(where);
+        }
+    }
+
+    /**
+     * Get the feature table qualified column
+     *
+     * @param column column name
+     * @return qualified column
+     */
+    private String qualifiedColumn(String column) {
+        return CoreSQLUtils.quoteWrap(getTableName()) + "."
+                + CoreSQLUtils.quoteWrap(column);
+    }
+
+    /**
+     * Combine the join subquery and where arguments
+     *
+     * @param joinArgs  join subquery arguments
+     * @param whereArgs where arguments
+     * @return combined arguments
+     */
+    private static String[] joinArgs(String[] joinArgs, String[] whereArgs) {
+        int joinCount = joinArgs != null ? joinArgs.length : 0;
+        int whereCount = whereArgs != null ? whereArgs.length : 0;
+        String[] args = null;
+        if (joinCount + whereCount > 0) {
+            args = new String[joinCount + whereCount];
+            if (joinCount > 0) {
+                System.arraycopy(joinArgs, 0, args, 0, joinCount);
+            }
+            if (whereCount > 0) {
+                System.arraycopy(whereArgs, 0, args, joinCount, whereCount);
+            }
+        }
+        return args;
+    }
+
+    /**
+     * Notify the write listeners that features were written
+     *
+     * @param envelope written features envelope or null
+     */
+    private void written(GeometryEnvelope envelope) {
+        for (FeatureWriteListener listener : writeListeners) {
+            listener.featuresWritten(this, envelope);
+        }
+    }
+
+    /**
+     * Determine if a write listener uses the envelope of written features
+     *
+     * @return true if the written envelope is used
+     */
+    private boolean isEnvelopeUsed() {
+        boolean used = false;
+        for (FeatureWriteListener listener : writeListeners) {
+            if (listener.isEnvelopeUsed()) {
+                used = true;
+                break;
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Get the geometry data from the content values
+     *
+     * @param values content values
+     * @return geometry data or null
+     */
+    private GeoPackageGeometryData getGeometry(ContentValues values) {
+        GeoPackageGeometryData geometryData = null;
+        byte[] bytes = values.getAsByteArray(getGeometryColumnName());
+        if (bytes != null) {
+            geometryData = GeoPackageGeometryData.create(bytes);
+        }
+        return geometryData;
+    }
+
+    /**
+     * Query the envelope of the feature geometries about to be written when
+     * a write listener uses the written envelope
+     *
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return envelope, or null if not used or no geometries
+     */
+    private GeometryEnvelope queryWrittenEnvelope(String where,
+                                                  String[] whereArgs) {
+        GeometryEnvelope envelope = null;
+        if (isEnvelopeUsed()) {
+            GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+            FeatureCursor cursor = query(
+                    new String[]{getGeometryColumnName()}, where, whereArgs);
+            try {
+                while (cursor.moveToNext()) {
+                    GeometryEnvelope geometryEnvelope = ManualFeatureQuery
+                            .getGeometryEnvelope(cursor, envelopeReader);
+                    if (geometryEnvelope != null) {
+                        envelope = envelope == null ? geometryEnvelope
+                                : envelope.union(geometryEnvelope);
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return envelope;
+    }
+
+    /**
+     * Union the written envelope with the written geometry envelope when a
+     * write listener uses the written envelope
+     *
+     * @param envelope     envelope or null
+     * @param geometryData geometry data or null
+     * @return envelope, or null if not used or neither has an envelope
+     */
+    private GeometryEnvelope writtenEnvelope(GeometryEnvelope envelope,
+                                             GeoPackageGeometryData geometryData) {
+        if (geometryData != null && isEnvelopeUsed()) {
+            GeometryEnvelope geometryEnvelope = geometryData.getOrBuildEnvelope();
+            if (geometryEnvelope != null) {
+                envelope = envelope == null ? geometryEnvelope
+                        : envelope.union(geometryEnvelope);
+            }
+        }
+        return envelope;
+    }
+
+    /**
+     * Union the written envelope with the envelope of the geometry in the
+     * written content values when a write listener uses the written envelope
+     *
+     * @param envelope envelope or null
+     * @param values   written content values
+     * @return envelope, or null if not used or neither has an envelope
+     */
+    private GeometryEnvelope writtenEnvelope(GeometryEnvelope envelope,
+                                             ContentValues values) {
+        if (isEnvelopeUsed()) {
+            envelope = writtenEnvelope(envelope, getGeometry(values));
+        }
+        return envelope;
+    }
+
 }
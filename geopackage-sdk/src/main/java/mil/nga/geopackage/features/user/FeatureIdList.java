@@ -0,0 +1,147 @@
+package mil.nga.geopackage.features.user;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Feature Id List, a compact growable list of feature ids backed by a
+ * primitive long array. Ids are only boxed when read through the
+ * {@link java.util.List} interface.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureIdList extends AbstractList<Long> implements RandomAccess {
+
+    /**
+     * Default initial capacity
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Feature ids
+     */
+    private long[] ids;
+
+    /**
+     * Number of ids
+     */
+    private int size = 0;
+
+    /**
+     * Constructor
+     */
+    public FeatureIdList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param capacity initial capacity
+     */
+    public FeatureIdList(int capacity) {
+        ids = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * Constructor
+     *
+     * @param ids feature ids
+     */
+    public FeatureIdList(long[] ids) {
+        this.ids = Arrays.copyOf(ids, Math.max(1, ids.length));
+        size = ids.length;
+    }
+
+    /**
+     * Add a feature id
+     *
+     * @param id feature id
+     */
+    public void addId(long id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = id;
+    }
+
+    /**
+     * Get the feature id at the index
+     *
+     * @param index index
+     * @return feature id
+     */
+    public long getId(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + size);
+        }
+        return ids[index];
+    }
+
+    /**
+     * Get the feature ids as a primitive array
+     *
+     * @return feature ids
+     */
+    public long[] toIdArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Trim the capacity to the number of ids
+     */
+    public void trimToSize() {
+        if (ids.length > size) {
+            ids = Arrays.copyOf(ids, Math.max(1, size));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long get(int index) {
+        return getId(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(Long id) {
+        addId(id);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long set(int index, Long id) {
+        long previous = getId(index);
+        ids[index] = id;
+        return previous;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+}
@@ -0,0 +1,189 @@
+package mil.nga.geopackage.features.user;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import mil.nga.geopackage.db.CoreSQLUtils;
+
+/**
+ * Feature Id Row Iterator, iterates the feature rows of ordered feature ids
+ * by reading the rows in batches with a single id IN query per batch. Rows
+ * are returned in the id order, with null rows for ids no longer in the
+ * feature table.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureIdRowIterator implements Iterator<FeatureRow> {
+
+    /**
+     * Default number of feature rows read per query, within the SQLite
+     * default host parameter limit
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Feature columns
+     */
+    private final String[] columns;
+
+    /**
+     * Ordered feature ids
+     */
+    private final Iterator<Long> ids;
+
+    /**
+     * Current batch ids
+     */
+    private final long[] batchIds;
+
+    /**
+     * Current batch rows, in id order
+     */
+    private final FeatureRow[] batchRows;
+
+    /**
+     * Current batch size
+     */
+    private int batchCount = 0;
+
+    /**
+     * Next row index within the current batch
+     */
+    private int batchIndex = 0;
+
+    /**
+     * Constructor
+     *
+     * @param featureDao feature DAO
+     * @param columns    columns, null for all columns
+     * @param ids        ordered feature ids
+     */
+    public FeatureIdRowIterator(FeatureDao featureDao, String[] columns,
+                                Iterator<Long> ids) {
+        this(featureDao, columns, ids, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param featureDao feature DAO
+     * @param columns    columns, null for all columns
+     * @param ids        ordered feature ids
+     * @param batchSize  number of feature rows read per query
+     */
+    public FeatureIdRowIterator(FeatureDao featureDao, String[] columns,
+                                Iterator<Long> ids, int batchSize) {
+        if (batchSize < 1) {
+            batchSize = 1;
+        }
+        this.featureDao = featureDao;
+        this.columns = queryColumns(featureDao,
+                columns != null ? columns : featureDao.getColumnNames());
+        this.ids = ids;
+        batchIds = new long[batchSize];
+        batchRows = new FeatureRow[batchSize];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        return batchIndex < batchCount || ids.hasNext();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FeatureRow next() {
+        if (batchIndex >= batchCount) {
+            readBatch();
+            if (batchCount == 0) {
+                throw new NoSuchElementException();
+            }
+        }
+        FeatureRow row = batchRows[batchIndex];
+        batchRows[batchIndex++] = null;
+        return row;
+    }
+
+    /**
+     * Read the next batch of feature rows with a single query
+     */
+    private void readBatch() {
+
+        batchCount = 0;
+        batchIndex = 0;
+        while (batchCount < batchIds.length && ids.hasNext()) {
+            batchIds[batchCount++] = ids.next();
+        }
+
+        if (batchCount > 0) {
+
+            StringBuilder where = new StringBuilder();
+            where.append(CoreSQLUtils.quoteWrap(featureDao.getPkColumnName()));
+            where.append(" IN (");
+            String[] whereArgs = new String[batchCount];
+            for (int i = 0; i < batchCount; i++) {
+                if (i > 0) {
+                    where.append(", ");
+                }
+                where.append("?");
+                whereArgs[i] = String.valueOf(batchIds[i]);
+            }
+            where.append(")");
+
+            Map<Long, FeatureRow> rows = new HashMap<>(batchCount * 2);
+            FeatureCursor cursor = featureDao.query(false, columns,
+                    where.toString(), whereArgs);
+            try {
+                while (cursor.moveToNext()) {
+                    FeatureRow row = cursor.getRow();
+                    // Rows with large blobs are invalid when first read and
+                    // re-read at the end of the cursor
+                    if (row.isValid()) {
+                        rows.put(row.getId(), row);
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+
+            for (int i = 0; i < batchCount; i++) {
+                batchRows[i] = rows.get(batchIds[i]);
+            }
+        }
+    }
+
+    /**
+     * Get the query columns, adding the id column when not included so rows
+     * can be matched to ids
+     *
+     * @param featureDao feature DAO
+     * @param columns    columns
+     * @return query columns
+     */
+    private static String[] queryColumns(FeatureDao featureDao,
+                                         String[] columns) {
+        String idColumn = featureDao.getPkColumnName();
+        for (String column : columns) {
+            if (column.equalsIgnoreCase(idColumn)) {
+                return columns;
+            }
+        }
+        String[] queryColumns = new String[columns.length + 1];
+        queryColumns[0] = idColumn;
+        System.arraycopy(columns, 0, queryColumns, 1, columns.length);
+        return queryColumns;
+    }
+
+}
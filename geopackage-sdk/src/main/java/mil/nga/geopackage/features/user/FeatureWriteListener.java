@@ -0,0 +1,36 @@
+package mil.nga.geopackage.features.user;
+
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Feature Write Listener, notified after features are inserted, updated, or
+ * deleted through a feature DAO or its copies, see
+ * {@link FeatureDao#addWriteListener(FeatureWriteListener)}
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public interface FeatureWriteListener {
+
+    /**
+     * Determine if the listener uses the envelope of the written features.
+     * The previous geometries of updated and deleted features are only read
+     * when a listener of the feature DAO uses the envelope.
+     *
+     * @return true if the written envelope is used
+     */
+    boolean isEnvelopeUsed();
+
+    /**
+     * Called after features were written through the feature DAO
+     *
+     * @param featureDao feature DAO
+     * @param envelope   envelope in the feature projection of the written
+     *                   geometries, including the previous geometries of
+     *                   updated and deleted features. Null when no written
+     *                   feature geometry has an envelope, or when no listener
+     *                   uses the envelope.
+     */
+    void featuresWritten(FeatureDao featureDao, GeometryEnvelope envelope);
+
+}
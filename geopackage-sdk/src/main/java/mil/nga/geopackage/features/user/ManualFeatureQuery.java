@@ -1,12 +1,12 @@
 package mil.nga.geopackage.features.user;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.features.index.FeatureIndexManager;
+import mil.nga.geopackage.geom.GeometryEnvelopeReader;
+import mil.nga.geopackage.io.GeoPackageProgress;
 import mil.nga.proj.Projection;
 import mil.nga.proj.ProjectionTransform;
 import mil.nga.sf.GeometryEnvelope;
@@ -41,6 +41,16 @@ public class ManualFeatureQuery {
      */
     private boolean geodesic = false;
 
+    /**
+     * Max number of concurrent id range partition scans of bounds queries
+     */
+    private int parallelism = 1;
+
+    /**
+     * Progress of bounds query scans, may be null
+     */
+    private GeoPackageProgress progress;
+
     /**
      * Constructor
      *
@@ -128,6 +138,51 @@ public class ManualFeatureQuery {
         this.geodesic = geodesic;
     }
 
+    /**
+     * Get the max number of concurrent id range partition scans of bounds
+     * queries
+     *
+     * @return parallelism
+     * @since 6.7.5
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set the max number of concurrent id range partition scans of bounds
+     * queries. Partitions are only scanned concurrently when write ahead
+     * logging is enabled and the calling thread is not in a transaction,
+     * otherwise the table is scanned serially.
+     *
+     * @param parallelism number of partition scans, 1 to scan serially
+     * @since 6.7.5
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Get the progress of bounds query scans
+     *
+     * @return progress or null
+     * @since 6.7.5
+     */
+    public GeoPackageProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Set the progress of bounds query scans. Scanned rows are added as
+     * progress and scans stop early when the progress is no longer active.
+     *
+     * @param progress progress
+     * @since 6.7.5
+     */
+    public void setProgress(GeoPackageProgress progress) {
+        this.progress = progress;
+    }
+
     /**
      * Query for features
      *
@@ -496,12 +551,17 @@ public class ManualFeatureQuery {
      */
     public BoundingBox getBoundingBox() {
 
-        GeometryEnvelope envelope = null;
+        boolean found = false;
+        double minX = Double.NaN;
+        double minY = Double.NaN;
+        double maxX = Double.NaN;
+        double maxY = Double.NaN;
 
         long offset = 0;
         boolean hasResults = true;
 
         String[] columns = new String[]{featureDao.getGeometryColumnName()};
+        GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
 
         while (hasResults) {
 
@@ -513,23 +573,53 @@ public class ManualFeatureQuery {
                 while (featureCursor.moveToNext()) {
                     hasResults = true;
 
-                    FeatureRow featureRow = featureCursor.getRow();
-                    GeometryEnvelope featureEnvelope = featureRow
-                            .getGeometryEnvelope();
-                    if (featureEnvelope != null) {
+                    double featureMinX;
+                    double featureMinY;
+                    double featureMaxX;
+                    double featureMaxY;
 
+                    if (featureCursor.isDirectRead() && !geodesic) {
+
+                        // Expand by the read envelope values without building
+                        // an envelope for each scanned row
+                        if (!featureCursor.readGeometryEnvelope(envelopeReader)) {
+                            continue;
+                        }
+                        featureMinX = envelopeReader.getMinX();
+                        featureMinY = envelopeReader.getMinY();
+                        featureMaxX = envelopeReader.getMaxX();
+                        featureMaxY = envelopeReader.getMaxY();
+
+                    } else {
+
+                        GeometryEnvelope featureEnvelope = getGeometryEnvelope(
+                                featureCursor, envelopeReader);
+                        if (featureEnvelope == null) {
+                            continue;
+                        }
                         if (geodesic) {
                             featureEnvelope = ProjectionGeometryUtils
                                     .geodesicEnvelope(featureEnvelope,
                                             featureDao.getProjection());
                         }
+                        featureMinX = featureEnvelope.getMinX();
+                        featureMinY = featureEnvelope.getMinY();
+                        featureMaxX = featureEnvelope.getMaxX();
+                        featureMaxY = featureEnvelope.getMaxY();
 
-                        if (envelope == null) {
-                            envelope = featureEnvelope;
-                        } else {
-                            envelope = envelope.union(featureEnvelope);
-                        }
+                    }
 
+                    if (!found) {
+                        minX = featureMinX;
+                        minY = featureMinY;
+                        maxX = featureMaxX;
+                        maxY = featureMaxY;
+                        found = true;
+                    } else {
+                        minX = Math.min(minX, featureMinX);
+                        minY = Math.min(minY, featureMinY);
+                        maxX = Math.max(maxX, featureMaxX);
+                        maxY = Math.max(maxY, featureMaxY);
                     }
                 }
             } finally {
@@ -540,8 +630,8 @@ public class ManualFeatureQuery {
         }
 
         BoundingBox boundingBox = null;
-        if (envelope != null) {
-            boundingBox = new BoundingBox(envelope);
+        if (found) {
+            boundingBox = new BoundingBox(minX, minY, maxX, maxY);
         }
 
         return boundingBox;
@@ -1781,54 +1871,22 @@ public class ManualFeatureQuery {
                                            double minX, double minY, double maxX, double maxY, String where,
                                            String[] whereArgs) {
 
-        List<Long> featureIds = new ArrayList<>();
-
-        long offset = 0;
-        boolean hasResults = true;
-
-        minX -= tolerance;
-        maxX += tolerance;
-        minY -= tolerance;
-        maxY += tolerance;
-
-        String[] queryColumns = featureDao.getIdAndGeometryColumnNames();
+        FeatureIdList featureIds = null;
 
-        while (hasResults) {
-
-            hasResults = false;
-
-            FeatureCursor featureCursor = featureDao.queryForChunk(distinct, queryColumns,
-                    where, whereArgs, chunkLimit, offset);
-            try {
-                while (featureCursor.moveToNext()) {
-                    hasResults = true;
-
-                    FeatureRow featureRow = featureCursor.getRow();
-                    GeometryEnvelope envelope = featureRow
-                            .getGeometryEnvelope();
-                    if (envelope != null) {
-
-                        if (geodesic) {
-                            envelope = ProjectionGeometryUtils.geodesicEnvelope(
-                                    envelope, featureDao.getProjection());
-                        }
-
-                        double minXMax = Math.max(minX, envelope.getMinX());
-                        double maxXMin = Math.min(maxX, envelope.getMaxX());
-                        double minYMax = Math.max(minY, envelope.getMinY());
-                        double maxYMin = Math.min(maxY, envelope.getMaxY());
-
-                        if (minXMax <= maxXMin && minYMax <= maxYMin) {
-                            featureIds.add(featureRow.getId());
-                        }
+        ManualFeatureQueryParallelScan parallelScan = parallelScan(distinct,
+                minX, minY, maxX, maxY, where, whereArgs);
+        if (parallelScan != null) {
+            featureIds = parallelScan.query(parallelism);
+        }
 
-                    }
-                }
-            } finally {
-                featureCursor.close();
+        if (featureIds == null) {
+            featureIds = new FeatureIdList();
+            ManualFeatureQueryScanner scanner = scanner(distinct, minX, minY,
+                    maxX, maxY, where, whereArgs);
+            while (scanner.hasNext()) {
+                featureIds.addId(scanner.nextId());
             }
-
-            offset += chunkLimit;
+            featureIds.trimToSize();
         }
 
         ManualFeatureQueryResults results = new ManualFeatureQueryResults(
@@ -1837,6 +1895,104 @@ public class ManualFeatureQuery {
         return results;
     }
 
+    /**
+     * Manually query for rows within the geometry envelope, streaming the
+     * matching rows as the feature table is scanned instead of collecting
+     * every matching id up front
+     *
+     * @param envelope geometry envelope
+     * @return streaming results
+     * @since 6.7.5
+     */
+    public ManualFeatureQueryStreamingResults queryStreaming(
+            GeometryEnvelope envelope) {
+        return queryStreaming(false, featureDao.getColumnNames(), envelope,
+                null, null);
+    }
+
+    /**
+     * Manually query for rows within the geometry envelope, streaming the
+     * matching rows as the feature table is scanned instead of collecting
+     * every matching id up front
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return streaming results
+     * @since 6.7.5
+     */
+    public ManualFeatureQueryStreamingResults queryStreaming(boolean distinct,
+                                                             String[] columns, GeometryEnvelope envelope, String where,
+                                                             String[] whereArgs) {
+        return queryStreaming(distinct, columns, envelope.getMinX(),
+                envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY(),
+                where, whereArgs);
+    }
+
+    /**
+     * Manually query for rows within the bounding box, streaming the matching
+     * rows as the feature table is scanned instead of collecting every
+     * matching id up front
+     *
+     * @param boundingBox bounding box
+     * @return streaming results
+     * @since 6.7.5
+     */
+    public ManualFeatureQueryStreamingResults queryStreaming(
+            BoundingBox boundingBox) {
+        return queryStreaming(false, featureDao.getColumnNames(),
+                boundingBox.buildEnvelope(), null, null);
+    }
+
+    /**
+     * Manually query for rows within the bounding box in the provided
+     * projection, streaming the matching rows as the feature table is scanned
+     * instead of collecting every matching id up front
+     *
+     * @param distinct    distinct rows
+     * @param columns     columns
+     * @param boundingBox bounding box
+     * @param projection  projection
+     * @param where       where clause
+     * @param whereArgs   where arguments
+     * @return streaming results
+     * @since 6.7.5
+     */
+    public ManualFeatureQueryStreamingResults queryStreaming(boolean distinct,
+                                                             String[] columns, BoundingBox boundingBox, Projection projection,
+                                                             String where, String[] whereArgs) {
+        BoundingBox featureBoundingBox = featureDao
+                .projectBoundingBox(boundingBox, projection);
+        return queryStreaming(distinct, columns,
+                featureBoundingBox.buildEnvelope(), where, whereArgs);
+    }
+
+    /**
+     * Manually query for rows within the bounds, streaming the matching rows
+     * as the feature table is scanned instead of collecting every matching id
+     * up front. Each iteration of the results scans the table again.
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param minX      min x
+     * @param minY      min y
+     * @param maxX      max x
+     * @param maxY      max y
+     * @param where     where clause
+     * @param whereArgs where args
+     * @return streaming results
+     * @since 6.7.5
+     */
+    public ManualFeatureQueryStreamingResults queryStreaming(boolean distinct,
+                                                             String[] columns, double minX, double minY, double maxX,
+                                                             double maxY, String where, String[] whereArgs) {
+        return new ManualFeatureQueryStreamingResults(featureDao, distinct,
+                columns, minX - tolerance, minY - tolerance, maxX + tolerance,
+                maxY + tolerance, where, whereArgs, chunkLimit, geodesic);
+    }
+
     /**
      * Manually count the rows within the bounds
      *
@@ -1851,7 +2007,17 @@ public class ManualFeatureQuery {
      */
     public long count(double minX, double minY, double maxX, double maxY,
                       String where, String[] whereArgs) {
-        return query(minX, minY, maxX, maxY, where, whereArgs).count();
+        long count = -1;
+        ManualFeatureQueryParallelScan parallelScan = parallelScan(false,
+                minX, minY, maxX, maxY, where, whereArgs);
+        if (parallelScan != null) {
+            count = parallelScan.count(parallelism);
+        }
+        if (count < 0) {
+            count = scanner(false, minX, minY, maxX, maxY, where, whereArgs)
+                    .countRemaining();
+        }
+        return count;
     }
 
     /**
@@ -2920,61 +3086,18 @@ public class ManualFeatureQuery {
                                                    double maxY, String where, String[] whereArgs, String orderBy,
                                                    int limit, long offset) {
 
-        int index = 0;
-        List<Long> featureIds = new ArrayList<>();
-
-        long localOffset = 0;
-        boolean hasResults = true;
-
-        minX -= tolerance;
-        maxX += tolerance;
-        minY -= tolerance;
-        maxY += tolerance;
-
-        String[] queryColumns = featureDao.getIdAndGeometryColumnNames();
-
-        while (hasResults) {
-
-            hasResults = false;
-
-            FeatureCursor cursor = featureDao.queryForChunk(distinct,
-                    queryColumns, where, whereArgs, chunkLimit, localOffset);
-            try {
-                while (cursor.moveToNext()) {
-                    hasResults = true;
-
-                    FeatureRow featureRow = cursor.getRow();
-                    GeometryEnvelope envelope = featureRow
-                            .getGeometryEnvelope();
-                    if (envelope != null) {
+        FeatureIdList featureIds = new FeatureIdList(Math.max(0,
+                Math.min(limit, chunkLimit)));
 
-                        if (geodesic) {
-                            envelope = ProjectionGeometryUtils.geodesicEnvelope(
-                                    envelope, featureDao.getProjection());
-                        }
-
-                        double minXMax = Math.max(minX, envelope.getMinX());
-                        double maxXMin = Math.min(maxX, envelope.getMaxX());
-                        double minYMax = Math.max(minY, envelope.getMinY());
-                        double maxYMin = Math.min(maxY, envelope.getMaxY());
-
-                        if (minXMax <= maxXMin && minYMax <= maxYMin) {
-                            if (offset <= index) {
-                                featureIds.add(featureRow.getId());
-                                if (featureIds.size() >= limit) {
-                                    break;
-                                }
-                            }
-                            index++;
-                        }
-
-                    }
-                }
-            } finally {
-                cursor.close();
+        ManualFeatureQueryScanner scanner = scanner(distinct, minX, minY,
+                maxX, maxY, where, whereArgs);
+        long index = 0;
+        while (featureIds.size() < limit && scanner.hasNext()) {
+            long id = scanner.nextId();
+            if (offset <= index) {
+                featureIds.addId(id);
             }
-
-            localOffset += chunkLimit;
+            index++;
         }
 
         ManualFeatureQueryResults results = new ManualFeatureQueryResults(
@@ -2983,4 +3106,76 @@ public class ManualFeatureQuery {
         return results;
     }
 
+    /**
+     * Create a feature table scanner for the bounds, applying the tolerance
+     *
+     * @param distinct  distinct rows
+     * @param minX      min x
+     * @param minY      min y
+     * @param maxX      max x
+     * @param maxY      max y
+     * @param where     where clause
+     * @param whereArgs where args
+     * @return scanner
+     */
+    private ManualFeatureQueryScanner scanner(boolean distinct, double minX,
+                                              double minY, double maxX, double maxY, String where,
+                                              String[] whereArgs) {
+        ManualFeatureQueryScanner scanner = new ManualFeatureQueryScanner(
+                featureDao, distinct, where, whereArgs, minX - tolerance,
+                minY - tolerance, maxX + tolerance, maxY + tolerance,
+                chunkLimit, geodesic);
+        scanner.setProgress(progress);
+        return scanner;
+    }
+
+    /**
+     * Create a parallel id range partition scan for the bounds, applying the
+     * tolerance
+     *
+     * @param distinct  distinct rows
+     * @param minX      min x
+     * @param minY      min y
+     * @param maxX      max x
+     * @param maxY      max y
+     * @param where     where clause
+     * @param whereArgs where args
+     * @return parallel scan or null if scanning serially
+     */
+    private ManualFeatureQueryParallelScan parallelScan(boolean distinct,
+                                                        double minX, double minY, double maxX, double maxY,
+                                                        String where, String[] whereArgs) {
+        ManualFeatureQueryParallelScan parallelScan = null;
+        if (parallelism > 1
+                && ManualFeatureQueryParallelScan.isSupported(featureDao)) {
+            parallelScan = new ManualFeatureQueryParallelScan(featureDao,
+                    distinct, where, whereArgs, minX - tolerance,
+                    minY - tolerance, maxX + tolerance, maxY + tolerance,
+                    chunkLimit, geodesic, progress);
+        }
+        return parallelScan;
+    }
+
+    /**
+     * Get the geometry envelope of the current cursor row, reading the
+     * envelope from the geometry header or WKB bytes without decoding the
+     * geometry when the row is directly readable
+     *
+     * @param cursor         feature cursor
+     * @param envelopeReader geometry envelope reader
+     * @return geometry envelope or null
+     */
+    static GeometryEnvelope getGeometryEnvelope(FeatureCursor cursor,
+                                                GeometryEnvelopeReader envelopeReader) {
+        GeometryEnvelope envelope = null;
+        if (cursor.isDirectRead()) {
+            if (cursor.readGeometryEnvelope(envelopeReader)) {
+                envelope = envelopeReader.getEnvelope();
+            }
+        } else {
+            envelope = cursor.getRow().getGeometryEnvelope();
+        }
+        return envelope;
+    }
+
 }
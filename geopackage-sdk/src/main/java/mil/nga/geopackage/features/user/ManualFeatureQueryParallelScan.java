@@ -0,0 +1,314 @@
+package mil.nga.geopackage.features.user;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageDataType;
+import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.io.GeoPackageProgress;
+
+/**
+ * Manual Feature Query Parallel Scan, splits the feature table into
+ * contiguous id ranges and scans the ranges concurrently. With write ahead
+ * logging enabled, concurrent queries are served by separate read
+ * connections from the database connection pool. Partition results are
+ * merged in id order.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+class ManualFeatureQueryParallelScan {
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Distinct rows
+     */
+    private final boolean distinct;
+
+    /**
+     * Where clause
+     */
+    private final String where;
+
+    /**
+     * Where arguments
+     */
+    private final String[] whereArgs;
+
+    /**
+     * Bounds, with the tolerance applied
+     */
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    /**
+     * Query single chunk limit
+     */
+    private final int chunkLimit;
+
+    /**
+     * Compare geodesic geometry bounds
+     */
+    private final boolean geodesic;
+
+    /**
+     * Progress, may be null
+     */
+    private final GeoPackageProgress progress;
+
+    /**
+     * Constructor
+     *
+     * @param featureDao feature DAO
+     * @param distinct   distinct rows
+     * @param where      where clause
+     * @param whereArgs  where args
+     * @param minX       min x, with the tolerance applied
+     * @param minY       min y, with the tolerance applied
+     * @param maxX       max x, with the tolerance applied
+     * @param maxY       max y, with the tolerance applied
+     * @param chunkLimit query single chunk limit
+     * @param geodesic   compare geodesic geometry bounds
+     * @param progress   progress, may be null
+     */
+    ManualFeatureQueryParallelScan(FeatureDao featureDao, boolean distinct,
+                                   String where, String[] whereArgs, double minX, double minY,
+                                   double maxX, double maxY, int chunkLimit, boolean geodesic,
+                                   GeoPackageProgress progress) {
+        this.featureDao = featureDao;
+        this.distinct = distinct;
+        this.where = where;
+        this.whereArgs = whereArgs;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.chunkLimit = chunkLimit;
+        this.geodesic = geodesic;
+        this.progress = progress;
+    }
+
+    /**
+     * Determine if the feature table can be scanned concurrently from the
+     * calling thread. Requires write ahead logging for concurrent read
+     * connections, and no open transaction on the calling thread whose
+     * uncommitted changes other connections would not see.
+     *
+     * @param featureDao feature DAO
+     * @return true if concurrent scans are supported
+     */
+    static boolean isSupported(FeatureDao featureDao) {
+        GeoPackageDatabase database = featureDao.getDatabaseConnection();
+        return database.getDb().isWriteAheadLoggingEnabled()
+                && !database.inTransaction();
+    }
+
+    /**
+     * Scan the partitions and collect the matching ids in id order
+     *
+     * @param parallelism max number of concurrent partition scans
+     * @return feature ids, null when the table is too small to partition
+     */
+    FeatureIdList query(int parallelism) {
+
+        FeatureIdList featureIds = null;
+
+        List<ManualFeatureQueryScanner> scanners = partition(parallelism);
+        if (scanners != null) {
+
+            List<FeatureIdList> partitionIds = execute(scanners,
+                    new PartitionTask<FeatureIdList>() {
+                        @Override
+                        public FeatureIdList scan(
+                                ManualFeatureQueryScanner scanner) {
+                            FeatureIdList ids = new FeatureIdList();
+                            while (scanner.hasNext()) {
+                                ids.addId(scanner.nextId());
+                            }
+                            return ids;
+                        }
+                    });
+
+            int size = 0;
+            for (FeatureIdList ids : partitionIds) {
+                size += ids.size();
+            }
+            featureIds = new FeatureIdList(size);
+            for (FeatureIdList ids : partitionIds) {
+                for (int i = 0; i < ids.size(); i++) {
+                    featureIds.addId(ids.getId(i));
+                }
+            }
+        }
+
+        return featureIds;
+    }
+
+    /**
+     * Scan the partitions and count the matching features
+     *
+     * @param parallelism max number of concurrent partition scans
+     * @return count, -1 when the table is too small to partition
+     */
+    long count(int parallelism) {
+
+        long count = -1;
+
+        List<ManualFeatureQueryScanner> scanners = partition(parallelism);
+        if (scanners != null) {
+
+            List<Long> partitionCounts = execute(scanners,
+                    new PartitionTask<Long>() {
+                        @Override
+                        public Long scan(ManualFeatureQueryScanner scanner) {
+                            return scanner.countRemaining();
+                        }
+                    });
+
+            count = 0;
+            for (long partitionCount : partitionCounts) {
+                count += partitionCount;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Partition scan task
+     *
+     * @param <T> partition result type
+     */
+    private interface PartitionTask<T> {
+
+        /**
+         * Scan the partition
+         *
+         * @param scanner partition scanner
+         * @return partition result
+         */
+        T scan(ManualFeatureQueryScanner scanner);
+
+    }
+
+    /**
+     * Split the feature table into contiguous id range partitions of at least
+     * a chunk of ids each
+     *
+     * @param parallelism max number of partitions
+     * @return partition scanners in id order, null if a single partition
+     */
+    private List<ManualFeatureQueryScanner> partition(int parallelism) {
+
+        List<ManualFeatureQueryScanner> scanners = null;
+
+        String pk = CoreSQLUtils.quoteWrap(featureDao.getPkColumnName());
+        String table = CoreSQLUtils.quoteWrap(featureDao.getTableName());
+        Object minIdValue = featureDao.getDb().querySingleResult(
+                "SELECT MIN(" + pk + ") FROM " + table, null, 0,
+                GeoPackageDataType.INTEGER);
+        Object maxIdValue = featureDao.getDb().querySingleResult(
+                "SELECT MAX(" + pk + ") FROM " + table, null, 0,
+                GeoPackageDataType.INTEGER);
+
+        if (minIdValue != null && maxIdValue != null) {
+
+            long minId = ((Number) minIdValue).longValue();
+            long maxId = ((Number) maxIdValue).longValue();
+            long span = maxId - minId + 1;
+
+            long partitions = Math.min(parallelism,
+                    (span + chunkLimit - 1) / chunkLimit);
+            if (span > 0 && partitions > 1) {
+
+                String rangeWhere = pk + " >= ? AND " + pk + " <= ?";
+                if (where != null && !where.isEmpty()) {
+                    rangeWhere = "(" + where + ") AND " + rangeWhere;
+                }
+                int argCount = whereArgs != null ? whereArgs.length : 0;
+
+                scanners = new ArrayList<>();
+                long partitionSize = (span + partitions - 1) / partitions;
+                for (long start = minId; start <= maxId; start += partitionSize) {
+                    long end = Math.min(maxId, start + partitionSize - 1);
+                    String[] rangeArgs = new String[argCount + 2];
+                    if (argCount > 0) {
+                        System.arraycopy(whereArgs, 0, rangeArgs, 0, argCount);
+                    }
+                    rangeArgs[argCount] = String.valueOf(start);
+                    rangeArgs[argCount + 1] = String.valueOf(end);
+                    ManualFeatureQueryScanner scanner = new ManualFeatureQueryScanner(
+                            featureDao, distinct, rangeWhere, rangeArgs, minX,
+                            minY, maxX, maxY, chunkLimit, geodesic);
+                    scanner.setProgress(progress);
+                    scanners.add(scanner);
+                    if (end == maxId) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return scanners;
+    }
+
+    /**
+     * Execute the partition scans concurrently
+     *
+     * @param scanners partition scanners
+     * @param task     partition task
+     * @param <T>      partition result type
+     * @return partition results in partition order
+     */
+    private <T> List<T> execute(List<ManualFeatureQueryScanner> scanners,
+                                final PartitionTask<T> task) {
+
+        List<T> results = new ArrayList<>(scanners.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(scanners.size());
+        try {
+
+            List<Future<T>> futures = new ArrayList<>(scanners.size());
+            for (final ManualFeatureQueryScanner scanner : scanners) {
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override
+                    public T call() {
+                        return task.scan(scanner);
+                    }
+                }));
+            }
+
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeoPackageException(
+                    "Interrupted while scanning feature table partitions. Table: "
+                            + featureDao.getTableName(), e);
+        } catch (ExecutionException e) {
+            throw new GeoPackageException(
+                    "Failed to scan feature table partition. Table: "
+                            + featureDao.getTableName(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return results;
+    }
+
+}
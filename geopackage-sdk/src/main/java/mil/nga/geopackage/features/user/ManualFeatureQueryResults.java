@@ -28,6 +28,11 @@ public class ManualFeatureQueryResults implements FeatureIndexResults {
      */
     private final List<Long> featureIds;
 
+    /**
+     * Number of feature rows read per query when iterating
+     */
+    private int batchSize = FeatureIdRowIterator.DEFAULT_BATCH_SIZE;
+
     /**
      * Constructor
      *
@@ -82,32 +87,35 @@ public class ManualFeatureQueryResults implements FeatureIndexResults {
         return featureIds;
     }
 
+    /**
+     * Get the number of feature rows read per query when iterating
+     *
+     * @return batch size
+     * @since 6.7.5
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the number of feature rows read per query when iterating
+     *
+     * @param batchSize batch size
+     * @since 6.7.5
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
     /**
      * {@inheritDoc}
+     * <p>
+     * Feature rows are read in batches of {@link #getBatchSize()} ids
      */
     @Override
     public Iterator<FeatureRow> iterator() {
-        return new Iterator<FeatureRow>() {
-
-            int index = 0;
-
-            /**
-             * {@inheritDoc}
-             */
-            @Override
-            public boolean hasNext() {
-                return index < featureIds.size();
-            }
-
-            /**
-             * {@inheritDoc}
-             */
-            @Override
-            public FeatureRow next() {
-                return featureDao.queryForIdRow(columns,
-                        featureIds.get(index++));
-            }
-        };
+        return new FeatureIdRowIterator(featureDao, columns,
+                featureIds.iterator(), batchSize);
     }
 
     /**
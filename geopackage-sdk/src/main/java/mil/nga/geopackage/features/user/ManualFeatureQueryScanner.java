@@ -0,0 +1,337 @@
+package mil.nga.geopackage.features.user;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.geom.GeometryEnvelopeReader;
+import mil.nga.geopackage.io.GeoPackageProgress;
+import mil.nga.proj.Projection;
+import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.proj.ProjectionGeometryUtils;
+
+/**
+ * Manual Feature Query Scanner, lazily scans the feature table in id ordered
+ * chunks and iterates the ids of the features within the bounds. A single
+ * chunk of matching ids is held at a time and no cursor is left open between
+ * chunks.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+class ManualFeatureQueryScanner implements Iterator<Long> {
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Distinct rows
+     */
+    private final boolean distinct;
+
+    /**
+     * Id and geometry query columns
+     */
+    private final String[] columns;
+
+    /**
+     * Quoted primary key column
+     */
+    private final String pk;
+
+    /**
+     * First chunk where clause
+     */
+    private final String where;
+
+    /**
+     * First chunk where arguments
+     */
+    private final String[] whereArgs;
+
+    /**
+     * Following chunks where clause, continuing after the last id
+     */
+    private final String idWhere;
+
+    /**
+     * Following chunks where arguments, with a trailing last id argument
+     */
+    private final String[] idWhereArgs;
+
+    /**
+     * Bounds, with the tolerance applied
+     */
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    /**
+     * Query single chunk limit
+     */
+    private final int chunkLimit;
+
+    /**
+     * Projection for geodesic bounds, null when not geodesic
+     */
+    private final Projection geodesicProjection;
+
+    /**
+     * Geometry envelope reader
+     */
+    private final GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+
+    /**
+     * Matching ids of the current chunk
+     */
+    private final long[] ids;
+
+    /**
+     * Number of matching ids in the current chunk
+     */
+    private int count = 0;
+
+    /**
+     * Next id index within the current chunk
+     */
+    private int index = 0;
+
+    /**
+     * Last scanned id, null before the first chunk
+     */
+    private Long lastId = null;
+
+    /**
+     * Scan complete flag
+     */
+    private boolean complete = false;
+
+    /**
+     * Progress, scanned rows are added after each chunk and the scan stops
+     * when no longer active
+     */
+    private GeoPackageProgress progress;
+
+    /**
+     * Constructor
+     *
+     * @param featureDao feature DAO
+     * @param distinct   distinct rows
+     * @param where      where clause
+     * @param whereArgs  where args
+     * @param minX       min x, with the tolerance applied
+     * @param minY       min y, with the tolerance applied
+     * @param maxX       max x, with the tolerance applied
+     * @param maxY       max y, with the tolerance applied
+     * @param chunkLimit query single chunk limit
+     * @param geodesic   compare geodesic geometry bounds
+     */
+    ManualFeatureQueryScanner(FeatureDao featureDao, boolean distinct,
+                              String where, String[] whereArgs, double minX, double minY,
+                              double maxX, double maxY, int chunkLimit, boolean geodesic) {
+        this.featureDao = featureDao;
+        this.distinct = distinct;
+        this.columns = featureDao.getIdAndGeometryColumnNames();
+        this.pk = CoreSQLUtils.quoteWrap(featureDao.getPkColumnName());
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.chunkLimit = Math.max(1, chunkLimit);
+        this.geodesicProjection = geodesic ? featureDao.getProjection() : null;
+        this.ids = new long[this.chunkLimit];
+
+        this.where = where;
+        this.whereArgs = whereArgs;
+
+        String idWhere = pk + " > ?";
+        if (where != null && !where.isEmpty()) {
+            idWhere = "(" + where + ") AND " + idWhere;
+        }
+        this.idWhere = idWhere;
+        int argCount = whereArgs != null ? whereArgs.length : 0;
+        idWhereArgs = new String[argCount + 1];
+        if (argCount > 0) {
+            System.arraycopy(whereArgs, 0, idWhereArgs, 0, argCount);
+        }
+    }
+
+    /**
+     * Set the progress, possibly shared with concurrent scanners of other
+     * partitions
+     *
+     * @param progress progress
+     */
+    public void setProgress(GeoPackageProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        while (index >= count && !complete) {
+            if (progress != null && !progress.isActive()) {
+                complete = true;
+            } else {
+                scanChunk();
+            }
+        }
+        return index < count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long next() {
+        return nextId();
+    }
+
+    /**
+     * Get the next matching feature id without boxing
+     *
+     * @return feature id
+     */
+    public long nextId() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return ids[index++];
+    }
+
+    /**
+     * Scan the remaining features, counting the matches without storing them
+     *
+     * @return number of remaining matching features
+     */
+    public long countRemaining() {
+        long remaining = 0;
+        while (hasNext()) {
+            remaining += count - index;
+            index = count;
+        }
+        return remaining;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Scan the next id ordered chunk of features, keeping the matching ids
+     */
+    private void scanChunk() {
+
+        count = 0;
+        index = 0;
+
+        FeatureCursor cursor;
+        if (lastId == null) {
+            cursor = featureDao.queryForChunk(distinct, columns, where,
+                    whereArgs, pk, chunkLimit);
+        } else {
+            idWhereArgs[idWhereArgs.length - 1] = String.valueOf(lastId);
+            cursor = featureDao.queryForChunk(distinct, columns, idWhere,
+                    idWhereArgs, pk, chunkLimit);
+        }
+
+        int rows = 0;
+        boolean ordered = true;
+        try {
+            while (cursor.moveToNext()) {
+
+                long id;
+                boolean matches;
+                if (cursor.isDirectRead()) {
+                    id = cursor.getId();
+                    if (geodesicProjection == null) {
+                        // Test the read envelope values without building an
+                        // envelope for each scanned row
+                        matches = cursor.readGeometryEnvelope(envelopeReader)
+                                && envelopeReader.intersects(minX, minY, maxX,
+                                maxY);
+                    } else {
+                        matches = cursor.readGeometryEnvelope(envelopeReader)
+                                && intersects(envelopeReader.getEnvelope());
+                    }
+                } else {
+                    // Rows with large blobs are invalid when first read and
+                    // re-read at the end of the chunk
+                    FeatureRow row = cursor.getRow();
+                    if (!row.isValid()) {
+                        continue;
+                    }
+                    id = row.getId();
+                    matches = intersects(row.getGeometryEnvelope());
+                }
+
+                rows++;
+                if (lastId == null || id > lastId) {
+                    lastId = id;
+                } else {
+                    ordered = false;
+                }
+
+                if (matches) {
+                    ids[count++] = id;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (!ordered) {
+            Arrays.sort(ids, 0, count);
+        }
+
+        if (progress != null && rows > 0) {
+            synchronized (progress) {
+                progress.addProgress(rows);
+            }
+        }
+
+        if (rows < chunkLimit) {
+            complete = true;
+        }
+    }
+
+    /**
+     * Determine if the geometry envelope intersects the bounds, expanding
+     * the envelope first when geodesic
+     *
+     * @param envelope geometry envelope or null
+     * @return true if intersects
+     */
+    private boolean intersects(GeometryEnvelope envelope) {
+
+        boolean intersects = false;
+
+        if (envelope != null) {
+
+            if (geodesicProjection != null) {
+                envelope = ProjectionGeometryUtils.geodesicEnvelope(envelope,
+                        geodesicProjection);
+            }
+
+            double minXMax = Math.max(minX, envelope.getMinX());
+            double maxXMin = Math.min(maxX, envelope.getMaxX());
+            double minYMax = Math.max(minY, envelope.getMinY());
+            double maxYMin = Math.min(maxY, envelope.getMaxY());
+
+            intersects = minXMax <= maxXMin && minYMax <= maxYMin;
+        }
+
+        return intersects;
+    }
+
+}
@@ -0,0 +1,217 @@
+package mil.nga.geopackage.features.user;
+
+import java.util.Iterator;
+
+import mil.nga.geopackage.features.index.FeatureIndexResults;
+
+/**
+ * Manual Feature Query Streaming Results, lazily scans the feature table as
+ * the results are iterated instead of collecting every matching feature id
+ * up front. Each iteration performs a new scan, only one chunk of matching
+ * ids is held in memory at a time.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class ManualFeatureQueryStreamingResults implements FeatureIndexResults {
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Feature columns
+     */
+    private final String[] columns;
+
+    /**
+     * Distinct rows
+     */
+    private final boolean distinct;
+
+    /**
+     * Where clause
+     */
+    private final String where;
+
+    /**
+     * Where arguments
+     */
+    private final String[] whereArgs;
+
+    /**
+     * Bounds, with the tolerance applied
+     */
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    /**
+     * Query single chunk limit
+     */
+    private final int chunkLimit;
+
+    /**
+     * Compare geodesic geometry bounds
+     */
+    private final boolean geodesic;
+
+    /**
+     * Number of feature rows read per query when iterating
+     */
+    private int batchSize = FeatureIdRowIterator.DEFAULT_BATCH_SIZE;
+
+    /**
+     * Counted matches, -1 until counted
+     */
+    private long count = -1;
+
+    /**
+     * Constructor
+     *
+     * @param featureDao feature DAO
+     * @param distinct   distinct rows
+     * @param columns    columns
+     * @param minX       min x, with the tolerance applied
+     * @param minY       min y, with the tolerance applied
+     * @param maxX       max x, with the tolerance applied
+     * @param maxY       max y, with the tolerance applied
+     * @param where      where clause
+     * @param whereArgs  where args
+     * @param chunkLimit query single chunk limit
+     * @param geodesic   compare geodesic geometry bounds
+     */
+    ManualFeatureQueryStreamingResults(FeatureDao featureDao,
+                                       boolean distinct, String[] columns, double minX, double minY,
+                                       double maxX, double maxY, String where, String[] whereArgs,
+                                       int chunkLimit, boolean geodesic) {
+        this.featureDao = featureDao;
+        this.distinct = distinct;
+        this.columns = columns;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.where = where;
+        this.whereArgs = whereArgs;
+        this.chunkLimit = chunkLimit;
+        this.geodesic = geodesic;
+    }
+
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
+    /**
+     * Get the feature columns
+     *
+     * @return columns
+     */
+    public String[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the number of feature rows read per query when iterating
+     *
+     * @return batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the number of feature rows read per query when iterating
+     *
+     * @param batchSize batch size
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Scan the feature table and collect the matching feature ids into a
+     * compact id list
+     *
+     * @return feature ids
+     */
+    public FeatureIdList getFeatureIds() {
+        FeatureIdList featureIds = new FeatureIdList();
+        ManualFeatureQueryScanner scanner = scanner();
+        while (scanner.hasNext()) {
+            featureIds.addId(scanner.nextId());
+        }
+        featureIds.trimToSize();
+        return featureIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Scans the feature table as iterated, reading the feature rows in
+     * batches of {@link #getBatchSize()} ids
+     */
+    @Override
+    public Iterator<FeatureRow> iterator() {
+        return new FeatureIdRowIterator(featureDao, columns, scanner(),
+                batchSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The first call scans the feature table counting the matches without
+     * storing the ids
+     */
+    @Override
+    public long count() {
+        if (count < 0) {
+            count = scanner().countRemaining();
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<Long> ids() {
+
+        return new Iterable<Long>() {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public Iterator<Long> iterator() {
+                return scanner();
+            }
+        };
+    }
+
+    /**
+     * Create a new feature table scanner
+     *
+     * @return scanner
+     */
+    private ManualFeatureQueryScanner scanner() {
+        return new ManualFeatureQueryScanner(featureDao, distinct, where,
+                whereArgs, minX, minY, maxX, maxY, chunkLimit, geodesic);
+    }
+
+}
@@ -0,0 +1,608 @@
+package mil.nga.geopackage.geom;
+
+import java.nio.ByteBuffer;
+
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Reusable reader of GeoPackage geometry envelopes directly from the
+ * GeoPackage binary bytes. The envelope is read from the GeoPackage binary
+ * header when present, otherwise the WKB coordinates are scanned for their
+ * min and max values. Geometry objects are never built, and no objects are
+ * allocated when reading standard GeoPackage geometries.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class GeometryEnvelopeReader {
+
+    /**
+     * GeoPackage binary header length, excluding the envelope
+     */
+    private static final int HEADER_LENGTH = 8;
+
+    /**
+     * Envelope lengths in bytes by header envelope indicator
+     */
+    private static final int[] ENVELOPE_LENGTHS = {0, 32, 48, 48, 64};
+
+    /**
+     * Byte array being read, null when reading a byte buffer
+     */
+    private byte[] bytes;
+
+    /**
+     * Byte buffer being read, null when reading a byte array
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Start of the GeoPackage geometry within the bytes or buffer
+     */
+    private int start;
+
+    /**
+     * End of the GeoPackage geometry within the bytes or buffer
+     */
+    private int end;
+
+    /**
+     * Min X
+     */
+    private double minX;
+
+    /**
+     * Max X
+     */
+    private double maxX;
+
+    /**
+     * Min Y
+     */
+    private double minY;
+
+    /**
+     * Max Y
+     */
+    private double maxY;
+
+    /**
+     * Min Z
+     */
+    private double minZ;
+
+    /**
+     * Max Z
+     */
+    private double maxZ;
+
+    /**
+     * Min M
+     */
+    private double minM;
+
+    /**
+     * Max M
+     */
+    private double maxM;
+
+    /**
+     * Has Z values
+     */
+    private boolean hasZ;
+
+    /**
+     * Has M values
+     */
+    private boolean hasM;
+
+    /**
+     * Envelope read flag
+     */
+    private boolean found;
+
+    /**
+     * Constructor
+     */
+    public GeometryEnvelopeReader() {
+
+    }
+
+    /**
+     * Read the envelope from GeoPackage geometry bytes
+     *
+     * @param bytes GeoPackage geometry bytes
+     * @return true if an envelope was read, false for empty geometries
+     */
+    public boolean read(byte[] bytes) {
+        this.bytes = bytes;
+        this.buffer = null;
+        this.start = 0;
+        this.end = bytes.length;
+        return read();
+    }
+
+    /**
+     * Read the envelope from GeoPackage geometry bytes in a byte buffer,
+     * starting at the buffer position and ending at the buffer limit. The
+     * buffer position, limit, and byte order are not modified.
+     *
+     * @param buffer byte buffer
+     * @return true if an envelope was read, false for empty geometries
+     */
+    public boolean read(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            this.bytes = buffer.array();
+            this.buffer = null;
+            this.start = buffer.arrayOffset() + buffer.position();
+            this.end = buffer.arrayOffset() + buffer.limit();
+        } else {
+            this.bytes = null;
+            this.buffer = buffer;
+            this.start = buffer.position();
+            this.end = buffer.limit();
+        }
+        return read();
+    }
+
+    /**
+     * Was an envelope found by the last read
+     *
+     * @return true if found
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * Get the min x
+     *
+     * @return min x
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * Get the max x
+     *
+     * @return max x
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Get the min y
+     *
+     * @return min y
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * Get the max y
+     *
+     * @return max y
+     */
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Has z values
+     *
+     * @return true if has z
+     */
+    public boolean hasZ() {
+        return hasZ;
+    }
+
+    /**
+     * Get the min z
+     *
+     * @return min z
+     */
+    public double getMinZ() {
+        return minZ;
+    }
+
+    /**
+     * Get the max z
+     *
+     * @return max z
+     */
+    public double getMaxZ() {
+        return maxZ;
+    }
+
+    /**
+     * Has m values
+     *
+     * @return true if has m
+     */
+    public boolean hasM() {
+        return hasM;
+    }
+
+    /**
+     * Get the min m
+     *
+     * @return min m
+     */
+    public double getMinM() {
+        return minM;
+    }
+
+    /**
+     * Get the max m
+     *
+     * @return max m
+     */
+    public double getMaxM() {
+        return maxM;
+    }
+
+    /**
+     * Determine if the last read envelope intersects the bounds
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param maxX max x
+     * @param maxY max y
+     * @return true if intersects
+     */
+    public boolean intersects(double minX, double minY, double maxX,
+                              double maxY) {
+        return found && Math.max(minX, this.minX) <= Math.min(maxX, this.maxX)
+                && Math.max(minY, this.minY) <= Math.min(maxY, this.maxY);
+    }
+
+    /**
+     * Build a geometry envelope from the last read envelope
+     *
+     * @return geometry envelope or null if not found
+     */
+    public GeometryEnvelope getEnvelope() {
+        GeometryEnvelope envelope = null;
+        if (found) {
+            envelope = new GeometryEnvelope(hasZ, hasM);
+            envelope.setMinX(minX);
+            envelope.setMaxX(maxX);
+            envelope.setMinY(minY);
+            envelope.setMaxY(maxY);
+            if (hasZ) {
+                envelope.setMinZ(minZ);
+                envelope.setMaxZ(maxZ);
+            }
+            if (hasM) {
+                envelope.setMinM(minM);
+                envelope.setMaxM(maxM);
+            }
+        }
+        return envelope;
+    }
+
+    /**
+     * Read the envelope from the current bytes or buffer
+     *
+     * @return true if found
+     */
+    private boolean read() {
+
+        reset();
+
+        if (end - start < HEADER_LENGTH || byteAt(start) != 'G'
+                || byteAt(start + 1) != 'P') {
+            throw new GeoPackageException(
+                    "Unexpected GeoPackage geometry header magic number");
+        }
+
+        int flags = byteAt(start + 3) & 0xFF;
+        boolean extended = (flags & 0x20) != 0;
+        boolean empty = (flags & 0x10) != 0;
+        int indicator = (flags >> 1) & 0x07;
+        boolean littleEndian = (flags & 0x01) == 1;
+
+        if (indicator >= ENVELOPE_LENGTHS.length) {
+            throw new GeoPackageException(
+                    "Unexpected GeoPackage geometry envelope indicator: "
+                            + indicator);
+        }
+
+        if (!empty) {
+
+            int offset = start + HEADER_LENGTH;
+
+            if (indicator > 0) {
+
+                minX = readDouble(offset, littleEndian);
+                maxX = readDouble(offset + 8, littleEndian);
+                minY = readDouble(offset + 16, littleEndian);
+                maxY = readDouble(offset + 24, littleEndian);
+                offset += 32;
+                if (indicator == 2 || indicator == 4) {
+                    hasZ = true;
+                    minZ = readDouble(offset, littleEndian);
+                    maxZ = readDouble(offset + 8, littleEndian);
+                    offset += 16;
+                }
+                if (indicator == 3 || indicator == 4) {
+                    hasM = true;
+                    minM = readDouble(offset, littleEndian);
+                    maxM = readDouble(offset + 8, littleEndian);
+                }
+                found = true;
+
+            } else if (extended) {
+                readExtended();
+            } else {
+                scanGeometry(offset);
+            }
+
+        }
+
+        return found;
+    }
+
+    /**
+     * Reset the envelope values
+     */
+    private void reset() {
+        found = false;
+        hasZ = false;
+        hasM = false;
+        minX = Double.NaN;
+        maxX = Double.NaN;
+        minY = Double.NaN;
+        maxY = Double.NaN;
+        minZ = Double.NaN;
+        maxZ = Double.NaN;
+        minM = Double.NaN;
+        maxM = Double.NaN;
+    }
+
+    /**
+     * Read the envelope of an extended GeoPackage geometry, whose WKB format
+     * is extension specific, by decoding the geometry data
+     */
+    private void readExtended() {
+        byte[] geometryBytes;
+        if (bytes != null && start == 0 && end == bytes.length) {
+            geometryBytes = bytes;
+        } else {
+            geometryBytes = new byte[end - start];
+            for (int i = 0; i < geometryBytes.length; i++) {
+                geometryBytes[i] = byteAt(start + i);
+            }
+        }
+        GeometryEnvelope envelope = GeoPackageGeometryData
+                .create(geometryBytes).getOrBuildEnvelope();
+        if (envelope != null) {
+            found = true;
+            minX = envelope.getMinX();
+            maxX = envelope.getMaxX();
+            minY = envelope.getMinY();
+            maxY = envelope.getMaxY();
+            hasZ = envelope.hasZ();
+            if (hasZ) {
+                minZ = envelope.getMinZ();
+                maxZ = envelope.getMaxZ();
+            }
+            hasM = envelope.hasM();
+            if (hasM) {
+                minM = envelope.getMinM();
+                maxM = envelope.getMaxM();
+            }
+        }
+    }
+
+    /**
+     * Scan the WKB geometry at the offset, expanding the envelope by each
+     * coordinate
+     *
+     * @param offset WKB geometry offset
+     * @return offset after the geometry
+     */
+    private int scanGeometry(int offset) {
+
+        boolean littleEndian = byteAt(offset) == 1;
+        long typeCode = readInt(offset + 1, littleEndian) & 0xFFFFFFFFL;
+        offset += 5;
+
+        // Extended WKB dimension and SRID flags
+        boolean z = (typeCode & 0x80000000L) != 0;
+        boolean m = (typeCode & 0x40000000L) != 0;
+        if ((typeCode & 0x20000000L) != 0) {
+            offset += 4;
+        }
+        typeCode &= 0x0FFFFFFFL;
+
+        // ISO WKB dimensions
+        int dimensionCode = (int) (typeCode / 1000);
+        int type = (int) (typeCode % 1000);
+        if (dimensionCode == 1 || dimensionCode == 3) {
+            z = true;
+        }
+        if (dimensionCode == 2 || dimensionCode == 3) {
+            m = true;
+        }
+
+        switch (type) {
+
+            case 1: // Point
+                offset = scanPoint(offset, littleEndian, z, m);
+                break;
+
+            case 2: // LineString
+            case 8: // CircularString
+                offset = scanPoints(offset, littleEndian, z, m);
+                break;
+
+            case 3: // Polygon
+            case 17: // Triangle
+                int rings = readInt(offset, littleEndian);
+                offset += 4;
+                for (int i = 0; i < rings; i++) {
+                    offset = scanPoints(offset, littleEndian, z, m);
+                }
+                break;
+
+            case 4: // MultiPoint
+            case 5: // MultiLineString
+            case 6: // MultiPolygon
+            case 7: // GeometryCollection
+            case 9: // CompoundCurve
+            case 10: // CurvePolygon
+            case 11: // MultiCurve
+            case 12: // MultiSurface
+            case 15: // PolyhedralSurface
+            case 16: // TIN
+                int geometries = readInt(offset, littleEndian);
+                offset += 4;
+                for (int i = 0; i < geometries; i++) {
+                    offset = scanGeometry(offset);
+                }
+                break;
+
+            default:
+                throw new GeoPackageException(
+                        "Unsupported WKB geometry type code: " + typeCode);
+        }
+
+        return offset;
+    }
+
+    /**
+     * Scan a count prefixed list of points
+     *
+     * @param offset       points offset
+     * @param littleEndian little endian byte order
+     * @param z            has z
+     * @param m            has m
+     * @return offset after the points
+     */
+    private int scanPoints(int offset, boolean littleEndian, boolean z,
+                           boolean m) {
+        int points = readInt(offset, littleEndian);
+        offset += 4;
+        for (int i = 0; i < points; i++) {
+            offset = scanPoint(offset, littleEndian, z, m);
+        }
+        return offset;
+    }
+
+    /**
+     * Scan a single point, expanding the envelope
+     *
+     * @param offset       point offset
+     * @param littleEndian little endian byte order
+     * @param z            has z
+     * @param m            has m
+     * @return offset after the point
+     */
+    private int scanPoint(int offset, boolean littleEndian, boolean z,
+                          boolean m) {
+
+        double x = readDouble(offset, littleEndian);
+        double y = readDouble(offset + 8, littleEndian);
+        offset += 16;
+
+        // Empty points are encoded with NaN coordinates
+        if (!Double.isNaN(x) && !Double.isNaN(y)) {
+            if (!found) {
+                minX = x;
+                maxX = x;
+                minY = y;
+                maxY = y;
+                found = true;
+            } else {
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+        }
+
+        if (z) {
+            double zValue = readDouble(offset, littleEndian);
+            offset += 8;
+            if (!Double.isNaN(zValue)) {
+                if (!hasZ) {
+                    minZ = zValue;
+                    maxZ = zValue;
+                    hasZ = true;
+                } else {
+                    minZ = Math.min(minZ, zValue);
+                    maxZ = Math.max(maxZ, zValue);
+                }
+            }
+        }
+
+        if (m) {
+            double mValue = readDouble(offset, littleEndian);
+            offset += 8;
+            if (!Double.isNaN(mValue)) {
+                if (!hasM) {
+                    minM = mValue;
+                    maxM = mValue;
+                    hasM = true;
+                } else {
+                    minM = Math.min(minM, mValue);
+                    maxM = Math.max(maxM, mValue);
+                }
+            }
+        }
+
+        return offset;
+    }
+
+    /**
+     * Get the byte at the absolute index
+     *
+     * @param index index
+     * @return byte
+     */
+    private byte byteAt(int index) {
+        if (index >= end) {
+            throw new GeoPackageException(
+                    "Unexpected end of GeoPackage geometry bytes");
+        }
+        return bytes != null ? bytes[index] : buffer.get(index);
+    }
+
+    /**
+     * Read a 4 byte integer
+     *
+     * @param index        index
+     * @param littleEndian little endian byte order
+     * @return integer
+     */
+    private int readInt(int index, boolean littleEndian) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = byteAt(littleEndian ? index + 3 - i : index + i) & 0xFF;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    /**
+     * Read an 8 byte double
+     *
+     * @param index        index
+     * @param littleEndian little endian byte order
+     * @return double
+     */
+    private double readDouble(int index, boolean littleEndian) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            long b = byteAt(littleEndian ? index + 7 - i : index + i) & 0xFFL;
+            value = (value << 8) | b;
+        }
+        return Double.longBitsToDouble(value);
+    }
+
+}
@@ -0,0 +1,20 @@
+package mil.nga.geopackage.io;
+
+/**
+ * GeoPackage Progress that is additionally notified of the indexing rate as
+ * feature chunks are committed
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public interface GeoPackageIndexProgress extends GeoPackageProgress {
+
+    /**
+     * Set the current indexing rate, called after each committed chunk
+     *
+     * @param count         total rows processed so far
+     * @param rowsPerSecond rows processed per second so far
+     */
+    public void setIndexRate(int count, double rowsPerSecond);
+
+}
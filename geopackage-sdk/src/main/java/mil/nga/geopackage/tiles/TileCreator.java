@@ -0,0 +1,27 @@
+package mil.nga.geopackage.tiles;
+
+/**
+ * Tile creator used by a single tile generation worker thread, owning the
+ * rendering state and connections it creates tiles with
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public interface TileCreator {
+
+    /**
+     * Create the tile
+     *
+     * @param z zoom level
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return tile bytes
+     */
+    byte[] createTile(int z, long x, long y);
+
+    /**
+     * Close the tile creator, releasing the rendering state
+     */
+    void close();
+
+}
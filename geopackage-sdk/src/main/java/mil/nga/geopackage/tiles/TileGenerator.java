@@ -12,15 +12,27 @@ import org.locationtech.proj4j.units.Units;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
@@ -55,6 +67,14 @@ import mil.nga.proj.ProjectionTransform;
  */
 public abstract class TileGenerator {
 
+    /**
+     * Number of generated tiles inserted per transaction when generating
+     * concurrently
+     *
+     * @since 6.7.5
+     */
+    public static final int WRITE_BATCH_SIZE = 100;
+
     /**
      * Context
      */
@@ -152,6 +172,11 @@ public abstract class TileGenerator {
      */
     private boolean skipExisting = false;
 
+    /**
+     * Number of tile creation threads
+     */
+    private int parallelism = 1;
+
     /**
      * Constructor
      *
@@ -501,6 +526,34 @@ public abstract class TileGenerator {
         this.skipExisting = skipExisting;
     }
 
+    /**
+     * Get the number of tile creation threads
+     *
+     * @return parallelism
+     * @since 6.7.5
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Set the number of tile creation threads. When greater than 1 and the
+     * generator supports tile creators, tiles are created concurrently by
+     * worker threads each with its own {@link TileCreator}, and written in
+     * batched transactions by the generating thread. Default is 1, creating
+     * tiles serially.
+     *
+     * @param parallelism number of tile creation threads
+     * @since 6.7.5
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new GeoPackageException(
+                    "Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
     /**
      * Get the tile count of tiles to be generated
      *
@@ -952,11 +1005,6 @@ public abstract class TileGenerator {
                               TileGrid localTileGrid, long matrixWidth, long matrixHeight,
                               boolean update) throws SQLException, IOException {
 
-        int count = 0;
-
-        Integer tileWidth = null;
-        Integer tileHeight = null;
-
         Map<Long, Set<Long>> existingTiles = null;
         if (update && skipExisting) {
             existingTiles = new HashMap<>();
@@ -983,106 +1031,21 @@ public abstract class TileGenerator {
             }
         }
 
-        // Download and create the tile and each coordinate
-        for (long x = tileGrid.getMinX(); x <= tileGrid.getMaxX(); x++) {
-
-            // Check if the progress has been canceled
-            if (progress != null && !progress.isActive()) {
-                break;
-            }
-
-            long tileColumn = x;
-            // Update the column to the local tile grid location
-            if (localTileGrid != null) {
-                tileColumn = (x - tileGrid.getMinX()) + localTileGrid.getMinX();
-            }
-
-            Set<Long> existingColumnRows = null;
-            if (existingTiles != null) {
-                existingColumnRows = existingTiles.get(tileColumn);
-            }
-
-            for (long y = tileGrid.getMinY(); y <= tileGrid.getMaxY(); y++) {
-
-                // Check if the progress has been canceled
-                if (progress != null && !progress.isActive()) {
-                    break;
-                }
-
-                long tileRow = y;
-                // Update the row to the local tile grid location
-                if (localTileGrid != null) {
-                    tileRow = (y - tileGrid.getMinY())
-                            + localTileGrid.getMinY();
-                }
-
-                boolean createTile = true;
-                if (existingColumnRows != null) {
-                    createTile = !existingColumnRows.contains(tileRow);
-                }
-
-                if (createTile) {
-                    try {
-
-                        // Create the tile
-                        byte[] tileBytes = createTile(zoomLevel, x, y);
-
-                        if (tileBytes != null && tileBytes.length > 0) {
-
-                            Bitmap bitmap = null;
-
-                            // Compress the image
-                            if (compressFormat != null) {
-                                bitmap = BitmapConverter.toBitmap(tileBytes, options);
-                                if (bitmap != null) {
-                                    tileBytes = BitmapConverter.toBytes(bitmap,
-                                            compressFormat, compressQuality);
-                                }
-                            }
-
-                            // Create a new tile row
-                            TileRow newRow = tileDao.newRow();
-                            newRow.setZoomLevel(zoomLevel);
-
-                            // If an update, delete an existing row
-                            if (update) {
-                                tileDao.deleteTile(tileColumn, tileRow, zoomLevel);
-                            }
-
-                            newRow.setTileColumn(tileColumn);
-                            newRow.setTileRow(tileRow);
-                            newRow.setTileData(tileBytes);
-                            tileDao.create(newRow);
-
-                            count++;
-
-                            // Determine the tile width and height
-                            if (tileWidth == null) {
-                                if (bitmap == null) {
-                                    bitmap = BitmapConverter.toBitmap(tileBytes,
-                                            options);
-                                }
-                                if (bitmap != null) {
-                                    tileWidth = bitmap.getWidth();
-                                    tileHeight = bitmap.getHeight();
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        Log.w(TileGenerator.class.getSimpleName(), "Failed to create tile. Zoom: "
-                                + zoomLevel + ", x: " + x + ", y: " + y, e);
-                        // Skip this tile, don't increase count
-                    }
-                }
-
-                // Update the progress count, even on failures
-                if (progress != null) {
-                    progress.addProgress(1);
-                }
-
-            }
-
+        // Create the tiles, concurrently when supported
+        TileWriter writer = new TileWriter(tileDao, zoomLevel, update);
+        List<TileCreator> creators = createTileCreators();
+        if (creators == null) {
+            generateTiles(writer, zoomLevel, tileGrid, localTileGrid,
+                    existingTiles);
+        } else {
+            generateTiles(writer, creators, zoomLevel, tileGrid,
+                    localTileGrid, existingTiles);
         }
+        writer.flush();
+
+        int count = writer.getCount();
+        Integer tileWidth = writer.getTileWidth();
+        Integer tileHeight = writer.getTileHeight();
 
         // If none of the tiles were translated into a bitmap with dimensions,
         // delete them
@@ -1152,6 +1115,568 @@ public abstract class TileGenerator {
         return count;
     }
 
+    /**
+     * Create the tile creators of the worker threads
+     *
+     * @return tile creators, null when generating serially
+     */
+    private List<TileCreator> createTileCreators() {
+
+        List<TileCreator> creators = null;
+
+        if (parallelism > 1) {
+            creators = new ArrayList<>();
+            for (int i = 0; i < parallelism; i++) {
+                TileCreator creator = createTileCreator();
+                if (creator == null) {
+                    closeTileCreators(creators);
+                    creators = null;
+                    break;
+                }
+                creators.add(creator);
+            }
+        }
+
+        return creators;
+    }
+
+    /**
+     * Close the tile creators
+     *
+     * @param creators tile creators
+     */
+    private static void closeTileCreators(Collection<TileCreator> creators) {
+        for (TileCreator creator : creators) {
+            try {
+                creator.close();
+            } catch (Exception e) {
+                Log.w(TileGenerator.class.getSimpleName(),
+                        "Failed to close tile creator", e);
+            }
+        }
+    }
+
+    /**
+     * Generate the tiles for the zoom level on the calling thread
+     *
+     * @param writer        tile writer
+     * @param zoomLevel     zoom level
+     * @param tileGrid      tile grid
+     * @param localTileGrid local tile grid
+     * @param existingTiles existing tile rows by column to skip
+     */
+    private void generateTiles(TileWriter writer, final int zoomLevel,
+                               TileGrid tileGrid, TileGrid localTileGrid,
+                               Map<Long, Set<Long>> existingTiles) {
+
+        TileCreator creator = new TileCreator() {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public byte[] createTile(int z, long x, long y) {
+                return TileGenerator.this.createTile(z, x, y);
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void close() {
+            }
+
+        };
+
+        // Create the tiles in blocks of the tile block size, aligned to
+        // multiples of the size, so nearby tiles are created consecutively
+        long blockSize = Math.max(1, getTileBlockSize());
+        long minBlockX = tileGrid.getMinX() - (tileGrid.getMinX() % blockSize);
+        long minBlockY = tileGrid.getMinY() - (tileGrid.getMinY() % blockSize);
+
+        for (long blockX = minBlockX; blockX <= tileGrid.getMaxX()
+                && isActive(); blockX += blockSize) {
+            for (long blockY = minBlockY; blockY <= tileGrid.getMaxY()
+                    && isActive(); blockY += blockSize) {
+                writer.write(createTiles(creator, zoomLevel, tileGrid,
+                        localTileGrid, existingTiles, blockX, blockY,
+                        blockSize));
+            }
+        }
+    }
+
+    /**
+     * Generate the tiles for the zoom level with a worker thread per tile
+     * creator. Tile blocks are created concurrently and written in block
+     * order by the calling thread, bounding the blocks created ahead of the
+     * writes.
+     *
+     * @param writer        tile writer
+     * @param creators      tile creators
+     * @param zoomLevel     zoom level
+     * @param tileGrid      tile grid
+     * @param localTileGrid local tile grid
+     * @param existingTiles existing tile rows by column to skip
+     */
+    private void generateTiles(TileWriter writer, List<TileCreator> creators,
+                               final int zoomLevel, final TileGrid tileGrid,
+                               final TileGrid localTileGrid,
+                               final Map<Long, Set<Long>> existingTiles) {
+
+        final BlockingQueue<TileCreator> available = new ArrayBlockingQueue<>(
+                creators.size(), false, creators);
+
+        final long blockSize = Math.max(1, getTileBlockSize());
+        long minBlockX = tileGrid.getMinX() - (tileGrid.getMinX() % blockSize);
+        long minBlockY = tileGrid.getMinY() - (tileGrid.getMinY() % blockSize);
+
+        ExecutorService executor = Executors.newFixedThreadPool(creators.size());
+        try {
+
+            Deque<Future<List<GeneratedTile>>> pending = new ArrayDeque<>();
+            for (long blockX = minBlockX; blockX <= tileGrid.getMaxX()
+                    && isActive(); blockX += blockSize) {
+                for (long blockY = minBlockY; blockY <= tileGrid.getMaxY()
+                        && isActive(); blockY += blockSize) {
+
+                    final long x = blockX;
+                    final long y = blockY;
+                    pending.add(executor.submit(new Callable<List<GeneratedTile>>() {
+                        /**
+                         * {@inheritDoc}
+                         */
+                        @Override
+                        public List<GeneratedTile> call() throws InterruptedException {
+                            TileCreator creator = available.take();
+                            try {
+                                return createTiles(creator, zoomLevel, tileGrid,
+                                        localTileGrid, existingTiles, x, y,
+                                        blockSize);
+                            } finally {
+                                available.put(creator);
+                            }
+                        }
+                    }));
+
+                    if (pending.size() > creators.size() * 2) {
+                        writer.write(pending.poll().get());
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                writer.write(pending.poll().get());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeoPackageException(
+                    "Interrupted while generating tiles. Table: " + tableName
+                            + ", Zoom: " + zoomLevel, e);
+        } catch (ExecutionException e) {
+            throw new GeoPackageException("Failed to generate tiles. Table: "
+                    + tableName + ", Zoom: " + zoomLevel, e.getCause());
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            closeTileCreators(creators);
+        }
+    }
+
+    /**
+     * Create the tiles of a tile block, compressing the tile bytes when a
+     * compress format is set
+     *
+     * @param creator       tile creator
+     * @param zoomLevel     zoom level
+     * @param tileGrid      tile grid
+     * @param localTileGrid local tile grid
+     * @param existingTiles existing tile rows by column to skip
+     * @param blockX        block min x, aligned to the block size
+     * @param blockY        block min y, aligned to the block size
+     * @param blockSize     tiles per block side
+     * @return generated tiles, including skipped and failed tiles without
+     * bytes for progress
+     */
+    private List<GeneratedTile> createTiles(TileCreator creator, int zoomLevel,
+                                            TileGrid tileGrid, TileGrid localTileGrid,
+                                            Map<Long, Set<Long>> existingTiles,
+                                            long blockX, long blockY, long blockSize) {
+
+        List<GeneratedTile> tiles = new ArrayList<>();
+
+        long maxX = Math.min(blockX + blockSize - 1, tileGrid.getMaxX());
+        long maxY = Math.min(blockY + blockSize - 1, tileGrid.getMaxY());
+
+        // Download and create the tile and each coordinate
+        for (long x = Math.max(blockX, tileGrid.getMinX()); x <= maxX
+                && isActive(); x++) {
+
+            long tileColumn = x;
+            // Update the column to the local tile grid location
+            if (localTileGrid != null) {
+                tileColumn = (x - tileGrid.getMinX()) + localTileGrid.getMinX();
+            }
+
+            Set<Long> existingColumnRows = null;
+            if (existingTiles != null) {
+                existingColumnRows = existingTiles.get(tileColumn);
+            }
+
+            for (long y = Math.max(blockY, tileGrid.getMinY()); y <= maxY
+                    && isActive(); y++) {
+
+                long tileRow = y;
+                // Update the row to the local tile grid location
+                if (localTileGrid != null) {
+                    tileRow = (y - tileGrid.getMinY())
+                            + localTileGrid.getMinY();
+                }
+
+                GeneratedTile tile = new GeneratedTile(tileColumn, tileRow);
+                tiles.add(tile);
+
+                if (existingColumnRows != null
+                        && existingColumnRows.contains(tileRow)) {
+                    continue;
+                }
+
+                try {
+
+                    // Create the tile
+                    byte[] tileBytes = creator.createTile(zoomLevel, x, y);
+
+                    if (tileBytes != null && tileBytes.length > 0) {
+
+                        // Compress the image
+                        if (compressFormat != null) {
+                            Bitmap bitmap = BitmapConverter.toBitmap(tileBytes, options);
+                            if (bitmap != null) {
+                                tileBytes = BitmapConverter.toBytes(bitmap,
+                                        compressFormat, compressQuality);
+                                tile.width = bitmap.getWidth();
+                                tile.height = bitmap.getHeight();
+                            }
+                        }
+
+                        tile.bytes = tileBytes;
+                    }
+                } catch (Exception e) {
+                    Log.w(TileGenerator.class.getSimpleName(), "Failed to create tile. Zoom: "
+                            + zoomLevel + ", x: " + x + ", y: " + y, e);
+                    // Skip this tile, don't increase count
+                }
+            }
+        }
+
+        return tiles;
+    }
+
+    /**
+     * Check if the progress is still active
+     *
+     * @return true if not canceled
+     */
+    private boolean isActive() {
+        return progress == null || progress.isActive();
+    }
+
+    /**
+     * Generated tile, without bytes when skipped or failed
+     */
+    private static class GeneratedTile {
+
+        /**
+         * Tile column
+         */
+        private final long tileColumn;
+
+        /**
+         * Tile row
+         */
+        private final long tileRow;
+
+        /**
+         * Tile bytes
+         */
+        private byte[] bytes;
+
+        /**
+         * Tile width when decoded during compression
+         */
+        private Integer width;
+
+        /**
+         * Tile height when decoded during compression
+         */
+        private Integer height;
+
+        /**
+         * Constructor
+         *
+         * @param tileColumn tile column
+         * @param tileRow    tile row
+         */
+        GeneratedTile(long tileColumn, long tileRow) {
+            this.tileColumn = tileColumn;
+            this.tileRow = tileRow;
+        }
+
+    }
+
+    /**
+     * Tile writer of generated tiles into the tile table, inserting tiles in
+     * batches when generating concurrently
+     */
+    private class TileWriter {
+
+        /**
+         * Tile DAO
+         */
+        private final TileDao tileDao;
+
+        /**
+         * Zoom level
+         */
+        private final int zoomLevel;
+
+        /**
+         * Update existing tiles flag
+         */
+        private final boolean update;
+
+        /**
+         * Tiles pending a batch insert
+         */
+        private final List<GeneratedTile> batch = new ArrayList<>();
+
+        /**
+         * Written tile count
+         */
+        private int count = 0;
+
+        /**
+         * Tile width
+         */
+        private Integer tileWidth = null;
+
+        /**
+         * Tile height
+         */
+        private Integer tileHeight = null;
+
+        /**
+         * Constructor
+         *
+         * @param tileDao   tile DAO
+         * @param zoomLevel zoom level
+         * @param update    update existing tiles flag
+         */
+        TileWriter(TileDao tileDao, int zoomLevel, boolean update) {
+            this.tileDao = tileDao;
+            this.zoomLevel = zoomLevel;
+            this.update = update;
+        }
+
+        /**
+         * Write the generated tiles and update the progress count, even on
+         * failures
+         *
+         * @param tiles generated tiles
+         */
+        void write(List<GeneratedTile> tiles) {
+            for (GeneratedTile tile : tiles) {
+                if (tile.bytes != null) {
+                    if (parallelism > 1) {
+                        batch.add(tile);
+                        if (batch.size() >= WRITE_BATCH_SIZE) {
+                            flush();
+                        }
+                    } else {
+                        insert(tile);
+                    }
+                }
+                if (progress != null) {
+                    progress.addProgress(1);
+                }
+            }
+        }
+
+        /**
+         * Insert the pending batch of tiles in a single transaction, falling
+         * back to individual inserts when the batch fails
+         */
+        void flush() {
+            if (!batch.isEmpty()) {
+
+                boolean successful = false;
+                tileDao.beginTransaction();
+                try {
+                    for (GeneratedTile tile : batch) {
+                        if (update) {
+                            tileDao.deleteTile(tile.tileColumn, tile.tileRow,
+                                    zoomLevel);
+                        }
+                        tileDao.create(newRow(tile));
+                    }
+                    successful = true;
+                } catch (Exception e) {
+                    Log.w(TileGenerator.class.getSimpleName(),
+                            "Failed to write tile batch, writing individually. Zoom: "
+                                    + zoomLevel, e);
+                } finally {
+                    tileDao.endTransaction(successful);
+                }
+
+                for (GeneratedTile tile : batch) {
+                    if (successful) {
+                        written(tile);
+                    } else {
+                        insert(tile);
+                    }
+                }
+                batch.clear();
+            }
+        }
+
+        /**
+         * Insert the tile
+         *
+         * @param tile generated tile
+         */
+        private void insert(GeneratedTile tile) {
+            try {
+
+                // If an update, delete an existing row
+                if (update) {
+                    tileDao.deleteTile(tile.tileColumn, tile.tileRow, zoomLevel);
+                }
+
+                tileDao.create(newRow(tile));
+
+                written(tile);
+
+            } catch (Exception e) {
+                Log.w(TileGenerator.class.getSimpleName(), "Failed to write tile. Zoom: "
+                        + zoomLevel + ", column: " + tile.tileColumn + ", row: "
+                        + tile.tileRow, e);
+                // Skip this tile, don't increase count
+            }
+        }
+
+        /**
+         * Create a new tile row
+         *
+         * @param tile generated tile
+         * @return tile row
+         */
+        private TileRow newRow(GeneratedTile tile) {
+            TileRow newRow = tileDao.newRow();
+            newRow.setZoomLevel(zoomLevel);
+            newRow.setTileColumn(tile.tileColumn);
+            newRow.setTileRow(tile.tileRow);
+            newRow.setTileData(tile.bytes);
+            return newRow;
+        }
+
+        /**
+         * Count the written tile and determine the tile width and height
+         *
+         * @param tile written tile
+         */
+        private void written(GeneratedTile tile) {
+
+            count++;
+
+            // Determine the tile width and height
+            if (tileWidth == null) {
+                int[] dimensions = getTileDimensions();
+                if (dimensions != null) {
+                    tileWidth = dimensions[0];
+                    tileHeight = dimensions[1];
+                } else if (tile.width != null) {
+                    tileWidth = tile.width;
+                    tileHeight = tile.height;
+                } else {
+                    Bitmap bitmap = BitmapConverter.toBitmap(tile.bytes,
+                            options);
+                    if (bitmap != null) {
+                        tileWidth = bitmap.getWidth();
+                        tileHeight = bitmap.getHeight();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Get the written tile count
+         *
+         * @return count
+         */
+        int getCount() {
+            return count;
+        }
+
+        /**
+         * Get the tile width
+         *
+         * @return tile width, null when no tiles were written
+         */
+        Integer getTileWidth() {
+            return tileWidth;
+        }
+
+        /**
+         * Get the tile height
+         *
+         * @return tile height, null when no tiles were written
+         */
+        Integer getTileHeight() {
+            return tileHeight;
+        }
+
+    }
+
+    /**
+     * Get the number of tiles per side of the square tile blocks created
+     * consecutively. Tiles within a block are created before moving to the
+     * next block. Default is 1, creating tiles by column.
+     *
+     * @return tile block size
+     * @since 6.7.5
+     */
+    protected int getTileBlockSize() {
+        return 1;
+    }
+
+    /**
+     * Create a tile creator for a concurrent generation worker thread, with
+     * its own rendering state and connections. Default is null, concurrent
+     * generation is not supported and tiles are created serially with
+     * {@link #createTile(int, long, long)}.
+     *
+     * @return tile creator, or null if not supported
+     * @since 6.7.5
+     */
+    protected TileCreator createTileCreator() {
+        return null;
+    }
+
+    /**
+     * Get the tile width and height of created tiles that are not decodable
+     * images, such as vector tiles. Default is null, the dimensions are read
+     * from the first written tile image.
+     *
+     * @return tile width and height, or null to read from the tile images
+     * @since 6.7.5
+     */
+    protected int[] getTileDimensions() {
+        return null;
+    }
+
     /**
      * Called after set up and right before tile generation starts for the first
      * zoom level
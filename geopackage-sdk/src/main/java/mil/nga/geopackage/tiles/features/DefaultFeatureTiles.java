@@ -10,7 +10,9 @@ import android.graphics.RectF;
 import android.util.Log;
 import android.util.LruCache;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
@@ -53,6 +55,19 @@ public class DefaultFeatureTiles extends FeatureTiles {
      */
     public static final int DEFAULT_GEOMETRY_CACHE_SIZE = 1000;
 
+    /**
+     * Number of streamed feature rows read ahead of drawing to prefetch their
+     * feature styles together
+     */
+    private static final int STYLE_PREFETCH_SIZE = 100;
+
+    /**
+     * Buffer added to each side of the expanded tile bounds when clipping
+     * geometries, as a fraction of the bounds, keeping edges added along the
+     * clip bounds out of the drawn tile when the bounds are reprojected
+     */
+    private static final double CLIP_BUFFER = 0.25;
+
     /**
      * Geometry cache
      */
@@ -63,6 +78,11 @@ public class DefaultFeatureTiles extends FeatureTiles {
      */
     protected boolean cacheGeometries = true;
 
+    /**
+     * Reusable drawn pixel bounds
+     */
+    private final RectF drawBounds = new RectF();
+
     /**
      * Constructor
      *
@@ -267,6 +287,32 @@ public class DefaultFeatureTiles extends FeatureTiles {
         this(context, null);
     }
 
+    /**
+     * Copy constructor
+     *
+     * @param featureTiles feature tiles to copy
+     * @param featureDao   feature DAO, typically a {@link FeatureDao#copy()}
+     * @since 6.7.5
+     */
+    protected DefaultFeatureTiles(DefaultFeatureTiles featureTiles, FeatureDao featureDao) {
+        super(featureTiles, featureDao);
+        cacheGeometries = featureTiles.cacheGeometries;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Subclasses are not copied unless they override this method.
+     */
+    @Override
+    public DefaultFeatureTiles copy(FeatureDao featureDao) {
+        DefaultFeatureTiles copy = null;
+        if (getClass() == DefaultFeatureTiles.class) {
+            copy = new DefaultFeatureTiles(this, featureDao);
+        }
+        return copy;
+    }
+
     /**
      * Is caching geometries enabled?
      *
@@ -322,28 +368,28 @@ public class DefaultFeatureTiles extends FeatureTiles {
     @Override
     public Bitmap drawTile(int zoom, BoundingBox boundingBox, FeatureIndexResults results) {
 
-        FeatureTileCanvas canvas = new FeatureTileCanvas(tileWidth, tileHeight);
+        FeatureTileCanvas canvas = createCanvas();
 
         GeometryTransform transform = getProjectionToWebMercatorTransform(featureDao.getProjection());
         BoundingBox expandedBoundingBox = expandBoundingBox(boundingBox);
+        GeometryClipper clipper = createClipper(expandedBoundingBox);
+        TilePathBuilder pathBuilder = createPathBuilder(zoom, boundingBox, transform);
 
         boolean drawn = false;
+        List<FeatureRow> featureRows = new ArrayList<>(STYLE_PREFETCH_SIZE);
         for (FeatureRow featureRow : results) {
-            if (drawFeature(zoom, boundingBox, expandedBoundingBox, transform, canvas, featureRow)) {
+            featureRows.add(featureRow);
+            if (featureRows.size() == STYLE_PREFETCH_SIZE
+                    && drawFeatures(zoom, expandedBoundingBox, transform, clipper, pathBuilder, canvas, featureRows)) {
                 drawn = true;
             }
         }
-        results.close();
-
-        Bitmap bitmap = null;
-        if (drawn) {
-            bitmap = canvas.createBitmap();
-            bitmap = checkIfDrawn(bitmap);
-        } else {
-            canvas.recycle();
+        if (drawFeatures(zoom, expandedBoundingBox, transform, clipper, pathBuilder, canvas, featureRows)) {
+            drawn = true;
         }
+        results.close();
 
-        return bitmap;
+        return createBitmap(canvas, drawn);
     }
 
     /**
@@ -352,29 +398,28 @@ public class DefaultFeatureTiles extends FeatureTiles {
     @Override
     public Bitmap drawTile(int zoom, BoundingBox boundingBox, FeatureCursor cursor) {
 
-        FeatureTileCanvas canvas = new FeatureTileCanvas(tileWidth, tileHeight);
+        FeatureTileCanvas canvas = createCanvas();
 
         GeometryTransform transform = getProjectionToWebMercatorTransform(featureDao.getProjection());
         BoundingBox expandedBoundingBox = expandBoundingBox(boundingBox);
+        GeometryClipper clipper = createClipper(expandedBoundingBox);
+        TilePathBuilder pathBuilder = createPathBuilder(zoom, boundingBox, transform);
 
         boolean drawn = false;
+        List<FeatureRow> featureRows = new ArrayList<>(STYLE_PREFETCH_SIZE);
         while (cursor.moveToNext()) {
-            FeatureRow row = cursor.getRow();
-            if (drawFeature(zoom, boundingBox, expandedBoundingBox, transform, canvas, row)) {
+            featureRows.add(cursor.getRow());
+            if (featureRows.size() == STYLE_PREFETCH_SIZE
+                    && drawFeatures(zoom, expandedBoundingBox, transform, clipper, pathBuilder, canvas, featureRows)) {
                 drawn = true;
             }
         }
-        cursor.close();
-
-        Bitmap bitmap = null;
-        if (drawn) {
-            bitmap = canvas.createBitmap();
-            bitmap = checkIfDrawn(bitmap);
-        } else {
-            canvas.recycle();
+        if (drawFeatures(zoom, expandedBoundingBox, transform, clipper, pathBuilder, canvas, featureRows)) {
+            drawn = true;
         }
+        cursor.close();
 
-        return bitmap;
+        return createBitmap(canvas, drawn);
     }
 
     /**
@@ -383,41 +428,97 @@ public class DefaultFeatureTiles extends FeatureTiles {
     @Override
     public Bitmap drawTile(int zoom, BoundingBox boundingBox, List<FeatureRow> featureRow) {
 
-        FeatureTileCanvas canvas = new FeatureTileCanvas(tileWidth, tileHeight);
+        FeatureTileCanvas canvas = createCanvas();
 
         GeometryTransform transform = getProjectionToWebMercatorTransform(featureDao.getProjection());
         BoundingBox expandedBoundingBox = expandBoundingBox(boundingBox);
+        GeometryClipper clipper = createClipper(expandedBoundingBox);
+        TilePathBuilder pathBuilder = createPathBuilder(zoom, boundingBox, transform);
+
+        prefetchFeatureStyles(featureRow);
+        Map<Long, GeoPackageGeometryData> generalized = queryGeneralizedGeometries(zoom, featureRow);
 
         boolean drawn = false;
         for (FeatureRow row : featureRow) {
-            if (drawFeature(zoom, boundingBox, expandedBoundingBox, transform, canvas, row)) {
+            if (drawFeature(expandedBoundingBox, transform, clipper, pathBuilder, canvas, row, generalized.get(row.getId()))) {
                 drawn = true;
             }
         }
 
-        Bitmap bitmap = null;
-        if (drawn) {
-            bitmap = canvas.createBitmap();
-            bitmap = checkIfDrawn(bitmap);
-        } else {
-            canvas.recycle();
+        return createBitmap(canvas, drawn);
+    }
+
+    /**
+     * Prefetch the feature styles and generalized geometries of the feature
+     * rows and draw them on the canvas, clearing the rows
+     *
+     * @param zoom                zoom level
+     * @param expandedBoundingBox expanded bounding box
+     * @param transform           projection transform
+     * @param clipper             geometry clipper or null
+     * @param pathBuilder         tile path builder
+     * @param canvas              feature tile canvas
+     * @param featureRows         feature rows
+     * @return true if at least one feature was drawn
+     */
+    private boolean drawFeatures(int zoom, BoundingBox expandedBoundingBox, GeometryTransform transform, GeometryClipper clipper, TilePathBuilder pathBuilder, FeatureTileCanvas canvas, List<FeatureRow> featureRows) {
+        prefetchFeatureStyles(featureRows);
+        Map<Long, GeoPackageGeometryData> generalized = queryGeneralizedGeometries(zoom, featureRows);
+        boolean drawn = false;
+        for (FeatureRow row : featureRows) {
+            if (drawFeature(expandedBoundingBox, transform, clipper, pathBuilder, canvas, row, generalized.get(row.getId()))) {
+                drawn = true;
+            }
         }
+        featureRows.clear();
+        return drawn;
+    }
 
-        return bitmap;
+    /**
+     * Create a geometry clipper for the expanded tile bounds in the feature
+     * projection
+     *
+     * @param expandedBoundingBox expanded web mercator bounding box
+     * @return geometry clipper, or null if geometries are not clipped
+     */
+    private GeometryClipper createClipper(BoundingBox expandedBoundingBox) {
+        GeometryClipper clipper = null;
+        if (clipGeometries && !geodesic) {
+            BoundingBox clipBoundingBox = featureDao.projectBoundingBox(
+                    expandedBoundingBox, WEB_MERCATOR_PROJECTION);
+            clipper = new GeometryClipper(clipBoundingBox, CLIP_BUFFER);
+        }
+        return clipper;
+    }
+
+    /**
+     * Create a path builder for the tile
+     *
+     * @param zoom        zoom level
+     * @param boundingBox web mercator bounding box
+     * @param transform   projection transform
+     * @return tile path builder
+     */
+    private TilePathBuilder createPathBuilder(int zoom, BoundingBox boundingBox, GeometryTransform transform) {
+        double simplifyTolerance = TileBoundingBoxUtils.toleranceDistance(zoom, tileWidth, tileHeight);
+        // Geodesic paths are simplified and densified as points before being built
+        return new TilePathBuilder(featureDao.getProjection(), transform, boundingBox,
+                tileWidth, tileHeight, simplifyTolerance, simplifyGeometries && !geodesic);
     }
 
     /**
      * Draw the feature on the canvas
      *
-     * @param zoom                zoom level
-     * @param boundingBox         bounding box
      * @param expandedBoundingBox expanded bounding box
      * @param transform           projection transform
+     * @param clipper             geometry clipper or null
+     * @param pathBuilder         tile path builder
      * @param canvas              feature tile canvas
      * @param row                 feature row
+     * @param generalized         generalized geometry for the zoom level or null
      * @return true if at least one feature was drawn
      */
-    private boolean drawFeature(int zoom, BoundingBox boundingBox, BoundingBox expandedBoundingBox, GeometryTransform transform, FeatureTileCanvas canvas, FeatureRow row) {
+    private boolean drawFeature(BoundingBox expandedBoundingBox, GeometryTransform transform, GeometryClipper clipper, TilePathBuilder pathBuilder, FeatureTileCanvas canvas, FeatureRow row, GeoPackageGeometryData generalized) {
 
         boolean drawn = false;
 
@@ -461,10 +562,18 @@ public class DefaultFeatureTiles extends FeatureTiles {
                     }
 
                     if (expandedBoundingBox.intersects(transformedBoundingBox, true)) {
-
-                        double simplifyTolerance = TileBoundingBoxUtils.toleranceDistance(zoom, tileWidth, tileHeight);
-                        drawn = drawShape(simplifyTolerance, boundingBox, transform, canvas, row, geometry);
-
+                        Geometry generalizedGeometry = generalized != null ? generalized.getGeometry() : null;
+                        if (generalizedGeometry != null) {
+                            // Draw the pre-generalized geometry without simplifying
+                            pathBuilder.setGeneralized(true);
+                            try {
+                                drawn = drawShape(clipper, pathBuilder, canvas, row, generalizedGeometry);
+                            } finally {
+                                pathBuilder.setGeneralized(false);
+                            }
+                        } else {
+                            drawn = drawShape(clipper, pathBuilder, canvas, row, geometry);
+                        }
                     }
                 }
             }
@@ -479,15 +588,14 @@ public class DefaultFeatureTiles extends FeatureTiles {
     /**
      * Draw the geometry on the canvas
      *
-     * @param simplifyTolerance simplify tolerance in meters
-     * @param boundingBox       bounding box
-     * @param transform         projection transform
-     * @param canvas            feature tile canvas
-     * @param featureRow        feature row
-     * @param geometry          feature geometry
+     * @param clipper     geometry clipper or null
+     * @param pathBuilder tile path builder
+     * @param canvas      feature tile canvas
+     * @param featureRow  feature row
+     * @param geometry    feature geometry
      * @return true if drawn
      */
-    private boolean drawShape(double simplifyTolerance, BoundingBox boundingBox, GeometryTransform transform, FeatureTileCanvas canvas, FeatureRow featureRow, Geometry geometry) {
+    private boolean drawShape(GeometryClipper clipper, TilePathBuilder pathBuilder, FeatureTileCanvas canvas, FeatureRow featureRow, Geometry geometry) {
 
         boolean drawn = false;
 
@@ -498,58 +606,58 @@ public class DefaultFeatureTiles extends FeatureTiles {
 
             case POINT:
                 Point point = (Point) geometry;
-                drawn = drawPoint(boundingBox, transform, canvas, point, featureStyle);
+                drawn = drawPoint(pathBuilder, canvas, point, featureStyle);
                 break;
             case LINESTRING:
             case CIRCULARSTRING:
                 LineString lineString = (LineString) geometry;
-                Path linePath = new Path();
-                addLineString(simplifyTolerance, boundingBox, transform, linePath, lineString);
+                Path linePath = pathBuilder.getLinePath();
+                addLineString(clipper, pathBuilder, linePath, lineString);
                 drawn = drawLinePath(canvas, linePath, featureStyle);
                 break;
             case POLYGON:
             case TRIANGLE:
                 Polygon polygon = (Polygon) geometry;
-                Path polygonPath = new Path();
-                addPolygon(simplifyTolerance, boundingBox, transform, polygonPath, polygon);
+                Path polygonPath = pathBuilder.getPolygonPath();
+                addPolygon(clipper, pathBuilder, polygonPath, polygon);
                 drawn = drawPolygonPath(canvas, polygonPath, featureStyle);
                 break;
             case MULTIPOINT:
                 MultiPoint multiPoint = (MultiPoint) geometry;
                 for (Point pointFromMulti : multiPoint.getPoints()) {
-                    drawn = drawPoint(boundingBox, transform, canvas, pointFromMulti, featureStyle) || drawn;
+                    drawn = drawPoint(pathBuilder, canvas, pointFromMulti, featureStyle) || drawn;
                 }
                 break;
             case MULTILINESTRING:
                 MultiLineString multiLineString = (MultiLineString) geometry;
-                Path multiLinePath = new Path();
+                Path multiLinePath = pathBuilder.getLinePath();
                 for (LineString lineStringFromMulti : multiLineString.getLineStrings()) {
-                    addLineString(simplifyTolerance, boundingBox, transform, multiLinePath, lineStringFromMulti);
+                    addLineString(clipper, pathBuilder, multiLinePath, lineStringFromMulti);
                 }
                 drawn = drawLinePath(canvas, multiLinePath, featureStyle);
                 break;
             case MULTIPOLYGON:
                 MultiPolygon multiPolygon = (MultiPolygon) geometry;
-                Path multiPolygonPath = new Path();
+                Path multiPolygonPath = pathBuilder.getPolygonPath();
                 for (Polygon polygonFromMulti : multiPolygon.getPolygons()) {
-                    addPolygon(simplifyTolerance, boundingBox, transform, multiPolygonPath, polygonFromMulti);
+                    addPolygon(clipper, pathBuilder, multiPolygonPath, polygonFromMulti);
                 }
                 drawn = drawPolygonPath(canvas, multiPolygonPath, featureStyle);
                 break;
             case COMPOUNDCURVE:
                 CompoundCurve compoundCurve = (CompoundCurve) geometry;
-                Path compoundCurvePath = new Path();
+                Path compoundCurvePath = pathBuilder.getLinePath();
                 for (LineString lineStringFromCompoundCurve : compoundCurve.getLineStrings()) {
-                    addLineString(simplifyTolerance, boundingBox, transform, compoundCurvePath, lineStringFromCompoundCurve);
+                    addLineString(clipper, pathBuilder, compoundCurvePath, lineStringFromCompoundCurve);
                 }
                 drawn = drawLinePath(canvas, compoundCurvePath, featureStyle);
                 break;
             case POLYHEDRALSURFACE:
             case TIN:
                 PolyhedralSurface polyhedralSurface = (PolyhedralSurface) geometry;
-                Path polyhedralSurfacePath = new Path();
+                Path polyhedralSurfacePath = pathBuilder.getPolygonPath();
                 for (Polygon polygonFromPolyhedralSurface : polyhedralSurface.getPolygons()) {
-                    addPolygon(simplifyTolerance, boundingBox, transform, polyhedralSurfacePath, polygonFromPolyhedralSurface);
+                    addPolygon(clipper, pathBuilder, polyhedralSurfacePath, polygonFromPolyhedralSurface);
                 }
                 drawn = drawPolygonPath(canvas, polyhedralSurfacePath, featureStyle);
                 break;
@@ -558,7 +666,7 @@ public class DefaultFeatureTiles extends FeatureTiles {
                 GeometryCollection<Geometry> geometryCollection = (GeometryCollection) geometry;
                 List<Geometry> geometries = geometryCollection.getGeometries();
                 for (Geometry geometryFromCollection : geometries) {
-                    drawn = drawShape(simplifyTolerance, boundingBox, transform, canvas, featureRow, geometryFromCollection) || drawn;
+                    drawn = drawShape(clipper, pathBuilder, canvas, featureRow, geometryFromCollection) || drawn;
                 }
                 break;
             default:
@@ -569,6 +677,86 @@ public class DefaultFeatureTiles extends FeatureTiles {
         return drawn;
     }
 
+    /**
+     * Create a feature tile canvas drawing on pooled layer bitmaps, with a
+     * single canvas when the features can only be drawn on one layer
+     *
+     * @return feature tile canvas
+     */
+    private FeatureTileCanvas createCanvas() {
+        return new FeatureTileCanvas(tileWidth, tileHeight, bitmapPool,
+                isSingleLayer());
+    }
+
+    /**
+     * Determine if the features can only be drawn on a single layer, from
+     * the table geometry type and the point icons
+     *
+     * @return true if a single layer
+     */
+    private boolean isSingleLayer() {
+
+        boolean singleLayer;
+
+        GeometryType geometryType = featureDao.getGeometryType();
+        switch (geometryType) {
+            case POINT:
+            case MULTIPOINT:
+                // Styled points may be drawn as icons or circles
+                singleLayer = featureTableStyles == null;
+                break;
+            case LINESTRING:
+            case CIRCULARSTRING:
+            case MULTILINESTRING:
+            case COMPOUNDCURVE:
+            case POLYGON:
+            case TRIANGLE:
+            case MULTIPOLYGON:
+            case POLYHEDRALSURFACE:
+            case TIN:
+                singleLayer = true;
+                break;
+            default:
+                singleLayer = false;
+        }
+
+        return singleLayer;
+    }
+
+    /**
+     * Create the tile bitmap from the canvas when drawn within the tile,
+     * determined from the canvas drawn bounds
+     *
+     * @param canvas feature tile canvas
+     * @param drawn  true if features were drawn
+     * @return bitmap, or null if not drawn within the tile
+     */
+    private Bitmap createBitmap(FeatureTileCanvas canvas, boolean drawn) {
+        Bitmap bitmap = null;
+        if (drawn && canvas.isDirty()) {
+            bitmap = canvas.createBitmap();
+        } else {
+            canvas.recycle();
+        }
+        return bitmap;
+    }
+
+    /**
+     * Set the drawn path bounds, outset for the stroke width
+     *
+     * @param path  path
+     * @param paint stroke paint
+     */
+    private void setPathBounds(Path path, Paint paint) {
+        path.computeBounds(drawBounds, false);
+        float outset = paint.getStrokeWidth() / 2.0f;
+        if (paint.getStrokeJoin() == Paint.Join.MITER) {
+            outset *= Math.max(1.0f, paint.getStrokeMiter());
+        }
+        outset += 1.0f;
+        drawBounds.inset(-outset, -outset);
+    }
+
     /**
      * Draw the line path on the canvas
      *
@@ -579,11 +767,18 @@ public class DefaultFeatureTiles extends FeatureTiles {
      */
     private boolean drawLinePath(FeatureTileCanvas canvas, Path path, FeatureStyle featureStyle) {
 
+        if (path.isEmpty()) {
+            return false;
+        }
+
         Canvas lineCanvas = canvas.getLineCanvas();
 
         Paint pathPaint = getLinePaint(featureStyle);
         lineCanvas.drawPath(path, pathPaint);
 
+        setPathBounds(path, pathPaint);
+        canvas.addLineBounds(drawBounds);
+
         return true;
     }
 
@@ -596,6 +791,10 @@ public class DefaultFeatureTiles extends FeatureTiles {
      */
     private boolean drawPolygonPath(FeatureTileCanvas canvas, Path path, FeatureStyle featureStyle) {
 
+        if (path.isEmpty()) {
+            return false;
+        }
+
         Canvas polygonCanvas = canvas.getPolygonCanvas();
 
         Paint fillPaint = getPolygonFillPaint(featureStyle);
@@ -607,71 +806,82 @@ public class DefaultFeatureTiles extends FeatureTiles {
         Paint pathPaint = getPolygonPaint(featureStyle);
         polygonCanvas.drawPath(path, pathPaint);
 
+        setPathBounds(path, pathPaint);
+        canvas.addPolygonBounds(drawBounds);
+
         return true;
     }
 
     /**
      * Add the linestring to the path
      *
-     * @param simplifyTolerance simplify tolerance in meters
-     * @param boundingBox       bounding box
-     * @param transform         projection transform
-     * @param path              path
-     * @param lineString        line string
+     * @param clipper     geometry clipper or null
+     * @param pathBuilder tile path builder
+     * @param path        path
+     * @param lineString  line string
      */
-    private void addLineString(double simplifyTolerance, BoundingBox boundingBox, GeometryTransform transform, Path path, LineString lineString) {
+    private void addLineString(GeometryClipper clipper, TilePathBuilder pathBuilder, Path path, LineString lineString) {
 
         List<Point> points = lineString.getPoints();
 
         if (points.size() >= 2) {
 
-            // Try to simplify the number of points in the LineString
-            points = simplifyPoints(simplifyTolerance, points);
-
-            // Create a geodesic path of points if needed
-            points = geodesicPath(simplifyTolerance, points);
-
-            for (int i = 0; i < points.size(); i++) {
-                Point point = points.get(i);
-                Point webMercatorPoint = transform.transform(point);
-                float x = TileBoundingBoxUtils.getXPixel(tileWidth, boundingBox,
-                        webMercatorPoint.getX());
-                float y = TileBoundingBoxUtils.getYPixel(tileHeight, boundingBox,
-                        webMercatorPoint.getY());
-                if (i == 0) {
-                    path.moveTo(x, y);
-                } else {
-                    path.lineTo(x, y);
+            if (clipper != null) {
+                // Add the parts of the LineString within the clip bounds
+                for (List<Point> clippedPoints : clipper.clipLine(points)) {
+                    addLinePoints(pathBuilder, path, clippedPoints);
                 }
+            } else {
+                addLinePoints(pathBuilder, path, points);
             }
         }
     }
 
+    /**
+     * Add the linestring points to the path
+     *
+     * @param pathBuilder tile path builder
+     * @param path        path
+     * @param points      points
+     */
+    private void addLinePoints(TilePathBuilder pathBuilder, Path path, List<Point> points) {
+
+        if (geodesic) {
+
+            // Try to simplify the number of points in the LineString
+            points = simplifyPoints(pathBuilder.getSimplifyTolerance(), points);
+
+            // Create a geodesic path of points
+            points = geodesicPath(pathBuilder.getSimplifyTolerance(), points);
+        }
+
+        pathBuilder.addLine(path, points);
+    }
+
     /**
      * Add the polygon on the canvas
      *
-     * @param simplifyTolerance simplify tolerance in meters
-     * @param boundingBox       bounding box
-     * @param transform         projection transform
-     * @param path              path
-     * @param polygon           polygon
+     * @param clipper     geometry clipper or null
+     * @param pathBuilder tile path builder
+     * @param path        path
+     * @param polygon     polygon
      */
-    private void addPolygon(double simplifyTolerance, BoundingBox boundingBox, GeometryTransform transform, Path path, Polygon polygon) {
+    private void addPolygon(GeometryClipper clipper, TilePathBuilder pathBuilder, Path path, Polygon polygon) {
         List<LineString> rings = polygon.getRings();
         if (!rings.isEmpty()) {
 
             // Add the polygon points
             LineString polygonLineString = rings.get(0);
             List<Point> polygonPoints = polygonLineString.getPoints();
-            if (polygonPoints.size() >= 2) {
-                addRing(simplifyTolerance, boundingBox, transform, path, polygonPoints);
+            if (polygonPoints.size() >= 2
+                    && addRing(clipper, pathBuilder, path, polygonPoints)) {
 
                 // Add the holes
                 for (int i = 1; i < rings.size(); i++) {
                     LineString holeLineString = rings.get(i);
                     List<Point> holePoints = holeLineString.getPoints();
                     if (holePoints.size() >= 2) {
-                        addRing(simplifyTolerance, boundingBox, transform, path, holePoints);
+                        addRing(clipper, pathBuilder, path, holePoints);
                     }
                 }
             }
@@ -681,55 +891,52 @@ public class DefaultFeatureTiles extends FeatureTiles {
     /**
      * Add a ring
      *
-     * @param simplifyTolerance simplify tolerance in meters
-     * @param boundingBox       bounding box
-     * @param transform         projection transform
-     * @param path              path
-     * @param points            points
-     */
-    private void addRing(double simplifyTolerance, BoundingBox boundingBox, GeometryTransform transform, Path path, List<Point> points) {
-
-        // Try to simplify the number of points in the LineString
-        points = simplifyPoints(simplifyTolerance, points);
-
-        // Create a geodesic path of points if needed
-        points = geodesicPath(simplifyTolerance, points);
-
-        for (int i = 0; i < points.size(); i++) {
-            Point point = points.get(i);
-            Point webMercatorPoint = transform.transform(point);
-            float x = TileBoundingBoxUtils.getXPixel(tileWidth, boundingBox,
-                    webMercatorPoint.getX());
-            float y = TileBoundingBoxUtils.getYPixel(tileHeight, boundingBox,
-                    webMercatorPoint.getY());
-            if (i == 0) {
-                path.moveTo(x, y);
-            } else {
-                path.lineTo(x, y);
+     * @param clipper     geometry clipper or null
+     * @param pathBuilder tile path builder
+     * @param path        path
+     * @param points      points
+     * @return true if added, false if clipped entirely
+     */
+    private boolean addRing(GeometryClipper clipper, TilePathBuilder pathBuilder, Path path, List<Point> points) {
+
+        // Clip the ring to the clip bounds
+        if (clipper != null) {
+            points = clipper.clipRing(points);
+            if (points.isEmpty()) {
+                return false;
             }
         }
-        path.close();
+
+        if (geodesic) {
+
+            // Try to simplify the number of points in the LineString
+            points = simplifyPoints(pathBuilder.getSimplifyTolerance(), points);
+
+            // Create a geodesic path of points
+            points = geodesicPath(pathBuilder.getSimplifyTolerance(), points);
+        }
+
+        pathBuilder.addRing(path, points);
+
+        return true;
     }
 
     /**
      * Draw the point on the canvas
      *
-     * @param boundingBox  bounding box
-     * @param transform    projection transform
+     * @param pathBuilder  tile path builder
      * @param canvas       draw canvas
      * @param point        point
      * @param featureStyle feature style
      * @return true if drawn
      */
-    private boolean drawPoint(BoundingBox boundingBox, GeometryTransform transform, FeatureTileCanvas canvas, Point point, FeatureStyle featureStyle) {
+    private boolean drawPoint(TilePathBuilder pathBuilder, FeatureTileCanvas canvas, Point point, FeatureStyle featureStyle) {
 
         boolean drawn = false;
 
-        Point webMercatorPoint = transform.transform(point);
-        float x = TileBoundingBoxUtils.getXPixel(tileWidth, boundingBox,
-                webMercatorPoint.getX());
-        float y = TileBoundingBoxUtils.getYPixel(tileHeight, boundingBox,
-                webMercatorPoint.getY());
+        float[] pixel = pathBuilder.getPixel(point);
+        float x = pixel[0];
+        float y = pixel[1];
 
         if (featureStyle != null && featureStyle.useIcon()) {
 
@@ -753,6 +960,8 @@ public class DefaultFeatureTiles extends FeatureTiles {
 
                 Canvas iconCanvas = canvas.getIconCanvas();
                 iconCanvas.drawBitmap(icon, null, destination, pointPaint);
+                destination.inset(-1.0f, -1.0f);
+                canvas.addIconBounds(destination);
                 drawn = true;
 
             }
@@ -767,6 +976,8 @@ public class DefaultFeatureTiles extends FeatureTiles {
                 float top = y - this.density * pointIcon.getYOffset();
                 RectF rect = new RectF(left, top, left + width, top + height);
                 iconCanvas.drawBitmap(pointIcon.getIcon(), null, rect, pointPaint);
+                rect.inset(-1.0f, -1.0f);
+                canvas.addIconBounds(rect);
                 drawn = true;
             }
 
@@ -786,6 +997,9 @@ public class DefaultFeatureTiles extends FeatureTiles {
                 Paint pointPaint = getPointPaint(featureStyle);
                 Canvas pointCanvas = canvas.getPointCanvas();
                 pointCanvas.drawCircle(x, y, radius, pointPaint);
+                float outset = radius + pointPaint.getStrokeWidth() / 2.0f + 1.0f;
+                drawBounds.set(x - outset, y - outset, x + outset, y + outset);
+                canvas.addPointBounds(drawBounds);
                 drawn = true;
             }
 
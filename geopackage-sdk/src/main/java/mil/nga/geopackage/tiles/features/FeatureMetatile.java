@@ -0,0 +1,107 @@
+package mil.nga.geopackage.tiles.features;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.features.index.FeatureIndexListResults;
+import mil.nga.geopackage.features.index.FeatureIndexResults;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Feature Metatile, the feature rows of a square block of tiles read with a
+ * single index query. The rows are decoded once and filtered by envelope for
+ * each tile drawn within the block.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+class FeatureMetatile {
+
+    /**
+     * Feature rows, null when the block exceeded the max features
+     */
+    private final List<FeatureRow> rows;
+
+    /**
+     * Feature row geometry envelopes in the feature projection, as min x,
+     * min y, max x, and max y per row
+     */
+    private final double[] envelopes;
+
+    /**
+     * Constructor
+     *
+     * @param rows feature rows, null when the block exceeded the max features
+     */
+    FeatureMetatile(List<FeatureRow> rows) {
+
+        List<FeatureRow> geometryRows = null;
+        double[] envelopes = null;
+        if (rows != null) {
+            geometryRows = new ArrayList<>(rows.size());
+            envelopes = new double[rows.size() * 4];
+            int index = 0;
+            for (FeatureRow row : rows) {
+                GeometryEnvelope envelope = row.getGeometryEnvelope();
+                if (envelope != null) {
+                    geometryRows.add(row);
+                    envelopes[index++] = envelope.getMinX();
+                    envelopes[index++] = envelope.getMinY();
+                    envelopes[index++] = envelope.getMaxX();
+                    envelopes[index++] = envelope.getMaxY();
+                }
+            }
+        }
+        this.rows = geometryRows;
+        this.envelopes = envelopes;
+    }
+
+    /**
+     * Determine if the block features were read, false when the block
+     * exceeded the max features and tiles are queried individually
+     *
+     * @return true if read
+     */
+    boolean isRead() {
+        return rows != null;
+    }
+
+    /**
+     * Get the number of feature rows
+     *
+     * @return row count
+     */
+    int count() {
+        return rows != null ? rows.size() : 0;
+    }
+
+    /**
+     * Query for the feature rows with envelopes overlapping the bounding box
+     *
+     * @param featureBoundingBox bounding box in the feature projection
+     * @return feature index results
+     */
+    FeatureIndexResults query(BoundingBox featureBoundingBox) {
+
+        double minLongitude = featureBoundingBox.getMinLongitude();
+        double minLatitude = featureBoundingBox.getMinLatitude();
+        double maxLongitude = featureBoundingBox.getMaxLongitude();
+        double maxLatitude = featureBoundingBox.getMaxLatitude();
+
+        FeatureIndexListResults results = new FeatureIndexListResults();
+        for (int i = 0; i < rows.size(); i++) {
+            int index = i * 4;
+            if (envelopes[index] <= maxLongitude
+                    && envelopes[index + 1] <= maxLatitude
+                    && envelopes[index + 2] >= minLongitude
+                    && envelopes[index + 3] >= minLatitude) {
+                results.addRow(rows.get(i));
+            }
+        }
+
+        return results;
+    }
+
+}
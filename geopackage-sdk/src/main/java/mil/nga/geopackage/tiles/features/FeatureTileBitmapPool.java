@@ -0,0 +1,159 @@
+package mil.nga.geopackage.tiles.features;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Feature Tile Bitmap Pool, retains released tile sized ARGB_8888 bitmaps
+ * for reuse as the layer bitmaps of later tiles instead of allocating new
+ * bitmaps per tile. Acquired bitmaps are cleared to transparent. The pool is
+ * synchronized and may be shared by feature tiles drawing concurrently.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureTileBitmapPool {
+
+    /**
+     * Default max number of pooled bitmaps
+     */
+    public static final int DEFAULT_MAX_SIZE = 8;
+
+    /**
+     * Bitmap width
+     */
+    private final int width;
+
+    /**
+     * Bitmap height
+     */
+    private final int height;
+
+    /**
+     * Max number of pooled bitmaps
+     */
+    private final int maxSize;
+
+    /**
+     * Pooled bitmaps
+     */
+    private final Deque<Bitmap> bitmaps = new ArrayDeque<>();
+
+    /**
+     * Constructor
+     *
+     * @param width  bitmap width
+     * @param height bitmap height
+     */
+    public FeatureTileBitmapPool(int width, int height) {
+        this(width, height, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param width   bitmap width
+     * @param height  bitmap height
+     * @param maxSize max number of pooled bitmaps
+     */
+    public FeatureTileBitmapPool(int width, int height, int maxSize) {
+        this.width = width;
+        this.height = height;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the bitmap width
+     *
+     * @return width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the bitmap height
+     *
+     * @return height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the max number of pooled bitmaps
+     *
+     * @return max size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the number of pooled bitmaps
+     *
+     * @return size
+     */
+    public synchronized int size() {
+        return bitmaps.size();
+    }
+
+    /**
+     * Acquire a transparent bitmap, pooled when available
+     *
+     * @return bitmap
+     */
+    public Bitmap acquire() {
+        Bitmap bitmap;
+        synchronized (this) {
+            bitmap = bitmaps.pollFirst();
+        }
+        if (bitmap != null) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        } else {
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Release the bitmap to the pool, recycling it when the pool is full or
+     * the bitmap is not reusable
+     *
+     * @param bitmap bitmap
+     */
+    public void release(Bitmap bitmap) {
+        if (bitmap != null && !bitmap.isRecycled()) {
+            boolean pooled = false;
+            if (bitmap.isMutable() && bitmap.getWidth() == width
+                    && bitmap.getHeight() == height
+                    && bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+                synchronized (this) {
+                    if (bitmaps.size() < maxSize) {
+                        bitmaps.addFirst(bitmap);
+                        pooled = true;
+                    }
+                }
+            }
+            if (!pooled) {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    /**
+     * Recycle the pooled bitmaps
+     */
+    public void clear() {
+        synchronized (this) {
+            for (Bitmap bitmap : bitmaps) {
+                bitmap.recycle();
+            }
+            bitmaps.clear();
+        }
+    }
+
+}
@@ -0,0 +1,985 @@
+package mil.nga.geopackage.tiles.features;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.SQLiteDatabaseUtils;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureWriteListener;
+import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
+import mil.nga.geopackage.tiles.TileGrid;
+import mil.nga.proj.Projection;
+import mil.nga.proj.ProjectionConstants;
+import mil.nga.proj.ProjectionFactory;
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Feature Tile Cache, caches the rendered tile bytes of a feature table in a
+ * memory LRU sized in bytes and an optional disk store sized in bytes.
+ * Tiles are keyed by table, style version, tile size, density, compress
+ * format, and z/x/y. Tiles without features are cached as empty entries so
+ * they are not drawn again.
+ * <p>
+ * Feature writes through the {@link FeatureDao} of the cache or its copies
+ * invalidate the cached tiles intersecting the written features, including
+ * the neighboring tiles drawn features may overlap, see
+ * {@link FeatureDao#addWriteListener(FeatureWriteListener)}. Writes through
+ * other feature DAOs of the table are not observed. Writes through any
+ * feature style
+ * extension change the style version and clear the cache. Disk cached tiles
+ * retained when the cache is closed are only reused by a later cache when
+ * the GeoPackage file is unchanged since, otherwise the disk cache is
+ * cleared when opened. Changes made directly to the feature or style tables
+ * while a cache of the table is open, or made to the feature tiles paints,
+ * are not detected until {@link #clear()} is called.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureTileCache {
+
+    /**
+     * Default memory cache size in bytes
+     */
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Default disk cache size in bytes
+     */
+    public static final long DEFAULT_MAX_DISK_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * Fraction of the disk cache size retained when the disk cache is trimmed
+     */
+    private static final double DISK_TRIM_FRACTION = 0.9;
+
+    /**
+     * Temporary disk file suffix
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Disk cache state file suffix, the GeoPackage file state when the disk
+     * cache was closed
+     */
+    private static final String STATE_SUFFIX = ".state";
+
+    /**
+     * Empty tile bytes, cached for tiles without features
+     */
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * WGS84 projection
+     */
+    private static final Projection WGS84_PROJECTION = ProjectionFactory
+            .getProjection(ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+
+    /**
+     * Web mercator projection
+     */
+    private static final Projection WEB_MERCATOR_PROJECTION = ProjectionFactory
+            .getProjection(ProjectionConstants.EPSG_WEB_MERCATOR);
+
+    /**
+     * Disk cache directories of the open tile caches, one entry per open
+     * cache. Directories are unique per GeoPackage and feature table.
+     */
+    private static final List<File> openDirectories = new ArrayList<>();
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Database name
+     */
+    private final String database;
+
+    /**
+     * Feature table name
+     */
+    private final String tableName;
+
+    /**
+     * Memory cache of tile bytes
+     */
+    private final LruCache<Key, byte[]> memory;
+
+    /**
+     * Disk cache directory of the table, null when memory only
+     */
+    private final File directory;
+
+    /**
+     * GeoPackage database file
+     */
+    private final File databaseFile;
+
+    /**
+     * Disk cache state file, null when memory only
+     */
+    private final File stateFile;
+
+    /**
+     * Max disk cache size in bytes
+     */
+    private final long maxDiskBytes;
+
+    /**
+     * Current disk cache size in bytes
+     */
+    private long diskBytes = 0;
+
+    /**
+     * Disk cache lock
+     */
+    private final Object diskLock = new Object();
+
+    /**
+     * Invalidation count, tiles drawn across an invalidation are not cached
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Style version of the cached tiles
+     */
+    private long styleVersion = -1;
+
+    /**
+     * Closed flag
+     */
+    private boolean closed = false;
+
+    /**
+     * Feature DAO write listener, invalidating the tiles of written features
+     */
+    private final FeatureWriteListener writeListener = new FeatureWriteListener() {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isEnvelopeUsed() {
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void featuresWritten(FeatureDao featureDao,
+                                    GeometryEnvelope envelope) {
+            if (envelope != null) {
+                invalidate(new BoundingBox(envelope),
+                        featureDao.getProjection());
+            }
+        }
+
+    };
+
+    /**
+     * Constructor, memory cache only
+     *
+     * @param featureDao     feature DAO
+     * @param maxMemoryBytes max memory cache size in bytes
+     */
+    public FeatureTileCache(FeatureDao featureDao, long maxMemoryBytes) {
+        this(featureDao, maxMemoryBytes, null, 0);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param featureDao     feature DAO
+     * @param maxMemoryBytes max memory cache size in bytes
+     * @param directory      disk cache root directory, such as a
+     *                       {@link android.content.Context#getCacheDir()}
+     *                       subdirectory, null for memory only
+     * @param maxDiskBytes   max disk cache size in bytes
+     */
+    public FeatureTileCache(FeatureDao featureDao, long maxMemoryBytes,
+                            File directory, long maxDiskBytes) {
+
+        this.featureDao = featureDao;
+        database = featureDao.getDatabase();
+        tableName = featureDao.getTableName();
+        databaseFile = new File(featureDao.getDatabaseConnection().getDb()
+                .getPath());
+
+        int memorySize = (int) Math.max(1,
+                Math.min(Integer.MAX_VALUE, maxMemoryBytes));
+        memory = new LruCache<Key, byte[]>(memorySize) {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            protected int sizeOf(Key key, byte[] value) {
+                return Math.max(1, value.length);
+            }
+
+        };
+
+        if (directory != null) {
+            this.directory = new File(new File(directory, fileName(database)),
+                    fileName(tableName));
+            if (!this.directory.exists() && !this.directory.mkdirs()) {
+                throw new GeoPackageException(
+                        "Failed to create feature tile cache directory: "
+                                + this.directory);
+            }
+            this.maxDiskBytes = maxDiskBytes;
+            stateFile = new File(this.directory.getParentFile(),
+                    this.directory.getName() + STATE_SUFFIX);
+            synchronized (openDirectories) {
+                // Reuse the disk cache of an open cache or of an unchanged
+                // GeoPackage, the state is rewritten when closed
+                boolean valid = isDirectoryOpen() || isStateValid();
+                stateFile.delete();
+                synchronized (diskLock) {
+                    if (!valid) {
+                        clearDisk();
+                    }
+                    for (File file : listFiles(this.directory)) {
+                        if (file.getName().endsWith(TEMP_SUFFIX)) {
+                            file.delete();
+                        } else {
+                            diskBytes += file.length();
+                        }
+                    }
+                }
+                openDirectories.add(this.directory);
+            }
+        } else {
+            this.directory = null;
+            this.maxDiskBytes = 0;
+            stateFile = null;
+        }
+
+        featureDao.addWriteListener(writeListener);
+
+    }
+
+    /**
+     * Get the database name
+     *
+     * @return database name
+     */
+    public String getDatabase() {
+        return database;
+    }
+
+    /**
+     * Get the feature table name
+     *
+     * @return table name
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get the disk cache directory of the table
+     *
+     * @return directory, null when memory only
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the current memory cache size
+     *
+     * @return memory cache bytes
+     */
+    public long getMemoryBytes() {
+        return memory.size();
+    }
+
+    /**
+     * Get the current disk cache size
+     *
+     * @return disk cache bytes
+     */
+    public long getDiskBytes() {
+        synchronized (diskLock) {
+            return diskBytes;
+        }
+    }
+
+    /**
+     * Get the invalidation count, used to detect invalidations made while a
+     * tile is drawn
+     *
+     * @return invalidation count
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * Determine if the feature DAO is of the cached feature table
+     *
+     * @param featureDao feature DAO
+     * @return true if the cached table
+     */
+    public boolean isTable(FeatureDao featureDao) {
+        return tableName.equals(featureDao.getTableName())
+                && database.equals(featureDao.getDatabase());
+    }
+
+    /**
+     * Get the cached tile
+     *
+     * @param featureTiles feature tiles
+     * @param x            x coordinate
+     * @param y            y coordinate
+     * @param zoom         zoom level
+     * @return tile bytes, empty bytes for a cached tile without features, or
+     * null if not cached
+     */
+    public byte[] get(FeatureTiles featureTiles, int x, int y, int zoom) {
+
+        Key key = key(featureTiles, x, y, zoom);
+
+        byte[] tile = memory.get(key);
+
+        if (tile == null && directory != null) {
+            tile = read(key);
+            if (tile != null) {
+                memory.put(key, tile);
+            }
+        }
+
+        return tile;
+    }
+
+    /**
+     * Cache the tile, unless invalidated since the invalidation count read
+     * before drawing the tile
+     *
+     * @param featureTiles  feature tiles
+     * @param x             x coordinate
+     * @param y             y coordinate
+     * @param zoom          zoom level
+     * @param tile          tile bytes, or null for a tile without features
+     * @param invalidations invalidation count before drawing the tile
+     */
+    public void put(FeatureTiles featureTiles, int x, int y, int zoom,
+                    byte[] tile, long invalidations) {
+
+        Key key = key(featureTiles, x, y, zoom);
+        if (tile == null) {
+            tile = EMPTY;
+        }
+
+        if (invalidations == this.invalidations.get()) {
+            memory.put(key, tile);
+            if (directory != null) {
+                write(key, tile, invalidations);
+            }
+        }
+    }
+
+    /**
+     * Invalidate the cached tiles intersecting the bounding box, including
+     * the neighboring tiles drawn features may overlap
+     *
+     * @param boundingBox bounding box
+     * @param projection  bounding box projection
+     */
+    public void invalidate(BoundingBox boundingBox, Projection projection) {
+
+        invalidations.incrementAndGet();
+
+        BoundingBox wgs84BoundingBox = boundingBox;
+        if (!projection.equals(WGS84_PROJECTION)) {
+            wgs84BoundingBox = boundingBox.transform(
+                    projection.getTransformation(WGS84_PROJECTION));
+        }
+        wgs84BoundingBox = TileBoundingBoxUtils
+                .boundWgs84BoundingBoxWithWebMercatorLimits(wgs84BoundingBox);
+        BoundingBox webMercatorBoundingBox = wgs84BoundingBox.transform(
+                WGS84_PROJECTION.getTransformation(WEB_MERCATOR_PROJECTION));
+
+        Invalidation invalidation = new Invalidation(webMercatorBoundingBox);
+
+        for (Key key : memory.snapshot().keySet()) {
+            if (invalidation.contains(key.zoom, key.x, key.y)) {
+                memory.remove(key);
+            }
+        }
+
+        if (directory != null) {
+            synchronized (diskLock) {
+                File[] variants = directory.listFiles();
+                if (variants != null) {
+                    for (File variant : variants) {
+                        invalidate(variant, invalidation);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Clear the memory and disk cached tiles
+     */
+    public void clear() {
+        invalidations.incrementAndGet();
+        memory.evictAll();
+        if (directory != null) {
+            synchronized (diskLock) {
+                clearDisk();
+            }
+        }
+    }
+
+    /**
+     * Close the tile cache, stopping feature write invalidations. Cached
+     * disk tiles are retained along with the GeoPackage file state, for
+     * reuse by a later cache while the GeoPackage is unchanged.
+     */
+    public void close() {
+        synchronized (openDirectories) {
+            if (!closed) {
+                closed = true;
+                featureDao.removeWriteListener(writeListener);
+                if (directory != null) {
+                    openDirectories.remove(directory);
+                    writeState();
+                }
+            }
+        }
+        memory.evictAll();
+    }
+
+    /**
+     * Create the tile key, clearing the cache when the style version changed
+     *
+     * @param featureTiles feature tiles
+     * @param x            x coordinate
+     * @param y            y coordinate
+     * @param zoom         zoom level
+     * @return key
+     */
+    private Key key(FeatureTiles featureTiles, int x, int y, int zoom) {
+
+        long version = featureTiles.getStyleVersion();
+        synchronized (this) {
+            if (version != styleVersion) {
+                if (styleVersion != -1) {
+                    clear();
+                }
+                styleVersion = version;
+            }
+        }
+
+        return new Key(version, featureTiles.getTileWidth(),
+                featureTiles.getTileHeight(), featureTiles.getDensity(),
+                String.valueOf(featureTiles.getCompressFormat()), zoom, x, y);
+    }
+
+    /**
+     * Delete the disk cached tiles, called while holding the disk lock
+     */
+    private void clearDisk() {
+        for (File file : listFiles(directory)) {
+            file.delete();
+        }
+        deleteEmptyDirectories(directory);
+        diskBytes = 0;
+    }
+
+    /**
+     * Determine if another open cache uses the disk cache directory, called
+     * while holding the open directories lock
+     *
+     * @return true if open
+     */
+    private boolean isDirectoryOpen() {
+        return openDirectories.contains(directory);
+    }
+
+    /**
+     * Determine if the GeoPackage file is unchanged since the disk cache
+     * state was written when last closed
+     *
+     * @return true if the disk cached tiles are current
+     */
+    private boolean isStateValid() {
+        boolean valid = false;
+        if (stateFile.exists()) {
+            String state = getState();
+            if (state != null) {
+                try {
+                    valid = state.equals(new String(readFile(stateFile),
+                            "UTF-8"));
+                } catch (IOException e) {
+                    Log.w(FeatureTileCache.class.getSimpleName(),
+                            "Failed to read tile cache state: " + stateFile, e);
+                }
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Write the GeoPackage file state of the disk cache
+     */
+    private void writeState() {
+        String state = getState();
+        if (state != null) {
+            try {
+                FileOutputStream out = new FileOutputStream(stateFile);
+                try {
+                    out.write(state.getBytes("UTF-8"));
+                } finally {
+                    out.close();
+                }
+            } catch (IOException e) {
+                Log.w(FeatureTileCache.class.getSimpleName(),
+                        "Failed to write tile cache state: " + stateFile, e);
+                stateFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Get the GeoPackage file state, changed by committed writes
+     *
+     * @return state, or null if the GeoPackage is not a readable file
+     */
+    private String getState() {
+        return SQLiteDatabaseUtils.getFileState(databaseFile);
+    }
+
+    /**
+     * Read the disk cached tile
+     *
+     * @param key tile key
+     * @return tile bytes, or null if not cached
+     */
+    private byte[] read(Key key) {
+
+        byte[] tile = null;
+
+        synchronized (diskLock) {
+            File file = key.file(directory);
+            if (file.exists()) {
+                try {
+                    tile = readFile(file);
+                    file.setLastModified(System.currentTimeMillis());
+                } catch (IOException e) {
+                    Log.w(FeatureTileCache.class.getSimpleName(),
+                            "Failed to read cached tile: " + file, e);
+                    diskBytes -= file.length();
+                    file.delete();
+                }
+            }
+        }
+
+        return tile;
+    }
+
+    /**
+     * Write the tile to the disk cache, trimming the oldest tiles when over
+     * the disk cache size
+     *
+     * @param key           tile key
+     * @param tile          tile bytes
+     * @param invalidations invalidation count before drawing the tile
+     */
+    private void write(Key key, byte[] tile, long invalidations) {
+
+        synchronized (diskLock) {
+
+            if (invalidations != this.invalidations.get()) {
+                return;
+            }
+
+            File file = key.file(directory);
+            File parent = file.getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                Log.w(FeatureTileCache.class.getSimpleName(),
+                        "Failed to create cached tile directory: " + parent);
+                return;
+            }
+
+            long previous = file.length();
+            File temp = new File(parent, file.getName() + TEMP_SUFFIX);
+            try {
+                FileOutputStream out = new FileOutputStream(temp);
+                try {
+                    out.write(tile);
+                } finally {
+                    out.close();
+                }
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Failed to rename " + temp + " to "
+                            + file);
+                }
+                diskBytes += tile.length - previous;
+            } catch (IOException e) {
+                Log.w(FeatureTileCache.class.getSimpleName(),
+                        "Failed to write cached tile: " + file, e);
+                temp.delete();
+            }
+
+            if (diskBytes > maxDiskBytes) {
+                trim();
+            }
+        }
+    }
+
+    /**
+     * Delete the least recently used disk cached tiles until within the
+     * disk cache trim size
+     */
+    private void trim() {
+
+        List<File> files = listFiles(directory);
+        final long[] modified = new long[files.size()];
+        for (int i = 0; i < modified.length; i++) {
+            modified[i] = files.get(i).lastModified();
+        }
+        Integer[] order = new Integer[modified.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(modified[a], modified[b]);
+            }
+
+        });
+
+        long target = (long) (maxDiskBytes * DISK_TRIM_FRACTION);
+        for (int i = 0; i < order.length && diskBytes > target; i++) {
+            File file = files.get(order[i]);
+            long length = file.length();
+            if (file.delete()) {
+                diskBytes -= length;
+            }
+        }
+    }
+
+    /**
+     * Invalidate the disk cached tiles of a tile variant directory
+     *
+     * @param variant      variant directory of zoom directories
+     * @param invalidation invalidation
+     */
+    private void invalidate(File variant, Invalidation invalidation) {
+        File[] zooms = variant.listFiles();
+        if (zooms != null) {
+            for (File zoomDirectory : zooms) {
+                int zoom = parse(zoomDirectory.getName());
+                File[] xs = zoomDirectory.listFiles();
+                if (zoom < 0 || xs == null) {
+                    continue;
+                }
+                for (File xDirectory : xs) {
+                    int x = parse(xDirectory.getName());
+                    File[] ys = xDirectory.listFiles();
+                    if (x < 0 || ys == null) {
+                        continue;
+                    }
+                    for (File yFile : ys) {
+                        int y = parse(yFile.getName());
+                        if (y >= 0 && invalidation.contains(zoom, x, y)) {
+                            long length = yFile.length();
+                            if (yFile.delete()) {
+                                diskBytes -= length;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * List the files within the directory and its subdirectories
+     *
+     * @param directory directory
+     * @return files
+     */
+    private static List<File> listFiles(File directory) {
+        List<File> files = new ArrayList<>();
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    files.addAll(listFiles(child));
+                } else {
+                    files.add(child);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Delete the empty subdirectories of the directory
+     *
+     * @param directory directory
+     */
+    private static void deleteEmptyDirectories(File directory) {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    deleteEmptyDirectories(child);
+                    child.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the file bytes
+     *
+     * @param file file
+     * @return bytes
+     * @throws IOException upon read error
+     */
+    private static byte[] readFile(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of file: " + file);
+                }
+                offset += read;
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    /**
+     * Parse a non negative integer file name
+     *
+     * @param name file name
+     * @return integer, or -1 if not a cached tile name
+     */
+    private static int parse(String name) {
+        int value;
+        try {
+            value = Integer.parseInt(name);
+        } catch (NumberFormatException e) {
+            value = -1;
+        }
+        return value;
+    }
+
+    /**
+     * Create a file system safe file name
+     *
+     * @param name name
+     * @return file name
+     */
+    private static String fileName(String name) {
+        return name.replaceAll("[^A-Za-z0-9_.-]", "_") + "_"
+                + Integer.toHexString(name.hashCode());
+    }
+
+    /**
+     * Tile grids of an invalidated web mercator bounding box per zoom level,
+     * expanded by a tile for drawn feature overlap
+     */
+    private static class Invalidation {
+
+        /**
+         * Web mercator bounding box
+         */
+        private final BoundingBox webMercatorBoundingBox;
+
+        /**
+         * Expanded tile grids by zoom level
+         */
+        private TileGrid[] tileGrids = new TileGrid[0];
+
+        /**
+         * Constructor
+         *
+         * @param webMercatorBoundingBox web mercator bounding box
+         */
+        Invalidation(BoundingBox webMercatorBoundingBox) {
+            this.webMercatorBoundingBox = webMercatorBoundingBox;
+        }
+
+        /**
+         * Determine if the tile is invalidated
+         *
+         * @param zoom zoom level
+         * @param x    x coordinate
+         * @param y    y coordinate
+         * @return true if invalidated
+         */
+        boolean contains(int zoom, int x, int y) {
+            if (zoom >= tileGrids.length) {
+                tileGrids = Arrays.copyOf(tileGrids, zoom + 1);
+            }
+            TileGrid tileGrid = tileGrids[zoom];
+            if (tileGrid == null) {
+                tileGrid = TileBoundingBoxUtils.getTileGrid(
+                        webMercatorBoundingBox, zoom);
+                tileGrids[zoom] = tileGrid;
+            }
+            return x >= tileGrid.getMinX() - 1 && x <= tileGrid.getMaxX() + 1
+                    && y >= tileGrid.getMinY() - 1
+                    && y <= tileGrid.getMaxY() + 1;
+        }
+
+    }
+
+    /**
+     * Cached tile key
+     */
+    private static class Key {
+
+        /**
+         * Style version
+         */
+        private final long styleVersion;
+
+        /**
+         * Tile width
+         */
+        private final int width;
+
+        /**
+         * Tile height
+         */
+        private final int height;
+
+        /**
+         * Density
+         */
+        private final float density;
+
+        /**
+         * Compress format
+         */
+        private final String format;
+
+        /**
+         * Zoom level
+         */
+        private final int zoom;
+
+        /**
+         * X coordinate
+         */
+        private final int x;
+
+        /**
+         * Y coordinate
+         */
+        private final int y;
+
+        /**
+         * Constructor
+         *
+         * @param styleVersion style version
+         * @param width        tile width
+         * @param height       tile height
+         * @param density      density
+         * @param format       compress format
+         * @param zoom         zoom level
+         * @param x            x coordinate
+         * @param y            y coordinate
+         */
+        Key(long styleVersion, int width, int height, float density,
+            String format, int zoom, int x, int y) {
+            this.styleVersion = styleVersion;
+            this.width = width;
+            this.height = height;
+            this.density = density;
+            this.format = format;
+            this.zoom = zoom;
+            this.x = x;
+            this.y = y;
+        }
+
+        /**
+         * Get the disk cache file, within a variant directory of the tile
+         * size, density, and compress format. The in process style version
+         * is not persisted, as the disk cache is cleared on style changes and
+         * validated against the GeoPackage file when opened.
+         *
+         * @param directory table disk cache directory
+         * @return file
+         */
+        File file(File directory) {
+            String variant = width + "x" + height + "_"
+                    + Integer.toHexString(Float.floatToIntBits(density)) + "_"
+                    + format;
+            return new File(directory, variant + File.separator + zoom
+                    + File.separator + x + File.separator + y);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            int result = (int) (styleVersion ^ (styleVersion >>> 32));
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + Float.floatToIntBits(density);
+            result = 31 * result + format.hashCode();
+            result = 31 * result + zoom;
+            result = 31 * result + x;
+            result = 31 * result + y;
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return styleVersion == other.styleVersion && width == other.width
+                    && height == other.height
+                    && Float.floatToIntBits(density) == Float
+                    .floatToIntBits(other.density)
+                    && format.equals(other.format) && zoom == other.zoom
+                    && x == other.x && y == other.y;
+        }
+
+    }
+
+}
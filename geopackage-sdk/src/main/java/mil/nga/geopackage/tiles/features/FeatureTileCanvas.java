@@ -2,11 +2,18 @@ package mil.nga.geopackage.tiles.features;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.graphics.RectF;
 
 /**
  * Feature Tile Canvas for creating layered tiles to draw ordered features.
  * Draw Order: polygons, lines, points, icons
+ * <p>
+ * Layer bitmaps are created only when drawn upon, acquired from a bitmap
+ * pool when provided. A single canvas is shared by all layers when the
+ * features can only be drawn on one layer. Reported drawn bounds are
+ * tracked per layer as dirty rectangles, limiting layer compositing to the
+ * drawn areas and detecting blank tiles without comparing pixels.
  *
  * @author osbornb
  * @since 3.2.0
@@ -43,6 +50,16 @@ public class FeatureTileCanvas {
      */
     private final int tileHeight;
 
+    /**
+     * Bitmap pool, null to create and recycle layer bitmaps
+     */
+    private final FeatureTileBitmapPool bitmapPool;
+
+    /**
+     * True when all layers draw on a single canvas
+     */
+    private final boolean singleCanvas;
+
     /**
      * Layered bitmap
      */
@@ -53,6 +70,17 @@ public class FeatureTileCanvas {
      */
     private final Canvas[] layeredCanvas = new Canvas[4];
 
+    /**
+     * Layered dirty rectangles within the tile, null when no drawn bounds
+     * were reported for the layer
+     */
+    private final Rect[] layeredDirty = new Rect[4];
+
+    /**
+     * Reusable bounds rectangle
+     */
+    private final Rect bounds = new Rect();
+
     /**
      * Constructor
      *
@@ -60,8 +88,40 @@ public class FeatureTileCanvas {
      * @param tileHeight tile height
      */
     public FeatureTileCanvas(int tileWidth, int tileHeight) {
+        this(tileWidth, tileHeight, null, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param tileWidth    tile width
+     * @param tileHeight   tile height
+     * @param bitmapPool   tile sized bitmap pool, null to create and recycle
+     *                     layer bitmaps
+     * @param singleCanvas true to draw all layers on a single canvas, when
+     *                     features can only be drawn on one layer
+     * @since 6.7.5
+     */
+    public FeatureTileCanvas(int tileWidth, int tileHeight,
+                             FeatureTileBitmapPool bitmapPool, boolean singleCanvas) {
         this.tileWidth = tileWidth;
         this.tileHeight = tileHeight;
+        if (bitmapPool != null && (bitmapPool.getWidth() != tileWidth
+                || bitmapPool.getHeight() != tileHeight)) {
+            bitmapPool = null;
+        }
+        this.bitmapPool = bitmapPool;
+        this.singleCanvas = singleCanvas;
+    }
+
+    /**
+     * Is a single canvas shared by all layers?
+     *
+     * @return true if a single canvas
+     * @since 6.7.5
+     */
+    public boolean isSingleCanvas() {
+        return singleCanvas;
     }
 
     /**
@@ -137,7 +197,66 @@ public class FeatureTileCanvas {
     }
 
     /**
-     * Create the final bitmap from the layers, resets the layers
+     * Add drawn polygon bounds to the polygon layer dirty rectangle
+     *
+     * @param drawnBounds drawn pixel bounds
+     * @since 6.7.5
+     */
+    public void addPolygonBounds(RectF drawnBounds) {
+        addBounds(POLYGON_LAYER, drawnBounds);
+    }
+
+    /**
+     * Add drawn line bounds to the line layer dirty rectangle
+     *
+     * @param drawnBounds drawn pixel bounds
+     * @since 6.7.5
+     */
+    public void addLineBounds(RectF drawnBounds) {
+        addBounds(LINE_LAYER, drawnBounds);
+    }
+
+    /**
+     * Add drawn point bounds to the point layer dirty rectangle
+     *
+     * @param drawnBounds drawn pixel bounds
+     * @since 6.7.5
+     */
+    public void addPointBounds(RectF drawnBounds) {
+        addBounds(POINT_LAYER, drawnBounds);
+    }
+
+    /**
+     * Add drawn icon bounds to the icon layer dirty rectangle
+     *
+     * @param drawnBounds drawn pixel bounds
+     * @since 6.7.5
+     */
+    public void addIconBounds(RectF drawnBounds) {
+        addBounds(ICON_LAYER, drawnBounds);
+    }
+
+    /**
+     * Determine if any reported drawn bounds are within the tile
+     *
+     * @return true if drawn within the tile
+     * @since 6.7.5
+     */
+    public boolean isDirty() {
+        boolean dirty = false;
+        for (int layer = 0; layer < 4; layer++) {
+            if (layeredDirty[layer] != null) {
+                dirty = true;
+                break;
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Create the final bitmap from the layers, resets the layers. Layers
+     * with reported drawn bounds are composited within their dirty
+     * rectangles.
      *
      * @return bitmap
      */
@@ -156,32 +275,83 @@ public class FeatureTileCanvas {
                     bitmap = layerBitmap;
                     canvas = layeredCanvas[layer];
                 } else {
-                    canvas.drawBitmap(layerBitmap, new Matrix(), null);
-                    layerBitmap.recycle();
+                    Rect dirty = layeredDirty[layer];
+                    if (dirty != null) {
+                        canvas.drawBitmap(layerBitmap, dirty, dirty, null);
+                    } else {
+                        canvas.drawBitmap(layerBitmap, 0, 0, null);
+                    }
+                    release(layerBitmap);
                 }
 
                 layeredBitmap[layer] = null;
                 layeredCanvas[layer] = null;
             }
+            layeredDirty[layer] = null;
         }
 
         return bitmap;
     }
 
     /**
-     * Recycle the layered bitmaps
+     * Recycle the layered bitmaps, released to the bitmap pool when
+     * provided
      */
     public void recycle() {
         for (int layer = 0; layer < 4; layer++) {
             Bitmap bitmap = layeredBitmap[layer];
             if (bitmap != null) {
-                bitmap.recycle();
+                release(bitmap);
                 layeredBitmap[layer] = null;
                 layeredCanvas[layer] = null;
             }
+            layeredDirty[layer] = null;
+        }
+    }
+
+    /**
+     * Add drawn bounds to the layer dirty rectangle, limited to the tile
+     *
+     * @param layer       layer index
+     * @param drawnBounds drawn pixel bounds
+     */
+    private void addBounds(int layer, RectF drawnBounds) {
+        drawnBounds.roundOut(bounds);
+        if (bounds.intersect(0, 0, tileWidth, tileHeight)) {
+            layer = layerIndex(layer);
+            Rect dirty = layeredDirty[layer];
+            if (dirty == null) {
+                layeredDirty[layer] = new Rect(bounds);
+            } else {
+                dirty.union(bounds);
+            }
+        }
+    }
+
+    /**
+     * Release the layer bitmap to the bitmap pool or recycle it
+     *
+     * @param bitmap layer bitmap
+     */
+    private void release(Bitmap bitmap) {
+        if (bitmapPool != null) {
+            bitmapPool.release(bitmap);
+        } else {
+            bitmap.recycle();
         }
     }
 
+    /**
+     * Get the drawn layer index of the layer, the first layer when drawing
+     * on a single canvas
+     *
+     * @param layer layer index
+     * @return drawn layer index
+     */
+    private int layerIndex(int layer) {
+        return singleCanvas ? POLYGON_LAYER : layer;
+    }
+
     /**
      * Get the bitmap for the layer index
      *
@@ -189,6 +359,7 @@ public class FeatureTileCanvas {
      * @return bitmap
      */
     private Bitmap getBitmap(int layer) {
+        layer = layerIndex(layer);
         Bitmap bitmap = layeredBitmap[layer];
         if (bitmap == null) {
             createBitmapAndCanvas(layer);
@@ -204,6 +375,7 @@ public class FeatureTileCanvas {
      * @return canvas
      */
     private Canvas getCanvas(int layer) {
+        layer = layerIndex(layer);
         Canvas canvas = layeredCanvas[layer];
         if (canvas == null) {
             createBitmapAndCanvas(layer);
@@ -218,8 +390,12 @@ public class FeatureTileCanvas {
      * @param layer layer index
      */
     private void createBitmapAndCanvas(int layer) {
-        layeredBitmap[layer] = Bitmap.createBitmap(tileWidth,
-                tileHeight, Bitmap.Config.ARGB_8888);
+        if (bitmapPool != null) {
+            layeredBitmap[layer] = bitmapPool.acquire();
+        } else {
+            layeredBitmap[layer] = Bitmap.createBitmap(tileWidth,
+                    tileHeight, Bitmap.Config.ARGB_8888);
+        }
         layeredCanvas[layer] = new Canvas(layeredBitmap[layer]);
     }
 
@@ -8,6 +8,7 @@ import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.extension.nga.link.FeatureTileTableLinker;
 import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
+import mil.nga.geopackage.tiles.TileCreator;
 import mil.nga.geopackage.tiles.TileGenerator;
 import mil.nga.geopackage.tiles.TileGrid;
 import mil.nga.proj.Projection;
@@ -511,6 +512,9 @@ public class FeatureTileGenerator extends TileGenerator {
     @Override
     protected void preTileGeneration() {
 
+        // Read the current features for tile blocks
+        featureTiles.clearMetatileCache();
+
         // Link the feature and tile table if they are in the same GeoPackage
         GeoPackage geoPackage = getGeoPackage();
         String featureTable = featureTiles.getFeatureDao().getTableName();
@@ -524,6 +528,54 @@ public class FeatureTileGenerator extends TileGenerator {
 
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Tiles are created in blocks of the feature tiles metatile size so each
+     * block of features is queried once.
+     */
+    @Override
+    protected int getTileBlockSize() {
+        return featureTiles.getMetatileSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each worker draws with its own feature tiles copy and feature DAO copy.
+     */
+    @Override
+    protected TileCreator createTileCreator() {
+
+        TileCreator creator = null;
+
+        final FeatureTiles workerTiles = featureTiles
+                .copy(featureTiles.getFeatureDao().copy());
+        if (workerTiles != null) {
+            creator = new TileCreator() {
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public byte[] createTile(int z, long x, long y) {
+                    return workerTiles.drawTileBytes((int) x, (int) y, z);
+                }
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public void close() {
+                    workerTiles.close();
+                }
+
+            };
+        }
+
+        return creator;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -8,12 +8,16 @@ import android.graphics.Bitmap.CompressFormat;
 import android.graphics.Paint;
 import android.graphics.Paint.Style;
 import android.util.Log;
+import android.util.LruCache;
 
 import org.locationtech.proj4j.units.Units;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import mil.nga.color.Color;
@@ -21,7 +25,9 @@ import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.R;
+import mil.nga.geopackage.extension.nga.generalize.GeneralizedGeometryExtension;
 import mil.nga.geopackage.extension.nga.style.FeatureStyle;
+import mil.nga.geopackage.extension.nga.style.FeatureStyleExtension;
 import mil.nga.geopackage.extension.nga.style.FeatureTableStyles;
 import mil.nga.geopackage.extension.nga.style.IconCache;
 import mil.nga.geopackage.extension.nga.style.IconDao;
@@ -33,6 +39,7 @@ import mil.nga.geopackage.features.index.FeatureIndexResults;
 import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.io.BitmapConverter;
 import mil.nga.geopackage.style.PixelBounds;
 import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
@@ -67,6 +74,20 @@ public abstract class FeatureTiles {
     protected static final Projection WEB_MERCATOR_PROJECTION = ProjectionFactory
             .getProjection(ProjectionConstants.EPSG_WEB_MERCATOR);
 
+    /**
+     * Default max number of features read into memory for a metatile
+     *
+     * @since 6.7.5
+     */
+    public static final int DEFAULT_METATILE_MAX_FEATURES = 10000;
+
+    /**
+     * Default max number of metatiles to maintain
+     *
+     * @since 6.7.5
+     */
+    public static final int DEFAULT_METATILE_CACHE_SIZE = 4;
+
     /**
      * Context
      */
@@ -87,11 +108,32 @@ public abstract class FeatureTiles {
      */
     protected FeatureIndexManager indexManager;
 
+    /**
+     * True when the index manager is shared with the copied feature tiles
+     * and not closed by this instance
+     */
+    private boolean sharedIndexManager = false;
+
     /**
      * Feature Style extension
      */
     protected FeatureTableStyles featureTableStyles;
 
+    /**
+     * Generalized Geometry extension, null when the feature table has no
+     * generalized geometries
+     *
+     * @since 6.7.5
+     */
+    protected GeneralizedGeometryExtension generalizedGeometries;
+
+    /**
+     * Rendered tile cache, null to draw every requested tile
+     *
+     * @since 6.7.5
+     */
+    protected FeatureTileCache tileCache;
+
     /**
      * Tile width
      */
@@ -103,10 +145,24 @@ public abstract class FeatureTiles {
     protected int tileHeight;
 
     /**
-     * Empty transparent image for testing
+     * Empty transparent image for testing, created when first compared
      */
     private Bitmap emptyImage;
 
+    /**
+     * Tile sized bitmap pool of the layer bitmaps drawn by tiles, null to
+     * create and recycle bitmaps for each tile
+     *
+     * @since 6.7.5
+     */
+    protected FeatureTileBitmapPool bitmapPool;
+
+    /**
+     * True when the bitmap pool is shared with other feature tiles and not
+     * cleared by this instance
+     */
+    private boolean sharedBitmapPool = false;
+
     /**
      * Compress format
      */
@@ -192,11 +248,41 @@ public abstract class FeatureTiles {
      */
     protected CustomFeaturesTile maxFeaturesTileDraw;
 
+    /**
+     * Metatile size, the number of tiles per side of the tile blocks queried
+     * together from the feature index. Default is 1, querying each tile
+     * individually
+     */
+    protected int metatileSize = 1;
+
+    /**
+     * Max number of features read into memory for a metatile. Blocks with
+     * more features are queried per tile
+     */
+    protected int metatileMaxFeatures = DEFAULT_METATILE_MAX_FEATURES;
+
+    /**
+     * Recently queried metatiles
+     */
+    private final LruCache<String, FeatureMetatile> metatileCache = new LruCache<>(
+            DEFAULT_METATILE_CACHE_SIZE);
+
+    /**
+     * Tile cache invalidation count of the cached metatiles
+     */
+    private volatile long metatileInvalidations = -1;
+
     /**
      * When true, geometries are simplified before being drawn.  Default is true
      */
     protected boolean simplifyGeometries = true;
 
+    /**
+     * When true, line and polygon geometries are clipped to the expanded tile
+     * bounds before being drawn.  Default is true
+     */
+    protected boolean clipGeometries = true;
+
     /**
      * Draw geometries using geodesic lines
      */
@@ -411,6 +497,7 @@ public abstract class FeatureTiles {
         this.geodesic = geodesic;
 
         createEmptyImage();
+        createBitmapPool();
 
         compressFormat = CompressFormat.valueOf(context.getString(R.string.feature_tiles_compress_format));
 
@@ -446,21 +533,100 @@ public abstract class FeatureTiles {
                 featureTableStyles = null;
             }
 
+            generalizedGeometries = new GeneralizedGeometryExtension(geoPackage);
+            if (!generalizedGeometries.has(featureDao.getTableName())) {
+                generalizedGeometries = null;
+            }
+
         }
 
         calculateDrawOverlap();
     }
 
+    /**
+     * Copy constructor, drawing with the same settings, index manager, and
+     * feature styles using the feature DAO. Paints, caches, and the empty
+     * image are copied so the copy can draw concurrently with the original.
+     *
+     * @param featureTiles feature tiles to copy
+     * @param featureDao   feature DAO, typically a {@link FeatureDao#copy()}
+     * @since 6.7.5
+     */
+    protected FeatureTiles(FeatureTiles featureTiles, FeatureDao featureDao) {
+
+        this.context = featureTiles.context;
+        this.featureDao = featureDao;
+        this.projection = featureDao.getProjection();
+
+        indexManager = featureTiles.indexManager;
+        sharedIndexManager = true;
+        featureTableStyles = featureTiles.featureTableStyles;
+        generalizedGeometries = featureTiles.generalizedGeometries;
+        tileCache = featureTiles.tileCache;
+
+        density = featureTiles.density;
+        tileWidth = featureTiles.tileWidth;
+        tileHeight = featureTiles.tileHeight;
+        geodesic = featureTiles.geodesic;
+
+        createEmptyImage();
+        bitmapPool = featureTiles.bitmapPool;
+        sharedBitmapPool = true;
+
+        compressFormat = featureTiles.compressFormat;
+
+        pointRadius = featureTiles.pointRadius;
+        pointPaint = new Paint(featureTiles.pointPaint);
+        pointIcon = featureTiles.pointIcon;
+
+        lineStrokeWidth = featureTiles.lineStrokeWidth;
+        linePaint = new Paint(featureTiles.linePaint);
+
+        polygonStrokeWidth = featureTiles.polygonStrokeWidth;
+        polygonPaint = new Paint(featureTiles.polygonPaint);
+        fillPolygon = featureTiles.fillPolygon;
+        polygonFillPaint = new Paint(featureTiles.polygonFillPaint);
+
+        heightOverlap = featureTiles.heightOverlap;
+        widthOverlap = featureTiles.widthOverlap;
+
+        maxFeaturesPerTile = featureTiles.maxFeaturesPerTile;
+        maxFeaturesTileDraw = featureTiles.maxFeaturesTileDraw;
+        metatileSize = featureTiles.metatileSize;
+        metatileMaxFeatures = featureTiles.metatileMaxFeatures;
+        simplifyGeometries = featureTiles.simplifyGeometries;
+        clipGeometries = featureTiles.clipGeometries;
+    }
+
+    /**
+     * Copy the feature tiles to draw concurrently using the feature DAO.
+     * The copy shares the index manager, which remains open when the copy is
+     * closed.
+     *
+     * @param featureDao feature DAO, typically a {@link FeatureDao#copy()}
+     * @return feature tiles copy, or null if copies are not supported
+     * @since 6.7.5
+     */
+    public FeatureTiles copy(FeatureDao featureDao) {
+        return null;
+    }
+
     /**
      * Close the feature tiles connection
      *
      * @since 1.2.7
      */
     public void close() {
-        if (indexManager != null) {
+        if (indexManager != null && !sharedIndexManager) {
             indexManager.close();
         }
-        emptyImage.recycle();
+        if (emptyImage != null) {
+            emptyImage.recycle();
+            emptyImage = null;
+        }
+        if (bitmapPool != null && !sharedBitmapPool) {
+            bitmapPool.clear();
+        }
     }
 
     /**
@@ -636,6 +802,7 @@ public abstract class FeatureTiles {
      */
     public void setIndexManager(FeatureIndexManager indexManager) {
         this.indexManager = indexManager;
+        sharedIndexManager = false;
     }
 
     /**
@@ -668,6 +835,72 @@ public abstract class FeatureTiles {
         calculateDrawOverlap();
     }
 
+    /**
+     * Get the Generalized Geometry extension used to draw pre-generalized
+     * geometries
+     *
+     * @return generalized geometry extension or null
+     * @since 6.7.5
+     */
+    public GeneralizedGeometryExtension getGeneralizedGeometries() {
+        return generalizedGeometries;
+    }
+
+    /**
+     * Set the Generalized Geometry extension used to draw pre-generalized
+     * geometries, null to simplify all geometries on the fly
+     *
+     * @param generalizedGeometries generalized geometry extension or null
+     * @since 6.7.5
+     */
+    public void setGeneralizedGeometries(GeneralizedGeometryExtension generalizedGeometries) {
+        this.generalizedGeometries = generalizedGeometries;
+    }
+
+    /**
+     * Get the rendered tile cache used by {@link #drawTileBytes(int, int, int)}
+     *
+     * @return tile cache or null
+     * @since 6.7.5
+     */
+    public FeatureTileCache getTileCache() {
+        return tileCache;
+    }
+
+    /**
+     * Set the rendered tile cache used by {@link #drawTileBytes(int, int, int)},
+     * shared by feature tiles copies. The tile cache is not closed with the
+     * feature tiles.
+     *
+     * @param tileCache tile cache of the feature table, null to draw every
+     *                  requested tile
+     * @since 6.7.5
+     */
+    public void setTileCache(FeatureTileCache tileCache) {
+        if (tileCache != null && !tileCache.isTable(featureDao)) {
+            throw new GeoPackageException("Tile cache of table '"
+                    + tileCache.getTableName()
+                    + "' can not be used for feature table '"
+                    + featureDao.getTableName() + "'");
+        }
+        this.tileCache = tileCache;
+    }
+
+    /**
+     * Get the style version of drawn tiles, changed by feature style
+     * extension writes when the feature table has styles
+     *
+     * @return style version
+     * @since 6.7.5
+     */
+    public long getStyleVersion() {
+        long styleVersion = 0;
+        if (featureTableStyles != null) {
+            styleVersion = FeatureStyleExtension.getModifications();
+        }
+        return styleVersion;
+    }
+
     /**
      * Clear all caches
      *
@@ -676,6 +909,7 @@ public abstract class FeatureTiles {
     public void clearCache() {
         clearStylePaintCache();
         clearIconCache();
+        clearMetatileCache();
     }
 
     /**
@@ -735,6 +969,7 @@ public abstract class FeatureTiles {
     public void setTileWidth(int tileWidth) {
         this.tileWidth = tileWidth;
         createEmptyImage();
+        createBitmapPool();
     }
 
     /**
@@ -754,6 +989,34 @@ public abstract class FeatureTiles {
     public void setTileHeight(int tileHeight) {
         this.tileHeight = tileHeight;
         createEmptyImage();
+        createBitmapPool();
+    }
+
+    /**
+     * Get the tile sized bitmap pool of the layer bitmaps drawn by tiles,
+     * shared with feature tiles copies
+     *
+     * @return bitmap pool or null
+     * @since 6.7.5
+     */
+    public FeatureTileBitmapPool getBitmapPool() {
+        return bitmapPool;
+    }
+
+    /**
+     * Set the tile sized bitmap pool of the layer bitmaps drawn by tiles.
+     * The set bitmap pool is not cleared when the feature tiles are closed.
+     *
+     * @param bitmapPool bitmap pool, null to create and recycle bitmaps for
+     *                   each tile
+     * @since 6.7.5
+     */
+    public void setBitmapPool(FeatureTileBitmapPool bitmapPool) {
+        if (this.bitmapPool != null && !sharedBitmapPool) {
+            this.bitmapPool.clear();
+        }
+        this.bitmapPool = bitmapPool;
+        sharedBitmapPool = true;
     }
 
     /**
@@ -1126,6 +1389,68 @@ public abstract class FeatureTiles {
         this.maxFeaturesTileDraw = maxFeaturesTileDraw;
     }
 
+    /**
+     * Get the metatile size, the number of tiles per side of the tile blocks
+     * queried together from the feature index
+     *
+     * @return metatile size
+     * @since 6.7.5
+     */
+    public int getMetatileSize() {
+        return metatileSize;
+    }
+
+    /**
+     * Set the metatile size, the number of tiles per side of the tile blocks
+     * queried together from the feature index. When greater than 1, drawing
+     * an indexed tile queries and reads the features of the entire block
+     * once, retaining them for the other tiles drawn within the block.
+     * Features changed after being read are not reflected until
+     * {@link #clearMetatileCache()} is called.
+     *
+     * @param metatileSize metatile size, 1 to query each tile individually
+     * @since 6.7.5
+     */
+    public void setMetatileSize(int metatileSize) {
+        if (metatileSize < 1) {
+            throw new GeoPackageException(
+                    "Metatile size must be at least 1: " + metatileSize);
+        }
+        this.metatileSize = metatileSize;
+        clearMetatileCache();
+    }
+
+    /**
+     * Get the max number of features read into memory for a metatile
+     *
+     * @return metatile max features
+     * @since 6.7.5
+     */
+    public int getMetatileMaxFeatures() {
+        return metatileMaxFeatures;
+    }
+
+    /**
+     * Set the max number of features read into memory for a metatile. Tiles
+     * within blocks containing more features are queried individually.
+     *
+     * @param metatileMaxFeatures metatile max features
+     * @since 6.7.5
+     */
+    public void setMetatileMaxFeatures(int metatileMaxFeatures) {
+        this.metatileMaxFeatures = metatileMaxFeatures;
+        clearMetatileCache();
+    }
+
+    /**
+     * Clear the metatile cache of feature rows read for tile blocks
+     *
+     * @since 6.7.5
+     */
+    public void clearMetatileCache() {
+        metatileCache.evictAll();
+    }
+
     /**
      * Is the simplify geometries flag set?  Default is true
      *
@@ -1146,6 +1471,28 @@ public abstract class FeatureTiles {
         this.simplifyGeometries = simplifyGeometries;
     }
 
+    /**
+     * Is the clip geometries flag set?  Default is true. Geometries are not
+     * clipped when drawn using geodesic lines.
+     *
+     * @return clip geometries flag
+     * @since 6.7.5
+     */
+    public boolean isClipGeometries() {
+        return clipGeometries;
+    }
+
+    /**
+     * Set the clip geometries flag, true to clip line and polygon geometries
+     * to the expanded tile bounds before projecting and drawing them
+     *
+     * @param clipGeometries clip geometries flag
+     * @since 6.7.5
+     */
+    public void setClipGeometries(boolean clipGeometries) {
+        this.clipGeometries = clipGeometries;
+    }
+
     /**
      * Are geometries drawn using geodesic lines? Default is false
      *
@@ -1168,7 +1515,9 @@ public abstract class FeatureTiles {
     }
 
     /**
-     * Draw the tile and get the bytes from the x, y, and zoom level
+     * Draw the tile and get the bytes from the x, y, and zoom level. When a
+     * tile cache is set, cached tile bytes are returned and drawn tile bytes
+     * are cached.
      *
      * @param x    x coordinate
      * @param y    y coordinate
@@ -1177,6 +1526,36 @@ public abstract class FeatureTiles {
      */
     public byte[] drawTileBytes(int x, int y, int zoom) {
 
+        byte[] tileData;
+
+        if (tileCache != null) {
+            tileData = tileCache.get(this, x, y, zoom);
+            if (tileData != null) {
+                if (tileData.length == 0) {
+                    tileData = null;
+                }
+            } else {
+                long invalidations = tileCache.getInvalidations();
+                tileData = drawTileBitmapBytes(x, y, zoom);
+                tileCache.put(this, x, y, zoom, tileData, invalidations);
+            }
+        } else {
+            tileData = drawTileBitmapBytes(x, y, zoom);
+        }
+
+        return tileData;
+    }
+
+    /**
+     * Draw the tile bitmap and compress it to bytes
+     *
+     * @param x    x coordinate
+     * @param y    y coordinate
+     * @param zoom zoom level
+     * @return tile bytes, or null
+     */
+    private byte[] drawTileBitmapBytes(int x, int y, int zoom) {
+
         Bitmap bitmap = drawTile(x, y, zoom);
 
         byte[] tileData = null;
@@ -1190,13 +1569,28 @@ public abstract class FeatureTiles {
                 Log.e(FeatureTiles.class.getSimpleName(), "Failed to create tile. x: " + x + ", y: "
                         + y + ", zoom: " + zoom, e);
             } finally {
-                bitmap.recycle();
+                releaseBitmap(bitmap);
             }
         }
 
         return tileData;
     }
 
+    /**
+     * Release a drawn tile bitmap no longer used, to the bitmap pool when
+     * pooled
+     *
+     * @param bitmap bitmap
+     * @since 6.7.5
+     */
+    protected void releaseBitmap(Bitmap bitmap) {
+        if (bitmapPool != null) {
+            bitmapPool.release(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
+
     /**
      * Draw a tile bitmap from the x, y, and zoom level
      *
@@ -1231,8 +1625,21 @@ public abstract class FeatureTiles {
 
         Bitmap bitmap = null;
 
-        // Query for geometries matching the bounds in the index
-        FeatureIndexResults results = queryIndexedFeatures(webMercatorBoundingBox);
+        // Query for geometries matching the bounds in the index, reusing the
+        // features read for the metatile when enabled
+        FeatureIndexResults results = null;
+        if (metatileSize > 1) {
+            FeatureMetatile metatile = getMetatile(x, y, zoom);
+            if (metatile.isRead()) {
+                BoundingBox expandedBoundingBox = expandBoundingBox(
+                        webMercatorBoundingBox);
+                results = metatile.query(featureDao.projectBoundingBox(
+                        expandedBoundingBox, WEB_MERCATOR_PROJECTION));
+            }
+        }
+        if (results == null) {
+            results = queryIndexedFeatures(webMercatorBoundingBox);
+        }
 
         try {
 
@@ -1260,6 +1667,94 @@ public abstract class FeatureTiles {
         return bitmap;
     }
 
+    /**
+     * Get the metatile containing the tile, querying and reading the block
+     * features when not cached
+     *
+     * @param x    x coordinate
+     * @param y    y coordinate
+     * @param zoom zoom level
+     * @return metatile
+     */
+    private FeatureMetatile getMetatile(int x, int y, int zoom) {
+
+        // Align the block to the metatile size within the zoom level tiles
+        int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+        int size = Math.min(metatileSize, tilesPerSide);
+        int minX = x - (x % size);
+        int minY = y - (y % size);
+        int maxX = Math.min(minX + size, tilesPerSide) - 1;
+        int maxY = Math.min(minY + size, tilesPerSide) - 1;
+
+        String key = zoom + "/" + minX + "/" + minY;
+
+        // Feature writes invalidating the tile cache also invalidate the
+        // feature rows read for metatiles
+        if (tileCache != null) {
+            long invalidations = tileCache.getInvalidations();
+            if (invalidations != metatileInvalidations) {
+                synchronized (metatileCache) {
+                    if (invalidations != metatileInvalidations) {
+                        metatileCache.evictAll();
+                        metatileInvalidations = invalidations;
+                    }
+                }
+            }
+        }
+
+        FeatureMetatile metatile = metatileCache.get(key);
+        if (metatile == null) {
+            synchronized (metatileCache) {
+                metatile = metatileCache.get(key);
+                if (metatile == null) {
+                    metatile = queryMetatile(minX, minY, maxX, maxY, zoom);
+                    metatileCache.put(key, metatile);
+                }
+            }
+        }
+
+        return metatile;
+    }
+
+    /**
+     * Query and read the features of the tile block, expanded by the draw
+     * overlap of the edge tiles
+     *
+     * @param minX min x coordinate
+     * @param minY min y coordinate
+     * @param maxX max x coordinate
+     * @param maxY max y coordinate
+     * @param zoom zoom level
+     * @return metatile
+     */
+    private FeatureMetatile queryMetatile(int minX, int minY, int maxX,
+                                          int maxY, int zoom) {
+
+        BoundingBox minTileBoundingBox = expandBoundingBox(TileBoundingBoxUtils
+                .getWebMercatorBoundingBox(minX, minY, zoom));
+        BoundingBox maxTileBoundingBox = expandBoundingBox(TileBoundingBoxUtils
+                .getWebMercatorBoundingBox(maxX, maxY, zoom));
+        BoundingBox blockBoundingBox = minTileBoundingBox
+                .union(maxTileBoundingBox);
+
+        List<FeatureRow> rows = null;
+
+        FeatureIndexResults results = indexManager.query(blockBoundingBox,
+                WEB_MERCATOR_PROJECTION);
+        try {
+            if (results.count() <= metatileMaxFeatures) {
+                rows = new ArrayList<>();
+                for (FeatureRow row : results) {
+                    rows.add(row);
+                }
+            }
+        } finally {
+            results.close();
+        }
+
+        return new FeatureMetatile(rows);
+    }
+
     /**
      * Query for feature result count in the x, y, and zoom
      *
@@ -1567,7 +2062,9 @@ public abstract class FeatureTiles {
     protected FeatureStyle getFeatureStyle(FeatureRow featureRow) {
         FeatureStyle featureStyle = null;
         if (featureTableStyles != null) {
-            featureStyle = featureTableStyles.getFeatureStyle(featureRow);
+            featureStyle = featureTableStyles.getFeatureStyleResolver()
+                    .getFeatureStyle(featureRow.getId(),
+                            featureRow.getGeometryType());
         }
         return featureStyle;
     }
@@ -1582,11 +2079,58 @@ public abstract class FeatureTiles {
     protected FeatureStyle getFeatureStyle(FeatureRow featureRow, GeometryType geometryType) {
         FeatureStyle featureStyle = null;
         if (featureTableStyles != null) {
-            featureStyle = featureTableStyles.getFeatureStyle(featureRow, geometryType);
+            featureStyle = featureTableStyles.getFeatureStyleResolver()
+                    .getFeatureStyle(featureRow.getId(), geometryType);
         }
         return featureStyle;
     }
 
+    /**
+     * Prefetch the feature styles of the feature rows about to be drawn, with
+     * batched style and icon queries
+     *
+     * @param featureRows feature rows
+     * @since 6.7.5
+     */
+    protected void prefetchFeatureStyles(List<FeatureRow> featureRows) {
+        if (featureTableStyles != null && !featureRows.isEmpty()) {
+            List<Long> featureIds = new ArrayList<>(featureRows.size());
+            for (FeatureRow featureRow : featureRows) {
+                featureIds.add(featureRow.getId());
+            }
+            featureTableStyles.getFeatureStyleResolver().prefetch(featureIds);
+        }
+    }
+
+    /**
+     * Query for the pre-generalized geometries of the feature rows about to be
+     * drawn at the zoom level. Geometries are generalized when simplifying
+     * without geodesic lines.
+     *
+     * @param zoom        zoom level
+     * @param featureRows feature rows
+     * @return generalized geometries by feature id
+     * @since 6.7.5
+     */
+    protected Map<Long, GeoPackageGeometryData> queryGeneralizedGeometries(int zoom, List<FeatureRow> featureRows) {
+        Map<Long, GeoPackageGeometryData> geometries = Collections.emptyMap();
+        if (generalizedGeometries != null && simplifyGeometries && !geodesic
+                && !featureRows.isEmpty()) {
+            List<Long> featureIds = new ArrayList<>(featureRows.size());
+            for (FeatureRow featureRow : featureRows) {
+                featureIds.add(featureRow.getId());
+            }
+            try {
+                geometries = generalizedGeometries.query(featureDao, zoom, featureIds);
+            } catch (Exception e) {
+                Log.w(FeatureTiles.class.getSimpleName(),
+                        "Failed to query generalized geometries. Table: "
+                                + featureDao.getTableName(), e);
+            }
+        }
+        return geometries;
+    }
+
     /**
      * Get the icon bitmap from the icon row
      *
@@ -1774,6 +2318,9 @@ public abstract class FeatureTiles {
      * @return true if transparent
      */
     protected boolean isTransparent(Bitmap bitmap) {
+        if (bitmap != null && emptyImage == null) {
+            emptyImage = createNewBitmap();
+        }
         return bitmap != null && emptyImage.sameAs(bitmap);
     }
 
@@ -1792,13 +2339,25 @@ public abstract class FeatureTiles {
     }
 
     /**
-     * Create an empty image for transparent comparison
+     * Reset the empty image for transparent comparison, created when next
+     * compared
      */
     private void createEmptyImage() {
         if (emptyImage != null) {
             emptyImage.recycle();
+            emptyImage = null;
+        }
+    }
+
+    /**
+     * Create a bitmap pool of the tile size, replacing an owned pool
+     */
+    private void createBitmapPool() {
+        if (bitmapPool != null && !sharedBitmapPool) {
+            bitmapPool.clear();
         }
-        emptyImage = createNewBitmap();
+        bitmapPool = new FeatureTileBitmapPool(tileWidth, tileHeight);
+        sharedBitmapPool = false;
     }
 
     /**
@@ -0,0 +1,130 @@
+package mil.nga.geopackage.tiles.features;
+
+import android.content.Context;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.tiles.TileCreator;
+import mil.nga.proj.Projection;
+
+/**
+ * Creates a set of Mapbox Vector Tiles within a GeoPackage tile table by
+ * encoding the features of each tile. Tiles are written as vector tile
+ * protocol buffer bytes instead of images, with the tile extent as the tile
+ * matrix width and height.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureVectorTileGenerator extends FeatureTileGenerator {
+
+    /**
+     * Feature vector tiles
+     */
+    private final FeatureVectorTiles vectorTiles;
+
+    /**
+     * Constructor
+     *
+     * @param context     app context
+     * @param geoPackage  GeoPackage
+     * @param tableName   table name
+     * @param vectorTiles feature vector tiles
+     * @param minZoom     min zoom
+     * @param maxZoom     max zoom
+     * @param boundingBox tiles bounding box
+     * @param projection  tiles projection
+     */
+    public FeatureVectorTileGenerator(Context context, GeoPackage geoPackage,
+                                      String tableName, FeatureVectorTiles vectorTiles, int minZoom,
+                                      int maxZoom, BoundingBox boundingBox, Projection projection) {
+        super(context, geoPackage, tableName, vectorTiles.getFeatureTiles(),
+                minZoom, maxZoom, boundingBox, projection);
+        this.vectorTiles = vectorTiles;
+    }
+
+    /**
+     * Constructor, find the the bounding box from the feature table
+     *
+     * @param context     app context
+     * @param geoPackage  GeoPackage
+     * @param tableName   table name
+     * @param vectorTiles feature vector tiles
+     * @param minZoom     min zoom
+     * @param maxZoom     max zoom
+     * @param projection  tiles projection
+     */
+    public FeatureVectorTileGenerator(Context context, GeoPackage geoPackage,
+                                      String tableName, FeatureVectorTiles vectorTiles, int minZoom,
+                                      int maxZoom, Projection projection) {
+        this(context, geoPackage, tableName, vectorTiles, minZoom, maxZoom,
+                null, projection);
+    }
+
+    /**
+     * Get the feature vector tiles
+     *
+     * @return feature vector tiles
+     */
+    public FeatureVectorTiles getVectorTiles() {
+        return vectorTiles;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each worker encodes with its own feature vector tiles copy and feature
+     * DAO copy.
+     */
+    @Override
+    protected TileCreator createTileCreator() {
+
+        TileCreator creator = null;
+
+        final FeatureVectorTiles workerTiles = vectorTiles.copy(
+                vectorTiles.getFeatureTiles().getFeatureDao().copy());
+        if (workerTiles != null) {
+            creator = new TileCreator() {
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public byte[] createTile(int z, long x, long y) {
+                    return workerTiles.createTile((int) x, (int) y, z);
+                }
+
+                /**
+                 * {@inheritDoc}
+                 */
+                @Override
+                public void close() {
+                    workerTiles.close();
+                }
+
+            };
+        }
+
+        return creator;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected byte[] createTile(int z, long x, long y) {
+        return vectorTiles.createTile((int) x, (int) y, z);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Vector tiles are not images, the tile dimensions are the tile extent.
+     */
+    @Override
+    protected int[] getTileDimensions() {
+        int extent = vectorTiles.getExtent();
+        return new int[]{extent, extent};
+    }
+
+}
@@ -0,0 +1,811 @@
+package mil.nga.geopackage.tiles.features;
+
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.features.index.FeatureIndexResults;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
+import mil.nga.proj.Projection;
+import mil.nga.proj.ProjectionConstants;
+import mil.nga.proj.ProjectionFactory;
+import mil.nga.sf.CompoundCurve;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryCollection;
+import mil.nga.sf.LineString;
+import mil.nga.sf.MultiLineString;
+import mil.nga.sf.MultiPoint;
+import mil.nga.sf.MultiPolygon;
+import mil.nga.sf.Point;
+import mil.nga.sf.Polygon;
+import mil.nga.sf.PolyhedralSurface;
+import mil.nga.sf.proj.GeometryTransform;
+
+/**
+ * Feature Vector Tiles, creates Mapbox Vector Tiles from the features of the
+ * feature tiles query as an alternative to drawn raster tiles. Geometries are
+ * clipped to the buffered tile, quantized to the tile extent, and simplified
+ * within the extent grid, so detail follows the zoom level. Feature ids and
+ * attribute columns are carried as feature properties for client side
+ * styling.
+ * <p>
+ * <a href="https://github.com/mapbox/vector-tile-spec/tree/master/2.1">https://github.com/mapbox/vector-tile-spec/tree/master/2.1</a>
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+public class FeatureVectorTiles {
+
+    /**
+     * Default tile extent
+     */
+    public static final int DEFAULT_EXTENT = 4096;
+
+    /**
+     * Default tile buffer in extent units
+     */
+    public static final int DEFAULT_BUFFER = 64;
+
+    /**
+     * Default simplify tolerance in extent units
+     */
+    public static final double DEFAULT_SIMPLIFY_TOLERANCE = 1.0;
+
+    /**
+     * Web mercator projection
+     */
+    private static final Projection WEB_MERCATOR_PROJECTION = ProjectionFactory
+            .getProjection(ProjectionConstants.EPSG_WEB_MERCATOR);
+
+    /**
+     * Feature tiles used to query the tile features
+     */
+    private final FeatureTiles featureTiles;
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Feature projection to web mercator transform
+     */
+    private final GeometryTransform transform;
+
+    /**
+     * Layer name
+     */
+    private String layerName;
+
+    /**
+     * Tile extent
+     */
+    private int extent = DEFAULT_EXTENT;
+
+    /**
+     * Tile buffer in extent units
+     */
+    private int buffer = DEFAULT_BUFFER;
+
+    /**
+     * Simplify geometries flag
+     */
+    private boolean simplify = true;
+
+    /**
+     * Simplify tolerance in extent units
+     */
+    private double simplifyTolerance = DEFAULT_SIMPLIFY_TOLERANCE;
+
+    /**
+     * Attribute columns, null to include all non geometry and non primary key
+     * columns
+     */
+    private Set<String> columns = null;
+
+    /**
+     * Tile x coordinates
+     */
+    private int[] xs = new int[256];
+
+    /**
+     * Tile y coordinates
+     */
+    private int[] ys = new int[256];
+
+    /**
+     * Simplification kept vertices
+     */
+    private boolean[] keep = new boolean[256];
+
+    /**
+     * Simplification segment stack of start and end indices
+     */
+    private int[] stack = new int[64];
+
+    /**
+     * Constructor
+     *
+     * @param featureTiles feature tiles used to query the tile features
+     */
+    public FeatureVectorTiles(FeatureTiles featureTiles) {
+        this.featureTiles = featureTiles;
+        featureDao = featureTiles.getFeatureDao();
+        transform = GeometryTransform.create(featureDao.getProjection(),
+                WEB_MERCATOR_PROJECTION);
+        layerName = featureDao.getTableName();
+    }
+
+    /**
+     * Copy the feature vector tiles to create tiles concurrently using the
+     * feature DAO, with a copy of the feature tiles
+     *
+     * @param featureDao feature DAO, typically a {@link FeatureDao#copy()}
+     * @return feature vector tiles copy, or null if the feature tiles do not
+     * support copies
+     */
+    public FeatureVectorTiles copy(FeatureDao featureDao) {
+        FeatureVectorTiles copy = null;
+        FeatureTiles featureTilesCopy = featureTiles.copy(featureDao);
+        if (featureTilesCopy != null) {
+            copy = new FeatureVectorTiles(featureTilesCopy);
+            copy.layerName = layerName;
+            copy.extent = extent;
+            copy.buffer = buffer;
+            copy.simplify = simplify;
+            copy.simplifyTolerance = simplifyTolerance;
+            copy.columns = columns;
+        }
+        return copy;
+    }
+
+    /**
+     * Get the feature tiles
+     *
+     * @return feature tiles
+     */
+    public FeatureTiles getFeatureTiles() {
+        return featureTiles;
+    }
+
+    /**
+     * Get the layer name, defaults to the feature table name
+     *
+     * @return layer name
+     */
+    public String getLayerName() {
+        return layerName;
+    }
+
+    /**
+     * Set the layer name
+     *
+     * @param layerName layer name
+     */
+    public void setLayerName(String layerName) {
+        this.layerName = layerName;
+    }
+
+    /**
+     * Get the tile extent
+     *
+     * @return extent
+     */
+    public int getExtent() {
+        return extent;
+    }
+
+    /**
+     * Set the tile extent, the number of integer coordinates per tile side
+     *
+     * @param extent extent
+     */
+    public void setExtent(int extent) {
+        this.extent = extent;
+    }
+
+    /**
+     * Get the tile buffer
+     *
+     * @return buffer in extent units
+     */
+    public int getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Set the tile buffer geometries are clipped to beyond each tile side
+     *
+     * @param buffer buffer in extent units
+     */
+    public void setBuffer(int buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Is the simplify geometries flag set? Default is true.
+     *
+     * @return simplify flag
+     */
+    public boolean isSimplify() {
+        return simplify;
+    }
+
+    /**
+     * Set the simplify geometries flag
+     *
+     * @param simplify simplify flag
+     */
+    public void setSimplify(boolean simplify) {
+        this.simplify = simplify;
+    }
+
+    /**
+     * Get the simplify tolerance
+     *
+     * @return simplify tolerance in extent units
+     */
+    public double getSimplifyTolerance() {
+        return simplifyTolerance;
+    }
+
+    /**
+     * Set the simplify tolerance
+     *
+     * @param simplifyTolerance simplify tolerance in extent units
+     */
+    public void setSimplifyTolerance(double simplifyTolerance) {
+        this.simplifyTolerance = simplifyTolerance;
+    }
+
+    /**
+     * Get the attribute columns
+     *
+     * @return attribute columns, null when all non geometry and non primary
+     * key columns are included
+     */
+    public Set<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Set the attribute columns carried as feature properties
+     *
+     * @param columns attribute columns, null to include all non geometry and
+     *                non primary key columns
+     */
+    public void setColumns(Collection<String> columns) {
+        this.columns = columns != null ? new HashSet<>(columns) : null;
+    }
+
+    /**
+     * Set the attribute columns carried as feature properties
+     *
+     * @param columns attribute columns
+     */
+    public void setColumns(String... columns) {
+        setColumns(Arrays.asList(columns));
+    }
+
+    /**
+     * Close the feature tiles
+     */
+    public void close() {
+        featureTiles.close();
+    }
+
+    /**
+     * Create a vector tile from the x, y, and zoom level
+     *
+     * @param x    x coordinate
+     * @param y    y coordinate
+     * @param zoom zoom level
+     * @return vector tile bytes, or null if no features are within the tile
+     */
+    public byte[] createTile(int x, int y, int zoom) {
+
+        BoundingBox webMercatorBoundingBox = TileBoundingBoxUtils
+                .getWebMercatorBoundingBox(x, y, zoom);
+        VectorTileEncoder encoder = new VectorTileEncoder(layerName, extent);
+        TileGeometries tile = new TileGeometries(webMercatorBoundingBox);
+
+        if (featureTiles.isIndexQuery()) {
+            FeatureIndexResults results = featureTiles.queryIndexedFeatures(x,
+                    y, zoom);
+            try {
+                for (FeatureRow row : results) {
+                    addFeature(encoder, tile, row);
+                }
+            } finally {
+                results.close();
+            }
+        } else {
+            FeatureCursor cursor = featureDao.queryForAll();
+            try {
+                while (cursor.moveToNext()) {
+                    addFeature(encoder, tile, cursor.getRow());
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        return encoder.encode();
+    }
+
+    /**
+     * Add the feature to the vector tile
+     *
+     * @param encoder vector tile encoder
+     * @param tile    tile geometries
+     * @param row     feature row
+     */
+    private void addFeature(VectorTileEncoder encoder, TileGeometries tile,
+                            FeatureRow row) {
+        try {
+            GeoPackageGeometryData geometryData = row.getGeometry();
+            if (geometryData != null) {
+                Geometry geometry = geometryData.getGeometry();
+                if (geometry != null) {
+                    addGeometry(encoder, tile, row.getId(),
+                            getAttributes(row), geometry);
+                }
+            }
+        } catch (Exception e) {
+            encoder.clearGeometry();
+            Log.e(FeatureVectorTiles.class.getSimpleName(),
+                    "Failed to add feature to vector tile. Table: "
+                            + featureDao.getTableName(), e);
+        }
+    }
+
+    /**
+     * Add the geometry as vector tile features, one per geometry type
+     *
+     * @param encoder    vector tile encoder
+     * @param tile       tile geometries
+     * @param id         feature id
+     * @param attributes feature attributes
+     * @param geometry   geometry
+     */
+    private void addGeometry(VectorTileEncoder encoder, TileGeometries tile,
+                             long id, Map<String, Object> attributes, Geometry geometry) {
+
+        switch (geometry.getGeometryType()) {
+
+            case POINT:
+                tile.addPoint(encoder, (Point) geometry);
+                encoder.addFeature(id, VectorTileEncoder.GEOM_POINT, attributes);
+                break;
+            case MULTIPOINT:
+                for (Point point : ((MultiPoint) geometry).getPoints()) {
+                    tile.addPoint(encoder, point);
+                }
+                encoder.addFeature(id, VectorTileEncoder.GEOM_POINT, attributes);
+                break;
+            case LINESTRING:
+            case CIRCULARSTRING:
+                tile.addLineString(encoder, (LineString) geometry);
+                encoder.addFeature(id, VectorTileEncoder.GEOM_LINESTRING,
+                        attributes);
+                break;
+            case MULTILINESTRING:
+                for (LineString lineString : ((MultiLineString) geometry)
+                        .getLineStrings()) {
+                    tile.addLineString(encoder, lineString);
+                }
+                encoder.addFeature(id, VectorTileEncoder.GEOM_LINESTRING,
+                        attributes);
+                break;
+            case COMPOUNDCURVE:
+                for (LineString lineString : ((CompoundCurve) geometry)
+                        .getLineStrings()) {
+                    tile.addLineString(encoder, lineString);
+                }
+                encoder.addFeature(id, VectorTileEncoder.GEOM_LINESTRING,
+                        attributes);
+                break;
+            case POLYGON:
+            case TRIANGLE:
+                tile.addPolygon(encoder, (Polygon) geometry);
+                encoder.addFeature(id, VectorTileEncoder.GEOM_POLYGON,
+                        attributes);
+                break;
+            case MULTIPOLYGON:
+                for (Polygon polygon : ((MultiPolygon) geometry).getPolygons()) {
+                    tile.addPolygon(encoder, polygon);
+                }
+                encoder.addFeature(id, VectorTileEncoder.GEOM_POLYGON,
+                        attributes);
+                break;
+            case POLYHEDRALSURFACE:
+            case TIN:
+                for (Polygon polygon : ((PolyhedralSurface) geometry)
+                        .getPolygons()) {
+                    tile.addPolygon(encoder, polygon);
+                }
+                encoder.addFeature(id, VectorTileEncoder.GEOM_POLYGON,
+                        attributes);
+                break;
+            case GEOMETRYCOLLECTION:
+                @SuppressWarnings("unchecked")
+                GeometryCollection<Geometry> geometryCollection = (GeometryCollection<Geometry>) geometry;
+                for (Geometry collectionGeometry : geometryCollection
+                        .getGeometries()) {
+                    addGeometry(encoder, tile, id, attributes,
+                            collectionGeometry);
+                }
+                break;
+            default:
+                Log.w(FeatureVectorTiles.class.getSimpleName(),
+                        "Unsupported vector tile Geometry Type: "
+                                + geometry.getGeometryType().getName());
+        }
+    }
+
+    /**
+     * Get the feature attributes of the attribute columns with values
+     *
+     * @param row feature row
+     * @return attributes
+     */
+    private Map<String, Object> getAttributes(FeatureRow row) {
+
+        Map<String, Object> attributes = new LinkedHashMap<>();
+
+        String[] columnNames = row.getColumnNames();
+        int geometryIndex = row.getGeometryColumnIndex();
+        int pkIndex = row.getPkColumnIndex();
+        for (int i = 0; i < columnNames.length; i++) {
+            if (i == geometryIndex || i == pkIndex
+                    || (columns != null && !columns.contains(columnNames[i]))) {
+                continue;
+            }
+            Object value = row.getValue(i);
+            if (value == null || value instanceof byte[]) {
+                continue;
+            }
+            if (value instanceof Integer || value instanceof Short
+                    || value instanceof Byte) {
+                value = ((Number) value).longValue();
+            } else if (!(value instanceof String || value instanceof Long
+                    || value instanceof Double || value instanceof Float
+                    || value instanceof Boolean)) {
+                value = value.toString();
+            }
+            attributes.put(columnNames[i], value);
+        }
+
+        return attributes;
+    }
+
+    /**
+     * Tile geometries, clips feature geometries to the buffered tile and adds
+     * them to the encoder as quantized and simplified tile coordinates
+     */
+    private class TileGeometries {
+
+        /**
+         * Geometry clipper in the feature projection
+         */
+        private final GeometryClipper clipper;
+
+        /**
+         * Tile min web mercator x
+         */
+        private final double minX;
+
+        /**
+         * Tile max web mercator y
+         */
+        private final double maxY;
+
+        /**
+         * Extent units per web mercator meter in x
+         */
+        private final double xScale;
+
+        /**
+         * Extent units per web mercator meter in y
+         */
+        private final double yScale;
+
+        /**
+         * Constructor
+         *
+         * @param webMercatorBoundingBox tile web mercator bounding box
+         */
+        TileGeometries(BoundingBox webMercatorBoundingBox) {
+            BoundingBox featureBoundingBox = featureDao.projectBoundingBox(
+                    webMercatorBoundingBox, WEB_MERCATOR_PROJECTION);
+            clipper = new GeometryClipper(featureBoundingBox,
+                    buffer / (double) extent);
+            minX = webMercatorBoundingBox.getMinLongitude();
+            maxY = webMercatorBoundingBox.getMaxLatitude();
+            xScale = extent / (webMercatorBoundingBox.getMaxLongitude() - minX);
+            yScale = extent / (maxY - webMercatorBoundingBox.getMinLatitude());
+        }
+
+        /**
+         * Add the point when within the buffered tile
+         *
+         * @param encoder vector tile encoder
+         * @param point   point
+         */
+        void addPoint(VectorTileEncoder encoder, Point point) {
+            if (quantize(Arrays.asList(point), false) == 1) {
+                int x = xs[0];
+                int y = ys[0];
+                if (x >= -buffer && x <= extent + buffer && y >= -buffer
+                        && y <= extent + buffer) {
+                    encoder.addPoints(xs, ys, 1);
+                }
+            }
+        }
+
+        /**
+         * Add the line string parts within the buffered tile
+         *
+         * @param encoder    vector tile encoder
+         * @param lineString line string
+         */
+        void addLineString(VectorTileEncoder encoder, LineString lineString) {
+            List<Point> points = lineString.getPoints();
+            if (points.size() >= 2) {
+                for (List<Point> part : clipper.clipLine(points)) {
+                    int count = simplify(quantize(part, false));
+                    if (count >= 2) {
+                        encoder.addLine(xs, ys, count);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Add the polygon rings within the buffered tile, with a clockwise
+         * exterior ring and counter clockwise interior rings in tile
+         * coordinates
+         *
+         * @param encoder vector tile encoder
+         * @param polygon polygon
+         */
+        void addPolygon(VectorTileEncoder encoder, Polygon polygon) {
+            boolean exterior = true;
+            for (LineString ring : polygon.getRings()) {
+                boolean added = addRing(encoder, ring.getPoints(), exterior);
+                if (exterior && !added) {
+                    // Exterior ring is outside the tile or collapsed
+                    break;
+                }
+                exterior = false;
+            }
+        }
+
+        /**
+         * Add the ring within the buffered tile
+         *
+         * @param encoder  vector tile encoder
+         * @param points   ring points
+         * @param exterior true if an exterior ring
+         * @return true if added
+         */
+        private boolean addRing(VectorTileEncoder encoder, List<Point> points,
+                                boolean exterior) {
+
+            boolean added = false;
+
+            if (points.size() >= 3) {
+                List<Point> clipped = clipper.clipRing(points);
+                int count = quantize(clipped, true);
+                if (count >= 3) {
+                    // Simplify the open ring closed by its first point
+                    xs[count] = xs[0];
+                    ys[count] = ys[0];
+                    count = simplify(count + 1) - 1;
+                }
+                if (count >= 3) {
+                    long area = 0;
+                    for (int i = 0; i < count; i++) {
+                        int next = (i + 1) % count;
+                        area += (long) xs[i] * ys[next] - (long) xs[next] * ys[i];
+                    }
+                    if (area != 0) {
+                        if ((area > 0) != exterior) {
+                            reverse(count);
+                        }
+                        encoder.addRing(xs, ys, count);
+                        added = true;
+                    }
+                }
+            }
+
+            return added;
+        }
+
+        /**
+         * Quantize the points to tile coordinates, removing repeated
+         * coordinates
+         *
+         * @param points points
+         * @param ring   true to also remove a closing coordinate repeating the
+         *               first
+         * @return number of coordinates
+         */
+        private int quantize(List<Point> points, boolean ring) {
+
+            int size = points.size();
+            if (size + 1 > xs.length) {
+                int length = Math.max(size + 1, xs.length * 2);
+                xs = new int[length];
+                ys = new int[length];
+                keep = new boolean[length];
+            }
+
+            if (!transform.isSameProjection()) {
+                points = transform.transform(points);
+            }
+
+            int count = 0;
+            Iterator<Point> iterator = points.iterator();
+            while (iterator.hasNext()) {
+                Point point = iterator.next();
+                int x = (int) Math.round((point.getX() - minX) * xScale);
+                int y = (int) Math.round((maxY - point.getY()) * yScale);
+                if (count == 0 || x != xs[count - 1] || y != ys[count - 1]) {
+                    xs[count] = x;
+                    ys[count] = y;
+                    count++;
+                }
+            }
+
+            if (ring && count > 1 && xs[0] == xs[count - 1]
+                    && ys[0] == ys[count - 1]) {
+                count--;
+            }
+
+            return count;
+        }
+
+        /**
+         * Reverse the order of the coordinates
+         *
+         * @param count number of coordinates
+         */
+        private void reverse(int count) {
+            for (int i = 0, j = count - 1; i < j; i++, j--) {
+                int x = xs[i];
+                xs[i] = xs[j];
+                xs[j] = x;
+                int y = ys[i];
+                ys[i] = ys[j];
+                ys[j] = y;
+            }
+        }
+
+    }
+
+    /**
+     * Simplify the tile coordinates in place with Douglas-Peucker when
+     * enabled, compacting the kept coordinates
+     *
+     * @param count number of coordinates
+     * @return number of kept coordinates
+     */
+    private int simplify(int count) {
+
+        if (!simplify || count <= 2) {
+            return count;
+        }
+
+        for (int i = 1; i < count - 1; i++) {
+            keep[i] = false;
+        }
+        keep[0] = true;
+        keep[count - 1] = true;
+
+        int size = push(0, 0, count - 1);
+        while (size > 0) {
+
+            int end = stack[--size];
+            int start = stack[--size];
+
+            double maxDistance = 0;
+            int index = -1;
+            for (int i = start + 1; i < end; i++) {
+                double distance = distance(i, start, end);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    index = i;
+                }
+            }
+
+            if (index >= 0 && maxDistance > simplifyTolerance) {
+                keep[index] = true;
+                size = push(size, start, index);
+                size = push(size, index, end);
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                xs[kept] = xs[i];
+                ys[kept] = ys[i];
+                kept++;
+            }
+        }
+
+        return kept;
+    }
+
+    /**
+     * Push a segment onto the simplification stack
+     *
+     * @param size  stack size
+     * @param start segment start index
+     * @param end   segment end index
+     * @return new stack size
+     */
+    private int push(int size, int start, int end) {
+        if (end - start > 1) {
+            if (size + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[size++] = start;
+            stack[size++] = end;
+        }
+        return size;
+    }
+
+    /**
+     * Distance from the coordinate to the segment
+     *
+     * @param index coordinate index
+     * @param start segment start index
+     * @param end   segment end index
+     * @return distance
+     */
+    private double distance(int index, int start, int end) {
+
+        double x = xs[index];
+        double y = ys[index];
+        double startX = xs[start];
+        double startY = ys[start];
+        double vX = xs[end] - startX;
+        double vY = ys[end] - startY;
+        double wX = x - startX;
+        double wY = y - startY;
+
+        double c1 = wX * vX + wY * vY;
+        double c2 = vX * vX + vY * vY;
+
+        double dX;
+        double dY;
+        if (c1 <= 0 || c2 == 0) {
+            dX = wX;
+            dY = wY;
+        } else if (c2 <= c1) {
+            dX = x - xs[end];
+            dY = y - ys[end];
+        } else {
+            double b = c1 / c2;
+            dX = wX - b * vX;
+            dY = wY - b * vY;
+        }
+
+        return Math.sqrt(dX * dX + dY * dY);
+    }
+
+}
@@ -0,0 +1,332 @@
+package mil.nga.geopackage.tiles.features;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.sf.Point;
+
+/**
+ * Geometry Clipper, clips line strings and polygon rings to a rectangle in
+ * the feature projection before they are projected and drawn. Line strings
+ * are split into the parts within the rectangle. Rings are clipped with
+ * Sutherland-Hodgman, which may add edges along the rectangle sides, so the
+ * rectangle is buffered beyond the drawn area to keep those edges from being
+ * drawn. Points within the rectangle are kept as is and point lists entirely
+ * within it are returned unchanged.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+class GeometryClipper {
+
+    /**
+     * Left rectangle side
+     */
+    private static final int LEFT = 0;
+
+    /**
+     * Right rectangle side
+     */
+    private static final int RIGHT = 1;
+
+    /**
+     * Bottom rectangle side
+     */
+    private static final int BOTTOM = 2;
+
+    /**
+     * Top rectangle side
+     */
+    private static final int TOP = 3;
+
+    /**
+     * Min x
+     */
+    private final double minX;
+
+    /**
+     * Min y
+     */
+    private final double minY;
+
+    /**
+     * Max x
+     */
+    private final double maxX;
+
+    /**
+     * Max y
+     */
+    private final double maxY;
+
+    /**
+     * Constructor
+     *
+     * @param boundingBox clip bounding box in the feature projection
+     * @param buffer      buffer added to each side as a fraction of the
+     *                    bounding box width and height
+     */
+    GeometryClipper(BoundingBox boundingBox, double buffer) {
+        double width = boundingBox.getMaxLongitude()
+                - boundingBox.getMinLongitude();
+        double height = boundingBox.getMaxLatitude()
+                - boundingBox.getMinLatitude();
+        minX = boundingBox.getMinLongitude() - width * buffer;
+        minY = boundingBox.getMinLatitude() - height * buffer;
+        maxX = boundingBox.getMaxLongitude() + width * buffer;
+        maxY = boundingBox.getMaxLatitude() + height * buffer;
+    }
+
+    /**
+     * Clip the line string points to the parts within the rectangle
+     *
+     * @param points line string points
+     * @return line string parts, each with at least two points
+     */
+    List<List<Point>> clipLine(List<Point> points) {
+
+        if (contains(points)) {
+            return Collections.singletonList(points);
+        }
+
+        List<List<Point>> parts = new ArrayList<>();
+        List<Point> part = null;
+
+        for (int i = 1; i < points.size(); i++) {
+
+            Point start = points.get(i - 1);
+            Point end = points.get(i);
+
+            double x0 = start.getX();
+            double y0 = start.getY();
+            double dx = end.getX() - x0;
+            double dy = end.getY() - y0;
+
+            // Liang-Barsky segment clip
+            double[] t = {0.0, 1.0};
+            if (!clip(-dx, x0 - minX, t) || !clip(dx, maxX - x0, t)
+                    || !clip(-dy, y0 - minY, t) || !clip(dy, maxY - y0, t)) {
+                part = endPart(parts, part);
+                continue;
+            }
+
+            if (part == null) {
+                part = new ArrayList<>();
+                part.add(t[0] > 0.0 ? interpolate(x0, y0, dx, dy, t[0]) : start);
+            }
+
+            if (t[1] < 1.0) {
+                part.add(interpolate(x0, y0, dx, dy, t[1]));
+                part = endPart(parts, part);
+            } else {
+                part.add(end);
+            }
+        }
+        endPart(parts, part);
+
+        return parts;
+    }
+
+    /**
+     * Clip the ring points to the rectangle
+     *
+     * @param points ring points
+     * @return clipped ring points, empty if the ring is outside the rectangle
+     */
+    List<Point> clipRing(List<Point> points) {
+
+        if (contains(points)) {
+            return points;
+        }
+
+        List<Point> clipped = points;
+        for (int side = LEFT; side <= TOP && clipped.size() >= 3; side++) {
+            clipped = clipRing(clipped, side);
+        }
+
+        if (clipped.size() < 3) {
+            clipped = Collections.emptyList();
+        }
+
+        return clipped;
+    }
+
+    /**
+     * Determine if all points are within the rectangle
+     *
+     * @param points points
+     * @return true if contained
+     */
+    private boolean contains(List<Point> points) {
+        for (Point point : points) {
+            if (!inside(point.getX(), point.getY())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determine if the coordinate is within the rectangle
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true if inside
+     */
+    private boolean inside(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * Clip the ring to the inside of a single rectangle side
+     *
+     * @param points ring points
+     * @param side   rectangle side
+     * @return clipped ring points
+     */
+    private List<Point> clipRing(List<Point> points, int side) {
+
+        List<Point> clipped = new ArrayList<>(points.size());
+
+        Point previous = points.get(points.size() - 1);
+        boolean previousInside = inside(previous, side);
+
+        for (Point point : points) {
+            boolean pointInside = inside(point, side);
+            if (pointInside) {
+                if (!previousInside) {
+                    clipped.add(intersection(previous, point, side));
+                }
+                clipped.add(point);
+            } else if (previousInside) {
+                clipped.add(intersection(previous, point, side));
+            }
+            previous = point;
+            previousInside = pointInside;
+        }
+
+        return clipped;
+    }
+
+    /**
+     * Determine if the point is on the inside of the rectangle side
+     *
+     * @param point point
+     * @param side  rectangle side
+     * @return true if inside
+     */
+    private boolean inside(Point point, int side) {
+        boolean inside;
+        switch (side) {
+            case LEFT:
+                inside = point.getX() >= minX;
+                break;
+            case RIGHT:
+                inside = point.getX() <= maxX;
+                break;
+            case BOTTOM:
+                inside = point.getY() >= minY;
+                break;
+            default:
+                inside = point.getY() <= maxY;
+        }
+        return inside;
+    }
+
+    /**
+     * Get the intersection of the segment with the rectangle side line
+     *
+     * @param start segment start
+     * @param end   segment end
+     * @param side  rectangle side
+     * @return intersection point
+     */
+    private Point intersection(Point start, Point end, int side) {
+
+        double x0 = start.getX();
+        double y0 = start.getY();
+        double dx = end.getX() - x0;
+        double dy = end.getY() - y0;
+
+        Point point;
+        switch (side) {
+            case LEFT:
+                point = new Point(minX, y0 + dy * (minX - x0) / dx);
+                break;
+            case RIGHT:
+                point = new Point(maxX, y0 + dy * (maxX - x0) / dx);
+                break;
+            case BOTTOM:
+                point = new Point(x0 + dx * (minY - y0) / dy, minY);
+                break;
+            default:
+                point = new Point(x0 + dx * (maxY - y0) / dy, maxY);
+        }
+        return point;
+    }
+
+    /**
+     * Liang-Barsky clip test of a segment against one rectangle side,
+     * narrowing the entering and exiting segment parameters
+     *
+     * @param p negated segment direction toward the side
+     * @param q distance to the side
+     * @param t entering and exiting parameters
+     * @return false if the segment is outside the side
+     */
+    private static boolean clip(double p, double q, double[] t) {
+        if (p == 0.0) {
+            return q >= 0.0;
+        }
+        double r = q / p;
+        if (p < 0.0) {
+            if (r > t[1]) {
+                return false;
+            }
+            if (r > t[0]) {
+                t[0] = r;
+            }
+        } else {
+            if (r < t[0]) {
+                return false;
+            }
+            if (r < t[1]) {
+                t[1] = r;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Interpolate a point along a segment
+     *
+     * @param x0 segment start x
+     * @param y0 segment start y
+     * @param dx segment x delta
+     * @param dy segment y delta
+     * @param t  segment parameter
+     * @return point
+     */
+    private static Point interpolate(double x0, double y0, double dx,
+                                     double dy, double t) {
+        return new Point(x0 + dx * t, y0 + dy * t);
+    }
+
+    /**
+     * End the line part, keeping it if it has at least two points
+     *
+     * @param parts line parts
+     * @param part  current part or null
+     * @return null
+     */
+    private static List<Point> endPart(List<List<Point>> parts,
+                                       List<Point> part) {
+        if (part != null && part.size() >= 2) {
+            parts.add(part);
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,436 @@
+package mil.nga.geopackage.tiles.features;
+
+import android.graphics.Path;
+
+import java.util.List;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.proj.Projection;
+import mil.nga.proj.ProjectionConstants;
+import mil.nga.sf.Point;
+import mil.nga.sf.proj.GeometryTransform;
+
+/**
+ * Tile Path Builder, adds feature projection points to Android paths in the
+ * pixels of a single tile. Vertices are read into reusable coordinate buffers,
+ * transformed to web mercator in bulk, optionally simplified in place, and
+ * converted to pixels with one affine transform per tile. Web mercator and
+ * WGS84 coordinates are transformed without creating points. The line and
+ * polygon paths are reused for each drawn geometry of the tile.
+ * <p>
+ * A builder is used by a single drawing thread for one tile.
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+class TilePathBuilder {
+
+    /**
+     * Projection to web mercator transform
+     */
+    private final GeometryTransform transform;
+
+    /**
+     * True if the points are web mercator
+     */
+    private final boolean webMercator;
+
+    /**
+     * True if the points are WGS84
+     */
+    private final boolean wgs84;
+
+    /**
+     * Simplify tolerance in web mercator meters
+     */
+    private final double simplifyTolerance;
+
+    /**
+     * True to simplify the points
+     */
+    private final boolean simplify;
+
+    /**
+     * True if the added points are pre-generalized and not simplified
+     */
+    private boolean generalized = false;
+
+    /**
+     * Tile min web mercator x
+     */
+    private final double minX;
+
+    /**
+     * Tile max web mercator y
+     */
+    private final double maxY;
+
+    /**
+     * Pixels per web mercator meter in x
+     */
+    private final double xScale;
+
+    /**
+     * Pixels per web mercator meter in y
+     */
+    private final double yScale;
+
+    /**
+     * Web mercator x coordinates
+     */
+    private double[] xs = new double[256];
+
+    /**
+     * Web mercator y coordinates
+     */
+    private double[] ys = new double[256];
+
+    /**
+     * Simplification kept vertices
+     */
+    private boolean[] keep = new boolean[256];
+
+    /**
+     * Simplification segment stack of start and end indices
+     */
+    private int[] stack = new int[64];
+
+    /**
+     * Single point pixel
+     */
+    private final float[] pixel = new float[2];
+
+    /**
+     * Reusable line path
+     */
+    private final Path linePath = new Path();
+
+    /**
+     * Reusable polygon path
+     */
+    private final Path polygonPath = new Path();
+
+    /**
+     * Constructor
+     *
+     * @param projection        points projection
+     * @param transform         projection to web mercator transform
+     * @param boundingBox       tile web mercator bounding box
+     * @param tileWidth         tile width
+     * @param tileHeight        tile height
+     * @param simplifyTolerance simplify tolerance in web mercator meters
+     * @param simplify          true to simplify the points
+     */
+    TilePathBuilder(Projection projection, GeometryTransform transform,
+                    BoundingBox boundingBox, int tileWidth, int tileHeight,
+                    double simplifyTolerance, boolean simplify) {
+        this.transform = transform;
+        webMercator = transform.isSameProjection()
+                || isEpsg(projection, ProjectionConstants.EPSG_WEB_MERCATOR);
+        wgs84 = !webMercator && isEpsg(projection,
+                ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+        this.simplifyTolerance = simplifyTolerance;
+        this.simplify = simplify;
+        minX = boundingBox.getMinLongitude();
+        maxY = boundingBox.getMaxLatitude();
+        xScale = tileWidth / (boundingBox.getMaxLongitude() - minX);
+        yScale = tileHeight / (maxY - boundingBox.getMinLatitude());
+    }
+
+    /**
+     * Get the simplify tolerance
+     *
+     * @return simplify tolerance in web mercator meters
+     */
+    double getSimplifyTolerance() {
+        return simplifyTolerance;
+    }
+
+    /**
+     * Set whether the added points are pre-generalized for the zoom level,
+     * skipping simplification
+     *
+     * @param generalized true if generalized
+     */
+    void setGeneralized(boolean generalized) {
+        this.generalized = generalized;
+    }
+
+    /**
+     * Get the reusable line path, emptied
+     *
+     * @return line path
+     */
+    Path getLinePath() {
+        linePath.rewind();
+        return linePath;
+    }
+
+    /**
+     * Get the reusable polygon path, emptied
+     *
+     * @return polygon path
+     */
+    Path getPolygonPath() {
+        polygonPath.rewind();
+        return polygonPath;
+    }
+
+    /**
+     * Add the line points to the path
+     *
+     * @param path   path
+     * @param points points
+     */
+    void addLine(Path path, List<Point> points) {
+        int count = read(points);
+        addPath(path, count);
+    }
+
+    /**
+     * Add the ring points to the path as a closed contour
+     *
+     * @param path   path
+     * @param points points
+     */
+    void addRing(Path path, List<Point> points) {
+        int count = read(points);
+        if (addPath(path, count)) {
+            path.close();
+        }
+    }
+
+    /**
+     * Get the tile pixel of the point
+     *
+     * @param point point
+     * @return reused x and y pixel array
+     */
+    float[] getPixel(Point point) {
+        double x = point.getX();
+        double y = point.getY();
+        if (!webMercator) {
+            if (wgs84) {
+                x = longitudeToMeters(x);
+                y = latitudeToMeters(y);
+            } else {
+                Point webMercatorPoint = transform.transform(point);
+                x = webMercatorPoint.getX();
+                y = webMercatorPoint.getY();
+            }
+        }
+        pixel[0] = (float) ((x - minX) * xScale);
+        pixel[1] = (float) ((maxY - y) * yScale);
+        return pixel;
+    }
+
+    /**
+     * Read the points into the web mercator coordinate buffers
+     *
+     * @param points points
+     * @return number of coordinates
+     */
+    private int read(List<Point> points) {
+
+        int count = points.size();
+        if (count > xs.length) {
+            int length = Math.max(count, xs.length * 2);
+            xs = new double[length];
+            ys = new double[length];
+            keep = new boolean[length];
+        }
+
+        int i = 0;
+        if (wgs84) {
+            for (Point point : points) {
+                xs[i] = longitudeToMeters(point.getX());
+                ys[i] = latitudeToMeters(point.getY());
+                i++;
+            }
+        } else {
+            if (!webMercator) {
+                points = transform.transform(points);
+            }
+            for (Point point : points) {
+                xs[i] = point.getX();
+                ys[i] = point.getY();
+                i++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Add the buffered coordinates to the path as pixels, simplifying first
+     * when enabled
+     *
+     * @param path  path
+     * @param count number of coordinates
+     * @return true if added
+     */
+    private boolean addPath(Path path, int count) {
+
+        if (count == 0) {
+            return false;
+        }
+
+        boolean simplify = this.simplify && !generalized && count > 2;
+        if (simplify) {
+            simplify(count);
+        }
+
+        boolean first = true;
+        for (int i = 0; i < count; i++) {
+            if (simplify && !keep[i]) {
+                continue;
+            }
+            float x = (float) ((xs[i] - minX) * xScale);
+            float y = (float) ((maxY - ys[i]) * yScale);
+            if (first) {
+                path.moveTo(x, y);
+                first = false;
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Simplify the buffered coordinates with Douglas-Peucker, marking the
+     * kept vertices
+     *
+     * @param count number of coordinates
+     */
+    private void simplify(int count) {
+
+        for (int i = 1; i < count - 1; i++) {
+            keep[i] = false;
+        }
+        keep[0] = true;
+        keep[count - 1] = true;
+
+        int size = 0;
+        size = push(size, 0, count - 1);
+        while (size > 0) {
+
+            int end = stack[--size];
+            int start = stack[--size];
+
+            double maxDistance = 0;
+            int index = -1;
+            for (int i = start + 1; i < end; i++) {
+                double distance = distance(i, start, end);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    index = i;
+                }
+            }
+
+            if (index >= 0 && maxDistance > simplifyTolerance) {
+                keep[index] = true;
+                size = push(size, start, index);
+                size = push(size, index, end);
+            }
+        }
+    }
+
+    /**
+     * Push a segment onto the simplification stack
+     *
+     * @param size  stack size
+     * @param start segment start index
+     * @param end   segment end index
+     * @return new stack size
+     */
+    private int push(int size, int start, int end) {
+        if (end - start > 1) {
+            if (size + 2 > stack.length) {
+                int[] larger = new int[stack.length * 2];
+                System.arraycopy(stack, 0, larger, 0, size);
+                stack = larger;
+            }
+            stack[size++] = start;
+            stack[size++] = end;
+        }
+        return size;
+    }
+
+    /**
+     * Distance from the coordinate to the segment
+     *
+     * @param index coordinate index
+     * @param start segment start index
+     * @param end   segment end index
+     * @return distance
+     */
+    private double distance(int index, int start, int end) {
+
+        double x = xs[index];
+        double y = ys[index];
+        double startX = xs[start];
+        double startY = ys[start];
+        double vX = xs[end] - startX;
+        double vY = ys[end] - startY;
+        double wX = x - startX;
+        double wY = y - startY;
+
+        double c1 = wX * vX + wY * vY;
+        double c2 = vX * vX + vY * vY;
+
+        double dX;
+        double dY;
+        if (c1 <= 0 || c2 == 0) {
+            dX = wX;
+            dY = wY;
+        } else if (c2 <= c1) {
+            dX = x - xs[end];
+            dY = y - ys[end];
+        } else {
+            double b = c1 / c2;
+            dX = wX - b * vX;
+            dY = wY - b * vY;
+        }
+
+        return Math.sqrt(dX * dX + dY * dY);
+    }
+
+    /**
+     * Convert a WGS84 longitude to web mercator meters
+     *
+     * @param longitude longitude
+     * @return web mercator x
+     */
+    private static double longitudeToMeters(double longitude) {
+        return longitude * ProjectionConstants.WEB_MERCATOR_HALF_WORLD_WIDTH
+                / 180.0;
+    }
+
+    /**
+     * Convert a WGS84 latitude to web mercator meters
+     *
+     * @param latitude latitude
+     * @return web mercator y
+     */
+    private static double latitudeToMeters(double latitude) {
+        return Math.log(Math.tan((90.0 + latitude) * Math.PI / 360.0))
+                / (Math.PI / ProjectionConstants.WEB_MERCATOR_HALF_WORLD_WIDTH);
+    }
+
+    /**
+     * Determine if the projection is the EPSG code
+     *
+     * @param projection projection
+     * @param code       EPSG code
+     * @return true if the EPSG code
+     */
+    private static boolean isEpsg(Projection projection, long code) {
+        return projection != null
+                && ProjectionConstants.AUTHORITY_EPSG
+                .equalsIgnoreCase(projection.getAuthority())
+                && String.valueOf(code).equals(projection.getCode());
+    }
+
+}
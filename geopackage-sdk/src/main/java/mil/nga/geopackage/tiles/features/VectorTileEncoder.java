@@ -0,0 +1,490 @@
+package mil.nga.geopackage.tiles.features;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Vector Tile Encoder, writes a single layer Mapbox Vector Tile as protocol
+ * buffer bytes. Geometries are added as quantized tile coordinates and
+ * encoded as zigzag delta commands, followed by a feature with its attribute
+ * keys and values, which are shared across the layer features.
+ * <p>
+ * <a href="https://github.com/mapbox/vector-tile-spec/tree/master/2.1">https://github.com/mapbox/vector-tile-spec/tree/master/2.1</a>
+ *
+ * @author osbornb
+ * @since 6.7.5
+ */
+class VectorTileEncoder {
+
+    /**
+     * Point geometry type
+     */
+    static final int GEOM_POINT = 1;
+
+    /**
+     * Line string geometry type
+     */
+    static final int GEOM_LINESTRING = 2;
+
+    /**
+     * Polygon geometry type
+     */
+    static final int GEOM_POLYGON = 3;
+
+    /**
+     * Move to command
+     */
+    private static final int COMMAND_MOVE_TO = 1;
+
+    /**
+     * Line to command
+     */
+    private static final int COMMAND_LINE_TO = 2;
+
+    /**
+     * Close path command
+     */
+    private static final int COMMAND_CLOSE_PATH = 7;
+
+    /**
+     * Varint wire type
+     */
+    private static final int WIRE_VARINT = 0;
+
+    /**
+     * 64 bit wire type
+     */
+    private static final int WIRE_FIXED64 = 1;
+
+    /**
+     * Length delimited wire type
+     */
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+
+    /**
+     * 32 bit wire type
+     */
+    private static final int WIRE_FIXED32 = 5;
+
+    /**
+     * UTF-8 charset
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Layer name
+     */
+    private final String name;
+
+    /**
+     * Tile extent
+     */
+    private final int extent;
+
+    /**
+     * Layer keys and their indices
+     */
+    private final Map<String, Integer> keys = new LinkedHashMap<>();
+
+    /**
+     * Layer values and their indices
+     */
+    private final Map<Object, Integer> values = new LinkedHashMap<>();
+
+    /**
+     * Encoded layer features
+     */
+    private final ByteArrayOutputStream features = new ByteArrayOutputStream();
+
+    /**
+     * Reused feature message buffer
+     */
+    private final ByteArrayOutputStream feature = new ByteArrayOutputStream();
+
+    /**
+     * Reused packed field buffer
+     */
+    private final ByteArrayOutputStream packed = new ByteArrayOutputStream();
+
+    /**
+     * Number of encoded features
+     */
+    private int featureCount = 0;
+
+    /**
+     * Current geometry commands
+     */
+    private int[] commands = new int[256];
+
+    /**
+     * Current geometry command count
+     */
+    private int commandCount = 0;
+
+    /**
+     * Current geometry cursor x
+     */
+    private int cursorX = 0;
+
+    /**
+     * Current geometry cursor y
+     */
+    private int cursorY = 0;
+
+    /**
+     * Constructor
+     *
+     * @param name   layer name
+     * @param extent tile extent
+     */
+    VectorTileEncoder(String name, int extent) {
+        this.name = name;
+        this.extent = extent;
+    }
+
+    /**
+     * Get the number of encoded features
+     *
+     * @return feature count
+     */
+    int getFeatureCount() {
+        return featureCount;
+    }
+
+    /**
+     * Add points to the current point geometry
+     *
+     * @param xs    tile x coordinates
+     * @param ys    tile y coordinates
+     * @param count number of points
+     */
+    void addPoints(int[] xs, int[] ys, int count) {
+        if (count > 0) {
+            command(COMMAND_MOVE_TO, count);
+            for (int i = 0; i < count; i++) {
+                moveCursor(xs[i], ys[i]);
+            }
+        }
+    }
+
+    /**
+     * Add a line to the current line string geometry
+     *
+     * @param xs    tile x coordinates
+     * @param ys    tile y coordinates
+     * @param count number of points, at least two
+     */
+    void addLine(int[] xs, int[] ys, int count) {
+        command(COMMAND_MOVE_TO, 1);
+        moveCursor(xs[0], ys[0]);
+        command(COMMAND_LINE_TO, count - 1);
+        for (int i = 1; i < count; i++) {
+            moveCursor(xs[i], ys[i]);
+        }
+    }
+
+    /**
+     * Add a ring to the current polygon geometry, without a repeated closing
+     * point and with the winding order of an exterior or interior ring
+     *
+     * @param xs    tile x coordinates
+     * @param ys    tile y coordinates
+     * @param count number of points, at least three
+     */
+    void addRing(int[] xs, int[] ys, int count) {
+        addLine(xs, ys, count);
+        command(COMMAND_CLOSE_PATH, 1);
+    }
+
+    /**
+     * Determine if the current geometry has commands
+     *
+     * @return true if has geometry
+     */
+    boolean hasGeometry() {
+        return commandCount > 0;
+    }
+
+    /**
+     * Discard the current geometry
+     */
+    void clearGeometry() {
+        commandCount = 0;
+        cursorX = 0;
+        cursorY = 0;
+    }
+
+    /**
+     * Add a feature with the current geometry, clearing the geometry
+     *
+     * @param id         feature id, or null
+     * @param type       geometry type
+     * @param attributes feature attributes
+     * @return true if added, false if the geometry was empty
+     */
+    boolean addFeature(Long id, int type, Map<String, Object> attributes) {
+
+        if (commandCount == 0) {
+            return false;
+        }
+
+        feature.reset();
+
+        if (id != null && id >= 0) {
+            writeTag(feature, 1, WIRE_VARINT);
+            writeVarint(feature, id);
+        }
+
+        if (!attributes.isEmpty()) {
+            packed.reset();
+            for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                writeVarint(packed, keyIndex(attribute.getKey()));
+                writeVarint(packed, valueIndex(attribute.getValue()));
+            }
+            writeBytes(feature, 2, packed);
+        }
+
+        writeTag(feature, 3, WIRE_VARINT);
+        writeVarint(feature, type);
+
+        packed.reset();
+        for (int i = 0; i < commandCount; i++) {
+            writeVarint(packed, commands[i] & 0xFFFFFFFFL);
+        }
+        writeBytes(feature, 4, packed);
+
+        writeBytes(features, 2, feature);
+        featureCount++;
+
+        clearGeometry();
+
+        return true;
+    }
+
+    /**
+     * Encode the tile
+     *
+     * @return tile bytes, or null if no features were added
+     */
+    byte[] encode() {
+
+        byte[] bytes = null;
+
+        if (featureCount > 0) {
+
+            ByteArrayOutputStream layer = new ByteArrayOutputStream(
+                    features.size() + 256);
+
+            writeTag(layer, 15, WIRE_VARINT);
+            writeVarint(layer, 2);
+
+            writeString(layer, 1, name);
+
+            features.writeTo(layer);
+
+            for (String key : keys.keySet()) {
+                writeString(layer, 3, key);
+            }
+
+            ByteArrayOutputStream value = new ByteArrayOutputStream();
+            for (Object layerValue : values.keySet()) {
+                value.reset();
+                writeValue(value, layerValue);
+                writeBytes(layer, 4, value);
+            }
+
+            writeTag(layer, 5, WIRE_VARINT);
+            writeVarint(layer, extent);
+
+            ByteArrayOutputStream tile = new ByteArrayOutputStream(
+                    layer.size() + 8);
+            writeBytes(tile, 3, layer);
+            bytes = tile.toByteArray();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Add a geometry command integer
+     *
+     * @param id    command id
+     * @param count command count
+     */
+    private void command(int id, int count) {
+        add((id & 0x7) | (count << 3));
+    }
+
+    /**
+     * Add the zigzag delta parameters moving the cursor to the coordinate
+     *
+     * @param x tile x
+     * @param y tile y
+     */
+    private void moveCursor(int x, int y) {
+        add(zigzag(x - cursorX));
+        add(zigzag(y - cursorY));
+        cursorX = x;
+        cursorY = y;
+    }
+
+    /**
+     * Add a geometry integer
+     *
+     * @param value command or parameter integer
+     */
+    private void add(int value) {
+        if (commandCount == commands.length) {
+            commands = Arrays.copyOf(commands, commandCount * 2);
+        }
+        commands[commandCount++] = value;
+    }
+
+    /**
+     * Get the layer index of the key, adding it when new
+     *
+     * @param key key
+     * @return key index
+     */
+    private int keyIndex(String key) {
+        Integer index = keys.get(key);
+        if (index == null) {
+            index = keys.size();
+            keys.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Get the layer index of the value, adding it when new
+     *
+     * @param value value
+     * @return value index
+     */
+    private int valueIndex(Object value) {
+        Integer index = values.get(value);
+        if (index == null) {
+            index = values.size();
+            values.put(value, index);
+        }
+        return index;
+    }
+
+    /**
+     * Write a layer value message
+     *
+     * @param out   output
+     * @param value string, double, float, long, or boolean value
+     */
+    private static void writeValue(ByteArrayOutputStream out, Object value) {
+        if (value instanceof Double) {
+            writeTag(out, 3, WIRE_FIXED64);
+            writeFixed64(out, Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Float) {
+            writeTag(out, 2, WIRE_FIXED32);
+            writeFixed32(out, Float.floatToIntBits((Float) value));
+        } else if (value instanceof Long) {
+            long longValue = (Long) value;
+            writeTag(out, 6, WIRE_VARINT);
+            writeVarint(out, (longValue << 1) ^ (longValue >> 63));
+        } else if (value instanceof Boolean) {
+            writeTag(out, 7, WIRE_VARINT);
+            writeVarint(out, (Boolean) value ? 1 : 0);
+        } else {
+            writeString(out, 1, value.toString());
+        }
+    }
+
+    /**
+     * Zigzag encode a signed integer
+     *
+     * @param value value
+     * @return zigzag value
+     */
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Write a field tag
+     *
+     * @param out      output
+     * @param field    field number
+     * @param wireType wire type
+     */
+    private static void writeTag(ByteArrayOutputStream out, int field,
+                                 int wireType) {
+        writeVarint(out, (field << 3) | wireType);
+    }
+
+    /**
+     * Write an unsigned varint
+     *
+     * @param out   output
+     * @param value value
+     */
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Write a little endian 32 bit value
+     *
+     * @param out   output
+     * @param value value
+     */
+    private static void writeFixed32(ByteArrayOutputStream out, int value) {
+        for (int i = 0; i < 4; i++) {
+            out.write((value >>> (i * 8)) & 0xFF);
+        }
+    }
+
+    /**
+     * Write a little endian 64 bit value
+     *
+     * @param out   output
+     * @param value value
+     */
+    private static void writeFixed64(ByteArrayOutputStream out, long value) {
+        for (int i = 0; i < 8; i++) {
+            out.write((int) ((value >>> (i * 8)) & 0xFF));
+        }
+    }
+
+    /**
+     * Write a string field
+     *
+     * @param out   output
+     * @param field field number
+     * @param value string value
+     */
+    private static void writeString(ByteArrayOutputStream out, int field,
+                                    String value) {
+        byte[] bytes = value.getBytes(UTF8);
+        writeTag(out, field, WIRE_LENGTH_DELIMITED);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Write a length delimited field of buffered bytes
+     *
+     * @param out   output
+     * @param field field number
+     * @param bytes buffered bytes
+     */
+    private static void writeBytes(ByteArrayOutputStream out, int field,
+                                   ByteArrayOutputStream bytes) {
+        writeTag(out, field, WIRE_LENGTH_DELIMITED);
+        writeVarint(out, bytes.size());
+        out.write(bytes.toByteArray(), 0, bytes.size());
+    }
+
+}
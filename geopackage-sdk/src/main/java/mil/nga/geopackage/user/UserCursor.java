@@ -326,6 +326,29 @@ public abstract class UserCursor<TColumn extends UserColumn, TTable extends User
         return row;
     }
 
+    /**
+     * Determine if the current row values can be read directly from the
+     * cursor without building the row. Rows that are invalid due to large
+     * sized blobs, rows with null blob values which may be large sized blobs
+     * read as null, and requeried invalid rows must be read using
+     * {@link #getRow()}.
+     *
+     * @return true if the current row values are directly readable
+     * @since 6.7.5
+     */
+    public boolean isDirectRead() {
+        boolean direct = invalidCursor == null;
+        for (int index = 0; direct && index < columns.columnCount(); index++) {
+            TColumn column = columns.getColumn(index);
+            if ((column.isPrimaryKey()
+                    || column.getDataType() == GeoPackageDataType.BLOB)
+                    && getType(index) == FIELD_TYPE_NULL) {
+                direct = false;
+            }
+        }
+        return direct;
+    }
+
     /**
      * Get the current row
      *
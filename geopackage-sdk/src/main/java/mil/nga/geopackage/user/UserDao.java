@@ -2,9 +2,16 @@ package mil.nga.geopackage.user;
 
 import android.content.ContentValues;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import mil.nga.geopackage.db.AlterTable;
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.GeoPackageConnection;
 import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.db.GeoPackageSQLiteStatement;
 import mil.nga.geopackage.db.TableMapping;
 
 /**
@@ -19,6 +26,13 @@ import mil.nga.geopackage.db.TableMapping;
 public abstract class UserDao<TColumn extends UserColumn, TTable extends UserTable<TColumn>, TRow extends UserRow<TColumn, TTable>, TResult extends UserCursor<TColumn, TTable, TRow>>
         extends UserCoreDao<TColumn, TTable, TRow, TResult> {
 
+    /**
+     * Default max number of rows inserted in a single batch insert transaction
+     *
+     * @since 6.7.5
+     */
+    public static final int DEFAULT_INSERT_CHUNK_LIMIT = 1000;
+
     /**
      * Database connection
      */
@@ -224,6 +238,123 @@ public abstract class UserDao<TColumn extends UserColumn, TTable extends UserTab
         return id;
     }
 
+    /**
+     * Insert the rows in chunked transactions of
+     * {@link #DEFAULT_INSERT_CHUNK_LIMIT} rows, binding row values to reused
+     * compiled insert statements
+     *
+     * @param rows rows to insert
+     * @return inserted row count
+     * @since 6.7.5
+     */
+    public int insertBatch(Iterable<TRow> rows) {
+        return insertBatch(rows, DEFAULT_INSERT_CHUNK_LIMIT);
+    }
+
+    /**
+     * Insert the rows in chunked transactions, binding row values to reused
+     * compiled insert statements. Each chunk of rows is committed in a single
+     * transaction. When an insert fails, the current chunk is rolled back and
+     * previously committed chunks remain.
+     *
+     * @param rows       rows to insert
+     * @param chunkLimit max rows inserted in a single transaction
+     * @return inserted row count
+     * @since 6.7.5
+     */
+    public int insertBatch(Iterable<TRow> rows, int chunkLimit) {
+
+        int count = 0;
+
+        Map<List<TColumn>, GeoPackageSQLiteStatement> statements = new HashMap<>();
+        List<TColumn> insertColumns = new ArrayList<>();
+        List<TColumn> statementColumns = null;
+        GeoPackageSQLiteStatement statement = null;
+
+        boolean successful = false;
+        db.beginTransaction();
+        try {
+
+            for (TRow row : rows) {
+
+                row.getInsertColumns(insertColumns);
+                if (statement == null || !insertColumns.equals(statementColumns)) {
+                    statement = statements.get(insertColumns);
+                    if (statement == null) {
+                        statement = db.compileStatement(insertSQL(insertColumns));
+                        statements.put(new ArrayList<>(insertColumns), statement);
+                    }
+                    statementColumns = new ArrayList<>(insertColumns);
+                }
+
+                statement.clearBindings();
+                row.bind(statement, insertColumns);
+                long id = statement.executeInsert();
+                if (row.hasIdColumn()) {
+                    row.setId(id, true);
+                }
+                batchInserted(row, id);
+
+                count++;
+                if (count % chunkLimit == 0) {
+                    db.endAndBeginTransaction();
+                }
+            }
+
+            successful = true;
+        } finally {
+            for (GeoPackageSQLiteStatement compiled : statements.values()) {
+                compiled.close();
+            }
+            db.endTransaction(successful);
+        }
+
+        return count;
+    }
+
+    /**
+     * Invoked after each row insert within {@link #insertBatch(Iterable, int)}
+     *
+     * @param row inserted row
+     * @param id  inserted row id
+     * @since 6.7.5
+     */
+    protected void batchInserted(TRow row, long id) {
+
+    }
+
+    /**
+     * Build the insert SQL for the columns
+     *
+     * @param columns insert columns
+     * @return insert SQL
+     */
+    private String insertSQL(List<TColumn> columns) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("INSERT INTO ");
+        sql.append(CoreSQLUtils.quoteWrap(getTableName()));
+        if (columns.isEmpty()) {
+            sql.append(" DEFAULT VALUES");
+        } else {
+            sql.append(" (");
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(CoreSQLUtils.quoteWrap(columns.get(i).getName()));
+            }
+            sql.append(") VALUES (");
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append("?");
+            }
+            sql.append(")");
+        }
+        return sql.toString();
+    }
+
     /**
      * Inserts a new row
      *
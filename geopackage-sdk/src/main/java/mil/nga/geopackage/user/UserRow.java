@@ -3,9 +3,11 @@ package mil.nga.geopackage.user;
 import android.content.ContentValues;
 
 import java.util.Date;
+import java.util.List;
 
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.db.DateConverter;
+import mil.nga.geopackage.db.GeoPackageSQLiteStatement;
 
 /**
  * User Row containing the values from a single cursor row
@@ -112,33 +114,64 @@ public abstract class UserRow<TColumn extends UserColumn, TTable extends UserTab
                                         TColumn column, Object value) {
 
         String columnName = column.getName();
+        Object databaseValue = columnValue(column, value);
+
+        if (databaseValue instanceof Byte) {
+            contentValues.put(columnName, (Byte) databaseValue);
+        } else if (databaseValue instanceof Short) {
+            contentValues.put(columnName, (Short) databaseValue);
+        } else if (databaseValue instanceof Integer) {
+            contentValues.put(columnName, (Integer) databaseValue);
+        } else if (databaseValue instanceof Long) {
+            contentValues.put(columnName, (Long) databaseValue);
+        } else if (databaseValue instanceof Float) {
+            contentValues.put(columnName, (Float) databaseValue);
+        } else if (databaseValue instanceof Double) {
+            contentValues.put(columnName, (Double) databaseValue);
+        } else if (databaseValue instanceof String) {
+            contentValues.put(columnName, (String) databaseValue);
+        } else {
+            contentValues.put(columnName, (byte[]) databaseValue);
+        }
+    }
+
+    /**
+     * Validate the column value and convert it to the value written to the
+     * database, shared by content values and compiled statement writes
+     *
+     * @param column column
+     * @param value  value
+     * @return database value: a Byte, Short, Integer, Long, Float, Double,
+     * String, or byte[]
+     * @since 6.7.5
+     */
+    protected Object columnValue(TColumn column, Object value) {
+
+        String columnName = column.getName();
+
+        Object databaseValue;
 
         if (value instanceof Number) {
             if (value instanceof Byte) {
                 validateValue(column, value, Byte.class, Short.class,
                         Integer.class, Long.class);
-                contentValues.put(columnName, (Byte) value);
             } else if (value instanceof Short) {
                 validateValue(column, value, Short.class, Integer.class,
                         Long.class);
-                contentValues.put(columnName, (Short) value);
             } else if (value instanceof Integer) {
                 validateValue(column, value, Integer.class, Long.class,
                         Byte.class, Short.class);
-                contentValues.put(columnName, (Integer) value);
             } else if (value instanceof Long) {
                 validateValue(column, value, Long.class, Double.class);
-                contentValues.put(columnName, (Long) value);
             } else if (value instanceof Float) {
                 validateValue(column, value, Float.class);
-                contentValues.put(columnName, (Float) value);
             } else if (value instanceof Double) {
                 validateValue(column, value, Double.class);
-                contentValues.put(columnName, (Double) value);
             } else {
                 throw new GeoPackageException("Unsupported Number type: "
                         + value.getClass().getSimpleName());
             }
+            databaseValue = value;
         } else if (value instanceof String) {
             validateValue(column, value, String.class);
             String stringValue = (String) value;
@@ -149,7 +182,7 @@ public abstract class UserRow<TColumn extends UserColumn, TTable extends UserTab
                                 + stringValue.length() + ", Max: "
                                 + column.getMax() + ", Column: " + columnName);
             }
-            contentValues.put(columnName, stringValue);
+            databaseValue = stringValue;
         } else if (value instanceof byte[]) {
             validateValue(column, value, byte[].class);
             byte[] byteValue = (byte[]) value;
@@ -159,24 +192,101 @@ public abstract class UserRow<TColumn extends UserColumn, TTable extends UserTab
                                 + byteValue.length + ", Max: "
                                 + column.getMax() + ", Column: " + columnName);
             }
-            contentValues.put(columnName, byteValue);
+            databaseValue = byteValue;
         } else if (value instanceof Boolean) {
             validateValue(column, value, Boolean.class);
             Boolean booleanValue = (Boolean) value;
-            short shortBoolean = booleanValue ? (short) 1 : (short) 0;
-            contentValues.put(columnName, shortBoolean);
+            databaseValue = booleanValue ? (short) 1 : (short) 0;
         } else if (value instanceof Date) {
             validateValue(column, value, Date.class, String.class);
             Date dateValue = (Date) value;
             DateConverter converter = DateConverter.converter(column
                     .getDataType());
-            String dateString = converter.stringValue(dateValue);
-            contentValues.put(columnName, dateString);
+            databaseValue = converter.stringValue(dateValue);
         } else {
             throw new GeoPackageException(
-                    "Unsupported update column value. column: " + columnName
+                    "Unsupported column value. column: " + columnName
                             + ", value: " + value);
         }
+
+        return databaseValue;
+    }
+
+    /**
+     * Populate the columns inserted for the row, matching the columns of
+     * {@link #toContentValues(boolean)} without null values
+     *
+     * @param insertColumns insert columns list to clear and populate
+     * @since 6.7.5
+     */
+    public void getInsertColumns(List<TColumn> insertColumns) {
+
+        insertColumns.clear();
+        for (TColumn column : columns.getColumns()) {
+
+            Object value = values[column.getIndex()];
+
+            if (value != null && (!column.isPrimaryKey()
+                    || columns.isPkModifiable())) {
+                insertColumns.add(column);
+            }
+
+        }
+
+        if (insertColumns.isEmpty()) {
+            for (TColumn column : columns.getColumns()) {
+                if (!column.isPrimaryKey()) {
+                    insertColumns.add(column);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Bind the row values of the columns to the compiled statement in column
+     * order, starting at bind index 1
+     *
+     * @param statement compiled statement
+     * @param columns   columns to bind
+     * @since 6.7.5
+     */
+    public void bind(GeoPackageSQLiteStatement statement, List<TColumn> columns) {
+        int index = 1;
+        for (TColumn column : columns) {
+            Object value = values[column.getIndex()];
+            if (value != null) {
+                columnToStatement(statement, index, column, value);
+            } else {
+                statement.bindNull(index);
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Bind the column value to the compiled statement
+     *
+     * @param statement compiled statement
+     * @param index     bind index
+     * @param column    column
+     * @param value     value
+     * @since 6.7.5
+     */
+    protected void columnToStatement(GeoPackageSQLiteStatement statement,
+                                     int index, TColumn column, Object value) {
+
+        Object databaseValue = columnValue(column, value);
+
+        if (databaseValue instanceof Float || databaseValue instanceof Double) {
+            statement.bindDouble(index, ((Number) databaseValue).doubleValue());
+        } else if (databaseValue instanceof Number) {
+            statement.bindLong(index, ((Number) databaseValue).longValue());
+        } else if (databaseValue instanceof String) {
+            statement.bindString(index, (String) databaseValue);
+        } else {
+            statement.bindBlob(index, (byte[]) databaseValue);
+        }
     }
 
     /**